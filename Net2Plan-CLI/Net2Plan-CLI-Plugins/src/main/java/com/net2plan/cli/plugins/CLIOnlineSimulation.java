@@ -15,8 +15,10 @@ package com.net2plan.cli.plugins;
 import static com.net2plan.internal.sim.SimKernel.runSimulation;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -38,8 +40,11 @@ import com.net2plan.internal.IExternal;
 import com.net2plan.internal.SystemUtils;
 import com.net2plan.internal.plugins.ICLIModule;
 import com.net2plan.internal.sim.SimKernel;
+import com.net2plan.internal.sim.SimReplicationRunner;
+import com.net2plan.internal.sim.SimReplicationRunner.IExternalFactory;
 import com.net2plan.utils.ClassLoaderUtils;
 import com.net2plan.utils.HTMLUtils;
+import com.net2plan.utils.Pair;
 import com.net2plan.utils.StringUtils;
 import com.net2plan.utils.Triple;
 
@@ -110,6 +115,21 @@ public class CLIOnlineSimulation extends ICLIModule {
         eventProcessorClassName.setArgName("classname");
         eventProcessorClassName.setRequired(true);
         OPTIONS.addOption(eventProcessorClassName);
+
+        Option replications = new Option(null, "replications", true, "(Optional) Number of independent replications, with consecutive random seeds. If greater than 1, the output file contains the mean and confidence interval of the metrics, and the report of each replication is saved next to it (default 1)");
+        replications.setType(PatternOptionBuilder.NUMBER_VALUE);
+        replications.setArgName("replications");
+        OPTIONS.addOption(replications);
+
+        Option threads = new Option(null, "threads", true, "(Optional) Number of replications running in parallel (default: number of available processors)");
+        threads.setType(PatternOptionBuilder.NUMBER_VALUE);
+        threads.setArgName("threads");
+        OPTIONS.addOption(threads);
+
+        Option confidenceLevel = new Option(null, "confidence-level", true, "(Optional) Confidence level of the intervals among replications, in range (0, 1) (default 0.95)");
+        confidenceLevel.setType(PatternOptionBuilder.NUMBER_VALUE);
+        confidenceLevel.setArgName("level");
+        OPTIONS.addOption(confidenceLevel);
     }
 
     @Override
@@ -120,10 +140,10 @@ public class CLIOnlineSimulation extends ICLIModule {
         Map<String, String> net2planParameters = Configuration.getNet2PlanOptions();
 
 		/* Load event generator and event processor objects */
-        File generatorClassFile = (File) cli.getParsedOptionValue("generator-class-file");
-        String generatorClassName = (String) cli.getParsedOptionValue("generator-class-name");
-        File provisioningClassFile = (File) cli.getParsedOptionValue("processor-class-file");
-        String provisioningClassName = (String) cli.getParsedOptionValue("processor-class-name");
+        final File generatorClassFile = (File) cli.getParsedOptionValue("generator-class-file");
+        final String generatorClassName = (String) cli.getParsedOptionValue("generator-class-name");
+        final File provisioningClassFile = (File) cli.getParsedOptionValue("processor-class-file");
+        final String provisioningClassName = (String) cli.getParsedOptionValue("processor-class-name");
 
 
         File classFileForClassLoader_generator;
@@ -141,13 +161,11 @@ public class CLIOnlineSimulation extends ICLIModule {
         default: throw new Net2PlanException ("'file' is not a valid Java file (.jar or .class)");
         }
         
-        URLClassLoader ucl = null;
+        final URL[] classLoaderURLs;
         try 
         {
-        	ucl = new URLClassLoader(new URL[] { classFileForClassLoader_generator.toURI().toURL() , classFileForClassLoader_processor.toURI().toURL() }, ClassLoader.getSystemClassLoader());
+        	classLoaderURLs = new URL[] { classFileForClassLoader_generator.toURI().toURL() , classFileForClassLoader_processor.toURI().toURL() };
         } catch (Exception e) { throw new Net2PlanException ("Unable to create the URL for class loading. Wrong file name.");  }
-        IExternal aux_eventGenerator = ClassLoaderUtils.getInstance(generatorClassFile, generatorClassName, IEventGenerator.class , ucl);
-        IExternal aux_eventProcessor = ClassLoaderUtils.getInstance(provisioningClassFile, provisioningClassName, IEventProcessor.class , ucl);
 
 		/* Read simulation, event generator and event processor parameters */
         Properties customSimulationParameters = cli.getOptionProperties("sim-param");
@@ -160,8 +178,153 @@ public class CLIOnlineSimulation extends ICLIModule {
 
 		/* Initialize and run simulation */
         NetPlan aux_netPlan = new NetPlan(inputFile);
-        String html = runSimulation(new SimKernel(), aux_netPlan, aux_eventGenerator, customEventGeneratorParameters, aux_eventProcessor, customEventProcessorParameters, customSimulationParameters, net2planParameters).getSecond();
-        HTMLUtils.saveToFile(outputFile, html);
+        int numReplications = cli.hasOption("replications") ? ((Number) cli.getParsedOptionValue("replications")).intValue() : 1;
+        if (numReplications < 1) throw new Net2PlanException("Number of replications must be positive");
+
+        if (numReplications == 1)
+        {
+            try (URLClassLoader ucl = new URLClassLoader(classLoaderURLs, ClassLoader.getSystemClassLoader()))
+            {
+                IExternal aux_eventGenerator = ClassLoaderUtils.getInstance(generatorClassFile, generatorClassName, IEventGenerator.class , ucl);
+                IExternal aux_eventProcessor = ClassLoaderUtils.getInstance(provisioningClassFile, provisioningClassName, IEventProcessor.class , ucl);
+                String html = runSimulation(new SimKernel(), aux_netPlan, aux_eventGenerator, customEventGeneratorParameters, aux_eventProcessor, customEventProcessorParameters, customSimulationParameters, net2planParameters).getSecond();
+                HTMLUtils.saveToFile(outputFile, html);
+            } catch (IOException e) { throw new RuntimeException(e); }
+            return;
+        }
+
+        int numThreads = cli.hasOption("threads") ? ((Number) cli.getParsedOptionValue("threads")).intValue() : Runtime.getRuntime().availableProcessors();
+        double confidenceLevel = cli.hasOption("confidence-level") ? ((Number) cli.getParsedOptionValue("confidence-level")).doubleValue() : 0.95;
+
+		/* Each replication loads the classes in its own class loader, shared by its event generator and processor, so that their static fields are not shared with other replications */
+        final ReplicationClassLoaders classLoaders = new ReplicationClassLoaders(classLoaderURLs);
+        IExternalFactory eventGeneratorFactory = new ReplicationClassLoaderFactory(generatorClassFile, generatorClassName, IEventGenerator.class, classLoaders);
+        IExternalFactory eventProcessorFactory = new ReplicationClassLoaderFactory(provisioningClassFile, provisioningClassName, IEventProcessor.class, classLoaders);
+
+        Pair<List<String>, String> results = SimReplicationRunner.runReplications(aux_netPlan, eventGeneratorFactory, customEventGeneratorParameters, eventProcessorFactory, customEventProcessorParameters, customSimulationParameters, net2planParameters, numReplications, numThreads, confidenceLevel);
+        HTMLUtils.saveToFile(outputFile, results.getSecond());
+
+        String outputFileName = outputFile.getName();
+        int extensionIndex = outputFileName.lastIndexOf('.');
+        String baseName = extensionIndex == -1 ? outputFileName : outputFileName.substring(0, extensionIndex);
+        String extension = extensionIndex == -1 ? "" : outputFileName.substring(extensionIndex);
+        for (int replication = 0; replication < numReplications; replication++)
+            HTMLUtils.saveToFile(new File(outputFile.getAbsoluteFile().getParentFile(), baseName + "_replication" + replication + extension), results.getFirst().get(replication));
+    }
+
+    /**
+     * Creates the instance of each replication from the class loader of the replication.
+     */
+    private static class ReplicationClassLoaderFactory implements IExternalFactory
+    {
+        private final File classFile;
+        private final String className;
+        private final Class<? extends IExternal> _class;
+        private final ReplicationClassLoaders classLoaders;
+
+        private ReplicationClassLoaderFactory(File classFile, String className, Class<? extends IExternal> _class, ReplicationClassLoaders classLoaders)
+        {
+            this.classFile = classFile;
+            this.className = className;
+            this._class = _class;
+            this.classLoaders = classLoaders;
+        }
+
+        @Override
+        public IExternal newInstance(int replication)
+        {
+            final URLClassLoader classLoader = classLoaders.acquire(replication);
+            try
+            {
+                return ClassLoaderUtils.getInstance(classFile, className, _class, classLoader);
+            } catch (RuntimeException e)
+            {
+                classLoaders.release(replication);
+                throw e;
+            }
+        }
+
+        @Override
+        public void release(int replication, IExternal instance)
+        {
+            classLoaders.release(replication);
+        }
+    }
+
+    /**
+     * Child-first class loaders of the replications, one per replication, shared by all the instances of the replication
+     * (so that the classes they exchange are the same). Each one is closed when all the instances using it are released.
+     */
+    private static class ReplicationClassLoaders
+    {
+        private final URL[] classLoaderURLs;
+        private final Map<Integer, URLClassLoader> classLoaders = new HashMap<Integer, URLClassLoader>();
+        private final Map<Integer, Integer> numUsers = new HashMap<Integer, Integer>();
+
+        private ReplicationClassLoaders(URL[] classLoaderURLs)
+        {
+            this.classLoaderURLs = classLoaderURLs;
+        }
+
+        private synchronized URLClassLoader acquire(int replication)
+        {
+            URLClassLoader classLoader = classLoaders.get(replication);
+            if (classLoader == null)
+            {
+                classLoader = new ChildFirstURLClassLoader(classLoaderURLs, ClassLoader.getSystemClassLoader());
+                classLoaders.put(replication, classLoader);
+                numUsers.put(replication, 0);
+            }
+            numUsers.put(replication, numUsers.get(replication) + 1);
+            return classLoader;
+        }
+
+        private synchronized void release(int replication)
+        {
+            final Integer users = numUsers.get(replication);
+            if (users == null) return;
+            if (users > 1) { numUsers.put(replication, users - 1); return; }
+            numUsers.remove(replication);
+            try { classLoaders.remove(replication).close(); } catch (IOException e) { throw new RuntimeException(e); }
+        }
+    }
+
+    /**
+     * Class loader looking for the classes in its own URLs before asking its parent, so that user classes also present
+     * in the system class path are loaded again (with their own static fields). The classes of Java, of the Net2Plan API
+     * and of the libraries used in its signatures are always taken from the parent, so that they are shared with the simulator.
+     */
+    private static class ChildFirstURLClassLoader extends URLClassLoader
+    {
+        private final static String[] PARENT_FIRST_PACKAGES = { "java.", "javax.", "sun.", "com.sun.", "jdk.", "org.w3c.", "org.xml.",
+                "com.net2plan.interfaces.", "com.net2plan.internal.", "com.net2plan.utils.", "com.net2plan.libraries.", "com.net2plan.io.",
+                "cern.colt.", "cern.jet.", "com.google.common.", "org.apache.commons.", "org.jgrapht.", "edu.uci.ics.jung.", "com.jom." };
+
+        static { ClassLoader.registerAsParallelCapable(); }
+
+        private ChildFirstURLClassLoader(URL[] urls, ClassLoader parent)
+        {
+            super(urls, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+        {
+            for (String parentFirstPackage : PARENT_FIRST_PACKAGES)
+                if (name.startsWith(parentFirstPackage)) return super.loadClass(name, resolve);
+
+            synchronized (getClassLoadingLock(name))
+            {
+                Class<?> c = findLoadedClass(name);
+                if (c == null)
+                {
+                    try { c = findClass(name); }
+                    catch (ClassNotFoundException e) { return super.loadClass(name, resolve); }
+                }
+                if (resolve) resolveClass(c);
+                return c;
+            }
+        }
     }
 
     @Override
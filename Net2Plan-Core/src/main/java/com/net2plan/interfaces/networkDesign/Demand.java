@@ -68,6 +68,9 @@ public class Demand extends NetworkElement
 	Map<Link,Double> cacheHbH_frs; // cannot be an entry if zero in FR
 	Map<Link,Pair<Double,Double>> cacheHbH_normCarriedOccupiedPerLinkCurrentState; // norm carried is respect to demand total CARRIED traffic, occupied capacity is absolute
 	Map<Node,Set<Link>> cacheHbH_linksPerNodeWithNonZeroFr; 
+	Map<Link,Double> cacheHbH_frsAppliedCurrentState; // frs of the up links between up nodes. Null if the routing may have cycles (then, no incremental update is possible)
+	Map<Node,Double> cacheHbH_normTrafficPerNodeCurrentState; // normalized traffic entering each node (row of the fundamental matrix), only non-zero entries
+	double cacheHbH_offeredTrafficCurrentState; // offered traffic used to compute the occupied capacities in the links
 	
 	public enum IntendedRecoveryType
 	{
@@ -116,6 +119,8 @@ public class Demand extends NetworkElement
 		this.cacheHbH_frs = new HashMap<> ();
 		this.cacheHbH_normCarriedOccupiedPerLinkCurrentState = new HashMap<> ();
 		this.cacheHbH_linksPerNodeWithNonZeroFr = new HashMap<> ();
+		this.cacheHbH_frsAppliedCurrentState = null;
+		this.cacheHbH_normTrafficPerNodeCurrentState = new HashMap<> ();
 		this.cache_worstCasePropagationTimeMs = 0;
 		this.cache_worstCaseLengthInKm = 0;
 		this.bidirectionalPair = null;
@@ -148,6 +153,7 @@ public class Demand extends NetworkElement
 		this.cacheHbH_linksPerNodeWithNonZeroFr.clear();
 		for (Entry<Node,Set<Link>> entry : origin.cacheHbH_linksPerNodeWithNonZeroFr.entrySet())
 			this.cacheHbH_linksPerNodeWithNonZeroFr.put(netPlan.getNodeFromId(entry.getKey().id), (Set<Link>) (Set<?>) netPlan.translateCollectionToThisNetPlan(entry.getValue()));
+		this.invalidateHopByHopIncrementalCaches();
 		this.bidirectionalPair = origin.bidirectionalPair == null? null : netPlan.getDemandFromId(origin.bidirectionalPair.getId());
 	}
 
@@ -751,6 +757,9 @@ public class Demand extends NetworkElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		netPlan.trackModification(this);
+		netPlan.trackModification(ingressNode);
+		netPlan.trackModification(egressNode);
 		if (this.coupledUpperLayerLink != null) this.decouple();
 		
 		if (bidirectionalPair != null) this.bidirectionalPair.bidirectionalPair = null;
@@ -766,6 +775,7 @@ public class Demand extends NetworkElement
 				e.cacheHbH_normCarriedOccupiedPerTraversingDemandCurrentState.remove(this);
 				e.cache_carriedTraffic -= x_deOccup; 
 				e.cache_occupiedCapacity -= x_deOccup; 
+				netPlan.trackModification(e);
 			}
 		}
 		layer.cache_nodePairDemandsThisLayer.get(Pair.of(ingressNode, egressNode)).remove(this);
@@ -791,6 +801,7 @@ public class Demand extends NetworkElement
 		netPlan.checkIsModifiable();
 		if (offeredTraffic < 0) throw new Net2PlanException("Offered traffic must be greater or equal than zero");
 		this.offeredTraffic = offeredTraffic;
+		netPlan.trackModification(this);
 		if (!layer.isSourceRouting()) updateHopByHopRoutingToGivenFrs(this.cacheHbH_frs);
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
 	}
@@ -849,6 +860,25 @@ public class Demand extends NetworkElement
 				}
 				if (sumFactors > 1 + Configuration.precisionFactor) throw new RuntimeException();
 			}
+			if (cacheHbH_frsAppliedCurrentState != null)
+			{
+				/* the normalized traffic per node must be the solution of the flow conservation constraints */
+				final Set<Node> nodesToCheck = new HashSet<> (cacheHbH_normTrafficPerNodeCurrentState.keySet());
+				nodesToCheck.add(ingressNode);
+				for (Link e : cacheHbH_frsAppliedCurrentState.keySet())
+				{
+					if (!cacheHbH_frsAppliedCurrentState.get(e).equals(cacheHbH_frs.get(e))) throw new RuntimeException ();
+					if (e.isDown() || e.originNode.isDown() || e.destinationNode.isDown()) throw new RuntimeException ();
+					nodesToCheck.add(e.destinationNode);
+				}
+				for (Node n : nodesToCheck)
+				{
+					double check_normTraffic = n == ingressNode? 1 : 0;
+					for (Link e : n.cache_nodeIncomingLinks)
+						if (cacheHbH_frsAppliedCurrentState.containsKey(e)) check_normTraffic += cacheHbH_frsAppliedCurrentState.get(e) * getNormalizedTrafficCurrentState(e.originNode);
+					if (Math.abs(check_normTraffic - getNormalizedTrafficCurrentState(n)) > 1e-6) throw new RuntimeException ("Bad");
+				}
+			}
 		}
 		
 		double check_carriedTraffic = 0;
@@ -924,8 +954,36 @@ public class Demand extends NetworkElement
 	/* Updates all the network state, to the new situation where the hop-by-hop routing of a demand has changed */
 	void updateHopByHopRoutingToGivenFrs (Map<Link,Double> newFrsWithoutZeros)
 	{
-		final Set<Link> affectedLinks = Sets.union(newFrsWithoutZeros.keySet() , cacheHbH_frs.keySet());
-		
+		applyHopByHopRoutingUpdate(computeHopByHopRoutingUpdate(newFrsWithoutZeros) , null);
+	}
+
+	/* The new hop-by-hop routing state of a demand, computed without modifying the network state, so the demands can be 
+	 * computed in parallel, and applied afterwards */
+	static final class HopByHopRoutingUpdate
+	{
+		final Demand demand;
+		Map<Link,Double> newFrsWithoutZeros;
+		Map<Link,Double> frsToApply;
+		Map<Node,Set<Link>> linksPerNodeWithNonZeroFr;
+		Map<Node,Double> normTrafficPerNode; // all the nodes (full computation) or just the ones that changed (incremental)
+		boolean incremental;
+		boolean acyclic;
+		RoutingCycleType routingCycleType;
+		double worstCasePropagationTimeMs;
+		double worstCaseLengthInKm;
+		double carriedTraffic;
+		Link [] affectedLinks;
+		double [] newXdeNormalized;
+
+		private HopByHopRoutingUpdate (Demand demand) { this.demand = demand; }
+	}
+
+	/* Computes the new hop-by-hop routing of the demand. Only reads the network state */
+	HopByHopRoutingUpdate computeHopByHopRoutingUpdate (Map<Link,Double> newFrsWithoutZeros)
+	{
+		final HopByHopRoutingUpdate update = new HopByHopRoutingUpdate(this);
+		update.newFrsWithoutZeros = newFrsWithoutZeros;
+
 		/* set 0 in the down links and the link in-out from the down nodes (they do not send traffic) */
 		/* update the cache per node (include failed links if fr > 0) */
 		Map<Link,Double> frsToApply = new HashMap<> ();
@@ -941,39 +999,123 @@ public class Demand extends NetworkElement
 			if (e.isDown() || e.getOriginNode().isDown() || e.getDestinationNode().isDown()) continue;
 			frsToApply.put(e, f_e);
 		}
-		
-		Quintuple<DoubleMatrix1D, RoutingCycleType , Double , Double , Double> fundMatrixComputation = 
-				GraphUtils.computeRoutingFundamentalVector(frsToApply, tentativeCacheHbH_linksPerNodeWithNonZeroFr , ingressNode ,  egressNode);
-		if (fundMatrixComputation.getSecond() == RoutingCycleType.CLOSED_CYCLES) 
-			throw new ClosedCycleRoutingException("Closed routing cycle for demand " + this); 
-		DoubleMatrix1D M = fundMatrixComputation.getFirst ();
-		this.routingCycleType = fundMatrixComputation.getSecond();
-		double s_egressNode = fundMatrixComputation.getThird();
-		this.cache_worstCasePropagationTimeMs = fundMatrixComputation.getFourth();
-		this.cache_worstCaseLengthInKm = fundMatrixComputation.getFifth();
+		update.frsToApply = frsToApply;
+		update.linksPerNodeWithNonZeroFr = tentativeCacheHbH_linksPerNodeWithNonZeroFr;
+
+		/* If the current routing is acyclic, only the nodes downstream the changed forwarding rules are updated */
+		Set<Link> affectedLinks = null;
+		if (cacheHbH_frsAppliedCurrentState != null)
+			affectedLinks = computeNormTrafficPerNodeIncrementally(update);
+		if (affectedLinks == null)
+		{
+			affectedLinks = Sets.union(newFrsWithoutZeros.keySet() , cacheHbH_frs.keySet());
+			Quintuple<DoubleMatrix1D, RoutingCycleType , Double , Double , Double> fundMatrixComputation = 
+					GraphUtils.computeRoutingFundamentalVector(frsToApply, tentativeCacheHbH_linksPerNodeWithNonZeroFr , ingressNode ,  egressNode);
+			if (fundMatrixComputation.getSecond() == RoutingCycleType.CLOSED_CYCLES) 
+				throw new ClosedCycleRoutingException("Closed routing cycle for demand " + this); 
+			DoubleMatrix1D M = fundMatrixComputation.getFirst ();
+			update.routingCycleType = fundMatrixComputation.getSecond();
+			update.worstCasePropagationTimeMs = fundMatrixComputation.getFourth();
+			update.worstCaseLengthInKm = fundMatrixComputation.getFifth();
+
+			/* the traffic is only non-zero in the ingress node, and the end nodes of the links with forwarding rules */
+			update.normTrafficPerNode = new HashMap<> ();
+			for (Node n : Arrays.asList(ingressNode , egressNode)) if (M.get(n.index) != 0) update.normTrafficPerNode.put(n, M.get(n.index));
+			for (Link e : frsToApply.keySet())
+			{
+				if (M.get(e.originNode.index) != 0) update.normTrafficPerNode.put(e.originNode, M.get(e.originNode.index));
+				if (M.get(e.destinationNode.index) != 0) update.normTrafficPerNode.put(e.destinationNode, M.get(e.destinationNode.index));
+			}
+			update.incremental = false;
+			update.acyclic = isAcyclic(frsToApply);
+		}
+
+		double s_egressNode = 1;
+		final Set<Link> outFrsEgressNode = tentativeCacheHbH_linksPerNodeWithNonZeroFr.get(egressNode);
+		if (outFrsEgressNode != null) for (Link e : outFrsEgressNode) { final Double f_e = frsToApply.get(e); if (f_e != null) s_egressNode -= f_e; }
+		update.carriedTraffic = offeredTraffic * getNormalizedTraffic(update , egressNode) * s_egressNode;
+
+		/* the new normalized traffic in the affected links */
+		update.affectedLinks = affectedLinks.toArray(new Link [affectedLinks.size()]);
+		update.newXdeNormalized = new double [update.affectedLinks.length];
+		for (int cont = 0; cont < update.affectedLinks.length ; cont ++)
+		{
+			final Link link = update.affectedLinks [cont];
+			final Double new_fde = frsToApply.get(link); 
+			final double newXdeNormalized = new_fde == null? 0 : getNormalizedTraffic(update , link.originNode) * new_fde;
+			if (newXdeNormalized < -1E-5) throw new RuntimeException ("Bad");
+			if ((newXdeNormalized > 1e-3) && (!link.isUp)) throw new RuntimeException ("Bad");
+			update.newXdeNormalized [cont] = newXdeNormalized;
+		}
+		return update;
+	}
+
+	/* Computes the update that brings the demand back to its current state, after the given update is applied. To be called before
+	 * applying it. Only the links affected by the update are restored */
+	HopByHopRoutingUpdate computeHopByHopRoutingUndo (HopByHopRoutingUpdate update)
+	{
+		if (update.demand != this) throw new RuntimeException ("Bad");
+		final HopByHopRoutingUpdate undo = new HopByHopRoutingUpdate(this);
+		undo.newFrsWithoutZeros = cacheHbH_frs;
+		undo.frsToApply = cacheHbH_frsAppliedCurrentState;
+		undo.acyclic = cacheHbH_frsAppliedCurrentState != null;
+		undo.linksPerNodeWithNonZeroFr = cacheHbH_linksPerNodeWithNonZeroFr;
+		undo.incremental = update.incremental;
+		if (update.incremental)
+		{
+			/* the update modifies the stored map in place: only its nodes are restored (zero removes the node) */
+			undo.normTrafficPerNode = new HashMap<> ();
+			for (Node n : update.normTrafficPerNode.keySet()) undo.normTrafficPerNode.put(n, getNormalizedTrafficCurrentState(n));
+		}
+		else undo.normTrafficPerNode = cacheHbH_normTrafficPerNodeCurrentState;
+		undo.routingCycleType = routingCycleType;
+		undo.worstCasePropagationTimeMs = cache_worstCasePropagationTimeMs;
+		undo.worstCaseLengthInKm = cache_worstCaseLengthInKm;
+		undo.carriedTraffic = carriedTraffic;
+		undo.affectedLinks = update.affectedLinks;
+		undo.newXdeNormalized = new double [update.affectedLinks.length];
+		for (int cont = 0; cont < update.affectedLinks.length ; cont ++)
+		{
+			final Pair<Double,Double> oldOccupInfo = cacheHbH_normCarriedOccupiedPerLinkCurrentState.get(update.affectedLinks [cont]);
+			undo.newXdeNormalized [cont] = oldOccupInfo == null? 0 : oldOccupInfo.getFirst();
+		}
+		return undo;
+	}
+
+	/* Applies the computed hop-by-hop routing to the network state. If linkOccupationDeltas is not null, the change in the 
+	 * occupation of each link (indexed by link index) is accumulated there, to be added to the links later, instead of 
+	 * updating the link carried traffic and occupied capacity */
+	void applyHopByHopRoutingUpdate (HopByHopRoutingUpdate update , double [] linkOccupationDeltas)
+	{
+		if (update.demand != this) throw new RuntimeException ("Bad");
+		if (update.incremental)
+		{
+			for (Entry<Node,Double> entry : update.normTrafficPerNode.entrySet())
+				if (entry.getValue() == 0) cacheHbH_normTrafficPerNodeCurrentState.remove(entry.getKey()); else cacheHbH_normTrafficPerNodeCurrentState.put(entry.getKey(), entry.getValue());
+		}
+		else this.cacheHbH_normTrafficPerNodeCurrentState = update.normTrafficPerNode;
+		this.cacheHbH_frsAppliedCurrentState = update.acyclic? update.frsToApply : null;
+		this.routingCycleType = update.routingCycleType;
+		this.cache_worstCasePropagationTimeMs = update.worstCasePropagationTimeMs;
+		this.cache_worstCaseLengthInKm = update.worstCaseLengthInKm;
+		this.cacheHbH_offeredTrafficCurrentState = offeredTraffic;
 
 		/* update different caches */
-//		System.out.println(offeredTraffic);
-//		System.out.println(M.get(egressNode.index));
-//		System.out.println(M);
-//		System.out.println("s_egress: "  + s_egressNode);
-		this.cacheHbH_linksPerNodeWithNonZeroFr = tentativeCacheHbH_linksPerNodeWithNonZeroFr;
-		carriedTraffic = offeredTraffic * M.get(egressNode.index) * s_egressNode;
+		this.cacheHbH_linksPerNodeWithNonZeroFr = update.linksPerNodeWithNonZeroFr;
+		carriedTraffic = update.carriedTraffic;
+		netPlan.trackModification(this);
 		if (coupledUpperLayerLink != null)
 			coupledUpperLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(carriedTraffic);
-
 		if (carriedTraffic > offeredTraffic + 1E-5) throw new RuntimeException ("Bad");
-		
+
 		/* update the xde caches (link and demand), and the link occupations */
-		for (Link link : affectedLinks)
+		for (int cont = 0; cont < update.affectedLinks.length ; cont ++)
 		{
-			Double new_fde = frsToApply.get(link); if (new_fde == null) new_fde = 0.0;
+			final Link link = update.affectedLinks [cont];
 			final Pair<Double,Double> oldOccupInfo = cacheHbH_normCarriedOccupiedPerLinkCurrentState.get(link);
 			final double oldXdeOccup = oldOccupInfo == null? 0 : oldOccupInfo.getSecond(); //layer.forwardingRulesCurrentFailureState_x_de.get (demand.index , link.index);
-			final double newXdeNormalized = M.get (link.originNode.index) * new_fde; //fowardingRulesThisFailureState_f_e.get (link.index);
+			final double newXdeNormalized = update.newXdeNormalized [cont];
 			final double newXdeOccup = offeredTraffic * newXdeNormalized; //fowardingRulesThisFailureState_f_e.get (link.index);
-			if (newXdeNormalized < -1E-5) throw new RuntimeException ("Bad");
-			//System.out.println("Demand " + this + ", link " + link + ", xdeNorm: " + newXdeNormalized + ", newXdeOccup: " + newXdeOccup);
 			if (newXdeNormalized <= Configuration.precisionFactor)
 			{
 				cacheHbH_normCarriedOccupiedPerLinkCurrentState.remove(link);
@@ -981,23 +1123,161 @@ public class Demand extends NetworkElement
 			}
 			else
 			{
-				cacheHbH_normCarriedOccupiedPerLinkCurrentState.put(link, Pair.of(newXdeNormalized, newXdeOccup));
-				link.cacheHbH_normCarriedOccupiedPerTraversingDemandCurrentState.put(this, Pair.of(newXdeNormalized, newXdeOccup));
+				final Pair<Double,Double> newOccupInfo = Pair.of(newXdeNormalized, newXdeOccup);
+				cacheHbH_normCarriedOccupiedPerLinkCurrentState.put(link, newOccupInfo);
+				link.cacheHbH_normCarriedOccupiedPerTraversingDemandCurrentState.put(this, newOccupInfo);
+			}
+			if (linkOccupationDeltas != null)
+				linkOccupationDeltas [link.index] += newXdeOccup - oldXdeOccup;
+			else
+			{
+				link.cache_carriedTraffic += newXdeOccup - oldXdeOccup; // in hop-by-hop carried traffic is the same as occupied capacity
+				link.cache_occupiedCapacity += newXdeOccup - oldXdeOccup;
+				netPlan.trackModification(link);
 			}
-			link.cache_carriedTraffic += newXdeOccup - oldXdeOccup; // in hop-by-hop carried traffic is the same as occupied capacity
-			link.cache_occupiedCapacity += newXdeOccup - oldXdeOccup;
-			if ((newXdeNormalized > 1e-3) && (!link.isUp)) throw new RuntimeException ("Bad");
 		}
 		
-		/* update the cache_frs in the link and demand */
+		/* update the cache_frs in the link and demand (unless the forwarding rules are the same, e.g. a failure state change) */
+		final Map<Link,Double> newFrsWithoutZeros = update.newFrsWithoutZeros;
+		if (newFrsWithoutZeros == this.cacheHbH_frs) return;
 		for (Link e : this.cacheHbH_frs.keySet())
-			e.cacheHbH_frs.remove(this);
+			if (!newFrsWithoutZeros.containsKey(e)) e.cacheHbH_frs.remove(this);
 		this.cacheHbH_frs = new HashMap<> (newFrsWithoutZeros);
 		for (Entry<Link,Double> fr : this.cacheHbH_frs.entrySet())
 			fr.getKey().cacheHbH_frs.put(this , fr.getValue());
-		
-		/* update the routing cycle type */
-//		System.out.println ("updateHopByHopRoutingDemand demand: " + demand + ", this demand x_e: " + forwardingRules_x_de.viewRow(demand.index));
+	}
+
+	/* Computes the normalized traffic entering each node, when the current routing is acyclic, recomputing only the nodes 
+	 * downstream the links whose applied forwarding rule changed, in topological order. The rest of the nodes keep their traffic.
+	 * Returns the links whose carried traffic may have changed, or null if the new routing has cycles, so the full computation is needed */
+	private Set<Link> computeNormTrafficPerNodeIncrementally (HopByHopRoutingUpdate update)
+	{
+		final Map<Link,Double> frsToApply = update.frsToApply;
+		final Map<Node,Set<Link>> newLinksPerNodeWithNonZeroFr = update.linksPerNodeWithNonZeroFr;
+		final Set<Link> changedLinks = new HashSet<> ();
+		for (Entry<Link,Double> fr : frsToApply.entrySet())
+		{
+			final Double oldFr = cacheHbH_frsAppliedCurrentState.get(fr.getKey());
+			if ((oldFr == null) || (oldFr.doubleValue() != fr.getValue().doubleValue())) changedLinks.add(fr.getKey());
+		}
+		for (Link e : cacheHbH_frsAppliedCurrentState.keySet())
+			if (!frsToApply.containsKey(e)) changedLinks.add(e);
+
+		/* the downstream nodes, and the number of input links from other downstream nodes (for the topological sort) */
+		final Map<Node,Integer> numInLinksFromDownstreamNodes = new HashMap<> ();
+		final LinkedList<Node> nodesToVisit = new LinkedList<> ();
+		for (Link e : changedLinks)
+			if (!numInLinksFromDownstreamNodes.containsKey(e.destinationNode)) { numInLinksFromDownstreamNodes.put(e.destinationNode, 0); nodesToVisit.add(e.destinationNode); }
+		while (!nodesToVisit.isEmpty())
+		{
+			final Set<Link> outLinks = newLinksPerNodeWithNonZeroFr.get(nodesToVisit.poll());
+			if (outLinks == null) continue;
+			for (Link e : outLinks)
+			{
+				if (!frsToApply.containsKey(e)) continue;
+				final Integer numInLinks = numInLinksFromDownstreamNodes.get(e.destinationNode);
+				if (numInLinks == null) nodesToVisit.add(e.destinationNode);
+				numInLinksFromDownstreamNodes.put(e.destinationNode, numInLinks == null? 1 : numInLinks + 1);
+			}
+		}
+
+		/* topological sort of the downstream nodes: if not all of them are sorted, there is a cycle */
+		final List<Node> sortedNodes = new ArrayList<> (numInLinksFromDownstreamNodes.size());
+		for (Entry<Node,Integer> entry : numInLinksFromDownstreamNodes.entrySet()) if (entry.getValue() == 0) sortedNodes.add(entry.getKey());
+		for (int cont = 0; cont < sortedNodes.size() ; cont ++)
+		{
+			final Set<Link> outLinks = newLinksPerNodeWithNonZeroFr.get(sortedNodes.get(cont));
+			if (outLinks == null) continue;
+			for (Link e : outLinks)
+			{
+				if (!frsToApply.containsKey(e)) continue;
+				final int numInLinks = numInLinksFromDownstreamNodes.get(e.destinationNode) - 1;
+				numInLinksFromDownstreamNodes.put(e.destinationNode, numInLinks);
+				if (numInLinks == 0) sortedNodes.add(e.destinationNode);
+			}
+		}
+		if (sortedNodes.size() != numInLinksFromDownstreamNodes.size()) return null;
+
+		/* the links out of the downstream nodes may change their traffic (and all the links, if the offered traffic changed) */
+		final Set<Link> affectedLinks = new HashSet<> (changedLinks);
+		if (cacheHbH_offeredTrafficCurrentState != offeredTraffic) affectedLinks.addAll(cacheHbH_normCarriedOccupiedPerLinkCurrentState.keySet());
+		update.normTrafficPerNode = new HashMap<> ();
+		update.incremental = true;
+		for (Node n : sortedNodes)
+		{
+			double normTraffic = n == ingressNode? 1 : 0;
+			for (Link e : n.cache_nodeIncomingLinks)
+			{
+				if (e.layer != layer) continue;
+				final Double f_e = frsToApply.get(e);
+				if (f_e != null) normTraffic += f_e * getNormalizedTraffic(update , e.originNode);
+			}
+			update.normTrafficPerNode.put(n, normTraffic);
+			final Set<Link> oldOutLinks = cacheHbH_linksPerNodeWithNonZeroFr.get(n);
+			if (oldOutLinks != null) affectedLinks.addAll(oldOutLinks);
+			final Set<Link> newOutLinks = newLinksPerNodeWithNonZeroFr.get(n);
+			if (newOutLinks != null) affectedLinks.addAll(newOutLinks);
+		}
+
+		/* the routing is acyclic: same cycle type and worst case values as in the full computation. Unlike the traffic 
+		 * above, which is only propagated to the nodes downstream of the changed forwarding rules, the worst case 
+		 * propagation time and length are recomputed walking the whole forwarding graph of the demand (O(E)) */
+		final Pair<Double,Double> wcPropAndLength = GraphUtils.computeWorstCasePropagationDelayAndLengthInKmMsForLoopLess(frsToApply, newLinksPerNodeWithNonZeroFr, ingressNode, egressNode);
+		update.routingCycleType = wcPropAndLength.getFirst() == Double.MAX_VALUE? RoutingCycleType.OPEN_CYCLES : RoutingCycleType.LOOPLESS;
+		update.worstCasePropagationTimeMs = wcPropAndLength.getFirst();
+		update.worstCaseLengthInKm = wcPropAndLength.getSecond();
+		update.acyclic = true;
+		return affectedLinks;
+	}
+
+	/* Normalized traffic entering the node in the new routing: the stored one, unless recomputed in the update */
+	private double getNormalizedTraffic (HopByHopRoutingUpdate update , Node n)
+	{
+		final Double normTraffic = update.normTrafficPerNode.get(n);
+		if (normTraffic != null) return normTraffic;
+		return update.incremental? getNormalizedTrafficCurrentState(n) : 0;
+	}
+
+	/* Normalized traffic entering the node in the current routing, computed in the last routing update */
+	private double getNormalizedTrafficCurrentState (Node n)
+	{
+		final Double normTraffic = cacheHbH_normTrafficPerNodeCurrentState.get(n);
+		return normTraffic == null? 0 : normTraffic;
+	}
+
+	/* Forces the next routing update to make the full computation. To be called when the hop-by-hop caches are modified elsewhere */
+	void invalidateHopByHopIncrementalCaches ()
+	{
+		this.cacheHbH_frsAppliedCurrentState = null;
+		this.cacheHbH_normTrafficPerNodeCurrentState = new HashMap<> ();
+	}
+
+	/* True if the links with the given forwarding rules have no cycle (Kahn's topological sort) */
+	private static boolean isAcyclic (Map<Link,Double> frs)
+	{
+		final Map<Node,Integer> numInLinks = new HashMap<> ();
+		final Map<Node,List<Link>> outLinks = new HashMap<> ();
+		for (Link e : frs.keySet())
+		{
+			numInLinks.put(e.destinationNode, numInLinks.getOrDefault(e.destinationNode, 0) + 1);
+			if (!numInLinks.containsKey(e.originNode)) numInLinks.put(e.originNode, 0);
+			List<Link> list = outLinks.get(e.originNode); if (list == null) { list = new ArrayList<> (); outLinks.put(e.originNode, list); }
+			list.add(e);
+		}
+		final List<Node> sortedNodes = new ArrayList<> (numInLinks.size());
+		for (Entry<Node,Integer> entry : numInLinks.entrySet()) if (entry.getValue() == 0) sortedNodes.add(entry.getKey());
+		for (int cont = 0; cont < sortedNodes.size() ; cont ++)
+		{
+			final List<Link> list = outLinks.get(sortedNodes.get(cont));
+			if (list == null) continue;
+			for (Link e : list)
+			{
+				final int numInLinksDestination = numInLinks.get(e.destinationNode) - 1;
+				numInLinks.put(e.destinationNode, numInLinksDestination);
+				if (numInLinksDestination == 0) sortedNodes.add(e.destinationNode);
+			}
+		}
+		return sortedNodes.size() == numInLinks.size();
 	}
 
 
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.networkDesign;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.net2plan.internal.ErrorHandling;
+
+/**
+ * <p>Record of the changes made in a design by a change in the failure state of its links and nodes, created by
+ * {@link NetPlan#setLinksAndNodesFailureStateTransaction(java.util.Collection, java.util.Collection, java.util.Collection, java.util.Collection) setLinksAndNodesFailureStateTransaction}.
+ * Reverting the transaction restores the previous state (links and nodes up/down, routes and trees up/down, carried traffic and occupied capacities),
+ * visiting only the elements that changed.</p>
+ *
+ * <p>Transactions must be reverted in the reverse order they were made (e.g. apply a failure state, evaluate the design, revert), and the design
+ * must not be modified in between. Reverting out of order, and some of these modifications, are detected, throwing an exception.</p>
+ *
+ * @since 0.6.0
+ */
+public final class FailureStateTransaction
+{
+	private final NetPlan netPlan;
+	private final FailureStateTransaction previousTransaction;
+	final List<Link> linksChangedToUp = new ArrayList<> ();
+	final List<Link> linksChangedToDown = new ArrayList<> ();
+	final List<Node> nodesChangedToUp = new ArrayList<> ();
+	final List<Node> nodesChangedToDown = new ArrayList<> ();
+	final List<Route> routesChanged = new ArrayList<> ();
+	final List<MulticastTree> treesChanged = new ArrayList<> ();
+	private final List<Demand.HopByHopRoutingUpdate> hopByHopRoutingUndos = new ArrayList<> ();
+	private boolean reverted = false;
+
+	FailureStateTransaction (NetPlan netPlan , FailureStateTransaction previousTransaction)
+	{
+		this.netPlan = netPlan;
+		this.previousTransaction = previousTransaction;
+	}
+
+	void addHopByHopRoutingUndo (Demand.HopByHopRoutingUpdate undo)
+	{
+		hopByHopRoutingUndos.add(undo);
+	}
+
+	/**
+	 * <p>Returns the number of links and nodes that changed their failure state in this transaction.</p>
+	 *
+	 * @return The number of links and nodes changed
+	 * @since 0.6.0
+	 */
+	public int getNumberOfLinksAndNodesChanged ()
+	{
+		return linksChangedToUp.size() + linksChangedToDown.size() + nodesChangedToUp.size() + nodesChangedToDown.size();
+	}
+
+	/**
+	 * <p>Indicates whether this transaction was already reverted.</p>
+	 *
+	 * @return {@code true} if reverted, {@code false} otherwise
+	 * @since 0.6.0
+	 */
+	public boolean isReverted ()
+	{
+		return reverted;
+	}
+
+	/**
+	 * <p>Reverts the changes made by this transaction. The links and nodes changed must be in the failure state in which the transaction
+	 * left them. A transaction can be reverted only once.</p>
+	 *
+	 * @since 0.6.0
+	 */
+	public void revert ()
+	{
+		if (reverted) throw new Net2PlanException ("The failure state transaction was already reverted");
+		netPlan.checkIsModifiable();
+		if (netPlan.cache_lastFailureStateTransaction != this) throw new Net2PlanException ("Failure state transactions must be reverted in the reverse order they were made");
+
+		/* check that the design was not modified, as far as it can be checked cheaply */
+		for (Link e : linksChangedToUp) checkNotModified (e , e.isUp);
+		for (Link e : linksChangedToDown) checkNotModified (e , !e.isUp);
+		for (Node n : nodesChangedToUp) checkNotModified (n , n.isUp);
+		for (Node n : nodesChangedToDown) checkNotModified (n , !n.isUp);
+		for (Route r : routesChanged) checkNotModified (r , true);
+		for (MulticastTree t : treesChanged) checkNotModified (t , true);
+		for (Demand.HopByHopRoutingUpdate undo : hopByHopRoutingUndos)
+			checkNotModified (undo.demand , (undo.demand.cacheHbH_frs == undo.newFrsWithoutZeros) && !undo.demand.layer.isSourceRouting());
+
+		/* the links and nodes back to their previous state */
+		for (Link e : linksChangedToUp) { e.isUp = false; e.layer.cache_linksDown.add(e); netPlan.trackFailureStateChange(e); }
+		for (Link e : linksChangedToDown) { e.isUp = true; e.layer.cache_linksDown.remove(e); netPlan.trackFailureStateChange(e); }
+		for (Node n : nodesChangedToUp) { n.isUp = false; netPlan.cache_nodesDown.add(n); netPlan.trackFailureStateChange(n); }
+		for (Node n : nodesChangedToDown) { n.isUp = true; netPlan.cache_nodesDown.remove(n); netPlan.trackFailureStateChange(n); }
+
+		/* the hop-by-hop routing of the affected demands, restoring just the links whose traffic changed */
+		for (int cont = hopByHopRoutingUndos.size() - 1; cont >= 0 ; cont --)
+		{
+			final Demand.HopByHopRoutingUpdate undo = hopByHopRoutingUndos.get(cont);
+			undo.demand.applyHopByHopRoutingUpdate(undo , null);
+		}
+
+		/* only the routes and trees that changed their state */
+		for (Route r : routesChanged) if (!netPlan.updateFailureStateRoutesAndTrees(r)) throw new RuntimeException ("Bad");
+		for (MulticastTree t : treesChanged) if (!netPlan.updateFailureStateRoutesAndTrees(t)) throw new RuntimeException ("Bad");
+
+		reverted = true;
+		netPlan.cache_lastFailureStateTransaction = previousTransaction;
+		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
+	}
+
+	private void checkNotModified (NetworkElement e , boolean sameState)
+	{
+		if ((e.netPlan != netPlan) || !sameState)
+			throw new Net2PlanException ("The element " + e + " was modified after the failure state transaction");
+	}
+}
@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.networkDesign;
+
+/**
+ * <p>Listener of the changes made in a design, registered with {@link NetPlan#addChangeListener(INetPlanChangeListener) addChangeListener}.</p>
+ *
+ * @since 0.6.0
+ */
+public interface INetPlanChangeListener
+{
+	/**
+	 * <p>Called by {@link NetPlan#fireChangeEvent() fireChangeEvent}, with the changes made in the design since the previous event.</p>
+	 *
+	 * @param event The changes made
+	 * @since 0.6.0
+	 */
+	public void netPlanChanged(NetPlanChangeEvent event);
+}
@@ -268,6 +268,7 @@ public class Link extends NetworkElement
 		final boolean fromZeroToMore = (this.capacity < Configuration.precisionFactor) && (newCapacity >= Configuration.precisionFactor); 
 		final boolean fromMoreToZero = (this.capacity >= Configuration.precisionFactor) && (newCapacity < Configuration.precisionFactor); 
 		this.capacity = newCapacity;
+		netPlan.trackModification(this);
 		if (fromMoreToZero)
 		{
 			layer.cache_linksZeroCap.add(this);
@@ -365,6 +366,7 @@ public class Link extends NetworkElement
 		netPlan.checkIsModifiable();
 		if (lengthInKm < 0) throw new Net2PlanException ("Link lengths cannot be negative");
 		this.lengthInKm = lengthInKm;
+		netPlan.trackModification(this);
 		this.updateWorstCasePropagationTraversingUnicastDemandsAndMaybeRoutes();
 	}
 
@@ -621,6 +623,9 @@ public class Link extends NetworkElement
 		final double PRECISION_FACTOR = Double.parseDouble(Configuration.getOption("precisionFactor"));
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		netPlan.trackModification(this);
+		netPlan.trackModification(originNode);
+		netPlan.trackModification(destinationNode);
 
 		if (this.coupledLowerLayerDemand != null) 
 			this.coupledLowerLayerDemand.decouple();
@@ -645,6 +650,7 @@ public class Link extends NetworkElement
 			this.removeAllForwardingRules();
 
 		NetPlan.removeNetworkElementAndShiftIndexes (layer.links , index);
+		layer.cache_csrGraph = null;
         for (String tag : tags) netPlan.cache_taggedElements.get(tag).remove(this);
 
 		ErrorHandling.DEBUG = previousErrorHandling;
@@ -774,6 +780,7 @@ public class Link extends NetworkElement
 	
 	void updateLinkTrafficAndOccupation ()
 	{
+		netPlan.trackModification(this);
 		this.cache_carriedTraffic = 0;
 		this.cache_occupiedCapacity = 0;
 		if (layer.isSourceRouting())
@@ -413,6 +413,7 @@ public class MulticastDemand extends NetworkElement
 		offeredTraffic = NetPlan.adjustToTolerance(offeredTraffic);
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		netPlan.trackChange(NetPlanChangeEvent.ChangeType.MODIFIED, this);
 		if (offeredTraffic < 0) throw new Net2PlanException("Offered traffic must be greater or equal than zero");
 		this.offeredTraffic = offeredTraffic;
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
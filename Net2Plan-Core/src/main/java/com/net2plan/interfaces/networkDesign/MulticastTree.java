@@ -499,6 +499,7 @@ public class MulticastTree extends NetworkElement
 
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		netPlan.trackChange(NetPlanChangeEvent.ChangeType.MODIFIED, this);
 		if ((newCarriedTraffic < 0) || (newOccupiedLinkCapacity < 0)) throw new Net2PlanException ("Carried traffics and occupied link capacities must be non-negative");
 //		final double extraCarriedTraffic = isDown ()? 0.0 : this.carriedTrafficIfNotFailing - newCarriedTraffic;
 //		final double extraOccupiedLinkCapacity = isDown ()? 0.0 : this.occupiedLinkCapacityIfNotFailing - newOccupiedLinkCapacity;
@@ -506,6 +507,9 @@ public class MulticastTree extends NetworkElement
 		this.occupiedLinkCapacityIfNotFailing = newOccupiedLinkCapacity;
 //		if (this.isDown()) { this.carriedTraffic = 0; this.occupiedLinkCapacity = 0;  } else { this.carriedTraffic = newCarriedTraffic; this.occupiedLinkCapacity = newOccupiedLinkCapacity; }
 		
+		/* In a bulk load, the carried traffic of the demand and the links is computed when it ends */
+		if (layer.isBulkLoading) return;
+
 		/* Update the links, with the carried traffic depending on the link state */
 		for (Link link : linkSet)
 			link.updateLinkTrafficAndOccupation();
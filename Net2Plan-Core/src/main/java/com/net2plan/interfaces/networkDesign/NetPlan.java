@@ -26,14 +26,21 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLStreamException;
@@ -51,6 +58,7 @@ import com.net2plan.internal.AttributeMap;
 import com.net2plan.internal.ErrorHandling;
 import com.net2plan.internal.Version;
 import com.net2plan.internal.XMLUtils;
+import com.net2plan.libraries.CSRGraph;
 import com.net2plan.libraries.GraphUtils;
 import com.net2plan.libraries.ProfileUtils;
 import com.net2plan.libraries.SRGUtils;
@@ -129,6 +137,7 @@ public class NetPlan extends NetworkElement
     final static String TEMPLATE_ROUTE_NOT_ALL_LINKS_SAME_LAYER = "Not all of the links of the route belong to the same layer";
     final static String TEMPLATE_MULTICASTTREE_NOT_ALL_LINKS_SAME_LAYER = "Not all of the links of the multicast tree belong to the same layer";
     final static String UNMODIFIABLE_EXCEPTION_STRING = "Unmodifiable NetState object - can't be changed";
+    final static int MIN_DEMANDS_PARALLEL_HOP_BY_HOP_UPDATE = 64; // below this, the hop-by-hop routing of the demands is computed sequentially
 //    final static String KEY_STRING_BIDIRECTIONALCOUPLE = "bidirectionalCouple";
 
     RoutingType DEFAULT_ROUTING_TYPE = RoutingType.SOURCE_ROUTING;
@@ -160,6 +169,12 @@ public class NetPlan extends NetworkElement
     Map<String, Set<Node>> cache_planningDomain2nodes;
 
     DirectedAcyclicGraph<NetworkLayer, DemandLinkMapping> interLayerCoupling;
+
+    Set<NetworkElement> cache_modifiedElements; // null if the tracking is disabled
+    boolean cache_modifiedElementsUnknown;
+    FailureStateTransaction cache_lastFailureStateTransaction; // the last transaction not reverted, null if none
+    List<INetPlanChangeListener> changeListeners;
+    NetPlanChangeEvent cache_pendingChangeEvent; // changes not yet fired, null if there are no listeners
     
     
     /**
@@ -201,6 +216,7 @@ public class NetPlan extends NetworkElement
         this.cache_nodesPerSiteName = new HashMap<> ();
         this.cache_planningDomain2nodes = new HashMap<> ();
         interLayerCoupling = new DirectedAcyclicGraph<NetworkLayer, DemandLinkMapping>(DemandLinkMapping.class);
+        changeListeners = new ArrayList<INetPlanChangeListener>();
 
         defaultLayer = addLayer("Layer 0", null, null, null, null, null);
     }
@@ -365,6 +381,19 @@ public class NetPlan extends NetworkElement
     }
 
 
+    /**
+     * <p>Static factory method to get a {@link com.net2plan.interfaces.networkDesign.NetPlan NetPlan} object from a binary {@code .n2pb} file
+     * (see {@link #saveToBinaryFile(File) saveToBinaryFile}). The file is memory-mapped, and read column by column.</p>
+     *
+     * @param file Input file
+     * @return A network design
+     * @since 0.6.0
+     */
+    public static NetPlan loadFromBinaryFile(File file)
+    {
+        return NetPlanBinaryFormat.read(file);
+    }
+
     /**
      * <p>Returns true if the given NetPlan object contains the same network than this, meaning that all the network elements
      * are a copy in every aspect. In particular, saving in disk a design and then loading it again, should produce a network
@@ -492,6 +521,7 @@ public class NetPlan extends NetworkElement
         Set<Demand> setDemandsNodePair = layer.cache_nodePairDemandsThisLayer.get(Pair.of(ingressNode, egressNode));
         if (setDemandsNodePair == null) { setDemandsNodePair = new HashSet<> (); layer.cache_nodePairDemandsThisLayer.put(Pair.of(ingressNode, egressNode) , setDemandsNodePair); }  
         setDemandsNodePair.add(demand);
+        trackModification(demand);
 
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return demand;
@@ -564,6 +594,7 @@ public class NetPlan extends NetworkElement
         cache_id2LayerMap.put(id, layer);
         layers.add(layer);
         if (layers.size() == 1) defaultLayer = layer;
+        trackModification(layer);
 
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return layer;
@@ -673,11 +704,13 @@ public class NetPlan extends NetworkElement
 
         cache_id2LinkMap.put(linkId, link);
         layer.links.add(link);
+        layer.cache_csrGraph = null;
         originNode.cache_nodeOutgoingLinks.add(link);
         destinationNode.cache_nodeIncomingLinks.add(link);
         Set<Link> setLinksNodePair = layer.cache_nodePairLinksThisLayer.get(Pair.of(originNode, destinationNode));
         if (setLinksNodePair == null) { setLinksNodePair = new HashSet<> (); layer.cache_nodePairLinksThisLayer.put(Pair.of(originNode, destinationNode) , setLinksNodePair); }  
         setLinksNodePair.add(link);
+        trackModification(link);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return link;
     }
@@ -861,6 +894,8 @@ public class NetPlan extends NetworkElement
 
         nodes.add(node);
         cache_id2NodeMap.put(nodeId, node);
+        for (NetworkLayer layer : layers) layer.cache_csrGraph = null;
+        trackModification(node);
 
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return node;
@@ -1009,72 +1044,147 @@ public class NetPlan extends NetworkElement
     }
 
     /**
-     * <p>Computes a list of disjoint path pairs for each node pair, using the paths in the input candidate path list given.</p>
+     * <p>Computes a list of disjoint path pairs for each node pair, using the paths in the input candidate path list given.
+     * The node pairs are processed sequentially, in the calling thread.</p>
      *
      * @param cpl          Candidate path list per demand
      * @param disjointType Type of disjointness: 0 for SRG-disjoint, 1 for link and node disjoint, other value means link disjoint
      * @return List of disjoint path pairs for each demand
      */
     public static Map<Pair<Node, Node>, List<Pair<List<Link>, List<Link>>>> computeUnicastCandidate11PathList(Map<Pair<Node, Node>, List<List<Link>>> cpl, int disjointType)
+    {
+        return computeUnicastCandidate11PathList(cpl, disjointType, 1);
+    }
+
+    /**
+     * <p>Computes a list of disjoint path pairs for each node pair, using the paths in the input candidate path list given.
+     * The node pairs are processed in parallel, and the returned map iterates them in the same order as the input map.</p>
+     *
+     * @param cpl          Candidate path list per demand
+     * @param disjointType Type of disjointness: 0 for SRG-disjoint, 1 for link and node disjoint, other value means link disjoint
+     * @param parallelism  Maximum number of threads computing node pairs at the same time. If non-positive, the number of available processors
+     * @return List of disjoint path pairs for each demand
+     * @since 0.6.0
+     */
+    public static Map<Pair<Node, Node>, List<Pair<List<Link>, List<Link>>>> computeUnicastCandidate11PathList(Map<Pair<Node, Node>, List<List<Link>>> cpl, int disjointType, int parallelism)
+    {
+        return computeForEachKey(new ArrayList<>(cpl.keySet()), nodePair -> computeUnicastCandidate11PathsOfNodePair(nodePair, cpl.get(nodePair), disjointType), parallelism);
+    }
+
+    private static List<Pair<List<Link>, List<Link>>> computeUnicastCandidate11PathsOfNodePair(Pair<Node, Node> nodePair, List<List<Link>> cplThisPair, int disjointType)
     {
         final boolean srgDisjoint = disjointType == 0;
         final boolean linkAndNodeDisjoint = disjointType == 1;
         final boolean linkDisjoint = !srgDisjoint && !linkAndNodeDisjoint;
-        Map<Pair<Node, Node>, List<Pair<List<Link>, List<Link>>>> result = new HashMap<>();
-        if (cpl.isEmpty()) return result;
-
-        for (Pair<Node, Node> nodePair : cpl.keySet())
-        {
-            List<Pair<List<Link>, List<Link>>> pairs11ThisDemand = new ArrayList<>();
-            final List<List<Link>> paths = new ArrayList<>(cpl.get(nodePair));
-            final int P_d = paths.size();
-            for (int firstPathIndex = 0; firstPathIndex < P_d - 1; firstPathIndex++)
+        List<Pair<List<Link>, List<Link>>> pairs11ThisDemand = new ArrayList<>();
+        final List<List<Link>> paths = new ArrayList<>(cplThisPair);
+        final int P_d = paths.size();
+        for (int firstPathIndex = 0; firstPathIndex < P_d - 1; firstPathIndex++)
+        {
+            final List<Link> firstPathSeqLinks = paths.get(firstPathIndex).stream().filter(e -> e instanceof Link).map(e -> (Link) e).collect(Collectors.toList());
+            final Set<Link> firstPathLinks = new HashSet<Link>(firstPathSeqLinks);
+            Set<Node> firstPathNodesButLastAndFirst = null;
+            Set<SharedRiskGroup> firstPathSRGs = null;
+            if (linkAndNodeDisjoint)
             {
-                final List<Link> firstPathSeqLinks = paths.get(firstPathIndex).stream().filter(e -> e instanceof Link).map(e -> (Link) e).collect(Collectors.toList());
-                final Set<Link> firstPathLinks = new HashSet<Link>(firstPathSeqLinks);
-                Set<Node> firstPathNodesButLastAndFirst = null;
-                Set<SharedRiskGroup> firstPathSRGs = null;
-                if (linkAndNodeDisjoint)
+                List<Node> firstPathSeqNodes = GraphUtils.convertSequenceOfLinksToSequenceOfNodes(firstPathSeqLinks);
+                firstPathNodesButLastAndFirst = new HashSet<Node>(firstPathSeqNodes);
+                firstPathNodesButLastAndFirst.remove(nodePair.getFirst());
+                firstPathNodesButLastAndFirst.remove(nodePair.getSecond());
+            } else if (srgDisjoint)
+            {
+                firstPathSRGs = SRGUtils.getAffectingSRGs(firstPathLinks);
+            }
+            for (int secondPathIndex = firstPathIndex + 1; secondPathIndex < P_d; secondPathIndex++)
+            {
+                //List<Link> secondPath = paths.get(secondPathIndex);
+                final List<Link> secondPathSeqLinks = paths.get(secondPathIndex); //.stream().filter(e -> e instanceof Link).map(e -> (Link) e).collect(Collectors.toList());
+                boolean disjoint = true;
+                if (linkDisjoint)
                 {
-                    List<Node> firstPathSeqNodes = GraphUtils.convertSequenceOfLinksToSequenceOfNodes(firstPathSeqLinks);
-                    firstPathNodesButLastAndFirst = new HashSet<Node>(firstPathSeqNodes);
-                    firstPathNodesButLastAndFirst.remove(nodePair.getFirst());
-                    firstPathNodesButLastAndFirst.remove(nodePair.getSecond());
+                    disjoint = Sets.intersection(firstPathLinks, new HashSet<>(secondPathSeqLinks)).isEmpty();
+                } else if (linkAndNodeDisjoint)
+                {
+                    Set<Node> secondPathNodes = new HashSet<Node>(GraphUtils.convertSequenceOfLinksToSequenceOfNodes(secondPathSeqLinks));
+                    secondPathNodes.remove(nodePair.getFirst());
+                    secondPathNodes.remove(nodePair.getSecond());
+                    disjoint = Sets.intersection(firstPathLinks, new HashSet<>(secondPathSeqLinks)).isEmpty() &&
+                            Sets.intersection(firstPathNodesButLastAndFirst, secondPathNodes).isEmpty();
                 } else if (srgDisjoint)
                 {
-                    firstPathSRGs = SRGUtils.getAffectingSRGs(firstPathLinks);
+                    disjoint = Sets.intersection(firstPathSRGs, SRGUtils.getAffectingSRGs(secondPathSeqLinks)).isEmpty();
                 }
-                for (int secondPathIndex = firstPathIndex + 1; secondPathIndex < P_d; secondPathIndex++)
+                if (disjoint)
                 {
-                    //List<Link> secondPath = paths.get(secondPathIndex);
-                    final List<Link> secondPathSeqLinks = paths.get(secondPathIndex); //.stream().filter(e -> e instanceof Link).map(e -> (Link) e).collect(Collectors.toList());
-                    boolean disjoint = true;
-                    if (linkDisjoint)
-                    {
-                        disjoint = Sets.intersection(firstPathLinks, new HashSet<>(secondPathSeqLinks)).isEmpty();
-                    } else if (linkAndNodeDisjoint)
-                    {
-                        Set<Node> secondPathNodes = new HashSet<Node>(GraphUtils.convertSequenceOfLinksToSequenceOfNodes(secondPathSeqLinks));
-                        secondPathNodes.remove(nodePair.getFirst());
-                        secondPathNodes.remove(nodePair.getSecond());
-                        disjoint = Sets.intersection(firstPathLinks, new HashSet<>(secondPathSeqLinks)).isEmpty() &&
-                                Sets.intersection(firstPathNodesButLastAndFirst, secondPathNodes).isEmpty();
-                    } else if (srgDisjoint)
-                    {
-                        disjoint = Sets.intersection(firstPathSRGs, SRGUtils.getAffectingSRGs(secondPathSeqLinks)).isEmpty();
-                    }
-                    if (disjoint)
-                    {
-                        checkDisjointness(firstPathSeqLinks, secondPathSeqLinks, disjointType);
-                        pairs11ThisDemand.add(Pair.of(paths.get(firstPathIndex), paths.get(secondPathIndex)));
-                    }
+                    checkDisjointness(firstPathSeqLinks, secondPathSeqLinks, disjointType);
+                    pairs11ThisDemand.add(Pair.of(paths.get(firstPathIndex), paths.get(secondPathIndex)));
                 }
             }
-            result.put(nodePair, pairs11ThisDemand);
         }
+        return pairs11ThisDemand;
+    }
+
+    /**
+     * Computes the value associated to each key, possibly in parallel, and returns them in a map that iterates the keys in the given order.
+     * The parallel computations run in the common pool if the parallelism is at least the number of available processors, and otherwise in
+     * a pool shared by all the calls with the same parallelism, so that no threads are created at each call.
+     *
+     * @param keys        the keys
+     * @param function    the function computing the value of a key (it must not modify shared state)
+     * @param parallelism maximum number of threads computing values at the same time. If non-positive, the number of available processors
+     * @return the map with the value of each key
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> Map<K, V> computeForEachKey(List<K> keys, Function<K, V> function, int parallelism)
+    {
+        final Object[] values = new Object[keys.size()];
+        final int numProcessors = Runtime.getRuntime().availableProcessors();
+        if ((parallelism <= 0) || (parallelism > numProcessors)) parallelism = numProcessors;
+        if ((parallelism == 1) || (keys.size() <= 1))
+        {
+            for (int index = 0; index < keys.size(); index++) values[index] = function.apply(keys.get(index));
+        } else
+        {
+            final ForkJoinPool pool = parallelism == numProcessors ? ForkJoinPool.commonPool() : computeForEachKeyPools.computeIfAbsent(parallelism, ForkJoinPool::new);
+            pool.invoke(new ComputeForEachKeyTask<K>(keys, function, values, 0, keys.size()));
+        }
+        final Map<K, V> result = new LinkedHashMap<>();
+        for (int index = 0; index < keys.size(); index++) result.put(keys.get(index), (V) values[index]);
         return result;
     }
 
+    private static final Map<Integer, ForkJoinPool> computeForEachKeyPools = new ConcurrentHashMap<>();
+
+    private static final class ComputeForEachKeyTask<K> extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final List<K> keys;
+        private final Function<K, ?> function;
+        private final Object[] values;
+        private final int fromIndex, toIndex;
+
+        private ComputeForEachKeyTask(List<K> keys, Function<K, ?> function, Object[] values, int fromIndex, int toIndex)
+        {
+            this.keys = keys;
+            this.function = function;
+            this.values = values;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (toIndex - fromIndex == 1)
+            {
+                values[fromIndex] = function.apply(keys.get(fromIndex));
+                return;
+            }
+            final int middleIndex = (fromIndex + toIndex) >>> 1;
+            invokeAll(new ComputeForEachKeyTask<K>(keys, function, values, fromIndex, middleIndex), new ComputeForEachKeyTask<K>(keys, function, values, middleIndex, toIndex));
+        }
+    }
+
     /**
      * <p>Computes a list of disjoint service chain pairs for each demand (service chain requests), using the service chain paths in the input
      * candidate path list given.</p>
@@ -1236,7 +1346,8 @@ public class NetPlan extends NetworkElement
     }
 
     /**
-     * <p>Computes for all the node pairs, a candidate path list in the given layer, composed of the k shortest paths according with the options indicated below.</p>
+     * <p>Computes for all the node pairs, a candidate path list in the given layer, composed of the k shortest paths according with the options indicated below.
+     * The node pairs are processed sequentially, in the calling thread.</p>
      *
      * @param linkCosts                               the cost of each link (if null, all links have cost one), all numbers must be strictly positive
      * @param K                                       Desired nummber of paths (a lower number of paths may be returned if there are less than {@code K} loop-less paths admissible)
@@ -1254,23 +1365,45 @@ public class NetPlan extends NetworkElement
                                                                                    int K, double maxLengthInKm, int maxNumHops, double maxPropDelayInMs, double maxRouteCost,
                                                                                    double maxRouteCostFactorRespectToShortestPath, double maxRouteCostRespectToShortestPath, Set<Pair<Node, Node>> nodePairs, NetworkLayer... optionalLayerParameter)
     {
-        checkIsModifiable();
+        return computeUnicastCandidatePathList(linkCosts, K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath, nodePairs, 1, optionalLayerParameter);
+    }
+
+    /**
+     * <p>Computes for all the node pairs, a candidate path list in the given layer, composed of the k shortest paths according with the options indicated below.
+     * The node pairs are processed in parallel, and the returned map iterates them in a deterministic order: the order of {@code nodePairs}
+     * if given, and otherwise by origin and then destination node index.</p>
+     *
+     * @param linkCosts                               the cost of each link (if null, all links have cost one), all numbers must be strictly positive
+     * @param K                                       Desired nummber of paths (a lower number of paths may be returned if there are less than {@code K} loop-less paths admissible)
+     * @param maxLengthInKm                           Maximum length of the path. If non-positive, no maximum limit is assumed
+     * @param maxNumHops                              Maximum number of hops. If non-positive, no maximum limit is assumed
+     * @param maxPropDelayInMs                        Maximum propagation delay of the path. If non-positive, no maximum limit is assumed
+     * @param maxRouteCost                            Maximum route cost. If non-positive, no maximum limit is assumed
+     * @param maxRouteCostFactorRespectToShortestPath Maximum route cost factor respect to the shortest path. If non-positive, no maximum limit is assumed
+     * @param maxRouteCostRespectToShortestPath       Maximum route cost respect to the shortest path. If non-positive, no maximum limit is assumed
+     * @param nodePairs                               if this parameter is not null, the paths are computed only for this node pairs
+     * @param parallelism                             Maximum number of threads computing node pairs at the same time. If non-positive, the number of available processors
+     * @param optionalLayerParameter                  the layer (optional)
+     * @return Map with all the computed paths (values) per node pairs (keys)
+     * @since 0.6.0
+     */
+    public Map<Pair<Node, Node>, List<List<Link>>> computeUnicastCandidatePathList(DoubleMatrix1D linkCosts,
+                                                                                   int K, double maxLengthInKm, int maxNumHops, double maxPropDelayInMs, double maxRouteCost,
+                                                                                   double maxRouteCostFactorRespectToShortestPath, double maxRouteCostRespectToShortestPath, Set<Pair<Node, Node>> nodePairs, int parallelism, NetworkLayer... optionalLayerParameter)
+    {
         final NetworkLayer layer = checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
         if (linkCosts != null) if (linkCosts.size() != layer.links.size())
             throw new Net2PlanException("The array of costs must have the same length as the number of links in the layer");
-        Map<Pair<Node, Node>, List<List<Link>>> cpl = new HashMap<>();
-        Map<Link, Double> linkCostMap = new HashMap<Link, Double>();
-        for (Link e : layer.links) linkCostMap.put(e, linkCosts == null ? 1.0 : linkCosts.get(e.index));
+        final CSRGraph graph = layer.getCSRGraph();
+        final double[] linkCostArray = linkCosts == null ? DoubleUtils.ones(layer.links.size()) : linkCosts.toArray();
+        final List<Pair<Node, Node>> nodePairList = new ArrayList<>();
         if (nodePairs == null)
         {
-            nodePairs = new HashSet<>();
             for (Node n1 : nodes)
                 for (Node n2 : nodes)
-                    if (n1 != n2) nodePairs.add(Pair.of(n1, n2));
-        }
-        for (Pair<Node, Node> pair : nodePairs)
-            cpl.put(pair, GraphUtils.getKLooplessShortestPaths(nodes, layer.links, pair.getFirst(), pair.getSecond(), linkCostMap, K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath));
-        return cpl;
+                    if (n1 != n2) nodePairList.add(Pair.of(n1, n2));
+        } else nodePairList.addAll(nodePairs);
+        return computeForEachKey(nodePairList, pair -> graph.getKLooplessShortestPaths(pair.getFirst(), pair.getSecond(), linkCostArray, K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath), parallelism);
     }
 
     /**
@@ -1371,15 +1504,34 @@ public class NetPlan extends NetworkElement
      *                                         The best solution found so far is returned. If non-positive, no time limit is set
      * @param candidateTreeListParamValuePairs Parameters to be passed to the class to tune its operation. An even number of {@code String} is to be passed. For each {@code String} pair, first {@code String}
      *                                         must be the name of the parameter, second a {@code String} with its value. If no name-value pairs are set, default values are used
-     * @return Map with a list of all the computed trees (a tree is a set of links) per multicast demands
+     * @return Map with a list of all the computed trees (a tree is a set of links) per multicast demands. The multicast demands are processed sequentially, in the calling thread
      */
     public Map<MulticastDemand, List<Set<Link>>> computeMulticastCandidatePathList(NetworkLayer layer, DoubleMatrix1D linkCosts, String solverName, String solverLibraryName, double maxSolverTimeInSecondsPerTree, String... candidateTreeListParamValuePairs)
+    {
+        return computeMulticastCandidatePathList(layer, linkCosts, solverName, solverLibraryName, maxSolverTimeInSecondsPerTree, 1, candidateTreeListParamValuePairs);
+    }
+
+    /**
+     * <p>The same as {@code computeMulticastCandidatePathList}, computing the trees of different multicast demands in parallel. The returned map
+     * iterates the multicast demands in the order of their indexes. Since each thread solves its own formulations, the solver must support
+     * being called concurrently (otherwise, a parallelism of one should be used).</p>
+     *
+     * @param layer                            see {@code computeMulticastCandidatePathList}
+     * @param linkCosts                        see {@code computeMulticastCandidatePathList}
+     * @param solverName                       see {@code computeMulticastCandidatePathList}
+     * @param solverLibraryName                see {@code computeMulticastCandidatePathList}
+     * @param maxSolverTimeInSecondsPerTree    see {@code computeMulticastCandidatePathList}
+     * @param parallelism                      Maximum number of threads computing multicast demands at the same time. If non-positive, the number of available processors
+     * @param candidateTreeListParamValuePairs see {@code computeMulticastCandidatePathList}
+     * @return see {@code computeMulticastCandidatePathList}
+     * @since 0.6.0
+     */
+    public Map<MulticastDemand, List<Set<Link>>> computeMulticastCandidatePathList(NetworkLayer layer, DoubleMatrix1D linkCosts, String solverName, String solverLibraryName, double maxSolverTimeInSecondsPerTree, int parallelism, String... candidateTreeListParamValuePairs)
     {
         checkInThisNetPlan(layer);
         if (linkCosts == null) linkCosts = DoubleFactory1D.dense.make(layer.links.size(), 1);
         if (linkCosts.size() != layer.links.size())
             throw new Net2PlanException("The array of costs must have the same length as the number of links in the layer");
-        Map<MulticastDemand, List<Set<Link>>> cpl = new HashMap<MulticastDemand, List<Set<Link>>>();
         int K = 3;
         int maxCopyCapability = Integer.MAX_VALUE;
         double maxE2ELengthInKm = Double.MAX_VALUE;
@@ -1423,18 +1575,17 @@ public class NetPlan extends NetworkElement
         final DoubleMatrix2D Aout_ne = getMatrixNodeLinkOutgoingIncidence(layer);
         final DoubleMatrix2D Ain_ne = getMatrixNodeLinkIncomingIncidence(layer);
 
-        for (MulticastDemand d : layer.multicastDemands)
-        {
-            List<Set<Link>> trees = GraphUtils.getKMinimumCostMulticastTrees(layer.links,
-                    d.getIngressNode(), d.getEgressNodes(),
-                    Aout_ne, Ain_ne, linkCosts,
-                    solverName, solverLibraryName,
-                    maxSolverTimeInSecondsPerTree, K, maxCopyCapability,
-                    maxE2ELengthInKm, maxE2ENumHops, maxE2EPropDelayInMs,
-                    maxTreeCost, maxTreeCostFactorRespectToMinimumCostTree, maxTreeCostRespectToMinimumCostTree);
-            cpl.put(d, trees);
-        }
-        return cpl;
+        final DoubleMatrix1D linkCostVector = linkCosts;
+        final int numTrees = K, maxNumCopies = maxCopyCapability, maxNumHops = maxE2ENumHops;
+        final double maxLengthInKm = maxE2ELengthInKm, maxPropDelayInMs = maxE2EPropDelayInMs;
+        final double maxCost = maxTreeCost, maxCostFactor = maxTreeCostFactorRespectToMinimumCostTree, maxCostRespectToMinimumCostTree = maxTreeCostRespectToMinimumCostTree;
+        return computeForEachKey(new ArrayList<>(layer.multicastDemands), d -> GraphUtils.getKMinimumCostMulticastTrees(layer.links,
+                d.getIngressNode(), d.getEgressNodes(),
+                Aout_ne, Ain_ne, linkCostVector,
+                solverName, solverLibraryName,
+                maxSolverTimeInSecondsPerTree, numTrees, maxNumCopies,
+                maxLengthInKm, maxNumHops, maxPropDelayInMs,
+                maxCost, maxCostFactor, maxCostRespectToMinimumCostTree), parallelism);
     }
 
     /**
@@ -1509,6 +1660,8 @@ public class NetPlan extends NetworkElement
     public void assignFrom(NetPlan netPlan)
     {
         checkIsModifiable();
+        trackModificationOfAllElements();
+        this.cache_lastFailureStateTransaction = null;
 
         this.DEFAULT_ROUTING_TYPE = netPlan.DEFAULT_ROUTING_TYPE;
         this.isModifiable = netPlan.isModifiable;
@@ -1541,8 +1694,8 @@ public class NetPlan extends NetworkElement
         	this.cache_taggedElements.get(tag).remove(netPlan); 
         	this.cache_taggedElements.get(tag).add(this); 
         }
-        this.attributes.clear();
-        this.attributes.putAll(netPlan.attributes);
+        this.modifiableAttributes().clear();
+        this.modifiableAttributes().putAll(netPlan.attributes);
         for (Node node : netPlan.nodes) node.netPlan = this;
         for (SharedRiskGroup srg : netPlan.srgs) srg.netPlan = this;
         for (Resource resource : netPlan.resources) resource.netPlan = this;
@@ -1909,6 +2062,34 @@ public class NetPlan extends NetworkElement
         return netPlan;
     }
 
+    /**
+     * <p>Computes the changes (elements added, removed and modified, forwarding rules, attributes and tags) that transform this design into
+     * the given one, identifying the elements by their ids. Both designs must have the same layers (e.g. the other design is a modified copy
+     * of this one). None of both designs is modified.</p>
+     *
+     * @param otherDesign The design after the changes
+     * @return The change set, to be applied with {@link #applyDiff(NetPlanDiff) applyDiff}
+     * @since 0.6.0
+     */
+    public NetPlanDiff computeDiffTo(NetPlan otherDesign)
+    {
+        if (otherDesign == null) throw new Net2PlanException("A NetPlan object must be provided");
+        return new NetPlanDiff(this, otherDesign);
+    }
+
+    /**
+     * <p>Applies to this design the changes computed by {@link #computeDiffTo(NetPlan) computeDiffTo}. Applied to a copy of the first design
+     * compared, the result is a copy of the second. The elements removed or modified in the change set must exist in this design.</p>
+     *
+     * @param diff The change set
+     * @since 0.6.0
+     */
+    public void applyDiff(NetPlanDiff diff)
+    {
+        checkIsModifiable();
+        diff.applyTo(this);
+    }
+
     /** Replaces the partition of the current design by this design. The node ids are used to 
      * match this and other design. Nodes that are in both are assumed to be the scope of the 
      * partition. Then, all the links, demands etc. among these nodes are removed from current 
@@ -2219,9 +2400,9 @@ public class NetPlan extends NetworkElement
         checkIsModifiable();
         if (originNetPlan == this) return;
         if (originNetPlan == null) throw new Net2PlanException("A NetPlan object must be provided");
+        trackModificationOfAllElements();
 
-        this.attributes.clear();
-        this.attributes.putAll(originNetPlan.attributes);
+        this.shareAttributesWith(originNetPlan);
         this.netPlan = this;
         this.layers = new ArrayList<NetworkLayer>();
         this.nodes = new ArrayList<Node>();
@@ -2255,9 +2436,10 @@ public class NetPlan extends NetworkElement
         for (Node originNode : originNetPlan.nodes)
         {
             Node newElement = new Node(this, originNode.id, originNode.index, originNode.nodeXYPositionMap.getX(), originNode.nodeXYPositionMap.getY(), 
-            		originNode.name, originNode.attributes);
+            		originNode.name, null);
             for (String pd : originNode.getPlanningDomains ()) newElement.addToPlanningDomain(pd);
             for (String tag : originNode.getTags ()) newElement.addTag (tag);
+            newElement.shareAttributesWith(originNode);
             newElement.setSiteName(originNode.siteName);
             cache_id2NodeMap.put(originNode.id, newElement);
             for (String pd : originNode.getPlanningDomains ()) 
@@ -2270,8 +2452,9 @@ public class NetPlan extends NetworkElement
             Resource newElement = new Resource(this, originResource.id, originResource.index, originResource.type,
                     originResource.name, this.cache_id2NodeMap.get(originResource.hostNode.id),
                     originResource.capacity, originResource.capacityMeasurementUnits, null, 
-                    originResource.processingTimeToTraversingTrafficInMs, originResource.attributes);
+                    originResource.processingTimeToTraversingTrafficInMs, null);
             for (String tag : originResource.getTags ()) newElement.addTag (tag);
+            newElement.shareAttributesWith(originResource);
             cache_id2ResourceMap.put(originResource.id, newElement);
             Set<Resource> resOfThisType = cache_type2Resources.get(originResource.type);
             if (resOfThisType == null)
@@ -2284,15 +2467,17 @@ public class NetPlan extends NetworkElement
         }
         for (SharedRiskGroup originSrg : originNetPlan.srgs)
         {
-            SharedRiskGroup newElement = new SharedRiskGroup(this, originSrg.id, originSrg.index, null, null, originSrg.meanTimeToFailInHours, originSrg.meanTimeToRepairInHours, originSrg.attributes);
+            SharedRiskGroup newElement = new SharedRiskGroup(this, originSrg.id, originSrg.index, null, null, originSrg.meanTimeToFailInHours, originSrg.meanTimeToRepairInHours, null);
             for (String tag : originSrg.getTags ()) newElement.addTag (tag);
+            newElement.shareAttributesWith(originSrg);
             cache_id2srgMap.put(originSrg.id, newElement);
             srgs.add(newElement);
         }
         for (NetworkLayer originLayer : originNetPlan.layers)
         {
-            NetworkLayer newLayer = new NetworkLayer(this, originLayer.id, originLayer.index, originLayer.demandTrafficUnitsName, originLayer.description, originLayer.name, originLayer.linkCapacityUnitsName, originLayer.defaultNodeIconURL, originLayer.attributes);
+            NetworkLayer newLayer = new NetworkLayer(this, originLayer.id, originLayer.index, originLayer.demandTrafficUnitsName, originLayer.description, originLayer.name, originLayer.linkCapacityUnitsName, originLayer.defaultNodeIconURL, null);
             for (String tag : originLayer.getTags ()) newLayer.addTag (tag);
+            newLayer.shareAttributesWith(originLayer);
             cache_id2LayerMap.put(originLayer.id, newLayer);
             layers.add(newLayer);
             if (originLayer.id == originNetPlan.defaultLayer.id)
@@ -2300,8 +2485,9 @@ public class NetPlan extends NetworkElement
 
             for (Demand originDemand : originLayer.demands)
             {
-                Demand newElement = new Demand(this, originDemand.id, originDemand.index, newLayer, this.cache_id2NodeMap.get(originDemand.ingressNode.id), this.cache_id2NodeMap.get(originDemand.egressNode.id), originDemand.offeredTraffic, originDemand.attributes);
+                Demand newElement = new Demand(this, originDemand.id, originDemand.index, newLayer, this.cache_id2NodeMap.get(originDemand.ingressNode.id), this.cache_id2NodeMap.get(originDemand.egressNode.id), originDemand.offeredTraffic, null);
                 for (String tag : originDemand.getTags ()) newElement.addTag (tag);
+                newElement.shareAttributesWith(originDemand);
                 newElement.mandatorySequenceOfTraversedResourceTypes = new LinkedList<String>(originDemand.mandatorySequenceOfTraversedResourceTypes);
                 cache_id2DemandMap.put(originDemand.id, newElement);
                 newLayer.demands.add(newElement);
@@ -2311,15 +2497,17 @@ public class NetPlan extends NetworkElement
                 Set<Node> newEgressNodes = new HashSet<Node>();
                 for (Node oldEgressNode : originDemand.egressNodes)
                     newEgressNodes.add(this.cache_id2NodeMap.get(oldEgressNode.id));
-                MulticastDemand newElement = new MulticastDemand(this, originDemand.id, originDemand.index, newLayer, this.cache_id2NodeMap.get(originDemand.ingressNode.id), newEgressNodes, originDemand.offeredTraffic, originDemand.attributes);
+                MulticastDemand newElement = new MulticastDemand(this, originDemand.id, originDemand.index, newLayer, this.cache_id2NodeMap.get(originDemand.ingressNode.id), newEgressNodes, originDemand.offeredTraffic, null);
                 for (String tag : originDemand.getTags ()) newElement.addTag (tag);
+                newElement.shareAttributesWith(originDemand);
                 cache_id2MulticastDemandMap.put(originDemand.id, newElement);
                 newLayer.multicastDemands.add(newElement);
             }
             for (Link originLink : originLayer.links)
             {
-                Link newElement = new Link(this, originLink.id, originLink.index, newLayer, this.cache_id2NodeMap.get(originLink.originNode.id), this.cache_id2NodeMap.get(originLink.destinationNode.id), originLink.lengthInKm, originLink.propagationSpeedInKmPerSecond, originLink.capacity, originLink.attributes);
+                Link newElement = new Link(this, originLink.id, originLink.index, newLayer, this.cache_id2NodeMap.get(originLink.originNode.id), this.cache_id2NodeMap.get(originLink.destinationNode.id), originLink.lengthInKm, originLink.propagationSpeedInKmPerSecond, originLink.capacity, null);
                 for (String tag : originLink.getTags ()) newElement.addTag (tag);
+                newElement.shareAttributesWith(originLink);
                 cache_id2LinkMap.put(originLink.id, newElement);
                 newLayer.links.add(newElement);
             }
@@ -2327,8 +2515,9 @@ public class NetPlan extends NetworkElement
             {
                 Route newElement = new Route(this, originRoute.id, originRoute.index, cache_id2DemandMap.get(originRoute.demand.id),
                         (List<NetworkElement>) translateCollectionToThisNetPlan(originRoute.currentPath),
-                        originRoute.attributes);
+                        null);
                 for (String tag : originRoute.getTags ()) newElement.addTag (tag);
+                newElement.shareAttributesWith(originRoute);
                 newElement.currentCarriedTrafficIfNotFailing = originRoute.currentCarriedTrafficIfNotFailing;
                 newElement.currentLinksAndResourcesOccupationIfNotFailing = new ArrayList<Double>(originRoute.currentLinksAndResourcesOccupationIfNotFailing);
                 cache_id2RouteMap.put(originRoute.id, newElement);
@@ -2338,8 +2527,9 @@ public class NetPlan extends NetworkElement
             {
                 Set<Link> newSetLinks = new HashSet<Link>();
                 for (Link oldLink : originTree.linkSet) newSetLinks.add(this.cache_id2LinkMap.get(oldLink.id));
-                MulticastTree newElement = new MulticastTree(this, originTree.id, originTree.index, cache_id2MulticastDemandMap.get(originTree.demand.id), newSetLinks, originTree.attributes);
+                MulticastTree newElement = new MulticastTree(this, originTree.id, originTree.index, cache_id2MulticastDemandMap.get(originTree.demand.id), newSetLinks, null);
                 for (String tag : originTree.getTags ()) newElement.addTag (tag);
+                newElement.shareAttributesWith(originTree);
                 cache_id2MulticastTreeMap.put(originTree.id, newElement);
                 newLayer.multicastTrees.add(newElement);
                 newElement.carriedTrafficIfNotFailing = originTree.carriedTrafficIfNotFailing;
@@ -5577,6 +5767,7 @@ public class NetPlan extends NetworkElement
         netPlan.cache_id2LayerMap.remove(layer.id);
         NetPlan.removeNetworkElementAndShiftIndexes(netPlan.layers, layer.index);
         if (netPlan.defaultLayer.equals(layer)) netPlan.defaultLayer = netPlan.layers.get(0);
+        netPlan.trackModification(layer);
         if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
         layer.removeId();
     }
@@ -5610,10 +5801,12 @@ public class NetPlan extends NetworkElement
         	d.cacheHbH_frs.clear();
         	d.cacheHbH_linksPerNodeWithNonZeroFr.clear();
         	d.cacheHbH_normCarriedOccupiedPerLinkCurrentState.clear();
+        	d.invalidateHopByHopIncrementalCaches();
         	d.cache_worstCaseLengthInKm = Double.MAX_VALUE;
         	d.cache_worstCasePropagationTimeMs = Double.MAX_VALUE;
             d.routingCycleType = RoutingCycleType.LOOPLESS;
             d.carriedTraffic = 0;
+            trackModification(d);
             if (d.coupledUpperLayerLink != null)
             	d.coupledUpperLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(d.carriedTraffic);
         }
@@ -5623,6 +5816,7 @@ public class NetPlan extends NetworkElement
         	e.cacheHbH_normCarriedOccupiedPerTraversingDemandCurrentState.clear();
             e.cache_carriedTraffic = e.getMulticastCarriedTraffic();
             e.cache_occupiedCapacity = e.getMulticastOccupiedLinkCapacity();
+            trackModification(e);
         }
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
@@ -5754,6 +5948,7 @@ public class NetPlan extends NetworkElement
         {
         	d.carriedTraffic = 0;
         	d.routingCycleType = RoutingCycleType.LOOPLESS;
+        	trackModification(d);
         	if (d.coupledUpperLayerLink != null)
         		d.coupledUpperLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(0);
     		d.cache_routes.clear ();
@@ -5902,6 +6097,21 @@ public class NetPlan extends NetworkElement
         }
     }
 
+    /**
+     * <p>Saves the current network plan to a given file in a binary format, that contains the same information as the {@code .n2p} format, but is faster
+     * to read and write, and smaller, for large designs: the elements of each type are stored column by column (ids, capacities, traffics... as arrays of primitives),
+     * and the strings in a single table. If extension {@code .n2pb} is not in the file name, it will be added automatically.</p>
+     *
+     * @param file Output file
+     * @since 0.6.0
+     */
+    public void saveToBinaryFile(File file)
+    {
+        String filePath = file.getPath();
+        if (!filePath.toLowerCase(Locale.getDefault()).endsWith("." + NetPlanBinaryFormat.FILE_EXTENSION)) file = new File(filePath + "." + NetPlanBinaryFormat.FILE_EXTENSION);
+        NetPlanBinaryFormat.write(this, file);
+    }
+
     /**
      * <p>Saves the current network plan to a given output stream.</p>
      *
@@ -6343,6 +6553,35 @@ public class NetPlan extends NetworkElement
      * @param nodesToSetAsDown Nodes to set as down
      */
     public void setLinksAndNodesFailureState(Collection<Link> linksToSetAsUp, Collection<Link> linksToSetAsDown, Collection<Node> nodesToSetAsUp, Collection<Node> nodesToSetAsDown)
+    {
+        setLinksAndNodesFailureState(linksToSetAsUp, linksToSetAsDown, nodesToSetAsUp, nodesToSetAsDown, null);
+    }
+
+    /**
+     * <p>Changes the failure state of the links and nodes as {@link #setLinksAndNodesFailureState(Collection, Collection, Collection, Collection) setLinksAndNodesFailureState},
+     * and returns a transaction recording the changes made: the links and nodes that actually changed their state, the routes and trees that went up or down,
+     * and the previous hop-by-hop routing state of the affected demands. Reverting the transaction undoes only these changes, instead of recomputing
+     * the state of all the routes, trees and demands traversing the affected links.</p>
+     * <p>Transactions must be reverted in the reverse order they were made, and the design must not be modified in between (other than by
+     * applying and reverting nested transactions).</p>
+     *
+     * @param linksToSetAsUp   Links to set as up
+     * @param linksToSetAsDown Links to set as down
+     * @param nodesToSetAsUp   Nodes to set as up
+     * @param nodesToSetAsDown Nodes to set as down
+     * @return The transaction, to revert the changes
+     * @since 0.6.0
+     */
+    public FailureStateTransaction setLinksAndNodesFailureStateTransaction(Collection<Link> linksToSetAsUp, Collection<Link> linksToSetAsDown, Collection<Node> nodesToSetAsUp, Collection<Node> nodesToSetAsDown)
+    {
+        final FailureStateTransaction transaction = new FailureStateTransaction(this, cache_lastFailureStateTransaction);
+        setLinksAndNodesFailureState(linksToSetAsUp, linksToSetAsDown, nodesToSetAsUp, nodesToSetAsDown, transaction);
+        this.cache_lastFailureStateTransaction = transaction;
+        return transaction;
+    }
+
+    /* Changes the failure state. If the transaction is not null, the changes made are recorded there */
+    private void setLinksAndNodesFailureState(Collection<Link> linksToSetAsUp, Collection<Link> linksToSetAsDown, Collection<Node> nodesToSetAsUp, Collection<Node> nodesToSetAsDown, FailureStateTransaction transaction)
     {
         checkIsModifiable();
         if (linksToSetAsUp != null) checkInThisNetPlan(linksToSetAsUp);
@@ -6367,6 +6606,8 @@ public class NetPlan extends NetworkElement
                 e.isUp = true;
                 e.layer.cache_linksDown.remove(e);
                 affectedLinks.add(e);
+                trackFailureStateChange(e);
+                if (transaction != null) transaction.linksChangedToUp.add(e);
             }
         if (linksToSetAsDown != null) for (Link e : linksToSetAsDown)
             if (e.isUp)
@@ -6374,6 +6615,8 @@ public class NetPlan extends NetworkElement
                 e.isUp = false;
                 e.layer.cache_linksDown.add(e);
                 affectedLinks.add(e);
+                trackFailureStateChange(e);
+                if (transaction != null) transaction.linksChangedToDown.add(e);
             }
         if (nodesToSetAsUp != null)
             for (Node node : nodesToSetAsUp)
@@ -6381,6 +6624,8 @@ public class NetPlan extends NetworkElement
                 {
                     node.isUp = true;
                     cache_nodesDown.remove(node);
+                    trackFailureStateChange(node);
+                    if (transaction != null) transaction.nodesChangedToUp.add(node);
                     affectedLinks.addAll(node.cache_nodeOutgoingLinks);
                     affectedLinks.addAll(node.cache_nodeIncomingLinks);
                 }
@@ -6390,6 +6635,8 @@ public class NetPlan extends NetworkElement
                 {
                     node.isUp = false;
                     cache_nodesDown.add(node);
+                    trackFailureStateChange(node);
+                    if (transaction != null) transaction.nodesChangedToDown.add(node);
                     affectedLinks.addAll(node.cache_nodeOutgoingLinks);
                     affectedLinks.addAll(node.cache_nodeIncomingLinks);
                 }
@@ -6411,9 +6658,24 @@ public class NetPlan extends NetworkElement
         }
 
 //		System.out.println ("affected routes: " + affectedRoutesSourceRouting);
-        for (Demand d : affectedDemandsHopByHopRouting) d.updateHopByHopRoutingToGivenFrs(d.cacheHbH_frs);
-        netPlan.updateFailureStateRoutesAndTrees(affectedRoutesSourceRouting);
-        netPlan.updateFailureStateRoutesAndTrees(affectedTrees);
+        if (transaction == null)
+        {
+            for (Demand d : affectedDemandsHopByHopRouting) d.updateHopByHopRoutingToGivenFrs(d.cacheHbH_frs);
+            netPlan.updateFailureStateRoutesAndTrees(affectedRoutesSourceRouting);
+            netPlan.updateFailureStateRoutesAndTrees(affectedTrees);
+        } else
+        {
+            for (Demand d : affectedDemandsHopByHopRouting)
+            {
+                final Demand.HopByHopRoutingUpdate update = d.computeHopByHopRoutingUpdate(d.cacheHbH_frs);
+                transaction.addHopByHopRoutingUndo(d.computeHopByHopRoutingUndo(update));
+                d.applyHopByHopRoutingUpdate(update, null);
+            }
+            for (Route route : affectedRoutesSourceRouting)
+                if (netPlan.updateFailureStateRoutesAndTrees(route)) transaction.routesChanged.add(route);
+            for (MulticastTree tree : affectedTrees)
+                if (netPlan.updateFailureStateRoutesAndTrees(tree)) transaction.treesChanged.add(tree);
+        }
 
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
@@ -6534,12 +6796,59 @@ public class NetPlan extends NetworkElement
         for (double val : sumOutFrs.values()) if (val > 1 + Configuration.precisionFactor)
         	throw new Net2PlanException ();
         
-        for (Demand d : newForwardingRules.keySet())
-        	d.updateHopByHopRoutingToGivenFrs(newForwardingRules.get(d));
+        updateHopByHopRoutingToGivenFrs(layer , newForwardingRules);
         
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
+    /**
+     * <p>Sets the forwarding rules of the given demands (all in the same layer), removing their previous forwarding rules. The forwarding
+     * rules of the rest of the demands are not modified. The same map of forwarding rules can be used for several demands (e.g. for all
+     * the demands to the same egress node in destination-based routing), and it is not modified nor kept.</p>
+     * <p><b>Important</b>: Routing type must be {@link com.net2plan.utils.Constants.RoutingType#HOP_BY_HOP_ROUTING HOP_BY_HOP_ROUTING}.</p>
+     *
+     * @param frsPerDemand For each demand, the splitting ratio of each link (fraction of the demand traffic arriving to the origin node of the link,
+     *                     forwarded through it). Splitting ratios below the precision factor are ignored
+     * @since 0.6.0
+     */
+    public void setForwardingRules(Map<Demand,Map<Link,Double>> frsPerDemand)
+    {
+        checkIsModifiable();
+        if (frsPerDemand.isEmpty()) return;
+        final NetworkLayer layer = frsPerDemand.keySet().iterator().next().layer;
+        checkInThisNetPlanAndLayer(frsPerDemand.keySet(), layer);
+        layer.checkRoutingType(RoutingType.HOP_BY_HOP_ROUTING);
+
+        /* Check each different map of forwarding rules only once */
+        final Map<Map<Link,Double>,Map<Link,Double>> frsWithoutZeros = new IdentityHashMap<> ();
+        for (Map<Link,Double> frs : frsPerDemand.values())
+        {
+        	if (frsWithoutZeros.containsKey(frs)) continue;
+        	checkInThisNetPlanAndLayer(frs.keySet(), layer);
+        	final Map<Link,Double> frsThisMap = new HashMap<> ();
+            final Map<Node,Double> sumOutFrs = new HashMap<> ();
+        	for (Entry<Link,Double> fr : frs.entrySet())
+        	{
+        		final double splittingFactor = fr.getValue();
+        		if (splittingFactor > 1 || splittingFactor < 0) throw new Net2PlanException ("Split factors must be between 0 and 1");
+        		if (splittingFactor < Configuration.precisionFactor) continue;
+        		final Double sumOutSoFar = sumOutFrs.get(fr.getKey().originNode);
+        		if (splittingFactor + (sumOutSoFar == null? 0 : sumOutSoFar) > 1 + Configuration.precisionFactor)
+        			throw new Net2PlanException("The sum of the splitting factors of the output links of a node cannot exceed one");
+        		sumOutFrs.put(fr.getKey().originNode, splittingFactor + (sumOutSoFar == null? 0 : sumOutSoFar));
+        		frsThisMap.put(fr.getKey(), splittingFactor);
+        	}
+        	frsWithoutZeros.put(frs, frsThisMap);
+        }
+
+        final Map<Demand,Map<Link,Double>> newForwardingRules = new HashMap<> ();
+        for (Entry<Demand,Map<Link,Double>> entry : frsPerDemand.entrySet())
+        	newForwardingRules.put(entry.getKey(), frsWithoutZeros.get(entry.getValue()));
+        updateHopByHopRoutingToGivenFrs(layer , newForwardingRules);
+
+        if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
+    }
+
     /**
      * <p>Sets the forwarding rules for the given design. Any previous routing
      * information (either source routing or hop-by-hop routing) will be removed.</p>
@@ -6587,7 +6896,70 @@ public class NetPlan extends NetworkElement
         }
 
         for (Demand d : layer.demands)
-        	d.updateHopByHopRoutingToGivenFrs(newFrs.containsKey(d)? newFrs.get(d) : new HashMap<> ());
+        	if (!newFrs.containsKey(d)) newFrs.put(d, new HashMap<> ());
+        updateHopByHopRoutingToGivenFrs(layer , newFrs);
+        if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
+    }
+
+    /* Updates the hop-by-hop routing of the given demands of the layer. Since the demands are independent given the forwarding 
+     * rules, their new routing is computed in parallel (if there are enough demands), without modifying the network state. 
+     * Then, it is applied demand by demand, and the change in the occupation of each link is added in a single step at the end. 
+     * If the routing of any demand has closed cycles, the exception is thrown before modifying the network state */
+    void updateHopByHopRoutingToGivenFrs(NetworkLayer layer, Map<Demand,Map<Link,Double>> newFrsPerDemand)
+    {
+        final Stream<Demand> demands = newFrsPerDemand.size() < MIN_DEMANDS_PARALLEL_HOP_BY_HOP_UPDATE? newFrsPerDemand.keySet().stream() : newFrsPerDemand.keySet().parallelStream();
+        final List<Demand.HopByHopRoutingUpdate> updates = demands.map(d -> d.computeHopByHopRoutingUpdate(newFrsPerDemand.get(d))).collect(Collectors.toList());
+
+        final double [] linkOccupationDeltas = new double [layer.links.size()];
+        final boolean [] affectedLinks = new boolean [layer.links.size()];
+        for (Demand.HopByHopRoutingUpdate update : updates)
+        {
+            update.demand.applyHopByHopRoutingUpdate(update, linkOccupationDeltas);
+            for (Link e : update.affectedLinks) affectedLinks [e.index] = true;
+        }
+        for (Link e : layer.links)
+        {
+            if (!affectedLinks [e.index]) continue;
+            e.cache_carriedTraffic += linkOccupationDeltas [e.index]; // in hop-by-hop carried traffic is the same as occupied capacity
+            e.cache_occupiedCapacity += linkOccupationDeltas [e.index];
+            trackModification(e);
+        }
+    }
+
+    /* Starts a bulk load of the routes and multicast trees of a layer (used when reading a design). Each new route or tree
+     * updates the carried traffic of its demand, and of every link and resource traversed, summing again all the routes and trees
+     * there, so that adding them one by one is quadratic in the number of routes per link. During a bulk load these caches are
+     * not updated, and they are computed in a single pass by endBulkLoad. The caches consistency is not checked meanwhile.
+     * Callers must call endBulkLoad in a finally block, so that a failed read does not leave the layer in a bulk load */
+    void startBulkLoad(NetworkLayer layer)
+    {
+        layer.isBulkLoading = true;
+    }
+
+    /* Ends the bulk load of the layer, if started, computing the caches not updated during it */
+    void endBulkLoad(NetworkLayer layer)
+    {
+        if (!layer.isBulkLoading) return;
+        layer.isBulkLoading = false;
+        if (layer.isSourceRouting())
+        {
+            for (Demand d : layer.demands)
+            {
+                d.carriedTraffic = 0; for (Route r : d.cache_routes) d.carriedTraffic += r.getCarriedTraffic();
+                trackModification(d);
+                if (d.coupledUpperLayerLink != null)
+                    d.coupledUpperLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(d.carriedTraffic);
+            }
+        }
+        for (MulticastDemand d : layer.multicastDemands)
+        {
+            d.carriedTraffic = 0; for (MulticastTree t : d.cache_multicastTrees) d.carriedTraffic += t.getCarriedTraffic();
+            if (d.coupledUpperLayerLinks != null)
+                for (Link e : d.coupledUpperLayerLinks.values())
+                    e.updateCapacityAndZeroCapacityLinksAndRoutesCaches(d.carriedTraffic);
+        }
+        for (Link e : layer.links) e.updateLinkTrafficAndOccupation();
+        for (Resource r : resources) r.updateTotalOccupiedCapacity();
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
@@ -6889,15 +7261,18 @@ public class NetPlan extends NetworkElement
                 {
                     e.cache_carriedTraffic = e.getMulticastCarriedTraffic();
                     e.cache_occupiedCapacity = e.getMulticastOccupiedLinkCapacity();
+                    trackModification(e);
                 	e.cacheHbH_frs.clear();
                 	e.cacheHbH_normCarriedOccupiedPerTraversingDemandCurrentState.clear ();
                 }
                 for (Demand d : layer.demands)
                 {
                 	d.carriedTraffic = 0;
+                	trackModification(d);
                 	d.cacheHbH_frs.clear();
                 	d.cacheHbH_linksPerNodeWithNonZeroFr.clear();
                 	d.cacheHbH_normCarriedOccupiedPerLinkCurrentState.clear();
+                	d.invalidateHopByHopIncrementalCaches();
                 }
 
             	ProfileUtils.printTime("Start setRoutingType -- to SR -- 2");
@@ -6923,6 +7298,7 @@ public class NetPlan extends NetworkElement
             default:
                 throw new RuntimeException("Bad - Unknown routing type " + newRoutingType);
         }
+        trackModification(layer);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
@@ -6973,6 +7349,7 @@ public class NetPlan extends NetworkElement
         for (Demand d : layer.demands)
         {
             d.offeredTraffic = offeredTrafficVector.get(d.index);
+            trackModification(d);
             if (layer.routingType == RoutingType.HOP_BY_HOP_ROUTING) d.updateHopByHopRoutingToGivenFrs(d.cacheHbH_frs);
         }
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
@@ -7357,6 +7734,115 @@ public class NetPlan extends NetworkElement
         return isModifiable;
     }
 
+    /**
+     * <p>Enables or disables the tracking of the modified network elements. While enabled, the nodes, links, demands and layers that are added,
+     * removed, or change their capacity, occupied capacity, length, offered or carried traffic, or their up/down state, are recorded, and can be
+     * retrieved calling to {@link #pollModifiedElements() pollModifiedElements}.</p>
+     *
+     * @param enable {@code true} to enable the tracking (discarding any previous record), {@code false} to disable it
+     * @since 0.6.0
+     */
+    public void setModifiedElementsTracking(boolean enable)
+    {
+        cache_modifiedElements = enable ? new HashSet<NetworkElement>() : null;
+        cache_modifiedElementsUnknown = false;
+    }
+
+    /**
+     * <p>Returns the nodes, links, demands and layers modified since the last call to this method (or since the tracking was enabled), and
+     * clears the record. Removed elements are also included. Returns {@code null} if the tracking is disabled, or if an operation on the whole
+     * design (like {@link #copyFrom(NetPlan) copyFrom} or {@link #reset() reset}) was made since the last call, so any element may have changed.</p>
+     *
+     * @return The modified elements, or {@code null} (see above)
+     * @since 0.6.0
+     */
+    public Set<NetworkElement> pollModifiedElements()
+    {
+        if (cache_modifiedElements == null) return null;
+        final Set<NetworkElement> res = cache_modifiedElementsUnknown ? null : cache_modifiedElements;
+        cache_modifiedElements = new HashSet<NetworkElement>();
+        cache_modifiedElementsUnknown = false;
+        return res;
+    }
+
+    /**
+     * <p>Registers a listener of the changes made in this design. The changes are recorded while there is some listener, and delivered to all
+     * of them, coalesced in one event, when {@link #fireChangeEvent() fireChangeEvent} is called.</p>
+     *
+     * @param listener The listener
+     * @since 0.6.0
+     */
+    public void addChangeListener(INetPlanChangeListener listener)
+    {
+        if (listener == null) throw new Net2PlanException("The listener cannot be null");
+        if (changeListeners.contains(listener)) return;
+        changeListeners.add(listener);
+        if (cache_pendingChangeEvent == null) cache_pendingChangeEvent = new NetPlanChangeEvent(this);
+    }
+
+    /**
+     * <p>Unregisters a listener of the changes made in this design. If no listener remains, the changes are no longer recorded.</p>
+     *
+     * @param listener The listener
+     * @since 0.6.0
+     */
+    public void removeChangeListener(INetPlanChangeListener listener)
+    {
+        changeListeners.remove(listener);
+        if (changeListeners.isEmpty()) cache_pendingChangeEvent = null;
+    }
+
+    /**
+     * <p>Delivers to the listeners the changes made in the design since the previous call to this method, coalesced in one event
+     * (see {@link NetPlanChangeEvent}). Nothing is delivered if there are no changes. It is called at the end of each operation made
+     * in the design (e.g. an edition in a GUI), so the listeners can update what the operation changed.</p>
+     *
+     * @return The event delivered, or {@code null} if there were no listeners or no changes
+     * @since 0.6.0
+     */
+    public NetPlanChangeEvent fireChangeEvent()
+    {
+        if ((cache_pendingChangeEvent == null) || cache_pendingChangeEvent.isEmpty()) return null;
+        final NetPlanChangeEvent event = cache_pendingChangeEvent;
+        cache_pendingChangeEvent = new NetPlanChangeEvent(this);
+        for (INetPlanChangeListener listener : new ArrayList<>(changeListeners))
+            listener.netPlanChanged(event);
+        return event;
+    }
+
+    void trackChange(NetPlanChangeEvent.ChangeType type, NetworkElement e)
+    {
+        if (cache_pendingChangeEvent != null) cache_pendingChangeEvent.addChange(type, e);
+    }
+
+    void trackFailureStateChange(NetworkElement e)
+    {
+        trackChange(NetPlanChangeEvent.ChangeType.FAILURE_STATE_CHANGED, e);
+        trackModification(e);
+    }
+
+    void trackModification(NetworkElement e)
+    {
+        trackChange(NetPlanChangeEvent.ChangeType.MODIFIED, e);
+        if ((cache_modifiedElements == null) || cache_modifiedElementsUnknown) return;
+        cache_modifiedElements.add(e);
+
+        /* If nobody polls the record, it should not grow beyond the size of the design: then, everything is considered modified */
+        if (cache_modifiedElements.size() > layers.size() + nodes.size() + cache_id2LinkMap.size() + cache_id2DemandMap.size())
+        {
+            cache_modifiedElements.clear();
+            cache_modifiedElementsUnknown = true;
+        }
+    }
+
+    void trackModificationOfAllElements()
+    {
+        if (cache_pendingChangeEvent != null) cache_pendingChangeEvent.setDesignReplaced();
+        if (cache_modifiedElements == null) return;
+        cache_modifiedElements.clear();
+        cache_modifiedElementsUnknown = true;
+    }
+
     /**
      * <p>Checks if the given layer is valid and belongs to this {@code NetPlan} design. Throws and exception if the input is invalid.</p>
      *
@@ -7401,8 +7887,8 @@ public class NetPlan extends NetworkElement
             updateFailureStateRoutesAndTrees(thisElement);
     }
 
-    /* Receives a route, or multicast tree, and updates its failure state according to the traversing links and nodes */
-    void updateFailureStateRoutesAndTrees(NetworkElement thisElement)
+    /* Receives a route, or multicast tree, and updates its failure state according to the traversing links and nodes. Returns true if the state changed */
+    boolean updateFailureStateRoutesAndTrees(NetworkElement thisElement)
     {
         if (thisElement instanceof Route)
         {
@@ -7426,7 +7912,7 @@ public class NetPlan extends NetworkElement
 //				System.out.println ("Link " + e + ", isUp: " + e.isUp);
 //			for (Node n : route.seqNodesRealPath)
 //				System.out.println ("Node " + n + ", isUp: " + n.isUp);
-            if (isUp == previouslyUp) return;
+            if (isUp == previouslyUp) return false;
             if (isUp) // from down to up
             {
                 route.layer.cache_routesDown.remove(route);
@@ -7444,6 +7930,7 @@ public class NetPlan extends NetworkElement
                 route.setCarriedTraffic(route.currentCarriedTrafficIfNotFailing, route.currentLinksAndResourcesOccupationIfNotFailing);
                 ErrorHandling.setDebug(previousDebug);
             }
+            return true;
         } else if (thisElement instanceof MulticastTree)
         {
             MulticastTree tree = (MulticastTree) thisElement;
@@ -7461,7 +7948,7 @@ public class NetPlan extends NetworkElement
                     isUp = false;
                     break;
                 }
-            if (isUp == previouslyUp) return;
+            if (isUp == previouslyUp) return false;
             if (isUp) // from down to up
             {
                 if (tree.getOccupiedLinkCapacity() != 0) throw new RuntimeException("Bad");
@@ -7478,6 +7965,7 @@ public class NetPlan extends NetworkElement
             ErrorHandling.setDebug(false);
             tree.setCarriedTraffic(tree.carriedTrafficIfNotFailing, tree.occupiedLinkCapacityIfNotFailing); // updates links since all are up
             ErrorHandling.setDebug(previousDebug);
+            return true;
         } else throw new RuntimeException("Bad");
     }
 
@@ -7510,6 +7998,7 @@ public class NetPlan extends NetworkElement
      */
     public void checkCachesConsistency()
     {
+        for (NetworkLayer layer : layers) if (layer.isBulkLoading) return; // the traffic caches are computed when the bulk load ends
 		super.checkCachesConsistency ();
 
 //		System.out.println ("Check caches consistency of object: " + hashCode());
@@ -0,0 +1,828 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.networkDesign;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import org.apache.commons.lang3.mutable.MutableLong;
+
+import com.net2plan.internal.ErrorHandling;
+import com.net2plan.utils.Constants.RoutingType;
+
+
+/**
+ * <p>Binary alternative to the XML {@code .n2p} format. The file stores the same information as {@code NetPlan.saveToOutputStream}, but
+ * column by column for each element type: the ids, the indexes, the capacities and the traffics are written as arrays of primitives, the variable length
+ * lists (paths, link sets...) as an array of offsets plus an array with the contents, and all the strings (names, tags, attributes...) are replaced by their
+ * position in a table of strings written at the end of the file. The file is read through a memory-mapped buffer.</p>
+ *
+ * <p>The elements are created in the same order, and with the same methods, than the XML reader, so that a design saved in both formats is read as
+ * a deep copy of the same design.</p>
+ */
+final class NetPlanBinaryFormat
+{
+	static final String FILE_EXTENSION = "n2pb";
+	private static final int MAGIC_NUMBER = 0x4E325042; // "N2PB"
+	private static final int FORMAT_VERSION = 1;
+
+	private NetPlanBinaryFormat () { }
+
+	/* The design is written in a temporary file in the same folder, moved to the given file only if all was written */
+	static void write (NetPlan netPlan , File file)
+	{
+		File tempFile = null;
+		try
+		{
+			tempFile = File.createTempFile(file.getName() , ".tmp" , file.getAbsoluteFile().getParentFile());
+			try (FileChannel channel = FileChannel.open(tempFile.toPath() , StandardOpenOption.WRITE , StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				final CountingOutputStream countingStream = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel) , 1 << 16));
+				final DataOutputStream out = new DataOutputStream(countingStream);
+				final Writer writer = new Writer (out);
+				out.writeInt(MAGIC_NUMBER);
+				out.writeInt(FORMAT_VERSION);
+				out.writeLong(-1); // position of the string table, known at the end
+				writer.writeNetwork(netPlan);
+				final long stringTablePosition = countingStream.count;
+				writer.writeStringTable();
+				out.flush();
+				final ByteBuffer positionBuffer = ByteBuffer.allocate(8); positionBuffer.putLong(0 , stringTablePosition);
+				channel.write(positionBuffer , 8);
+			}
+			try
+			{
+				Files.move(tempFile.toPath() , file.toPath() , StandardCopyOption.REPLACE_EXISTING , StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e)
+			{
+				Files.move(tempFile.toPath() , file.toPath() , StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e)
+		{
+			throw new Net2PlanException(e.getMessage());
+		} finally
+		{
+			if (tempFile != null) tempFile.delete(); // no effect if it was moved
+		}
+	}
+
+	/* Counts the bytes written, failing as soon as the file would be too large to be memory-mapped when read */
+	private static final class CountingOutputStream extends FilterOutputStream
+	{
+		private long count;
+
+		private CountingOutputStream (OutputStream out) { super(out); }
+
+		@Override
+		public void write (int b) throws IOException
+		{
+			checkSize(1);
+			out.write(b);
+			count ++;
+		}
+
+		@Override
+		public void write (byte [] b , int off , int len) throws IOException
+		{
+			checkSize(len);
+			out.write(b , off , len);
+			count += len;
+		}
+
+		private void checkSize (int len)
+		{
+			if (count + len > Integer.MAX_VALUE) throw new Net2PlanException ("The design is too large to be saved in the binary format");
+		}
+	}
+
+	static NetPlan read (File file)
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath() , StandardOpenOption.READ))
+		{
+			if (channel.size() > Integer.MAX_VALUE) throw new Net2PlanException ("The file is too large to be read in the binary format");
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY , 0 , channel.size());
+			if (buffer.getInt() != MAGIC_NUMBER) throw new Net2PlanException ("The file is not a Net2Plan binary file");
+			final int version = buffer.getInt();
+			if (version != FORMAT_VERSION) throw new Net2PlanException ("Wrong version number (" + version + ") of the binary file");
+			final long stringTablePosition = buffer.getLong();
+			if ((stringTablePosition < buffer.position()) || (stringTablePosition > buffer.limit())) throw new Net2PlanException ("The file is not a Net2Plan binary file, or it is corrupted");
+			final NetPlan netPlan = new NetPlan ();
+			new Reader (buffer , (int) stringTablePosition).readNetwork(netPlan);
+			if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
+			return netPlan;
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e)
+		{
+			throw new Net2PlanException ("The binary file is truncated or corrupted");
+		} catch (IOException e)
+		{
+			throw new Net2PlanException(e.getMessage());
+		}
+	}
+
+	private static final class Writer
+	{
+		private final DataOutputStream out;
+		private final Map<String,Integer> stringIndexes = new HashMap<> ();
+		private final List<String> strings = new ArrayList<> ();
+
+		private Writer (DataOutputStream out) { this.out = out; }
+
+		private void writeNetwork (NetPlan np) throws IOException
+		{
+			out.writeInt(stringIndex(np.getNetworkName()));
+			out.writeInt(stringIndex(np.getNetworkDescription()));
+			out.writeLong(np.nextElementId.longValue());
+			out.writeInt(np.cache_planningDomain2nodes.size());
+			for (String planningDomain : np.cache_planningDomain2nodes.keySet()) out.writeInt(stringIndex(planningDomain));
+			writeTagsAndAttributes(Collections.singletonList(np));
+
+			final List<Node> nodes = np.nodes;
+			out.writeInt(nodes.size());
+			writeLongs(nodes , n -> n.id);
+			writeDoubles(nodes , n -> n.nodeXYPositionMap.getX());
+			writeDoubles(nodes , n -> n.nodeXYPositionMap.getY());
+			writeStrings(nodes , n -> n.name);
+			writeDoubles(nodes , n -> n.population);
+			writeStrings(nodes , n -> n.siteName);
+			writeBooleans(nodes , n -> n.isUp);
+			writeStringLists(nodes , n -> n.getPlanningDomains());
+			final List<List<NetworkLayer>> layersWithIcons = new ArrayList<> (nodes.size());
+			for (Node n : nodes)
+			{
+				final List<NetworkLayer> layers = new ArrayList<> ();
+				for (NetworkLayer layer : np.layers) if (n.getUrlNodeIcon(layer) != null) layers.add(layer);
+				layersWithIcons.add(layers);
+			}
+			writeIdLists(layersWithIcons , l -> l);
+			for (int cont = 0; cont < nodes.size() ; cont ++)
+				for (NetworkLayer layer : layersWithIcons.get(cont)) out.writeInt(stringIndex(nodes.get(cont).getUrlNodeIcon(layer).toString()));
+			writeTagsAndAttributes(nodes);
+
+			final List<Resource> resources = np.resources;
+			out.writeInt(resources.size());
+			writeLongs(resources , r -> r.id);
+			writeLongs(resources , r -> r.hostNode.id);
+			writeStrings(resources , r -> r.type);
+			writeStrings(resources , r -> r.name);
+			writeStrings(resources , r -> r.capacityMeasurementUnits);
+			writeDoubles(resources , r -> r.processingTimeToTraversingTrafficInMs);
+			writeDoubles(resources , r -> r.capacity);
+			writeStrings(resources , r -> r.urlIcon == null? null : r.urlIcon.toString());
+			final List<List<Resource>> baseResources = new ArrayList<> (resources.size());
+			for (Resource r : resources) baseResources.add(new ArrayList<> (r.capacityIOccupyInBaseResource.keySet()));
+			writeIdLists(baseResources , l -> l);
+			for (int cont = 0; cont < resources.size() ; cont ++)
+				for (Resource base : baseResources.get(cont)) out.writeDouble(resources.get(cont).capacityIOccupyInBaseResource.get(base));
+			writeTagsAndAttributes(resources);
+
+			out.writeInt(np.layers.size());
+			for (NetworkLayer layer : np.layers) writeLayer(np , layer);
+
+			final List<SharedRiskGroup> srgs = np.srgs;
+			out.writeInt(srgs.size());
+			writeLongs(srgs , s -> s.id);
+			writeDoubles(srgs , s -> s.meanTimeToFailInHours);
+			writeDoubles(srgs , s -> s.meanTimeToRepairInHours);
+			writeIdLists(srgs , s -> s.nodes);
+			writeIdLists(srgs , s -> s.links);
+			writeTagsAndAttributes(srgs);
+
+			final List<Entry<Demand,Link>> demandCouplings = new ArrayList<> ();
+			final List<Entry<MulticastDemand,Set<Link>>> multicastDemandCouplings = new ArrayList<> ();
+			for (DemandLinkMapping d_e : np.interLayerCoupling.edgeSet())
+			{
+				demandCouplings.addAll(d_e.demandLinkMapping.entrySet());
+				multicastDemandCouplings.addAll(d_e.multicastDemandLinkMapping.entrySet());
+			}
+			out.writeInt(demandCouplings.size());
+			writeLongs(demandCouplings , c -> c.getKey().id);
+			writeLongs(demandCouplings , c -> c.getValue().id);
+			out.writeInt(multicastDemandCouplings.size());
+			writeLongs(multicastDemandCouplings , c -> c.getKey().id);
+			writeIdLists(multicastDemandCouplings , c -> c.getValue());
+		}
+
+		private void writeLayer (NetPlan np , NetworkLayer layer) throws IOException
+		{
+			out.writeLong(layer.id);
+			out.writeInt(stringIndex(layer.name));
+			out.writeInt(stringIndex(layer.description));
+			out.writeInt(stringIndex(layer.linkCapacityUnitsName));
+			out.writeInt(stringIndex(layer.demandTrafficUnitsName));
+			out.writeInt(stringIndex(layer.defaultNodeIconURL == null? null : layer.defaultNodeIconURL.toString()));
+			out.writeBoolean(np.defaultLayer == layer);
+			out.writeBoolean(layer.routingType == RoutingType.SOURCE_ROUTING);
+
+			final List<Link> links = layer.links;
+			out.writeInt(links.size());
+			writeLongs(links , e -> e.id);
+			writeLongs(links , e -> e.originNode.id);
+			writeLongs(links , e -> e.destinationNode.id);
+			writeDoubles(links , e -> e.capacity);
+			writeDoubles(links , e -> e.lengthInKm);
+			writeDoubles(links , e -> e.propagationSpeedInKmPerSecond);
+			writeLongs(links , e -> e.bidirectionalPair == null? -1 : e.bidirectionalPair.id);
+			writeBooleans(links , e -> e.isUp);
+			writeTagsAndAttributes(links);
+
+			final List<Demand> demands = layer.demands;
+			out.writeInt(demands.size());
+			writeLongs(demands , d -> d.id);
+			writeLongs(demands , d -> d.ingressNode.id);
+			writeLongs(demands , d -> d.egressNode.id);
+			writeDoubles(demands , d -> d.offeredTraffic);
+			writeStrings(demands , d -> d.recoveryType.toString());
+			writeLongs(demands , d -> d.bidirectionalPair == null? -1 : d.bidirectionalPair.id);
+			writeStringLists(demands , d -> d.mandatorySequenceOfTraversedResourceTypes);
+			writeTagsAndAttributes(demands);
+
+			final List<MulticastDemand> multicastDemands = layer.multicastDemands;
+			out.writeInt(multicastDemands.size());
+			writeLongs(multicastDemands , d -> d.id);
+			writeLongs(multicastDemands , d -> d.ingressNode.id);
+			writeIdLists(multicastDemands , d -> d.egressNodes);
+			writeDoubles(multicastDemands , d -> d.offeredTraffic);
+			writeTagsAndAttributes(multicastDemands);
+
+			final List<MulticastTree> trees = layer.multicastTrees;
+			out.writeInt(trees.size());
+			writeLongs(trees , t -> t.id);
+			writeLongs(trees , t -> t.demand.id);
+			writeDoubles(trees , t -> t.carriedTrafficIfNotFailing);
+			writeDoubles(trees , t -> t.occupiedLinkCapacityIfNotFailing);
+			writeIdLists(trees , t -> t.linkSet);
+			/* If the original link set was removed, it is replaced by the current link set */
+			writeIdLists(trees , t -> t.initialSetLinksWhenWasCreated.stream().anyMatch(e -> e.netPlan == null)? t.linkSet : t.initialSetLinksWhenWasCreated);
+			writeTagsAndAttributes(trees);
+
+			if (layer.routingType == RoutingType.SOURCE_ROUTING)
+			{
+				final List<Route> routes = layer.routes;
+				out.writeInt(routes.size());
+				writeLongs(routes , r -> r.id);
+				writeLongs(routes , r -> r.demand.id);
+				writeDoubles(routes , r -> r.currentCarriedTrafficIfNotFailing);
+				writeDoubleLists(routes , r -> r.currentLinksAndResourcesOccupationIfNotFailing);
+				writeIdLists(routes , r -> r.currentPath);
+				writeDoubles(routes , r -> r.initialStateCarriedTrafficIfNotFailing);
+				writeDoubleLists(routes , r -> r.initialStateOccupationIfNotFailing);
+				writeIdLists(routes , r -> r.initialStatePath);
+				writeIdLists(routes , r -> r.backupRoutes);
+				writeTagsAndAttributes(routes);
+			}
+			else
+			{
+				int numForwardingRules = 0; for (Demand d : demands) numForwardingRules += d.cacheHbH_frs.size();
+				out.writeInt(numForwardingRules);
+				for (Demand d : demands) for (int cont = 0; cont < d.cacheHbH_frs.size() ; cont ++) out.writeInt(d.index);
+				for (Demand d : demands) for (Link e : d.cacheHbH_frs.keySet()) out.writeInt(e.index);
+				for (Demand d : demands) for (double splittingRatio : d.cacheHbH_frs.values()) out.writeDouble(splittingRatio);
+			}
+			writeTagsAndAttributes(Collections.singletonList(layer));
+		}
+
+		private int stringIndex (String s)
+		{
+			if (s == null) return -1;
+			final Integer index = stringIndexes.get(s);
+			if (index != null) return index;
+			stringIndexes.put(s , strings.size());
+			strings.add(s);
+			return strings.size() - 1;
+		}
+
+		private void writeStringTable () throws IOException
+		{
+			out.writeInt(strings.size());
+			for (String s : strings)
+			{
+				final byte [] bytes = s.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+
+		private <T> void writeLongs (List<T> elements , ToLongFunction<T> f) throws IOException
+		{
+			for (T e : elements) out.writeLong(f.applyAsLong(e));
+		}
+
+		private <T> void writeDoubles (List<T> elements , ToDoubleFunction<T> f) throws IOException
+		{
+			for (T e : elements) out.writeDouble(f.applyAsDouble(e));
+		}
+
+		private <T> void writeBooleans (List<T> elements , Predicate<T> f) throws IOException
+		{
+			for (T e : elements) out.writeBoolean(f.test(e));
+		}
+
+		private <T> void writeStrings (List<T> elements , Function<T,String> f) throws IOException
+		{
+			for (T e : elements) out.writeInt(stringIndex(f.apply(e)));
+		}
+
+		/* The offsets of each element in the contents (one more than the number of elements), followed by the contents */
+		private <T> void writeOffsets (List<T> elements , Function<T,? extends Collection<?>> f) throws IOException
+		{
+			int offset = 0;
+			out.writeInt(offset);
+			for (T e : elements) { offset += f.apply(e).size(); out.writeInt(offset); }
+		}
+
+		private <T> void writeIdLists (List<T> elements , Function<T,? extends Collection<? extends NetworkElement>> f) throws IOException
+		{
+			writeOffsets(elements , f);
+			for (T e : elements) for (NetworkElement element : f.apply(e)) out.writeLong(element.id);
+		}
+
+		private <T> void writeDoubleLists (List<T> elements , Function<T,? extends Collection<Double>> f) throws IOException
+		{
+			writeOffsets(elements , f);
+			for (T e : elements) for (double val : f.apply(e)) out.writeDouble(val);
+		}
+
+		private <T> void writeStringLists (List<T> elements , Function<T,? extends Collection<String>> f) throws IOException
+		{
+			writeOffsets(elements , f);
+			for (T e : elements) for (String s : f.apply(e)) out.writeInt(stringIndex(s));
+		}
+
+		private void writeTagsAndAttributes (List<? extends NetworkElement> elements) throws IOException
+		{
+			writeStringLists(elements , e -> e.tags);
+			writeOffsets(elements , e -> e.attributes.keySet());
+			for (NetworkElement e : elements) for (String key : e.attributes.keySet()) out.writeInt(stringIndex(key));
+			for (NetworkElement e : elements) for (String value : e.attributes.values()) out.writeInt(stringIndex(value));
+		}
+	}
+
+	private static final class Reader
+	{
+		private final ByteBuffer buffer;
+		private final String [] strings;
+
+		private Reader (ByteBuffer buffer , int stringTablePosition)
+		{
+			this.buffer = buffer;
+			final ByteBuffer stringTable = buffer.duplicate();
+			stringTable.position(stringTablePosition);
+			this.strings = new String [checkCount(stringTable , stringTable.getInt() , 4)];
+			for (int cont = 0; cont < strings.length ; cont ++)
+			{
+				final byte [] bytes = new byte [checkCount(stringTable , stringTable.getInt() , 1)];
+				stringTable.get(bytes);
+				strings [cont] = new String (bytes , StandardCharsets.UTF_8);
+			}
+		}
+
+		private void readNetwork (NetPlan netPlan)
+		{
+			netPlan.setNetworkName(readString());
+			netPlan.setNetworkDescription(readString());
+			netPlan.nextElementId = new MutableLong(buffer.getLong());
+			if (netPlan.nextElementId.toLong() <= 0) throw new Net2PlanException ("A network element has an id higher than the nextElementId");
+			for (String planningDomain : readStrings(readCount())) netPlan.addGlobalPlanningDomain(planningDomain);
+			readTagsAndAttributes(Collections.singletonList(netPlan));
+
+			final int N = readCount();
+			final long [] nodeIds = readIds(netPlan , N);
+			final double [] xCoords = readDoubles(N);
+			final double [] yCoords = readDoubles(N);
+			final String [] nodeNames = readStrings(N);
+			final double [] populations = readDoubles(N);
+			final String [] siteNames = readStrings(N);
+			final boolean [] nodesUp = readBooleans(N);
+			final int [] planningDomainOffsets = readOffsets(N);
+			final String [] planningDomains = readStrings(planningDomainOffsets [N]);
+			final int [] iconOffsets = readOffsets(N);
+			final long [] iconLayerIds = readLongs(iconOffsets [N]);
+			final String [] iconUrls = readStrings(iconOffsets [N]);
+			final List<Node> nodes = new ArrayList<> (N);
+			for (int n = 0; n < N ; n ++)
+			{
+				final Node newNode = netPlan.addNode(nodeIds [n] , xCoords [n] , yCoords [n] , nodeNames [n] , null);
+				for (int cont = planningDomainOffsets [n]; cont < planningDomainOffsets [n+1] ; cont ++) newNode.addToPlanningDomain(planningDomains [cont]);
+				newNode.setFailureState(nodesUp [n]);
+				newNode.setPopulation(populations [n]);
+				if (siteNames [n] != null) newNode.setSiteName(siteNames [n]);
+				nodes.add(newNode);
+			}
+			readTagsAndAttributes(nodes);
+
+			final int R = readCount();
+			final long [] resourceIds = readIds(netPlan , R);
+			final long [] hostNodeIds = readLongs(R);
+			final String [] types = readStrings(R);
+			final String [] resourceNames = readStrings(R);
+			final String [] capacityMeasurementUnits = readStrings(R);
+			final double [] processingTimes = readDoubles(R);
+			final double [] resourceCapacities = readDoubles(R);
+			final String [] urlIcons = readStrings(R);
+			final int [] baseResourceOffsets = readOffsets(R);
+			final long [] baseResourceIds = readLongs(baseResourceOffsets [R]);
+			final double [] baseResourceOccupations = readDoubles(baseResourceOffsets [R]);
+			final List<Resource> resources = new ArrayList<> (R);
+			for (int r = 0; r < R ; r ++)
+			{
+				final Node hostNode = netPlan.getNodeFromId(hostNodeIds [r]);
+				if (hostNode == null) throw new Net2PlanException ("Could not find the hot node of a resource when reading");
+				final Map<Resource,Double> occupiedCapacitiesInBaseResources = new HashMap<> ();
+				for (int cont = baseResourceOffsets [r]; cont < baseResourceOffsets [r+1] ; cont ++)
+				{
+					final Resource baseResource = netPlan.getResourceFromId(baseResourceIds [cont]); if (baseResource == null) throw new Net2PlanException ("Unknown resource id");
+					occupiedCapacitiesInBaseResources.put(baseResource , baseResourceOccupations [cont]);
+				}
+				final Resource newResource = netPlan.addResource(resourceIds [r] , types [r] , resourceNames [r] , hostNode , resourceCapacities [r] , capacityMeasurementUnits [r] ,
+						occupiedCapacitiesInBaseResources , processingTimes [r] , null);
+				newResource.setUrlIcon(toURL(urlIcons [r]));
+				resources.add(newResource);
+			}
+			readTagsAndAttributes(resources);
+
+			final int L = readCount();
+			for (int cont = 0; cont < L ; cont ++)
+			{
+				final NetworkLayer layer = readLayer(netPlan , cont == 0);
+				for (int n = 0; n < N ; n ++)
+					for (int icon = iconOffsets [n]; icon < iconOffsets [n+1] ; icon ++)
+						if (iconLayerIds [icon] == layer.id) nodes.get(n).setUrlNodeIcon(layer , toURL(iconUrls [icon]));
+			}
+
+			final int S = readCount();
+			final long [] srgIds = readIds(netPlan , S);
+			final double [] mttfs = readDoubles(S);
+			final double [] mttrs = readDoubles(S);
+			final int [] srgNodeOffsets = readOffsets(S);
+			final long [] srgNodeIds = readLongs(srgNodeOffsets [S]);
+			final int [] srgLinkOffsets = readOffsets(S);
+			final long [] srgLinkIds = readLongs(srgLinkOffsets [S]);
+			final List<SharedRiskGroup> srgs = new ArrayList<> (S);
+			for (int s = 0; s < S ; s ++)
+			{
+				final SharedRiskGroup newSRG = netPlan.addSRG(srgIds [s] , mttfs [s] , mttrs [s] , null);
+				for (Node n : getNodes(netPlan , srgNodeIds , srgNodeOffsets [s] , srgNodeOffsets [s+1])) newSRG.addNode(n);
+				for (Link e : getLinks(netPlan , srgLinkIds , srgLinkOffsets [s] , srgLinkOffsets [s+1])) newSRG.addLink(e);
+				srgs.add(newSRG);
+			}
+			readTagsAndAttributes(srgs);
+
+			final int C = readCount();
+			final long [] lowerLayerDemandIds = readLongs(C);
+			final long [] upperLayerLinkIds = readLongs(C);
+			for (int c = 0; c < C ; c ++)
+				netPlan.getDemandFromId(lowerLayerDemandIds [c]).coupleToUpperLayerLink(netPlan.getLinkFromId(upperLayerLinkIds [c]));
+			final int MC = readCount();
+			final long [] lowerLayerMulticastDemandIds = readLongs(MC);
+			final int [] upperLayerLinkOffsets = readOffsets(MC);
+			final long [] upperLayerMulticastLinkIds = readLongs(upperLayerLinkOffsets [MC]);
+			for (int c = 0; c < MC ; c ++)
+				netPlan.getMulticastDemandFromId(lowerLayerMulticastDemandIds [c]).couple(new HashSet<> (getLinks(netPlan , upperLayerMulticastLinkIds , upperLayerLinkOffsets [c] , upperLayerLinkOffsets [c+1])));
+		}
+
+		private NetworkLayer readLayer (NetPlan netPlan , boolean isFirstLayer)
+		{
+			final long layerId = buffer.getLong();
+			if (layerId >= netPlan.nextElementId.toLong()) throw new Net2PlanException ("A network element has an id higher than the nextElementId");
+			final String layerName = readString();
+			final String layerDescription = readString();
+			final String linkCapacityUnitsName = readString();
+			final String demandTrafficUnitsName = readString();
+			final URL defaultNodeIconURL = toURL(readString());
+			final boolean isDefaultLayer = buffer.get() != 0;
+			final boolean isSourceRouting = buffer.get() != 0;
+
+			NetworkLayer layer;
+			if (isFirstLayer && (netPlan.layers.get(0).id == layerId))
+			{
+				layer = netPlan.layers.get(0); // it already has the right Id
+				layer.demandTrafficUnitsName = demandTrafficUnitsName;
+				layer.description = layerDescription;
+				layer.name = layerName;
+				layer.linkCapacityUnitsName = linkCapacityUnitsName;
+				layer.defaultNodeIconURL = defaultNodeIconURL;
+			}
+			else
+			{
+				layer = netPlan.addLayer(layerId , layerName , layerDescription , linkCapacityUnitsName , demandTrafficUnitsName , defaultNodeIconURL , null);
+				if (isFirstLayer) netPlan.removeNetworkLayer(netPlan.layers.get(0));
+			}
+			if (isDefaultLayer) netPlan.setNetworkLayerDefault(layer);
+			netPlan.startBulkLoad(layer);
+			try
+			{
+				final int E = readCount();
+				final long [] linkIds = readIds(netPlan , E);
+				final long [] originNodeIds = readLongs(E);
+				final long [] destinationNodeIds = readLongs(E);
+				final double [] linkCapacities = readDoubles(E);
+				final double [] lengthsInKm = readDoubles(E);
+				final double [] propagationSpeeds = readDoubles(E);
+				final long [] linkBidirectionalPairIds = readLongs(E);
+				final boolean [] linksUp = readBooleans(E);
+				final List<Link> links = new ArrayList<> (E);
+				for (int e = 0; e < E ; e ++)
+				{
+					final Link newLink = netPlan.addLink(linkIds [e] , netPlan.getNodeFromId(originNodeIds [e]) , netPlan.getNodeFromId(destinationNodeIds [e]) , linkCapacities [e] , lengthsInKm [e] , propagationSpeeds [e] , null , layer);
+					newLink.setFailureState(linksUp [e]);
+					final Link bidirPairLink = linkBidirectionalPairIds [e] == -1? null : netPlan.getLinkFromId(linkBidirectionalPairIds [e]);
+					if (bidirPairLink != null)
+					{
+						if (bidirPairLink.isBidirectional()) throw new RuntimeException ();
+						bidirPairLink.setBidirectionalPair(newLink);
+					}
+					links.add(newLink);
+				}
+				readTagsAndAttributes(links);
+
+				final int D = readCount();
+				final long [] demandIds = readIds(netPlan , D);
+				final long [] ingressNodeIds = readLongs(D);
+				final long [] egressNodeIds = readLongs(D);
+				final double [] offeredTraffics = readDoubles(D);
+				final String [] recoveryTypes = readStrings(D);
+				final long [] demandBidirectionalPairIds = readLongs(D);
+				final int [] serviceChainOffsets = readOffsets(D);
+				final String [] serviceChainTypes = readStrings(serviceChainOffsets [D]);
+				final List<Demand> demands = new ArrayList<> (D);
+				for (int d = 0; d < D ; d ++)
+				{
+					final Demand newDemand = netPlan.addDemand(demandIds [d] , netPlan.getNodeFromId(ingressNodeIds [d]) , netPlan.getNodeFromId(egressNodeIds [d]) , offeredTraffics [d] , null , layer);
+					Demand.IntendedRecoveryType recoveryType;
+					try { recoveryType = Demand.IntendedRecoveryType.valueOf(recoveryTypes [d]); } catch (Exception e) { recoveryType = Demand.IntendedRecoveryType.UNKNOWNTYPE; }
+					newDemand.setIntendedRecoveryType(recoveryType);
+					final Demand bidirPairDemand = demandBidirectionalPairIds [d] == -1? null : netPlan.getDemandFromId(demandBidirectionalPairIds [d]);
+					if (bidirPairDemand != null)
+					{
+						if (bidirPairDemand.isBidirectional()) throw new RuntimeException ();
+						bidirPairDemand.setBidirectionalPair(newDemand);
+					}
+					newDemand.setServiceChainSequenceOfTraversedResourceTypes(Arrays.asList(Arrays.copyOfRange(serviceChainTypes , serviceChainOffsets [d] , serviceChainOffsets [d+1])));
+					demands.add(newDemand);
+				}
+				readTagsAndAttributes(demands);
+
+				final int MD = readCount();
+				final long [] multicastDemandIds = readIds(netPlan , MD);
+				final long [] multicastIngressNodeIds = readLongs(MD);
+				final int [] egressNodeOffsets = readOffsets(MD);
+				final long [] multicastEgressNodeIds = readLongs(egressNodeOffsets [MD]);
+				final double [] multicastOfferedTraffics = readDoubles(MD);
+				final List<MulticastDemand> multicastDemands = new ArrayList<> (MD);
+				for (int d = 0; d < MD ; d ++)
+					multicastDemands.add(netPlan.addMulticastDemand(multicastDemandIds [d] , netPlan.getNodeFromId(multicastIngressNodeIds [d]) ,
+							new HashSet<> (getNodes(netPlan , multicastEgressNodeIds , egressNodeOffsets [d] , egressNodeOffsets [d+1])) , multicastOfferedTraffics [d] , null , layer));
+				readTagsAndAttributes(multicastDemands);
+
+				final int T = readCount();
+				final long [] treeIds = readIds(netPlan , T);
+				final long [] treeDemandIds = readLongs(T);
+				final double [] treeCarriedTraffics = readDoubles(T);
+				final double [] treeOccupiedCapacities = readDoubles(T);
+				final int [] currentLinkOffsets = readOffsets(T);
+				final long [] currentLinkIds = readLongs(currentLinkOffsets [T]);
+				final int [] initialLinkOffsets = readOffsets(T);
+				final long [] initialLinkIds = readLongs(initialLinkOffsets [T]);
+				final List<MulticastTree> trees = new ArrayList<> (T);
+				for (int t = 0; t < T ; t ++)
+				{
+					final Set<Link> initialSetLinks = new HashSet<> (getLinks(netPlan , initialLinkIds , initialLinkOffsets [t] , initialLinkOffsets [t+1]));
+					final MulticastTree newTree = netPlan.addMulticastTree(treeIds [t] , netPlan.getMulticastDemandFromId(treeDemandIds [t]) , treeCarriedTraffics [t] , treeOccupiedCapacities [t] , initialSetLinks , null);
+					newTree.setLinks(new HashSet<> (getLinks(netPlan , currentLinkIds , currentLinkOffsets [t] , currentLinkOffsets [t+1])));
+					trees.add(newTree);
+				}
+				readTagsAndAttributes(trees);
+
+				if (isSourceRouting)
+				{
+					netPlan.setRoutingType(RoutingType.SOURCE_ROUTING , layer);
+					final int P = readCount();
+					final long [] routeIds = readIds(netPlan , P);
+					final long [] routeDemandIds = readLongs(P);
+					final double [] currentCarriedTraffics = readDoubles(P);
+					final int [] currentOccupationOffsets = readOffsets(P);
+					final double [] currentOccupations = readDoubles(currentOccupationOffsets [P]);
+					final int [] currentPathOffsets = readOffsets(P);
+					final long [] currentPathIds = readLongs(currentPathOffsets [P]);
+					final double [] initialCarriedTraffics = readDoubles(P);
+					final int [] initialOccupationOffsets = readOffsets(P);
+					final double [] initialOccupations = readDoubles(initialOccupationOffsets [P]);
+					final int [] initialPathOffsets = readOffsets(P);
+					final long [] initialPathIds = readLongs(initialPathOffsets [P]);
+					final int [] backupRouteOffsets = readOffsets(P);
+					final long [] backupRouteIds = readLongs(backupRouteOffsets [P]);
+					final List<Route> routes = new ArrayList<> (P);
+					for (int r = 0; r < P ; r ++)
+					{
+						final List<Double> currentOccupation = asList(currentOccupations , currentOccupationOffsets [r] , currentOccupationOffsets [r+1]);
+						final List<NetworkElement> currentPath = getLinksAndResources(netPlan , currentPathIds , currentPathOffsets [r] , currentPathOffsets [r+1]);
+
+						/* If some element of the initial path was removed, current equals the initial */
+						List<NetworkElement> initialPath;
+						double initialCarriedTraffic = initialCarriedTraffics [r];
+						List<Double> initialOccupation = asList(initialOccupations , initialOccupationOffsets [r] , initialOccupationOffsets [r+1]);
+						try { initialPath = getLinksAndResources(netPlan , initialPathIds , initialPathOffsets [r] , initialPathOffsets [r+1]); }
+						catch (Net2PlanException e) { initialPath = new ArrayList<> (currentPath); initialCarriedTraffic = currentCarriedTraffics [r]; initialOccupation = new ArrayList<> (currentOccupation); }
+
+						final Route newRoute = netPlan.addServiceChain(routeIds [r] , netPlan.getDemandFromId(routeDemandIds [r]) , initialCarriedTraffic , initialOccupation , initialPath , null);
+						if (!(currentPath.equals(initialPath) && (currentCarriedTraffics [r] == initialCarriedTraffic) && currentOccupation.equals(initialOccupation)))
+							newRoute.setPath(currentCarriedTraffics [r] , currentPath , currentOccupation);
+						routes.add(newRoute);
+					}
+					readTagsAndAttributes(routes);
+
+					/* Backup routes are added at the end: they may not exist before */
+					for (int r = 0; r < P ; r ++)
+						for (int cont = backupRouteOffsets [r]; cont < backupRouteOffsets [r+1] ; cont ++)
+							routes.get(r).addBackupRoute(netPlan.getRouteFromId(backupRouteIds [cont]));
+				}
+				else
+				{
+					netPlan.endBulkLoad(layer); // the multicast trees are already read
+					netPlan.setRoutingType(RoutingType.HOP_BY_HOP_ROUTING , layer);
+					final int F = readCount();
+					final int [] demandIndexes = readInts(F);
+					final int [] linkIndexes = readInts(F);
+					final double [] splittingRatios = readDoubles(F);
+					final Map<Demand,Map<Link,Double>> frsPerDemand = new HashMap<> ();
+					for (int f = 0; f < F ; f ++)
+					{
+						Map<Link,Double> frsThisDemand = frsPerDemand.get(demands.get(demandIndexes [f]));
+						if (frsThisDemand == null) { frsThisDemand = new HashMap<> (); frsPerDemand.put(demands.get(demandIndexes [f]) , frsThisDemand); }
+						frsThisDemand.put(links.get(linkIndexes [f]) , splittingRatios [f]);
+					}
+					netPlan.setForwardingRules(frsPerDemand);
+				}
+			} finally
+			{
+				netPlan.endBulkLoad(layer);
+			}
+			readTagsAndAttributes(Collections.singletonList(layer));
+			return layer;
+		}
+
+		private long [] readIds (NetPlan netPlan , int n)
+		{
+			final long [] ids = readLongs(n);
+			for (long id : ids) if (id >= netPlan.nextElementId.toLong()) throw new Net2PlanException ("A network element has an id higher than the nextElementId");
+			return ids;
+		}
+
+		/* Reads the number of elements that follow, each one taking at least one byte */
+		private int readCount ()
+		{
+			return checkCount(buffer , buffer.getInt() , 1);
+		}
+
+		/* Checks that n elements of the given size fit in the remaining bytes, so that a corrupted file does not allocate wrong arrays */
+		private static int checkCount (ByteBuffer buffer , int n , int bytesPerElement)
+		{
+			if ((n < 0) || ((long) n * bytesPerElement > buffer.remaining())) throw new Net2PlanException ("The binary file is truncated or corrupted");
+			return n;
+		}
+
+		private long [] readLongs (int n)
+		{
+			final long [] res = new long [checkCount(buffer , n , 8)];
+			buffer.asLongBuffer().get(res);
+			buffer.position(buffer.position() + 8 * n);
+			return res;
+		}
+
+		private int [] readInts (int n)
+		{
+			final int [] res = new int [checkCount(buffer , n , 4)];
+			buffer.asIntBuffer().get(res);
+			buffer.position(buffer.position() + 4 * n);
+			return res;
+		}
+
+		private double [] readDoubles (int n)
+		{
+			final double [] res = new double [checkCount(buffer , n , 8)];
+			buffer.asDoubleBuffer().get(res);
+			buffer.position(buffer.position() + 8 * n);
+			return res;
+		}
+
+		private boolean [] readBooleans (int n)
+		{
+			final boolean [] res = new boolean [checkCount(buffer , n , 1)];
+			for (int cont = 0; cont < n ; cont ++) res [cont] = buffer.get() != 0;
+			return res;
+		}
+
+		private int [] readOffsets (int n)
+		{
+			final int [] offsets = readInts(n + 1);
+			for (int cont = 0; cont < n ; cont ++) if ((offsets [cont] < 0) || (offsets [cont] > offsets [cont+1])) throw new Net2PlanException ("The binary file is truncated or corrupted");
+			return offsets;
+		}
+
+		private String readString ()
+		{
+			final int index = buffer.getInt();
+			return index == -1? null : strings [index];
+		}
+
+		private String [] readStrings (int n)
+		{
+			final String [] res = new String [checkCount(buffer , n , 4)];
+			for (int cont = 0; cont < n ; cont ++) res [cont] = readString();
+			return res;
+		}
+
+		private void readTagsAndAttributes (List<? extends NetworkElement> elements)
+		{
+			final int n = elements.size();
+			final int [] tagOffsets = readOffsets(n);
+			final String [] tags = readStrings(tagOffsets [n]);
+			final int [] attributeOffsets = readOffsets(n);
+			final String [] keys = readStrings(attributeOffsets [n]);
+			final String [] values = readStrings(attributeOffsets [n]);
+			for (int cont = 0; cont < n ; cont ++)
+			{
+				final NetworkElement e = elements.get(cont);
+				for (int tag = tagOffsets [cont]; tag < tagOffsets [cont+1] ; tag ++) e.addTag(tags [tag]);
+				for (int att = attributeOffsets [cont]; att < attributeOffsets [cont+1] ; att ++) e.setAttribute(keys [att] , values [att]);
+			}
+		}
+
+		private static URL toURL (String url)
+		{
+			if (url == null) return null;
+			try { return new URL (url); } catch (Exception e) { return null; }
+		}
+
+		private static List<Double> asList (double [] values , int from , int to)
+		{
+			final List<Double> res = new ArrayList<> (to - from);
+			for (int cont = from; cont < to ; cont ++) res.add(values [cont]);
+			return res;
+		}
+
+		private static List<Node> getNodes (NetPlan np , long [] ids , int from , int to)
+		{
+			final List<Node> res = new ArrayList<> (to - from);
+			for (int cont = from; cont < to ; cont ++) res.add(np.getNodeFromId(ids [cont]));
+			return res;
+		}
+
+		private static List<Link> getLinks (NetPlan np , long [] ids , int from , int to)
+		{
+			final List<Link> res = new ArrayList<> (to - from);
+			for (int cont = from; cont < to ; cont ++) res.add(np.getLinkFromId(ids [cont]));
+			return res;
+		}
+
+		private static List<NetworkElement> getLinksAndResources (NetPlan np , long [] ids , int from , int to)
+		{
+			final List<NetworkElement> res = new ArrayList<> (to - from);
+			for (int cont = from; cont < to ; cont ++)
+			{
+				NetworkElement e = np.getLinkFromId(ids [cont]);
+				if (e == null) e = np.getResourceFromId(ids [cont]);
+				if (e == null) throw new Net2PlanException ("Unknown id in the list");
+				res.add(e);
+			}
+			return res;
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.networkDesign;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.net2plan.internal.Constants.NetworkElementType;
+
+/**
+ * <p>Changes made in a design, delivered to its {@link INetPlanChangeListener listeners} by {@link NetPlan#fireChangeEvent() fireChangeEvent}.
+ * All the changes made between two events are coalesced in one: an element added and then modified is only reported as added, an element added
+ * and then removed is not reported, and an element removed is only reported as removed.</p>
+ *
+ * <p>Operations on the whole design (like {@link NetPlan#copyFrom(NetPlan) copyFrom} or {@link NetPlan#assignFrom(NetPlan) assignFrom}) are
+ * reported with {@link #isDesignReplaced() isDesignReplaced}, and no element.</p>
+ *
+ * @since 0.6.0
+ */
+public final class NetPlanChangeEvent
+{
+	/**
+	 * Type of change of a network element.
+	 *
+	 * @since 0.6.0
+	 */
+	public enum ChangeType
+	{
+		/** The element was added to the design */
+		ADDED,
+		/** The element was removed from the design */
+		REMOVED,
+		/** Some property of the element (e.g. capacity, traffic, path) changed */
+		MODIFIED,
+		/** Some attribute or tag of the element changed */
+		ATTRIBUTES_CHANGED,
+		/** The link or node went up or down */
+		FAILURE_STATE_CHANGED
+	}
+
+	private final NetPlan netPlan;
+	private final Map<ChangeType, Set<NetworkElement>> elements;
+	private boolean designReplaced;
+
+	NetPlanChangeEvent(NetPlan netPlan)
+	{
+		this.netPlan = netPlan;
+		this.elements = new EnumMap<> (ChangeType.class);
+		for (ChangeType type : ChangeType.values()) elements.put(type, new LinkedHashSet<> ());
+		this.designReplaced = false;
+	}
+
+	/**
+	 * <p>Returns the design that changed.</p>
+	 *
+	 * @return The design
+	 * @since 0.6.0
+	 */
+	public NetPlan getNetPlan()
+	{
+		return netPlan;
+	}
+
+	/**
+	 * <p>Returns the elements with the given type of change. Removed elements can no longer be accessed, except for their id and class.</p>
+	 *
+	 * @param type Type of change
+	 * @return The elements (unmodifiable)
+	 * @since 0.6.0
+	 */
+	public Set<NetworkElement> getElements(ChangeType type)
+	{
+		return Collections.unmodifiableSet(elements.get(type));
+	}
+
+	/**
+	 * <p>Returns the types of the elements (nodes, links...) with the given type of change.</p>
+	 *
+	 * @param type Type of change
+	 * @return The element types
+	 * @since 0.6.0
+	 */
+	public Set<NetworkElementType> getElementTypes(ChangeType type)
+	{
+		final Set<NetworkElementType> res = EnumSet.noneOf(NetworkElementType.class);
+		for (NetworkElement e : elements.get(type)) res.add(getElementType(e));
+		return res;
+	}
+
+	/**
+	 * <p>Returns true if an operation on the whole design was made, so any element may have changed.</p>
+	 *
+	 * @return See description above
+	 * @since 0.6.0
+	 */
+	public boolean isDesignReplaced()
+	{
+		return designReplaced;
+	}
+
+	/**
+	 * <p>Returns true if no change is reported.</p>
+	 *
+	 * @return See description above
+	 * @since 0.6.0
+	 */
+	public boolean isEmpty()
+	{
+		if (designReplaced) return false;
+		for (Set<NetworkElement> set : elements.values()) if (!set.isEmpty()) return false;
+		return true;
+	}
+
+	@Override
+	public String toString()
+	{
+		if (designReplaced) return "NetPlanChangeEvent (design replaced)";
+		final StringBuilder st = new StringBuilder("NetPlanChangeEvent (");
+		for (ChangeType type : ChangeType.values())
+			st.append(type == ChangeType.ADDED ? "" : ", ").append(type.name().toLowerCase()).append(": ").append(elements.get(type).size());
+		return st.append(")").toString();
+	}
+
+	void addChange(ChangeType type, NetworkElement e)
+	{
+		if (designReplaced) return;
+		final Set<NetworkElement> added = elements.get(ChangeType.ADDED);
+		switch (type)
+		{
+			case ADDED:
+				added.add(e);
+				break;
+			case REMOVED:
+				final boolean wasAdded = added.remove(e);
+				for (ChangeType otherType : EnumSet.of(ChangeType.MODIFIED, ChangeType.ATTRIBUTES_CHANGED, ChangeType.FAILURE_STATE_CHANGED))
+					elements.get(otherType).remove(e);
+				if (!wasAdded) elements.get(ChangeType.REMOVED).add(e);
+				break;
+			default:
+				if (!added.contains(e) && !elements.get(ChangeType.REMOVED).contains(e)) elements.get(type).add(e);
+		}
+	}
+
+	void setDesignReplaced()
+	{
+		this.designReplaced = true;
+		for (Set<NetworkElement> set : elements.values()) set.clear();
+	}
+
+	static NetworkElementType getElementType(NetworkElement e)
+	{
+		if (e instanceof NetPlan) return NetworkElementType.NETWORK;
+		if (e instanceof NetworkLayer) return NetworkElementType.LAYER;
+		if (e instanceof Node) return NetworkElementType.NODE;
+		if (e instanceof Link) return NetworkElementType.LINK;
+		if (e instanceof Demand) return NetworkElementType.DEMAND;
+		if (e instanceof MulticastDemand) return NetworkElementType.MULTICAST_DEMAND;
+		if (e instanceof Route) return NetworkElementType.ROUTE;
+		if (e instanceof MulticastTree) return NetworkElementType.MULTICAST_TREE;
+		if (e instanceof Resource) return NetworkElementType.RESOURCE;
+		if (e instanceof SharedRiskGroup) return NetworkElementType.SRG;
+		throw new RuntimeException("Bad");
+	}
+}
@@ -0,0 +1,751 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.interfaces.networkDesign;
+
+import java.awt.geom.Point2D;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.net2plan.internal.ErrorHandling;
+import com.net2plan.utils.Constants.RoutingType;
+
+/**
+ * <p>Change set between two versions of a design, created by {@link NetPlan#computeDiffTo(NetPlan) computeDiffTo}. The elements are identified
+ * by their ids: the change set contains the nodes, resources, links, demands, multicast demands, routes, multicast trees and SRGs added, removed
+ * and modified, the forwarding rules of the demands whose rules changed, the changes in the layers and in the network information, and, for each
+ * element, the attributes set or removed and the tags added or removed. Added and modified elements store their new state, where
+ * the other elements are referred to by their ids, so the change set does not keep references to any of both designs.</p>
+ *
+ * <p>Applying the change set ({@link NetPlan#applyDiff(NetPlanDiff) applyDiff}) to a copy of the first design produces a copy of the second.
+ * It can also be applied to other design that has the removed and modified elements, e.g. to keep synchronized two copies of a design
+ * sending only the changes. The layers must be the same in both designs, and the bidirectional pairs, the planning domains and the icons of the
+ * nodes and resources are not part of the change set.</p>
+ *
+ * @since 0.6.0
+ */
+public final class NetPlanDiff
+{
+	private String networkName; // null if not changed
+	private String networkDescription; // null if not changed
+	private final long networkId;
+	private final long nextElementId;
+	private final Map<Long,LayerState> layersModified = new LinkedHashMap<> ();
+	private final ElementChanges<NodeState> nodes = new ElementChanges<> ();
+	private final ElementChanges<ResourceState> resources = new ElementChanges<> ();
+	private final ElementChanges<LinkState> links = new ElementChanges<> ();
+	private final ElementChanges<DemandState> demands = new ElementChanges<> ();
+	private final ElementChanges<MulticastDemandState> multicastDemands = new ElementChanges<> ();
+	private final ElementChanges<RouteState> routes = new ElementChanges<> ();
+	private final ElementChanges<MulticastTreeState> multicastTrees = new ElementChanges<> ();
+	private final ElementChanges<SrgState> srgs = new ElementChanges<> ();
+	private final Map<Long,AttributeAndTagChanges> attributeAndTagChanges = new LinkedHashMap<> ();
+
+	NetPlanDiff (NetPlan from , NetPlan to)
+	{
+		if (from == to) throw new Net2PlanException ("The two designs must be different objects");
+		if (!getIds(from.getNetworkLayers()).equals(getIds(to.getNetworkLayers())))
+			throw new Net2PlanException ("The two designs must have the same layers");
+		if (!from.getNetworkName().equals(to.getNetworkName())) this.networkName = to.getNetworkName();
+		if (!from.getNetworkDescription().equals(to.getNetworkDescription())) this.networkDescription = to.getNetworkDescription();
+		this.networkId = to.id;
+		this.nextElementId = to.nextElementId.longValue();
+		addAttributeAndTagChanges(from , to);
+
+		for (NetworkLayer e2 : to.getNetworkLayers())
+		{
+			final NetworkLayer e1 = from.getNetworkLayerFromId(e2.id);
+			final LayerState state = new LayerState(e2);
+			if (!state.equals(new LayerState(e1))) layersModified.put(e2.id , state);
+			addAttributeAndTagChanges(e1 , e2);
+		}
+		for (Node e2 : to.getNodes())
+			nodes.add(e2 , from.getNodeFromId(e2.id) , new NodeState(e2) , e1 -> new NodeState(e1));
+		for (Node e1 : from.getNodes()) if (to.getNodeFromId(e1.id) == null) nodes.removed.add(e1.id);
+		for (Resource e2 : to.getResources())
+			resources.add(e2 , from.getResourceFromId(e2.id) , new ResourceState(e2) , e1 -> new ResourceState(e1));
+		for (Resource e1 : from.getResources()) if (to.getResourceFromId(e1.id) == null) resources.removed.add(e1.id);
+		for (NetworkLayer layer2 : to.getNetworkLayers())
+		{
+			final NetworkLayer layer1 = from.getNetworkLayerFromId(layer2.id);
+			for (Link e2 : layer2.links)
+				links.add(e2 , from.getLinkFromId(e2.id) , new LinkState(e2) , e1 -> new LinkState(e1));
+			for (Link e1 : layer1.links) if (to.getLinkFromId(e1.id) == null) links.removed.add(e1.id);
+			for (Demand e2 : layer2.demands)
+				demands.add(e2 , from.getDemandFromId(e2.id) , new DemandState(e2) , e1 -> new DemandState(e1));
+			for (Demand e1 : layer1.demands) if (to.getDemandFromId(e1.id) == null) demands.removed.add(e1.id);
+			for (MulticastDemand e2 : layer2.multicastDemands)
+				multicastDemands.add(e2 , from.getMulticastDemandFromId(e2.id) , new MulticastDemandState(e2) , e1 -> new MulticastDemandState(e1));
+			for (MulticastDemand e1 : layer1.multicastDemands) if (to.getMulticastDemandFromId(e1.id) == null) multicastDemands.removed.add(e1.id);
+			for (Route e2 : layer2.routes)
+				routes.add(e2 , from.getRouteFromId(e2.id) , new RouteState(e2) , e1 -> new RouteState(e1));
+			for (Route e1 : layer1.routes) if (to.getRouteFromId(e1.id) == null) routes.removed.add(e1.id);
+			for (MulticastTree e2 : layer2.multicastTrees)
+				multicastTrees.add(e2 , from.getMulticastTreeFromId(e2.id) , new MulticastTreeState(e2) , e1 -> new MulticastTreeState(e1));
+			for (MulticastTree e1 : layer1.multicastTrees) if (to.getMulticastTreeFromId(e1.id) == null) multicastTrees.removed.add(e1.id);
+		}
+		for (SharedRiskGroup e2 : to.getSRGs())
+			srgs.add(e2 , from.getSRGFromId(e2.id) , new SrgState(e2) , e1 -> new SrgState(e1));
+		for (SharedRiskGroup e1 : from.getSRGs()) if (to.getSRGFromId(e1.id) == null) srgs.removed.add(e1.id);
+	}
+
+	/**
+	 * <p>Returns {@code true} if the two designs compared are equal (have the same elements, in the same state, with the same attributes and tags).</p>
+	 *
+	 * @return see above
+	 * @since 0.6.0
+	 */
+	public boolean isEmpty ()
+	{
+		return (networkName == null) && (networkDescription == null) && layersModified.isEmpty() && attributeAndTagChanges.isEmpty() && getAddedElementIds().isEmpty() && getRemovedElementIds().isEmpty() && getModifiedElementIds().isEmpty();
+	}
+
+	/**
+	 * <p>Returns the ids of the elements (nodes, resources, links, demands, multicast demands, routes, multicast trees and SRGs) in the second design
+	 * that do not exist in the first.</p>
+	 *
+	 * @return The ids of the elements added
+	 * @since 0.6.0
+	 */
+	public Set<Long> getAddedElementIds ()
+	{
+		final Set<Long> res = new TreeSet<> ();
+		for (ElementChanges<?> changes : getAllElementChanges()) res.addAll(changes.added.keySet());
+		return res;
+	}
+
+	/**
+	 * <p>Returns the ids of the elements (nodes, resources, links, demands, multicast demands, routes, multicast trees and SRGs) in the first design
+	 * that do not exist in the second.</p>
+	 *
+	 * @return The ids of the elements removed
+	 * @since 0.6.0
+	 */
+	public Set<Long> getRemovedElementIds ()
+	{
+		final Set<Long> res = new TreeSet<> ();
+		for (ElementChanges<?> changes : getAllElementChanges()) res.addAll(changes.removed);
+		return res;
+	}
+
+	/**
+	 * <p>Returns the ids of the elements (including the layers, and the id of the {@code NetPlan} object) that are in both designs, and changed
+	 * their state, their attributes or their tags.</p>
+	 *
+	 * @return The ids of the elements modified
+	 * @since 0.6.0
+	 */
+	public Set<Long> getModifiedElementIds ()
+	{
+		final Set<Long> res = new TreeSet<> (layersModified.keySet());
+		if ((networkName != null) || (networkDescription != null)) res.add(networkId);
+		for (ElementChanges<?> changes : getAllElementChanges()) res.addAll(changes.modified.keySet());
+		res.addAll(attributeAndTagChanges.keySet());
+		res.removeAll(getAddedElementIds());
+		return res;
+	}
+
+	@Override
+	public String toString ()
+	{
+		return "NetPlanDiff: " + getAddedElementIds().size() + " elements added, " + getRemovedElementIds().size() + " removed, " + getModifiedElementIds().size() + " modified";
+	}
+
+	void applyTo (NetPlan np)
+	{
+		np.checkIsModifiable();
+		for (long layerId : layersModified.keySet()) getLayer(np , layerId);
+
+		/* Network, layers (the routing type is changed later) and the couplings that are removed or changed */
+		if (networkName != null) np.setNetworkName(networkName);
+		if (networkDescription != null) np.setNetworkDescription(networkDescription);
+		for (DemandState s : demands.modified.values())
+		{
+			final Demand d = getDemand(np , s.id);
+			if (d.coupledUpperLayerLink != null && !s.isCoupledTo(d.coupledUpperLayerLink)) d.decouple();
+		}
+		for (MulticastDemandState s : multicastDemands.modified.values())
+		{
+			final MulticastDemand d = getMulticastDemand(np , s.id);
+			if (d.coupledUpperLayerLinks != null && !getIds(d.coupledUpperLayerLinks.values()).equals(s.coupledUpperLinkIds)) d.decouple();
+		}
+		for (LayerState s : layersModified.values())
+		{
+			final NetworkLayer layer = getLayer(np , s.id);
+			layer.setName(s.name);
+			layer.setDescription(s.description);
+			np.setLinkCapacityUnitsName(s.linkCapacityUnitsName , layer);
+			np.setDemandTrafficUnitsName(s.demandTrafficUnitsName , layer);
+			layer.setDefaultNodeIconURL(s.defaultNodeIconURL);
+		}
+
+		/* Nodes, resources, links and demands added and modified */
+		for (NodeState s : nodes.added.values())
+			s.applyTo(np.addNode(s.id , s.xCoord , s.yCoord , s.name , null));
+		for (NodeState s : nodes.modified.values())
+			s.applyTo(getNode(np , s.id));
+		for (ResourceState s : resources.added.values())
+			np.addResource(s.id , s.type , s.name , getNode(np , s.hostNodeId) , s.capacity , s.capacityMeasurementUnits ,
+					s.getCapacityOccupiedInBaseResources(np) , s.processingTimeToTraversingTrafficInMs , null);
+		for (ResourceState s : resources.modified.values())
+		{
+			final Resource r = getResource(np , s.id);
+			r.setName(s.name);
+			r.setCapacityMeasurementUnits(s.capacityMeasurementUnits);
+			r.setProcessingTimeToTraversingTrafficInMs(s.processingTimeToTraversingTrafficInMs);
+			r.setCapacity(s.capacity , s.getCapacityOccupiedInBaseResources(np));
+		}
+		for (LinkState s : links.added.values())
+			s.applyTo(np.addLink(s.id , getNode(np , s.originNodeId) , getNode(np , s.destinationNodeId) , s.capacity , s.lengthInKm , s.propagationSpeedInKmPerSecond , null , getLayer(np , s.layerId)));
+		for (LinkState s : links.modified.values())
+			s.applyTo(getLink(np , s.id));
+		for (DemandState s : demands.added.values())
+			s.applyTo(np.addDemand(s.id , getNode(np , s.ingressNodeId) , getNode(np , s.egressNodeId) , s.offeredTraffic , null , getLayer(np , s.layerId)));
+		for (DemandState s : demands.modified.values())
+			s.applyTo(getDemand(np , s.id));
+		for (MulticastDemandState s : multicastDemands.added.values())
+			np.addMulticastDemand(s.id , getNode(np , s.ingressNodeId) , getNodes(np , s.egressNodeIds) , s.offeredTraffic , null , getLayer(np , s.layerId));
+		for (MulticastDemandState s : multicastDemands.modified.values())
+			getMulticastDemand(np , s.id).setOfferedTraffic(s.offeredTraffic);
+
+		/* Routing: routes and trees removed, routing type changes, routes and trees added and modified, forwarding rules */
+		for (long id : routes.removed) getRoute(np , id).remove();
+		for (long id : multicastTrees.removed) getMulticastTree(np , id).remove();
+		for (LayerState s : layersModified.values())
+		{
+			final NetworkLayer layer = getLayer(np , s.id);
+			if (layer.routingType == s.routingType) continue;
+			if (s.routingType == RoutingType.SOURCE_ROUTING) np.removeAllForwardingRules(layer); // the routes are added next, with their ids
+			np.setRoutingType(s.routingType , layer);
+		}
+		for (RouteState s : routes.added.values())
+		{
+			final Demand d = getDemand(np , s.demandId);
+			if (s.initialPathIds == null)
+				np.addServiceChain(s.id , d , s.carriedTraffic , s.occupation , getPath(np , s.pathIds) , null);
+			else
+			{
+				final Route r = np.addServiceChain(s.id , d , s.initialCarriedTraffic , s.initialOccupation , getPath(np , s.initialPathIds) , null);
+				if (!s.isCurrentStateEqualToInitialState()) r.setPath(s.carriedTraffic , getPath(np , s.pathIds) , s.occupation);
+			}
+		}
+		for (RouteState s : routes.modified.values())
+		{
+			final Route r = getRoute(np , s.id);
+			if (!s.isCurrentStateEqualTo(r)) r.setPath(s.carriedTraffic , getPath(np , s.pathIds) , s.occupation);
+		}
+		for (RouteState s : routes.getAddedAndModified())
+		{
+			final Route r = getRoute(np , s.id);
+			if (getIdList(r.backupRoutes).equals(s.backupRouteIds)) continue;
+			for (Route backup : new ArrayList<> (r.backupRoutes)) r.removeBackupRoute(backup);
+			for (long backupId : s.backupRouteIds) r.addBackupRoute(getRoute(np , backupId));
+		}
+		for (MulticastTreeState s : multicastTrees.added.values())
+		{
+			final MulticastDemand d = getMulticastDemand(np , s.demandId);
+			if (s.initialLinkIds == null)
+				np.addMulticastTree(s.id , d , s.carriedTraffic , s.occupiedLinkCapacity , getLinks(np , s.linkIds) , null);
+			else
+			{
+				final MulticastTree t = np.addMulticastTree(s.id , d , s.carriedTraffic , s.occupiedLinkCapacity , getLinks(np , s.initialLinkIds) , null);
+				if (!s.initialLinkIds.equals(s.linkIds)) t.setLinks(getLinks(np , s.linkIds));
+			}
+		}
+		for (MulticastTreeState s : multicastTrees.modified.values())
+		{
+			final MulticastTree t = getMulticastTree(np , s.id);
+			if (!getIds(t.linkSet).equals(s.linkIds)) t.setLinks(getLinks(np , s.linkIds));
+			if (t.carriedTrafficIfNotFailing != s.carriedTraffic || t.occupiedLinkCapacityIfNotFailing != s.occupiedLinkCapacity)
+				t.setCarriedTraffic(s.carriedTraffic , s.occupiedLinkCapacity);
+		}
+		final Map<NetworkLayer,Map<Demand,Map<Link,Double>>> frsPerLayer = new HashMap<> ();
+		for (DemandState s : demands.getAddedAndModified())
+		{
+			if (s.forwardingRules == null) continue;
+			final Demand d = getDemand(np , s.id);
+			if (getIds(d.cacheHbH_frs).equals(s.forwardingRules)) continue;
+			final Map<Link,Double> frs = new HashMap<> ();
+			for (Entry<Long,Double> fr : s.forwardingRules.entrySet()) frs.put(getLink(np , fr.getKey()) , fr.getValue());
+			Map<Demand,Map<Link,Double>> frsThisLayer = frsPerLayer.get(d.layer);
+			if (frsThisLayer == null) { frsThisLayer = new HashMap<> (); frsPerLayer.put(d.layer , frsThisLayer); }
+			frsThisLayer.put(d , frs);
+		}
+		for (Map<Demand,Map<Link,Double>> frsThisLayer : frsPerLayer.values()) np.setForwardingRules(frsThisLayer);
+
+		/* Couplings, SRGs */
+		for (DemandState s : demands.getAddedAndModified())
+		{
+			final Demand d = getDemand(np , s.id);
+			if (s.coupledUpperLinkId != null && d.coupledUpperLayerLink == null) d.coupleToUpperLayerLink(getLink(np , s.coupledUpperLinkId));
+		}
+		for (MulticastDemandState s : multicastDemands.getAddedAndModified())
+		{
+			final MulticastDemand d = getMulticastDemand(np , s.id);
+			if (s.coupledUpperLinkIds != null && d.coupledUpperLayerLinks == null) d.couple(getLinks(np , s.coupledUpperLinkIds));
+		}
+		for (SrgState s : srgs.added.values())
+			s.applyTo(np.addSRG(s.id , s.meanTimeToFailInHours , s.meanTimeToRepairInHours , null) , np);
+		for (SrgState s : srgs.modified.values())
+			s.applyTo(getSRG(np , s.id) , np);
+
+		/* Elements removed: the ones referring to others first */
+		for (long id : srgs.removed) getSRG(np , id).remove();
+		for (long id : demands.removed) getDemand(np , id).remove();
+		for (long id : multicastDemands.removed) getMulticastDemand(np , id).remove();
+		for (long id : links.removed) getLink(np , id).remove();
+		final List<Long> resourcesRemoved = new ArrayList<> (resources.removed);
+		Collections.reverse(resourcesRemoved); // upper resources first
+		for (long id : resourcesRemoved) getResource(np , id).remove();
+		for (long id : nodes.removed) getNode(np , id).remove();
+
+		/* Attributes and tags */
+		for (Entry<Long,AttributeAndTagChanges> entry : attributeAndTagChanges.entrySet())
+			entry.getValue().applyTo(getElement(np , entry.getKey()));
+		if (np.nextElementId.longValue() < nextElementId) np.nextElementId.setValue(nextElementId);
+
+		if (ErrorHandling.isDebugEnabled()) np.checkCachesConsistency();
+	}
+
+	private List<ElementChanges<?>> getAllElementChanges ()
+	{
+		return Arrays.asList(nodes , resources , links , demands , multicastDemands , routes , multicastTrees , srgs);
+	}
+
+	private void addAttributeAndTagChanges (NetworkElement from , NetworkElement to)
+	{
+		final AttributeAndTagChanges changes = new AttributeAndTagChanges(from , to);
+		if (!changes.isEmpty()) attributeAndTagChanges.put(to.id , changes);
+	}
+
+	/* The added and modified elements of one type, with their new state, and the ids of the ones removed. Kept in the order of the designs,
+	 * so the added elements receive the same indexes */
+	private final class ElementChanges<S extends ElementState>
+	{
+		final Map<Long,S> added = new LinkedHashMap<> ();
+		final Map<Long,S> modified = new LinkedHashMap<> ();
+		final List<Long> removed = new ArrayList<> ();
+
+		<E extends NetworkElement> void add (E to , E from , S stateTo , java.util.function.Function<E,S> stateFrom)
+		{
+			if (from == null) added.put(to.id , stateTo);
+			else
+			{
+				final S stateFromElement = stateFrom.apply(from);
+				if (!stateTo.hasSameFixedFields(stateFromElement)) throw new Net2PlanException ("The element " + to + " has the same id of an element of the other design, but they are not the same element");
+				if (!stateTo.equals(stateFromElement)) modified.put(to.id , stateTo);
+			}
+			addAttributeAndTagChanges(from , to);
+		}
+
+		Collection<S> getAddedAndModified ()
+		{
+			final List<S> res = new ArrayList<> (added.values());
+			res.addAll(modified.values());
+			return res;
+		}
+	}
+
+	/* The state of an element, with the other elements it refers to given by their ids. The values returned by getValues are compared to know
+	 * if the element changed, and the ones returned by getFixedValues cannot change for the same element */
+	private static abstract class ElementState
+	{
+		final long id;
+
+		ElementState (long id) { this.id = id; }
+
+		abstract Object [] getValues ();
+		Object [] getFixedValues () { return new Object [0]; }
+
+		final boolean hasSameFixedFields (ElementState s) { return Arrays.deepEquals(this.getFixedValues() , s.getFixedValues()); }
+
+		@Override
+		public final boolean equals (Object o)
+		{
+			if (o == null || o.getClass() != this.getClass()) return false;
+			return Arrays.deepEquals(this.getValues() , ((ElementState) o).getValues());
+		}
+
+		@Override
+		public final int hashCode () { return Arrays.deepHashCode(getValues()); }
+	}
+
+	private static final class LayerState extends ElementState
+	{
+		final String name , description , linkCapacityUnitsName , demandTrafficUnitsName;
+		final URL defaultNodeIconURL;
+		final RoutingType routingType;
+
+		LayerState (NetworkLayer e)
+		{
+			super (e.id);
+			this.name = e.name;
+			this.description = e.description;
+			this.linkCapacityUnitsName = e.linkCapacityUnitsName;
+			this.demandTrafficUnitsName = e.demandTrafficUnitsName;
+			this.defaultNodeIconURL = e.defaultNodeIconURL;
+			this.routingType = e.routingType;
+		}
+
+		Object [] getValues () { return new Object [] { name , description , linkCapacityUnitsName , demandTrafficUnitsName , defaultNodeIconURL == null? null : defaultNodeIconURL.toString() , routingType }; }
+	}
+
+	private static final class NodeState extends ElementState
+	{
+		final String name , siteName;
+		final double xCoord , yCoord , population;
+		final boolean isUp;
+
+		NodeState (Node e)
+		{
+			super (e.id);
+			this.name = e.name;
+			this.siteName = e.siteName;
+			this.xCoord = e.nodeXYPositionMap.getX();
+			this.yCoord = e.nodeXYPositionMap.getY();
+			this.population = e.population;
+			this.isUp = e.isUp;
+		}
+
+		Object [] getValues () { return new Object [] { name , siteName , xCoord , yCoord , population , isUp }; }
+
+		void applyTo (Node n)
+		{
+			n.setName(name);
+			n.setSiteName(siteName);
+			n.setXYPositionMap(new Point2D.Double(xCoord , yCoord));
+			n.setPopulation(population);
+			n.setFailureState(isUp);
+		}
+	}
+
+	private static final class ResourceState extends ElementState
+	{
+		final String type , name , capacityMeasurementUnits;
+		final long hostNodeId;
+		final double capacity , processingTimeToTraversingTrafficInMs;
+		final Map<Long,Double> capacityOccupiedInBaseResources;
+
+		ResourceState (Resource e)
+		{
+			super (e.id);
+			this.type = e.type;
+			this.name = e.name;
+			this.capacityMeasurementUnits = e.capacityMeasurementUnits;
+			this.hostNodeId = e.hostNode.id;
+			this.capacity = e.capacity;
+			this.processingTimeToTraversingTrafficInMs = e.processingTimeToTraversingTrafficInMs;
+			this.capacityOccupiedInBaseResources = NetPlanDiff.getIds(e.capacityIOccupyInBaseResource);
+		}
+
+		Object [] getValues () { return new Object [] { name , capacityMeasurementUnits , capacity , processingTimeToTraversingTrafficInMs , capacityOccupiedInBaseResources }; }
+		Object [] getFixedValues () { return new Object [] { type , hostNodeId }; }
+
+		Map<Resource,Double> getCapacityOccupiedInBaseResources (NetPlan np)
+		{
+			final Map<Resource,Double> res = new HashMap<> ();
+			for (Entry<Long,Double> entry : capacityOccupiedInBaseResources.entrySet()) res.put(getResource(np , entry.getKey()) , entry.getValue());
+			return res;
+		}
+	}
+
+	private static final class LinkState extends ElementState
+	{
+		final long layerId , originNodeId , destinationNodeId;
+		final double capacity , lengthInKm , propagationSpeedInKmPerSecond;
+		final boolean isUp;
+
+		LinkState (Link e)
+		{
+			super (e.id);
+			this.layerId = e.layer.id;
+			this.originNodeId = e.originNode.id;
+			this.destinationNodeId = e.destinationNode.id;
+			this.capacity = e.capacity;
+			this.lengthInKm = e.lengthInKm;
+			this.propagationSpeedInKmPerSecond = e.propagationSpeedInKmPerSecond;
+			this.isUp = e.isUp;
+		}
+
+		Object [] getValues () { return new Object [] { capacity , lengthInKm , propagationSpeedInKmPerSecond , isUp }; }
+		Object [] getFixedValues () { return new Object [] { layerId , originNodeId , destinationNodeId }; }
+
+		void applyTo (Link e)
+		{
+			if (!e.isCoupled() && e.capacity != capacity) e.setCapacity(capacity); // the capacity of coupled links is the traffic of the coupled demand
+			e.setLengthInKm(lengthInKm);
+			e.setPropagationSpeedInKmPerSecond(propagationSpeedInKmPerSecond);
+			e.setFailureState(isUp);
+		}
+	}
+
+	private static final class DemandState extends ElementState
+	{
+		final long layerId , ingressNodeId , egressNodeId;
+		final double offeredTraffic;
+		final Demand.IntendedRecoveryType recoveryType;
+		final List<String> mandatorySequenceOfTraversedResourceTypes;
+		final Long coupledUpperLinkId; // null if not coupled
+		final Map<Long,Double> forwardingRules; // null in source routing
+
+		DemandState (Demand e)
+		{
+			super (e.id);
+			this.layerId = e.layer.id;
+			this.ingressNodeId = e.ingressNode.id;
+			this.egressNodeId = e.egressNode.id;
+			this.offeredTraffic = e.offeredTraffic;
+			this.recoveryType = e.recoveryType;
+			this.mandatorySequenceOfTraversedResourceTypes = new ArrayList<> (e.mandatorySequenceOfTraversedResourceTypes);
+			this.coupledUpperLinkId = e.coupledUpperLayerLink == null? null : e.coupledUpperLayerLink.id;
+			this.forwardingRules = e.layer.isSourceRouting()? null : NetPlanDiff.getIds(e.cacheHbH_frs);
+		}
+
+		Object [] getValues () { return new Object [] { offeredTraffic , recoveryType , mandatorySequenceOfTraversedResourceTypes , coupledUpperLinkId , forwardingRules }; }
+		Object [] getFixedValues () { return new Object [] { layerId , ingressNodeId , egressNodeId }; }
+
+		boolean isCoupledTo (Link e) { return coupledUpperLinkId != null && coupledUpperLinkId == e.id; }
+
+		void applyTo (Demand d)
+		{
+			d.setOfferedTraffic(offeredTraffic);
+			d.setIntendedRecoveryType(recoveryType);
+			if (!d.mandatorySequenceOfTraversedResourceTypes.equals(mandatorySequenceOfTraversedResourceTypes))
+				d.setServiceChainSequenceOfTraversedResourceTypes(mandatorySequenceOfTraversedResourceTypes);
+		}
+	}
+
+	private static final class MulticastDemandState extends ElementState
+	{
+		final long layerId , ingressNodeId;
+		final SortedSet<Long> egressNodeIds;
+		final double offeredTraffic;
+		final SortedSet<Long> coupledUpperLinkIds; // null if not coupled
+
+		MulticastDemandState (MulticastDemand e)
+		{
+			super (e.id);
+			this.layerId = e.layer.id;
+			this.ingressNodeId = e.ingressNode.id;
+			this.egressNodeIds = NetPlanDiff.getIds(e.egressNodes);
+			this.offeredTraffic = e.offeredTraffic;
+			this.coupledUpperLinkIds = e.coupledUpperLayerLinks == null? null : NetPlanDiff.getIds(e.coupledUpperLayerLinks.values());
+		}
+
+		Object [] getValues () { return new Object [] { offeredTraffic , coupledUpperLinkIds }; }
+		Object [] getFixedValues () { return new Object [] { layerId , ingressNodeId , egressNodeIds }; }
+	}
+
+	private static final class RouteState extends ElementState
+	{
+		final long demandId;
+		final List<Long> initialPathIds; // null if the initial path traverses elements that do not exist anymore
+		final double initialCarriedTraffic , carriedTraffic;
+		final List<Double> initialOccupation , occupation;
+		final List<Long> pathIds;
+		final List<Long> backupRouteIds;
+
+		RouteState (Route e)
+		{
+			super (e.id);
+			this.demandId = e.demand.id;
+			this.initialPathIds = existInDesign(e.initialStatePath , e.netPlan)? NetPlanDiff.getIdList(e.initialStatePath) : null;
+			this.initialCarriedTraffic = e.initialStateCarriedTrafficIfNotFailing;
+			this.initialOccupation = new ArrayList<> (e.initialStateOccupationIfNotFailing);
+			this.pathIds = NetPlanDiff.getIdList(e.currentPath);
+			this.carriedTraffic = e.currentCarriedTrafficIfNotFailing;
+			this.occupation = new ArrayList<> (e.currentLinksAndResourcesOccupationIfNotFailing);
+			this.backupRouteIds = NetPlanDiff.getIdList(e.backupRoutes);
+		}
+
+		Object [] getValues () { return new Object [] { pathIds , carriedTraffic , occupation , backupRouteIds }; }
+		Object [] getFixedValues () { return new Object [] { demandId }; }
+
+		boolean isCurrentStateEqualToInitialState () { return pathIds.equals(initialPathIds) && carriedTraffic == initialCarriedTraffic && occupation.equals(initialOccupation); }
+		boolean isCurrentStateEqualTo (Route r) { return pathIds.equals(NetPlanDiff.getIdList(r.currentPath)) && carriedTraffic == r.currentCarriedTrafficIfNotFailing && occupation.equals(r.currentLinksAndResourcesOccupationIfNotFailing); }
+	}
+
+	private static final class MulticastTreeState extends ElementState
+	{
+		final long demandId;
+		final SortedSet<Long> initialLinkIds; // null if some of the initial links do not exist anymore
+		final SortedSet<Long> linkIds;
+		final double carriedTraffic , occupiedLinkCapacity;
+
+		MulticastTreeState (MulticastTree e)
+		{
+			super (e.id);
+			this.demandId = e.demand.id;
+			this.initialLinkIds = existInDesign(e.initialSetLinksWhenWasCreated , e.netPlan)? NetPlanDiff.getIds(e.initialSetLinksWhenWasCreated) : null;
+			this.linkIds = NetPlanDiff.getIds(e.linkSet);
+			this.carriedTraffic = e.carriedTrafficIfNotFailing;
+			this.occupiedLinkCapacity = e.occupiedLinkCapacityIfNotFailing;
+		}
+
+		Object [] getValues () { return new Object [] { linkIds , carriedTraffic , occupiedLinkCapacity }; }
+		Object [] getFixedValues () { return new Object [] { demandId }; }
+	}
+
+	private static final class SrgState extends ElementState
+	{
+		final double meanTimeToFailInHours , meanTimeToRepairInHours;
+		final SortedSet<Long> nodeIds , linkIds;
+
+		SrgState (SharedRiskGroup e)
+		{
+			super (e.id);
+			this.meanTimeToFailInHours = e.meanTimeToFailInHours;
+			this.meanTimeToRepairInHours = e.meanTimeToRepairInHours;
+			this.nodeIds = NetPlanDiff.getIds(e.nodes);
+			this.linkIds = NetPlanDiff.getIds(e.links);
+		}
+
+		Object [] getValues () { return new Object [] { meanTimeToFailInHours , meanTimeToRepairInHours , nodeIds , linkIds }; }
+
+		void applyTo (SharedRiskGroup srg , NetPlan np)
+		{
+			srg.setMeanTimeToFailInHours(meanTimeToFailInHours);
+			srg.setMeanTimeToRepairInHours(meanTimeToRepairInHours);
+			for (Node n : new ArrayList<> (srg.nodes)) if (!nodeIds.contains(n.id)) srg.removeNode(n);
+			for (Link e : new ArrayList<> (srg.links)) if (!linkIds.contains(e.id)) srg.removeLink(e);
+			for (long id : nodeIds) srg.addNode(getNode(np , id));
+			for (long id : linkIds) srg.addLink(getLink(np , id));
+		}
+	}
+
+	/* The attributes set (new or with a different value) and removed, and the tags added and removed, in an element */
+	private static final class AttributeAndTagChanges
+	{
+		final Map<String,String> attributesSet = new TreeMap<> ();
+		final Set<String> attributesRemoved = new TreeSet<> ();
+		final Set<String> tagsAdded = new TreeSet<> ();
+		final Set<String> tagsRemoved = new TreeSet<> ();
+
+		AttributeAndTagChanges (NetworkElement from , NetworkElement to)
+		{
+			final Map<String,String> attributesFrom = from == null? Collections.<String,String>emptyMap() : from.attributes;
+			final Set<String> tagsFrom = from == null? Collections.<String>emptySet() : from.tags;
+			if (attributesFrom != to.attributes)
+			{
+				for (Entry<String,String> entry : to.attributes.entrySet())
+					if (!entry.getValue().equals(attributesFrom.get(entry.getKey()))) attributesSet.put(entry.getKey() , entry.getValue());
+				for (String key : attributesFrom.keySet()) if (!to.attributes.containsKey(key)) attributesRemoved.add(key);
+			}
+			for (String tag : to.tags) if (!tagsFrom.contains(tag)) tagsAdded.add(tag);
+			for (String tag : tagsFrom) if (!to.tags.contains(tag)) tagsRemoved.add(tag);
+		}
+
+		boolean isEmpty () { return attributesSet.isEmpty() && attributesRemoved.isEmpty() && tagsAdded.isEmpty() && tagsRemoved.isEmpty(); }
+
+		void applyTo (NetworkElement e)
+		{
+			for (Entry<String,String> entry : attributesSet.entrySet()) e.setAttribute(entry.getKey() , entry.getValue());
+			for (String key : attributesRemoved) e.removeAttribute(key);
+			for (String tag : tagsAdded) e.addTag(tag);
+			for (String tag : tagsRemoved) e.removeTag(tag);
+		}
+	}
+
+	private static boolean existInDesign (Collection<? extends NetworkElement> elements , NetPlan np)
+	{
+		for (NetworkElement e : elements) if (e.netPlan != np) return false;
+		return true;
+	}
+
+	private static SortedSet<Long> getIds (Collection<? extends NetworkElement> elements)
+	{
+		final SortedSet<Long> res = new TreeSet<> ();
+		for (NetworkElement e : elements) res.add(e.id);
+		return res;
+	}
+
+	private static List<Long> getIdList (Collection<? extends NetworkElement> elements)
+	{
+		final List<Long> res = new ArrayList<> (elements.size());
+		for (NetworkElement e : elements) res.add(e.id);
+		return res;
+	}
+
+	private static <E extends NetworkElement> Map<Long,Double> getIds (Map<E,Double> map)
+	{
+		final Map<Long,Double> res = new TreeMap<> ();
+		for (Entry<E,Double> entry : map.entrySet()) res.put(entry.getKey().id , entry.getValue());
+		return res;
+	}
+
+	private static NetworkElement getElement (NetPlan np , long id)
+	{
+		if (id == np.id) return np;
+		NetworkElement e = np.getNodeFromId(id);
+		if (e == null) e = np.getLinkFromId(id);
+		if (e == null) e = np.getDemandFromId(id);
+		if (e == null) e = np.getRouteFromId(id);
+		if (e == null) e = np.getMulticastDemandFromId(id);
+		if (e == null) e = np.getMulticastTreeFromId(id);
+		if (e == null) e = np.getResourceFromId(id);
+		if (e == null) e = np.getSRGFromId(id);
+		if (e == null) e = np.getNetworkLayerFromId(id);
+		return checkExists(e , id);
+	}
+
+	private static <E extends NetworkElement> E checkExists (E e , long id)
+	{
+		if (e == null) throw new Net2PlanException ("The element with id " + id + " does not exist in the design");
+		return e;
+	}
+
+	private static NetworkLayer getLayer (NetPlan np , long id) { return checkExists(np.getNetworkLayerFromId(id) , id); }
+	private static Node getNode (NetPlan np , long id) { return checkExists(np.getNodeFromId(id) , id); }
+	private static Resource getResource (NetPlan np , long id) { return checkExists(np.getResourceFromId(id) , id); }
+	private static Link getLink (NetPlan np , long id) { return checkExists(np.getLinkFromId(id) , id); }
+	private static Demand getDemand (NetPlan np , long id) { return checkExists(np.getDemandFromId(id) , id); }
+	private static MulticastDemand getMulticastDemand (NetPlan np , long id) { return checkExists(np.getMulticastDemandFromId(id) , id); }
+	private static Route getRoute (NetPlan np , long id) { return checkExists(np.getRouteFromId(id) , id); }
+	private static MulticastTree getMulticastTree (NetPlan np , long id) { return checkExists(np.getMulticastTreeFromId(id) , id); }
+	private static SharedRiskGroup getSRG (NetPlan np , long id) { return checkExists(np.getSRGFromId(id) , id); }
+
+	private static Set<Node> getNodes (NetPlan np , Collection<Long> ids)
+	{
+		final Set<Node> res = new HashSet<> ();
+		for (long id : ids) res.add(getNode(np , id));
+		return res;
+	}
+
+	private static Set<Link> getLinks (NetPlan np , Collection<Long> ids)
+	{
+		final Set<Link> res = new HashSet<> ();
+		for (long id : ids) res.add(getLink(np , id));
+		return res;
+	}
+
+	private static List<NetworkElement> getPath (NetPlan np , List<Long> ids)
+	{
+		final List<NetworkElement> res = new ArrayList<> (ids.size());
+		for (long id : ids)
+		{
+			final Link e = np.getLinkFromId(id);
+			res.add(e != null? e : getResource(np , id));
+		}
+		return res;
+	}
+}
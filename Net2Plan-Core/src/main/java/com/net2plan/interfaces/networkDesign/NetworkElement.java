@@ -36,8 +36,9 @@ public abstract class NetworkElement
 	protected NetPlan netPlan;
 	final protected long id;
 	protected int index;
-	protected final AttributeMap attributes;
+	protected AttributeMap attributes;
 	protected final Set<String> tags;
+	private boolean attributesShared; // if true, the attribute map is shared with an element of other design (see shareAttributesWith), and is copied before being modified
 	
 	NetworkElement (NetPlan netPlan , long id , int index , AttributeMap attributes) 
 	{ 
@@ -46,6 +47,7 @@ public abstract class NetworkElement
 		this.index = index; 
 		this.attributes = new AttributeMap (attributes); 
 		this.tags = new HashSet<> (); 
+		if (netPlan != null) netPlan.trackChange(NetPlanChangeEvent.ChangeType.ADDED, this);
 	}
 
 	
@@ -253,6 +255,7 @@ public abstract class NetworkElement
 		Set<NetworkElement> setElements = netPlan.cache_taggedElements.get (tag);
 		if (setElements == null) { setElements = new HashSet<> (); netPlan.cache_taggedElements.put (tag , setElements); }
 		setElements.add (this);
+		netPlan.trackChange(NetPlanChangeEvent.ChangeType.ATTRIBUTES_CHANGED, this);
 	}
 	
 	/** Returns true if this network element has the given tag
@@ -272,7 +275,10 @@ public abstract class NetworkElement
 	{
 		final boolean removed = this.tags.remove (tag);
 		if (removed)
+		{
 			netPlan.cache_taggedElements.get (tag).remove (this);
+			netPlan.trackChange(NetPlanChangeEvent.ChangeType.ATTRIBUTES_CHANGED, this);
+		}
 		return removed;
 	}
 	
@@ -322,7 +328,7 @@ public abstract class NetworkElement
 	{ 
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
-		attributes.clear();
+		modifiableAttributes().clear();
 	}
 
 	/**
@@ -334,7 +340,7 @@ public abstract class NetworkElement
 	{ 
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
-		attributes.remove(key);
+		modifiableAttributes().remove(key);
 	}
 
 	/**
@@ -348,7 +354,7 @@ public abstract class NetworkElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
-		attributes.put (key,value);
+		modifiableAttributes().put (key,value);
 	}
 
 	/**
@@ -361,7 +367,7 @@ public abstract class NetworkElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
-		attributes.put (key,value.toString());
+		modifiableAttributes().put (key,value.toString());
 	}
 
 	/**
@@ -381,7 +387,7 @@ public abstract class NetworkElement
 			if (firstTime) { firstTime = false; } else { st.append(MATRIX_COLSEPARATOR); }
 			st.append(val.toString()); 
 		}
-		attributes.put (key,st.toString());
+		modifiableAttributes().put (key,st.toString());
 	}
 
 	/**
@@ -414,7 +420,7 @@ public abstract class NetworkElement
 			if(val.isEmpty()) st.append(""); else st.append(escapedStringToWrite(val));
 			}
 		  }
-		attributes.put (key,st.toString());
+		modifiableAttributes().put (key,st.toString());
 	}
 
 	/**
@@ -453,7 +459,7 @@ public abstract class NetworkElement
 				if(cell.isEmpty()) st.append(""); else st.append(escapedStringToWrite(cell));
 				}
 			}
-			attributes.put(key, st.toString());
+			modifiableAttributes().put(key, st.toString());
 		}
 	}
 
@@ -477,7 +483,7 @@ public abstract class NetworkElement
     		}
 			if (row != vals.rows()-1) st.append(MATRIX_ROWSEPARATOR);
 		}
-		attributes.put (key,st.toString());
+		modifiableAttributes().put (key,st.toString());
 	}
 	
 	/**
@@ -488,12 +494,35 @@ public abstract class NetworkElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		final AttributeMap attributes = modifiableAttributes();
 		attributes.clear(); 
 		if (map != null) 
 			for (Map.Entry<String,String> e : map.entrySet())
 				attributes.put (e.getKey() , e.getValue());
 	}
 
+	/* Makes this element use the same attribute map as the given element (of other design), which is copied only when one of them 
+	 * modifies it. Used when copying designs, where most of the attributes of the copy are never modified */
+	final void shareAttributesWith (NetworkElement e)
+	{
+		if (e == this) return;
+		this.attributes = e.attributes;
+		this.attributesShared = true;
+		e.attributesShared = true;
+	}
+
+	/* The attribute map, to be modified: if it is shared with other element, this element receives its own copy first */
+	final AttributeMap modifiableAttributes ()
+	{
+		if (netPlan != null) netPlan.trackChange(NetPlanChangeEvent.ChangeType.ATTRIBUTES_CHANGED, this);
+		if (attributesShared)
+		{
+			this.attributes = new AttributeMap (attributes);
+			this.attributesShared = false;
+		}
+		return attributes;
+	}
+
 	/**
 	 * <p>Returns a {@code String} representation of the network element.</p>
 	 * @return {@code String} representation of the network element
@@ -521,6 +550,7 @@ public abstract class NetworkElement
 
 	final protected void removeId () 
 	{ 
+		if (netPlan != null) netPlan.trackChange(NetPlanChangeEvent.ChangeType.REMOVED, this);
 		this.netPlan = null;
 	} // called when the element is removed from the net2plan object
 
@@ -21,6 +21,7 @@ import java.util.stream.Collectors;
 import java.util.Set;
 
 import com.net2plan.internal.AttributeMap;
+import com.net2plan.libraries.CSRGraph;
 import com.net2plan.utils.Constants.RoutingType;
 import com.net2plan.utils.Pair;
 
@@ -64,6 +65,8 @@ public class NetworkLayer extends NetworkElement
 	Set<MulticastTree> cache_multicastTreesTravLinkZeroCap;
 	Map<Pair<Node,Node>,Set<Link>> cache_nodePairLinksThisLayer;
 	Map<Pair<Node,Node>,Set<Demand>> cache_nodePairDemandsThisLayer;
+	volatile CSRGraph cache_csrGraph; // null if not built, or if the nodes or links changed
+	boolean isBulkLoading; // if true, the traffic of demands and links, and the resource occupation, are not updated (see NetPlan.startBulkLoad)
 	
 	URL defaultNodeIconURL;
 
@@ -145,6 +148,7 @@ public class NetworkLayer extends NetworkElement
 		this.cache_multicastTreesTravLinkZeroCap.clear(); for (MulticastTree t : origin.cache_multicastTreesTravLinkZeroCap) this.cache_multicastTreesTravLinkZeroCap.add(this.netPlan.getMulticastTreeFromId (t.id));
 		this.cache_nodePairLinksThisLayer.clear(); for (Entry<Pair<Node,Node>,Set<Link>> entry : origin.cache_nodePairLinksThisLayer.entrySet()) this.cache_nodePairLinksThisLayer.put(Pair.of(this.netPlan.getNodeFromId(entry.getKey().getFirst().getId()) , this.netPlan.getNodeFromId(entry.getKey().getSecond().getId())) , (Set<Link>) (Set<?>) this.netPlan.translateCollectionToThisNetPlan(entry.getValue()));
 		this.cache_nodePairDemandsThisLayer.clear(); for (Entry<Pair<Node,Node>,Set<Demand>> entry : origin.cache_nodePairDemandsThisLayer.entrySet()) this.cache_nodePairDemandsThisLayer.put(Pair.of(this.netPlan.getNodeFromId(entry.getKey().getFirst().getId()) , this.netPlan.getNodeFromId(entry.getKey().getSecond().getId())) , (Set<Demand>) (Set<?>) this.netPlan.translateCollectionToThisNetPlan(entry.getValue()));
+		this.cache_csrGraph = null;
 		
 		for (Link e : origin.links) this.links.get(e.index).copyFrom(e);
 		for (Demand d : origin.demands) this.demands.get(d.index).copyFrom(d);
@@ -162,6 +166,18 @@ public class NetworkLayer extends NetworkElement
 	 * @return see above
 	 */
 	public boolean isSourceRouting () { return routingType == RoutingType.SOURCE_ROUTING; }
+
+	/** Returns a compressed sparse row graph with all the nodes in the network, and the links of this layer, used by the path computation algorithms. 
+	 * It is built the first time it is requested, and rebuilt after a node or a link of this layer is added or removed
+	 * @return see above
+	 * @since 0.6.0
+	 */
+	public CSRGraph getCSRGraph ()
+	{
+		CSRGraph graph = cache_csrGraph;
+		if (graph == null) { graph = new CSRGraph(netPlan.nodes, links); cache_csrGraph = graph; }
+		return graph;
+	}
 	
 	/** Returns true if the provided network layer is a deep copy of this
 	 * @param e2 the other element
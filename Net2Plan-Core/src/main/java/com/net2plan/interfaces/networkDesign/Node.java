@@ -216,6 +216,7 @@ public class Node extends NetworkElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		netPlan.trackChange(NetPlanChangeEvent.ChangeType.MODIFIED, this);
 		this.name = name == null? "" : name;
 	}
 
@@ -441,6 +442,7 @@ public class Node extends NetworkElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		netPlan.trackChange(NetPlanChangeEvent.ChangeType.MODIFIED, this);
 		this.nodeXYPositionMap = pos;
 	}
 
@@ -772,6 +774,7 @@ public class Node extends NetworkElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		netPlan.trackModification(this);
 
 		for (MulticastTree tree : new LinkedList<MulticastTree> (cache_nodeAssociatedulticastTrees)) tree.remove ();
 		for (Route route : new LinkedList<Route> (cache_nodeAssociatedRoutes)) route.remove ();
@@ -786,6 +789,7 @@ public class Node extends NetworkElement
 		netPlan.cache_id2NodeMap.remove (id);
         for (String tag : tags) netPlan.cache_taggedElements.get(tag).remove(this);
 		NetPlan.removeNetworkElementAndShiftIndexes(netPlan.nodes , this.index);
+		for (NetworkLayer layer : netPlan.layers) layer.cache_csrGraph = null;
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
 		removeId ();
 	}
@@ -45,8 +45,8 @@ import com.net2plan.utils.DoubleUtils;
 import com.net2plan.utils.LongUtils;
 import com.net2plan.utils.Pair;
 
-import cern.colt.matrix.tdouble.DoubleFactory2D;
-import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.list.tdouble.DoubleArrayList;
+import cern.colt.list.tint.IntArrayList;
 
 class ReaderNetPlanN2PVersion_5 implements IReaderNetPlan //extends NetPlanFormat_v3
 {
@@ -263,7 +263,8 @@ class ReaderNetPlanN2PVersion_5 implements IReaderNetPlan //extends NetPlanForma
 		
 		final Route newRoute = netPlan.addServiceChain(routeId , netPlan.getDemandFromId(demandId), initialStateCarriedTrafficIfNotFailing, 
 				initialStateOccupationIfNotFailing, initialStatePath, null);
-		newRoute.setPath(currentCarriedTrafficIfNotFailing, currentPath, currentLinksAndResourcesOccupationIfNotFailing);
+		if (initialPathExists && !(currentPath.equals(initialStatePath) && (currentCarriedTrafficIfNotFailing == initialStateCarriedTrafficIfNotFailing) && currentLinksAndResourcesOccupationIfNotFailing.equals(initialStateOccupationIfNotFailing)))
+			newRoute.setPath(currentCarriedTrafficIfNotFailing, currentPath, currentLinksAndResourcesOccupationIfNotFailing);
 
 		/* To be added at the end: backup routes may not exist yet */
 		this.backupRouteIdsMap.put(newRoute ,  getListLong ("backupRoutes")); 
@@ -272,23 +273,28 @@ class ReaderNetPlanN2PVersion_5 implements IReaderNetPlan //extends NetPlanForma
 	}
 	
 	
-	private void parseForwardingRule(NetPlan netPlan, long layerId , DoubleMatrix2D f_de) throws XMLStreamException
+	private void parseForwardingRule(NetPlan netPlan, long layerId , IntArrayList frDemandIndexes , IntArrayList frLinkIndexes , DoubleArrayList frSplittingRatios) throws XMLStreamException
 	{
 		final long linkId = getLong ("linkId");
 		final long demandId = getLong ("demandId");
 		final double splittingRatio = getDouble ("splittingRatio");
 
-		f_de.set (netPlan.getDemandFromId(demandId).index , netPlan.getLinkFromId(linkId).index  , splittingRatio);
+		frDemandIndexes.add (netPlan.getDemandFromId(demandId).index);
+		frLinkIndexes.add (netPlan.getLinkFromId(linkId).index);
+		frSplittingRatios.add (splittingRatio);
 		readAndAddAttributesToEndAndPdForNodes(null, "forwardingRule");
 	}
 
 	private void parseHopByHopRouting(NetPlan netPlan, long layerId) throws XMLStreamException
 	{
-		netPlan.setRoutingType (RoutingType.HOP_BY_HOP_ROUTING , netPlan.getNetworkLayerFromId(layerId) );
 		final NetworkLayer layer = netPlan.getNetworkLayerFromId(layerId);
-		final int D = netPlan.getNumberOfDemands(layer);
-		final int E = netPlan.getNumberOfLinks(layer);
-		DoubleMatrix2D f_de = DoubleFactory2D.sparse.make (D,E);
+		netPlan.endBulkLoad(layer); // the multicast trees are already read
+		netPlan.setRoutingType (RoutingType.HOP_BY_HOP_ROUTING , layer);
+
+		/* The forwarding rules are staged in arrays, and applied all together at the end */
+		final IntArrayList frDemandIndexes = new IntArrayList ();
+		final IntArrayList frLinkIndexes = new IntArrayList ();
+		final DoubleArrayList frSplittingRatios = new DoubleArrayList ();
 
 		while(xmlStreamReader.hasNext())
 		{
@@ -301,7 +307,7 @@ class ReaderNetPlanN2PVersion_5 implements IReaderNetPlan //extends NetPlanForma
 					switch(startElementName)
 					{
 						case "forwardingRule":
-							parseForwardingRule(netPlan, layerId,f_de);
+							parseForwardingRule(netPlan, layerId, frDemandIndexes, frLinkIndexes, frSplittingRatios);
 							break;
 
 						default:
@@ -313,8 +319,15 @@ class ReaderNetPlanN2PVersion_5 implements IReaderNetPlan //extends NetPlanForma
 					String endElementName = xmlStreamReader.getName().toString();
 					if (endElementName.equals("hopByHopRouting")) 
 					{ 
-						NetworkLayer thisLayer = netPlan.getNetworkLayerFromId(layerId); 
-						netPlan.setForwardingRules(f_de , thisLayer); 
+						final Map<Demand,Map<Link,Double>> frsPerDemand = new HashMap<> ();
+						for (int cont = 0; cont < frDemandIndexes.size() ; cont ++)
+						{
+							final Demand d = layer.demands.get(frDemandIndexes.get(cont));
+							Map<Link,Double> frsThisDemand = frsPerDemand.get(d);
+							if (frsThisDemand == null) { frsThisDemand = new HashMap<> (); frsPerDemand.put(d , frsThisDemand); }
+							frsThisDemand.put(layer.links.get(frLinkIndexes.get(cont)) , frSplittingRatios.get(cont));
+						}
+						netPlan.setForwardingRules(frsPerDemand); 
 						return; 
 					}
 					break;
@@ -428,61 +441,69 @@ class ReaderNetPlanN2PVersion_5 implements IReaderNetPlan //extends NetPlanForma
 		
 		if (isDefaultLayer) netPlan.setNetworkLayerDefault(newLayer);
 
-		while(xmlStreamReader.hasNext())
+		/* The carried traffic and occupation caches are computed once, when all the routes and trees are read */
+		netPlan.startBulkLoad(newLayer);
+		try
 		{
-			xmlStreamReader.next();
-
-			switch(xmlStreamReader.getEventType())
+			while(xmlStreamReader.hasNext())
 			{
-				case XMLEvent.START_ELEMENT:
-					String startElementName = xmlStreamReader.getName().toString();
-					switch(startElementName)
-					{
-						case "tag":
-							newLayer.addTag(xmlStreamReader.getAttributeValue(xmlStreamReader.getAttributeIndex(null, "value")));
-							break;
+				xmlStreamReader.next();
 
-						case "attribute":
-							newLayer.setAttribute(getString ("key"), getString ("value"));
-							break;
+				switch(xmlStreamReader.getEventType())
+				{
+					case XMLEvent.START_ELEMENT:
+						String startElementName = xmlStreamReader.getName().toString();
+						switch(startElementName)
+						{
+							case "tag":
+								newLayer.addTag(xmlStreamReader.getAttributeValue(xmlStreamReader.getAttributeIndex(null, "value")));
+								break;
 
-						case "demand":
-							parseDemand(netPlan, layerId);
-							break;
+							case "attribute":
+								newLayer.setAttribute(getString ("key"), getString ("value"));
+								break;
 
-						case "multicastDemand":
-							parseMulticastDemand(netPlan, layerId);
-							break;
+							case "demand":
+								parseDemand(netPlan, layerId);
+								break;
 
-						case "multicastTree":
-							parseMulticastTree(netPlan, layerId);
-							break;
+							case "multicastDemand":
+								parseMulticastDemand(netPlan, layerId);
+								break;
 
-						case "link":
-							parseLink(netPlan, layerId);
-							break;
+							case "multicastTree":
+								parseMulticastTree(netPlan, layerId);
+								break;
 
-						case "hopByHopRouting":
-							parseHopByHopRouting(netPlan, layerId);
-							break;
+							case "link":
+								parseLink(netPlan, layerId);
+								break;
 
-						case "sourceRouting":
-							parseSourceRouting(netPlan, layerId);
-							break;
+							case "hopByHopRouting":
+								parseHopByHopRouting(netPlan, layerId);
+								break;
 
-						default:
-							throw new RuntimeException("Bad child (" + startElementName + ") for layer element");
-					}
-					break;
+							case "sourceRouting":
+								parseSourceRouting(netPlan, layerId);
+								break;
 
-				case XMLEvent.END_ELEMENT:
-					String endElementName = xmlStreamReader.getName().toString();
-					if (endElementName.equals("layer")) return;
-					break;
+							default:
+								throw new RuntimeException("Bad child (" + startElementName + ") for layer element");
+						}
+						break;
+
+					case XMLEvent.END_ELEMENT:
+						String endElementName = xmlStreamReader.getName().toString();
+						if (endElementName.equals("layer")) return;
+						break;
+				}
 			}
-		}
 
-		throw new RuntimeException("'Layer' element not parsed correctly (end tag not found)");
+			throw new RuntimeException("'Layer' element not parsed correctly (end tag not found)");
+		} finally
+		{
+			netPlan.endBulkLoad(newLayer);
+		}
 	}
 
 	private void parseMulticastDemand(NetPlan netPlan, long layerId) throws XMLStreamException
@@ -575,11 +596,11 @@ class ReaderNetPlanN2PVersion_5 implements IReaderNetPlan //extends NetPlanForma
 	}
 	private static List<Link> getLinkListFromIds (NetPlan np , Collection<Long> ids) 
 	{
-		List<Link> res = new LinkedList<Link> (); for (long id : ids) res.add(np.getLinkFromId(id)); return res; 
+		List<Link> res = new ArrayList<Link> (ids.size()); for (long id : ids) res.add(np.getLinkFromId(id)); return res; 
 	}
 	private static List<NetworkElement> getLinkAndResorceListFromIds (NetPlan np , Collection<Long> ids) 
 	{
-		List<NetworkElement> res = new LinkedList<NetworkElement> (); 
+		List<NetworkElement> res = new ArrayList<NetworkElement> (ids.size()); 
 		for (long id : ids)
 		{
 			NetworkElement e = np.getLinkFromId(id);
@@ -357,6 +357,7 @@ public class Resource extends NetworkElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		netPlan.trackChange(NetPlanChangeEvent.ChangeType.MODIFIED, this);
 		if (newCapacityIOccupyInBaseResourcesMap == null) newCapacityIOccupyInBaseResourcesMap = new HashMap<Resource,Double> ();
 		for (Entry<Resource,Double> entry : newCapacityIOccupyInBaseResourcesMap.entrySet())
 		{
@@ -401,13 +402,13 @@ public class Resource extends NetworkElement
 	{
 		if (!r.getSeqNodes().contains(this.hostNode)) throw new Net2PlanException ("The route does not traverse the host node of this resource");
 		this.cache_traversingRoutesAndOccupiedCapacitiesIfNotFailingRoute.put(r , resourceOccupiedCapacityByThisRouteIfNotFailing);
-		updateTotalOccupiedCapacity();
+		if (!r.layer.isBulkLoading) updateTotalOccupiedCapacity();
 	}
 
 	void removeTraversingRoute (Route r)
 	{
 		this.cache_traversingRoutesAndOccupiedCapacitiesIfNotFailingRoute.remove(r);
-		updateTotalOccupiedCapacity();
+		if (!r.layer.isBulkLoading) updateTotalOccupiedCapacity();
 	}
 
 	
@@ -562,6 +562,7 @@ public class Route extends NetworkElement
 	{
 		layer.checkRoutingType(RoutingType.SOURCE_ROUTING);
 		netPlan.checkIsModifiable();
+		netPlan.trackChange(NetPlanChangeEvent.ChangeType.MODIFIED, this);
 		final double oldRouteCarriedTrafficIfNotFailing = this.currentCarriedTrafficIfNotFailing;
 		final boolean isThisRouteDown = this.isDown();
 		if (linkAndResourcesOccupationInformation == null)
@@ -589,7 +590,16 @@ public class Route extends NetworkElement
 		/* Now the update of the links and resources occupation */
 		this.cache_linkAndResourcesTraversedOccupiedCapIfnotFailMap = updateLinkResourceOccupationCache ();
 
+		if (layer.isBulkLoading)
+		{
+			/* The carried traffic of the demand and the links, and the resources occupation, are computed when the bulk load ends */
+			for (NetworkElement e : cache_linkAndResourcesTraversedOccupiedCapIfnotFailMap.keySet())
+				if (e instanceof Resource) ((Resource) e).addTraversingRoute(this , cache_linkAndResourcesTraversedOccupiedCapIfnotFailMap.get(e));
+			return;
+		}
+
 		demand.carriedTraffic = 0; for (Route r : demand.cache_routes) demand.carriedTraffic += r.getCarriedTraffic();
+		netPlan.trackModification(demand);
 		if (demand.coupledUpperLayerLink != null)
 			demand.coupledUpperLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(demand.carriedTraffic);
 
@@ -52,7 +52,7 @@ public class AttributeMap extends TreeMap<String, String>
 		this();
 
 		if (m == null) return;
-		for (Map.Entry<String, String> entry : m.entrySet()) put(new String (entry.getKey()), new String (entry.getValue()));
+		for (Map.Entry<String, String> entry : m.entrySet()) put(entry.getKey(), entry.getValue());
 	}
 
 	@Override
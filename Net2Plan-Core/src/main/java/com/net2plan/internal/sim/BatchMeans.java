@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+
+package com.net2plan.internal.sim;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+/**
+ * <p>Batch means of a time-weighted simulation metric. The value of the metric during each inter-event interval is
+ * accumulated in the current batch, and each batch is closed after a given number of events. The batch mean is the
+ * time average of the metric along the batch.</p>
+ *
+ * <p>At most {@link #MAX_BATCHES} batches are kept: when reached, consecutive batches are merged in pairs, and the
+ * number of events per batch is doubled, so the batches get longer (and less correlated) as the simulation runs. All the
+ * closed batches always have the same number of events.</p>
+ *
+ * <p>The warm-up period is detected with the MSER rule applied to the batch means: the number of initial batches
+ * discarded is the one minimizing the variance of the mean of the remaining batches. The confidence interval of the
+ * mean is computed with the remaining batches.</p>
+ *
+ * @since 0.6.0
+ */
+final class BatchMeans
+{
+	/**
+	 * Maximum number of batches kept (even).
+	 */
+	final static int MAX_BATCHES = 64;
+
+	/**
+	 * Minimum number of batches after discarding the warm-up period to compute confidence intervals.
+	 */
+	final static int MIN_BATCHES = 10;
+
+	private final double[] batchSums;
+	private final double[] batchDurations;
+	private final int[] batchEvents;
+	private int numBatches;
+	private int eventsPerBatch;
+	private double currentSum, currentDuration;
+	private int currentEvents;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param eventsPerBatch Initial number of events per batch
+	 */
+	BatchMeans(int eventsPerBatch)
+	{
+		if (eventsPerBatch <= 0) throw new RuntimeException("Bad");
+
+		this.batchSums = new double[MAX_BATCHES];
+		this.batchDurations = new double[MAX_BATCHES];
+		this.batchEvents = new int[MAX_BATCHES];
+		this.eventsPerBatch = eventsPerBatch;
+	}
+
+	/**
+	 * Adds the value of the metric during an inter-event interval.
+	 *
+	 * @param value Value of the metric
+	 * @param duration Duration of the interval
+	 * @return {@code true} if the current batch was closed, {@code false} otherwise
+	 */
+	boolean addObservation(double value, double duration)
+	{
+		currentSum += value * duration;
+		currentDuration += duration;
+		if (++currentEvents < eventsPerBatch) return false;
+
+		batchSums[numBatches] = currentSum;
+		batchDurations[numBatches] = currentDuration;
+		batchEvents[numBatches] = currentEvents;
+		numBatches++;
+		currentSum = 0;
+		currentDuration = 0;
+		currentEvents = 0;
+
+		/* The closed batch is merged too, so the merged batches all have twice the events (MAX_BATCHES is even) */
+		if (numBatches == MAX_BATCHES)
+		{
+			for (int batch = 0; batch < MAX_BATCHES / 2; batch++)
+			{
+				batchSums[batch] = batchSums[2 * batch] + batchSums[2 * batch + 1];
+				batchDurations[batch] = batchDurations[2 * batch] + batchDurations[2 * batch + 1];
+				batchEvents[batch] = batchEvents[2 * batch] + batchEvents[2 * batch + 1];
+			}
+
+			numBatches = MAX_BATCHES / 2;
+			eventsPerBatch *= 2;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the half-width of the confidence interval of the mean, or {@code Double.NaN} if the warm-up period was not
+	 * detected yet, or there are not enough batches after it.
+	 *
+	 * @param confidenceLevel Confidence level, in range (0, 1)
+	 * @return Half-width of the confidence interval
+	 */
+	double getHalfWidth(double confidenceLevel)
+	{
+		int warmupBatches = getWarmupBatches();
+		if (warmupBatches == -1) return Double.NaN;
+
+		int n = numBatches - warmupBatches;
+		if (n < MIN_BATCHES) return Double.NaN;
+
+		double mean = getMean(warmupBatches);
+		double sumSquaredDeviations = 0;
+		for (int batch = warmupBatches; batch < numBatches; batch++)
+			sumSquaredDeviations += (getBatchMean(batch) - mean) * (getBatchMean(batch) - mean);
+
+		double t = new TDistribution(n - 1).inverseCumulativeProbability(1 - (1 - confidenceLevel) / 2);
+		return t * Math.sqrt(sumSquaredDeviations / (n - 1)) / Math.sqrt(n);
+	}
+
+	/**
+	 * Returns the mean of the batches after the warm-up period, or of all of them if it was not detected yet. It is the
+	 * unweighted mean of the batch means (each batch has the same number of events, but not the same duration).
+	 *
+	 * @return Mean
+	 */
+	double getMean()
+	{
+		int warmupBatches = getWarmupBatches();
+		return getMean(warmupBatches == -1 ? 0 : warmupBatches);
+	}
+
+	/**
+	 * Returns the number of closed batches.
+	 *
+	 * @return Number of batches
+	 */
+	int getNumberOfBatches()
+	{
+		return numBatches;
+	}
+
+	/**
+	 * Returns the number of events of a closed batch.
+	 *
+	 * @param batch Batch index
+	 * @return Number of events
+	 */
+	int getNumberOfEvents(int batch)
+	{
+		if ((batch < 0) || (batch >= numBatches)) throw new RuntimeException("Bad");
+		return batchEvents[batch];
+	}
+
+	/**
+	 * Returns the current number of events per batch.
+	 *
+	 * @return Number of events per batch
+	 */
+	int getNumberOfEventsPerBatch()
+	{
+		return eventsPerBatch;
+	}
+
+	/**
+	 * Returns the number of initial batches discarded as warm-up period by the MSER rule, or -1 if it cannot be determined
+	 * yet: the minimum is searched within the first half of the batches, and must be followed by at least
+	 * {@link #MIN_BATCHES} batches.
+	 *
+	 * @return Number of warm-up batches
+	 */
+	int getWarmupBatches()
+	{
+		if (numBatches < MIN_BATCHES) return -1;
+
+		/* MSER(d) = sum_{i >= d} (Y_i - mean_d)^2 / (n - d)^2, computed from the suffix sums */
+		double sum = 0, sumSquares = 0;
+		double bestMser = Double.MAX_VALUE;
+		int bestD = -1;
+		for (int d = numBatches - 1; d >= 0; d--)
+		{
+			double y = getBatchMean(d);
+			sum += y;
+			sumSquares += y * y;
+
+			int n = numBatches - d;
+			if (n < MIN_BATCHES) continue;
+
+			double mser = Math.max(0, sumSquares - sum * sum / n) / ((double) n * n);
+			if (mser <= bestMser) { bestMser = mser; bestD = d; }
+		}
+
+		return bestD <= numBatches / 2 ? bestD : -1;
+	}
+
+	/**
+	 * Indicates whether the relative half-width of the confidence interval (half-width divided by the absolute value of
+	 * the mean) is below the target. A metric with zero mean (e.g. the blocking of a rare event that did not happen yet)
+	 * is never considered converged, since its relative precision is undefined.
+	 *
+	 * @param relativePrecision Target relative half-width
+	 * @param confidenceLevel Confidence level, in range (0, 1)
+	 * @return {@code true} if the target precision was reached, {@code false} otherwise
+	 */
+	boolean hasConverged(double relativePrecision, double confidenceLevel)
+	{
+		double halfWidth = getHalfWidth(confidenceLevel);
+		if (Double.isNaN(halfWidth)) return false;
+		double mean = getMean();
+		if (mean == 0) return false;
+
+		return halfWidth <= relativePrecision * Math.abs(mean);
+	}
+
+	private double getBatchMean(int batch)
+	{
+		return batchDurations[batch] > 0 ? batchSums[batch] / batchDurations[batch] : 0;
+	}
+
+	private double getMean(int firstBatch)
+	{
+		if (numBatches == firstBatch) return 0;
+
+		double sum = 0;
+		for (int batch = firstBatch; batch < numBatches; batch++) sum += getBatchMean(batch);
+		return sum / (numBatches - firstBatch);
+	}
+}
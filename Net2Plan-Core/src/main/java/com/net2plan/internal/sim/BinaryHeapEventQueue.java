@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+
+package com.net2plan.internal.sim;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Future event list structure based on a binary heap ({@code O(log n)} insertion and extraction).
+ *
+ * @since 0.6.0
+ */
+final class BinaryHeapEventQueue implements IEventQueue
+{
+	private final PriorityQueue<EventQueueEntry> heap = new PriorityQueue<EventQueueEntry>();
+
+	@Override
+	public void add(EventQueueEntry entry) { heap.add(entry); }
+
+	@Override
+	public void clear() { heap.clear(); }
+
+	@Override
+	public boolean isEmpty() { return heap.isEmpty(); }
+
+	@Override
+	public EventQueueEntry peek() { return heap.peek(); }
+
+	@Override
+	public EventQueueEntry poll() { return heap.poll(); }
+
+	@Override
+	public boolean remove(SimEvent event)
+	{
+		Iterator<EventQueueEntry> it = heap.iterator();
+		while (it.hasNext())
+		{
+			if (it.next().event == event) { it.remove(); return true; }
+		}
+		return false;
+	}
+
+	@Override
+	public int size() { return heap.size(); }
+
+	@Override
+	public List<EventQueueEntry> toSortedList()
+	{
+		List<EventQueueEntry> res = new ArrayList<EventQueueEntry>(heap);
+		Collections.sort(res);
+		return res;
+	}
+}
@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+
+package com.net2plan.internal.sim;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Future event list structure based on a calendar queue (R. Brown, "Calendar queues: a fast O(1)
+ * priority queue implementation for the simulation event set problem", Communications of the ACM, 1988).</p>
+ *
+ * <p>Entries are hashed by time into a circular array of buckets ("days") of fixed width, each bucket
+ * keeping a sorted singly-linked list. The number of buckets is doubled (halved) when the number of entries
+ * exceeds twice (falls below half) the number of buckets, and the bucket width is re-estimated from the
+ * separation of the head entries, giving {@code O(1)} amortized insertion and extraction for the usual
+ * simulation workloads.</p>
+ *
+ * <p>Each entry stores its virtual bucket (time divided by the bucket width, without wrapping), so the search
+ * for the head entry compares integers instead of accumulating floating-point bucket limits.</p>
+ *
+ * @since 0.6.0
+ */
+final class CalendarEventQueue implements IEventQueue
+{
+	private final static int MIN_NUMBER_OF_BUCKETS = 16;
+	private final static int WIDTH_SAMPLE_SIZE = 25;
+
+	private EventQueueEntry[] buckets;
+	private int mask;
+	private double width;
+	private long currentVirtualBucket;
+	private int size;
+	private EventQueueEntry cachedHead;
+
+	CalendarEventQueue()
+	{
+		initialize(MIN_NUMBER_OF_BUCKETS, 1.0);
+	}
+
+	@Override
+	public void add(EventQueueEntry entry)
+	{
+		entry.virtualBucket = getVirtualBucket(entry.time);
+		insertInBucket(entry);
+		if (entry.virtualBucket < currentVirtualBucket) currentVirtualBucket = entry.virtualBucket;
+		if (cachedHead != null && entry.isBefore(cachedHead)) cachedHead = entry;
+		size++;
+
+		if (size > 2 * buckets.length) resize(2 * buckets.length);
+	}
+
+	@Override
+	public void clear()
+	{
+		initialize(MIN_NUMBER_OF_BUCKETS, 1.0);
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	@Override
+	public EventQueueEntry peek()
+	{
+		if (size == 0) return null;
+		if (cachedHead == null) cachedHead = findHead();
+		return cachedHead;
+	}
+
+	@Override
+	public EventQueueEntry poll()
+	{
+		EventQueueEntry head = pollWithoutResize();
+		if (head != null && buckets.length > MIN_NUMBER_OF_BUCKETS && size < buckets.length / 2)
+			resize(buckets.length / 2);
+		return head;
+	}
+
+	@Override
+	public boolean remove(SimEvent event)
+	{
+		final int bucket = (int) (getVirtualBucket(event.getEventTime()) & mask);
+		EventQueueEntry previous = null;
+		for (EventQueueEntry entry = buckets[bucket]; entry != null; previous = entry, entry = entry.next)
+		{
+			if (entry.event != event) continue;
+
+			if (previous == null) buckets[bucket] = entry.next;
+			else previous.next = entry.next;
+			entry.next = null;
+			size--;
+			cachedHead = null;
+			return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public List<EventQueueEntry> toSortedList()
+	{
+		List<EventQueueEntry> res = new ArrayList<EventQueueEntry>(size);
+		for (EventQueueEntry head : buckets)
+			for (EventQueueEntry entry = head; entry != null; entry = entry.next)
+				res.add(entry);
+
+		Collections.sort(res);
+		return res;
+	}
+
+	private EventQueueEntry findHead()
+	{
+		/* Scan one full "year" starting from the current day. The first bucket whose head belongs to the
+		 * day being scanned holds the minimum entry */
+		for (int i = 0; i < buckets.length; i++)
+		{
+			final long virtualBucket = currentVirtualBucket + i;
+			final EventQueueEntry head = buckets[(int) (virtualBucket & mask)];
+			if (head != null && head.virtualBucket == virtualBucket)
+			{
+				currentVirtualBucket = virtualBucket;
+				return head;
+			}
+		}
+
+		/* Sparse calendar: direct search among the bucket heads */
+		EventQueueEntry best = null;
+		for (EventQueueEntry head : buckets)
+			if (head != null && (best == null || head.isBefore(best))) best = head;
+
+		currentVirtualBucket = best.virtualBucket;
+		return best;
+	}
+
+	private long getVirtualBucket(double time)
+	{
+		return (long) (time / width);
+	}
+
+	private void initialize(int numberOfBuckets, double bucketWidth)
+	{
+		buckets = new EventQueueEntry[numberOfBuckets];
+		mask = numberOfBuckets - 1;
+		width = bucketWidth;
+		currentVirtualBucket = 0;
+		size = 0;
+		cachedHead = null;
+	}
+
+	private void insertInBucket(EventQueueEntry entry)
+	{
+		final int bucket = (int) (entry.virtualBucket & mask);
+		EventQueueEntry current = buckets[bucket];
+		if (current == null || entry.isBefore(current))
+		{
+			entry.next = current;
+			buckets[bucket] = entry;
+			return;
+		}
+
+		while (current.next != null && !entry.isBefore(current.next)) current = current.next;
+		entry.next = current.next;
+		current.next = entry;
+	}
+
+	private EventQueueEntry pollWithoutResize()
+	{
+		final EventQueueEntry head = peek();
+		if (head == null) return null;
+
+		final int bucket = (int) (head.virtualBucket & mask);
+		buckets[bucket] = head.next;
+		head.next = null;
+		size--;
+		cachedHead = null;
+		return head;
+	}
+
+	private void resize(int newNumberOfBuckets)
+	{
+		final int numberOfEntries = size;
+		final EventQueueEntry[] entries = new EventQueueEntry[numberOfEntries];
+
+		/* The first entries (in serving order) are used to estimate the new bucket width */
+		final int sampleSize = Math.min(numberOfEntries, WIDTH_SAMPLE_SIZE);
+		int counter = 0;
+		for (; counter < sampleSize; counter++) entries[counter] = pollWithoutResize();
+		for (EventQueueEntry head : buckets)
+			for (EventQueueEntry entry = head; entry != null; entry = entry.next)
+				entries[counter++] = entry;
+
+		initialize(newNumberOfBuckets, estimateWidth(entries, sampleSize, width));
+
+		long minVirtualBucket = Long.MAX_VALUE;
+		for (EventQueueEntry entry : entries)
+		{
+			entry.next = null;
+			entry.virtualBucket = getVirtualBucket(entry.time);
+			insertInBucket(entry);
+			if (entry.virtualBucket < minVirtualBucket) minVirtualBucket = entry.virtualBucket;
+		}
+
+		size = numberOfEntries;
+		currentVirtualBucket = numberOfEntries == 0 ? 0 : minVirtualBucket;
+	}
+
+	private static double estimateWidth(EventQueueEntry[] sortedSample, int sampleSize, double currentWidth)
+	{
+		if (sampleSize < 2) return currentWidth;
+
+		final double averageSeparation = (sortedSample[sampleSize - 1].time - sortedSample[0].time) / (sampleSize - 1);
+		if (averageSeparation <= 0) return currentWidth;
+
+		/* Discard outliers: separations larger than twice the average */
+		double accumSeparation = 0;
+		int numberOfSeparations = 0;
+		for (int cont = 1; cont < sampleSize; cont++)
+		{
+			final double separation = sortedSample[cont].time - sortedSample[cont - 1].time;
+			if (separation > 2 * averageSeparation) continue;
+			accumSeparation += separation;
+			numberOfSeparations++;
+		}
+
+		final double newWidth = 3 * accumSeparation / numberOfSeparations;
+		return newWidth > 0 && !Double.isInfinite(newWidth) ? newWidth : currentWidth;
+	}
+}
@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+
+package com.net2plan.internal.sim;
+
+import java.util.Arrays;
+
+/**
+ * <p>Columnar storage of per-element statistics (e.g. one table for the links of a layer). Each element, identified
+ * by its id, is assigned a row on insertion, and each statistic is a column backed by a primitive {@code double[]}
+ * array, so no object is created per element and statistic.</p>
+ *
+ * <p>The arrays grow (doubling their size) as elements are added. The rows of removed elements are tombstoned and
+ * reused by the next insertions. Ids are mapped to rows with an open-addressing hash table of primitive keys.</p>
+ *
+ * @since 0.6.0
+ */
+final class ElementStatsTable
+{
+	private final static int INITIAL_CAPACITY = 16;
+	private final static long TOMBSTONE = -1;
+
+	private final double[] initialValues;
+	private double[][] columns;
+	private long[] rowIds;
+	private int numRows;
+	private int[] freeRows;
+	private int numFreeRows;
+
+	/* Hash table id -> row, with linear probing (slots with hashRows[i] == -1 are empty) */
+	private long[] hashIds;
+	private int[] hashRows;
+	private int hashMask;
+
+	/**
+	 * Creates a table with one column per initial value given.
+	 *
+	 * @param initialValues Value of each column in a new row
+	 */
+	ElementStatsTable(double... initialValues)
+	{
+		this.initialValues = Arrays.copyOf(initialValues, initialValues.length);
+		clear();
+	}
+
+	/**
+	 * Adds (accumulates) the given value times the time interval to the {@code column} column, and updates
+	 * the minimum and maximum values stored in the {@code column + 1} and {@code column + 2} columns.
+	 */
+	void accumulate(int row, int column, double value, double timeInterval)
+	{
+		columns[column][row] += value * timeInterval;
+		if (value < columns[column + 1][row]) columns[column + 1][row] = value;
+		if (value > columns[column + 2][row]) columns[column + 2][row] = value;
+	}
+
+	void add(int row, int column, double value)
+	{
+		columns[column][row] += value;
+	}
+
+	/**
+	 * Adds a row for the given element, initialized to the initial values of the columns. If the element was already
+	 * in the table, its row is returned unchanged.
+	 *
+	 * @return The row of the element
+	 */
+	int addRow(long id)
+	{
+		int row = getRow(id);
+		if (row != -1) return row;
+
+		if (2 * (size() + 1) > hashIds.length) rehash(2 * hashIds.length);
+
+		if (numFreeRows > 0)
+		{
+			row = freeRows[--numFreeRows];
+		}
+		else
+		{
+			if (numRows == rowIds.length) grow();
+			row = numRows++;
+		}
+
+		rowIds[row] = id;
+		for (int column = 0; column < columns.length; column++)
+			columns[column][row] = initialValues[column];
+
+		int slot = getHashSlot(id);
+		while (hashRows[slot] != -1) slot = (slot + 1) & hashMask;
+		hashIds[slot] = id;
+		hashRows[slot] = row;
+		return row;
+	}
+
+	void clear()
+	{
+		columns = new double[initialValues.length][INITIAL_CAPACITY];
+		rowIds = new long[INITIAL_CAPACITY];
+		numRows = 0;
+		freeRows = new int[INITIAL_CAPACITY];
+		numFreeRows = 0;
+		initializeHash(2 * INITIAL_CAPACITY);
+	}
+
+	boolean contains(long id)
+	{
+		return getRow(id) != -1;
+	}
+
+	/**
+	 * Returns the value in the given row and column. If the row is -1 (as returned by {@link #getRow(long)} for an element
+	 * not in the table), returns the initial value of the column.
+	 */
+	double get(int row, int column)
+	{
+		return row == -1 ? initialValues[column] : columns[column][row];
+	}
+
+	/**
+	 * Returns the id of the element in the given row, or -1 if the row is empty (tombstoned).
+	 */
+	long getId(int row)
+	{
+		return rowIds[row];
+	}
+
+	/**
+	 * Returns the number of rows in use or tombstoned, that is, the upper bound for iterating the rows.
+	 */
+	int getNumberOfRows()
+	{
+		return numRows;
+	}
+
+	/**
+	 * Returns the row of the given element, or -1 if the element is not in the table.
+	 */
+	int getRow(long id)
+	{
+		for (int slot = getHashSlot(id); hashRows[slot] != -1; slot = (slot + 1) & hashMask)
+			if (hashIds[slot] == id) return hashRows[slot];
+		return -1;
+	}
+
+	/**
+	 * Removes the given element from the table, tombstoning its row for future reuse.
+	 *
+	 * @return {@code true} if the element was in the table, {@code false} otherwise
+	 */
+	boolean removeRow(long id)
+	{
+		int slot = getHashSlot(id);
+		while (hashRows[slot] != -1 && hashIds[slot] != id) slot = (slot + 1) & hashMask;
+		if (hashRows[slot] == -1) return false;
+
+		final int row = hashRows[slot];
+		rowIds[row] = TOMBSTONE;
+		if (numFreeRows == freeRows.length) freeRows = Arrays.copyOf(freeRows, 2 * freeRows.length);
+		freeRows[numFreeRows++] = row;
+
+		/* Backward-shift deletion: move back the following entries of the cluster that are not in their home slot */
+		int emptySlot = slot;
+		hashRows[emptySlot] = -1;
+		for (int current = (emptySlot + 1) & hashMask; hashRows[current] != -1; current = (current + 1) & hashMask)
+		{
+			final int home = getHashSlot(hashIds[current]);
+			final boolean homeInCyclicRange = emptySlot <= current ? (emptySlot < home && home <= current) : (emptySlot < home || home <= current);
+			if (homeInCyclicRange) continue;
+			hashIds[emptySlot] = hashIds[current];
+			hashRows[emptySlot] = hashRows[current];
+			hashRows[current] = -1;
+			emptySlot = current;
+		}
+		return true;
+	}
+
+	void set(int row, int column, double value)
+	{
+		columns[column][row] = value;
+	}
+
+	/**
+	 * Returns the number of elements in the table.
+	 */
+	int size()
+	{
+		return numRows - numFreeRows;
+	}
+
+	private int getHashSlot(long id)
+	{
+		long h = id * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & hashMask;
+	}
+
+	private void grow()
+	{
+		final int newCapacity = 2 * rowIds.length;
+		for (int column = 0; column < columns.length; column++)
+			columns[column] = Arrays.copyOf(columns[column], newCapacity);
+		rowIds = Arrays.copyOf(rowIds, newCapacity);
+	}
+
+	private void initializeHash(int hashCapacity)
+	{
+		hashIds = new long[hashCapacity];
+		hashRows = new int[hashCapacity];
+		Arrays.fill(hashRows, -1);
+		hashMask = hashCapacity - 1;
+	}
+
+	private void rehash(int newHashCapacity)
+	{
+		initializeHash(newHashCapacity);
+		for (int row = 0; row < numRows; row++)
+		{
+			final long id = rowIds[row];
+			if (id == TOMBSTONE) continue;
+			int slot = getHashSlot(id);
+			while (hashRows[slot] != -1) slot = (slot + 1) & hashMask;
+			hashIds[slot] = id;
+			hashRows[slot] = row;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+
+package com.net2plan.internal.sim;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+/**
+ * <p>Wrapper of a {@link SimEvent SimEvent} inside the future event list. Event time and priority
+ * are copied into primitive fields, and an insertion sequence number is attached, so that the
+ * ordering contract (time, then priority, then FIFO) is resolved without virtual calls.</p>
+ *
+ * @since 0.6.0
+ */
+final class EventQueueEntry implements Comparable<EventQueueEntry>
+{
+	final SimEvent event;
+	final double time;
+	final int priority;
+	final long sequence;
+
+	/* Used by the calendar queue: virtual bucket of the entry, and next entry in the same bucket */
+	long virtualBucket;
+	EventQueueEntry next;
+
+	EventQueueEntry(SimEvent event, long sequence)
+	{
+		this.event = event;
+		this.time = event.getEventTime();
+		this.priority = event.getEventPriority();
+		this.sequence = sequence;
+	}
+
+	@Override
+	public int compareTo(EventQueueEntry e)
+	{
+		if (time < e.time) return -1;
+		if (time > e.time) return 1;
+		if (priority > e.priority) return -1;
+		if (priority < e.priority) return 1;
+		return sequence < e.sequence ? -1 : (sequence > e.sequence ? 1 : 0);
+	}
+
+	/**
+	 * Returns {@code true} if this entry must be served before the given one.
+	 *
+	 * @param e Other entry
+	 * @return {@code true} if this entry goes first
+	 */
+	boolean isBefore(EventQueueEntry e)
+	{
+		if (time != e.time) return time < e.time;
+		if (priority != e.priority) return priority > e.priority;
+		return sequence < e.sequence;
+	}
+}
@@ -22,9 +22,9 @@ import com.net2plan.interfaces.networkDesign.Net2PlanException;
 import com.net2plan.interfaces.simulation.SimEvent;
 import com.net2plan.utils.StringUtils;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
-import java.util.PriorityQueue;
+import java.util.List;
 
 /**
  * <p>Class in charge of dealing with the future event list (FEL) of the
@@ -37,23 +37,85 @@ import java.util.PriorityQueue;
  * <li>3. Insertion order (first in, first out)</li>
  * </ul>
  *
+ * <p>The underlying priority structure is selected with {@link #setType(Type) setType}: a binary heap
+ * ({@code O(log n)} per operation), or a calendar queue ({@code O(1)} amortized per operation), better suited
+ * to simulations with a large number of pending events.</p>
+ *
  * @author Pablo Pavon-Marino, Jose-Luis Izquierdo-Zaragoza
  * @since 0.2.0
  */
 public final class FutureEventList
 {
-	private final PriorityQueue<SimEvent> futureEventList;
+	/**
+	 * Types of priority structure backing the future event list.
+	 *
+	 * @since 0.6.0
+	 */
+	public enum Type
+	{
+		/**
+		 * Binary heap.
+		 *
+		 * @since 0.6.0
+		 */
+		BINARY_HEAP("binaryHeap"),
+
+		/**
+		 * Calendar queue.
+		 *
+		 * @since 0.6.0
+		 */
+		CALENDAR_QUEUE("calendarQueue");
+
+		private final String label;
+
+		private Type(String label) { this.label = label; }
+
+		/**
+		 * Returns the type associated to a given label (as used in the simulation parameters).
+		 *
+		 * @param label Label
+		 * @return Type
+		 * @since 0.6.0
+		 */
+		public static Type fromLabel(String label)
+		{
+			for (Type type : values())
+				if (type.label.equals(label)) return type;
+
+			throw new Net2PlanException("Unknown future event list type: " + label);
+		}
+
+		@Override
+		public String toString() { return label; }
+	}
+
+	private IEventQueue futureEventList;
+	private Type type;
 	private double currentTime;
 	private long eventsProcessed;
+	private long eventsAdded;
 
 	/**
-	 * Default constructor.
+	 * Default constructor (binary heap).
 	 *
 	 * @since 0.2.0
 	 */
 	public FutureEventList()
 	{
-		futureEventList = new PriorityQueue<SimEvent>();
+		this(Type.BINARY_HEAP);
+	}
+
+	/**
+	 * Constructor that allows choosing the underlying priority structure.
+	 *
+	 * @param type Type of the future event list
+	 * @since 0.6.0
+	 */
+	public FutureEventList(Type type)
+	{
+		this.type = type;
+		futureEventList = createQueue(type);
 		reset();
 	}
 	
@@ -62,8 +124,7 @@ public final class FutureEventList
 	{
 		StringBuilder out = new StringBuilder();
 		
-		Iterator<SimEvent> it = futureEventList.iterator();
-		while(it.hasNext()) out.append(it.next());
+		for (SimEvent event : getPendingEvents()) out.append(event);
 		
 		return out.toString();
 	}
@@ -90,7 +151,7 @@ public final class FutureEventList
 			throw new Net2PlanException(String.format("Event cannot be scheduled before the current simulation time (sim. time = %s, event time = %s)", StringUtils.secondsToYearsDaysHoursMinutesSeconds(currentTime), StringUtils.secondsToYearsDaysHoursMinutesSeconds(event.getEventTime())));
 		}
 
-		futureEventList.add(event);
+		futureEventList.add(new EventQueueEntry(event, eventsAdded++));
 	}
 
 	/**
@@ -142,7 +203,7 @@ public final class FutureEventList
 			return -1;
 		}
 
-		return futureEventList.peek().getEventTime();
+		return futureEventList.peek().time;
 	}
 
 	/**
@@ -156,7 +217,7 @@ public final class FutureEventList
 	{
 		if (futureEventList.isEmpty()) return null;
 
-		SimEvent nextEvent = futureEventList.poll();
+		SimEvent nextEvent = futureEventList.poll().event;
 		currentTime = nextEvent.getEventTime();
 		eventsProcessed++;
 
@@ -186,17 +247,31 @@ public final class FutureEventList
 	}
 
 	/**
-	 * <p>Returns the whole future event list.</p>
+	 * <p>Returns a snapshot of the pending events, sorted in the order they will be processed.</p>
 	 *
-	 * <p><b>Important</b>: It is the original future event list, changes by user
-	 * are not checked, so it is discouraged at all.</p>
+	 * <p><b>Important</b>: The returned list is a copy, changes on it do not affect the future event list.
+	 * It is built in {@code O(n log n)}, so it is intended for visualization purposes.</p>
 	 *
-	 * @return Future event list
+	 * @return Sorted list of pending events
 	 * @since 0.2.0
 	 */
-	public PriorityQueue<SimEvent> getPendingEvents()
+	public List<SimEvent> getPendingEvents()
 	{
-		return futureEventList;
+		List<EventQueueEntry> entries = futureEventList.toSortedList();
+		List<SimEvent> res = new ArrayList<SimEvent>(entries.size());
+		for (EventQueueEntry entry : entries) res.add(entry.event);
+		return res;
+	}
+
+	/**
+	 * Returns the type of priority structure backing the future event list.
+	 *
+	 * @return Type of the future event list
+	 * @since 0.6.0
+	 */
+	public Type getType()
+	{
+		return type;
 	}
 
 	/**
@@ -230,6 +305,39 @@ public final class FutureEventList
 	{
 		currentTime = 0;
 		eventsProcessed = 0;
+		eventsAdded = 0;
 		clear();
 	}
+
+	/**
+	 * Sets the type of priority structure backing the future event list. Pending
+	 * events (if any) are moved to the new structure, keeping their order.
+	 *
+	 * @param type Type of the future event list
+	 * @since 0.6.0
+	 */
+	public void setType(Type type)
+	{
+		if (type == this.type) return;
+
+		IEventQueue newFutureEventList = createQueue(type);
+		for (EventQueueEntry entry : futureEventList.toSortedList())
+		{
+			entry.next = null;
+			newFutureEventList.add(entry);
+		}
+
+		this.futureEventList = newFutureEventList;
+		this.type = type;
+	}
+
+	private static IEventQueue createQueue(Type type)
+	{
+		switch (type)
+		{
+			case BINARY_HEAP: return new BinaryHeapEventQueue();
+			case CALENDAR_QUEUE: return new CalendarEventQueue();
+			default: throw new RuntimeException("Bad");
+		}
+	}
 }
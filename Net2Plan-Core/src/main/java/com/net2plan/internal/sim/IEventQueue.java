@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+
+package com.net2plan.internal.sim;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+import java.util.List;
+
+/**
+ * Contract of the priority structures that can back the {@link FutureEventList FutureEventList}.
+ * Implementations must serve entries according to {@link EventQueueEntry#compareTo(EventQueueEntry)}.
+ *
+ * @since 0.6.0
+ */
+interface IEventQueue
+{
+	/**
+	 * Adds an entry to the queue.
+	 *
+	 * @param entry Entry to add
+	 */
+	void add(EventQueueEntry entry);
+
+	/**
+	 * Removes all the entries.
+	 */
+	void clear();
+
+	/**
+	 * Returns {@code true} if the queue is empty.
+	 *
+	 * @return {@code true} if empty
+	 */
+	boolean isEmpty();
+
+	/**
+	 * Returns (without removing) the head entry, or {@code null} if the queue is empty.
+	 *
+	 * @return Head entry
+	 */
+	EventQueueEntry peek();
+
+	/**
+	 * Removes and returns the head entry, or {@code null} if the queue is empty.
+	 *
+	 * @return Head entry
+	 */
+	EventQueueEntry poll();
+
+	/**
+	 * Removes the entry wrapping the given event (compared by identity), if any.
+	 *
+	 * @param event Event to remove
+	 * @return {@code true} if the event was found and removed
+	 */
+	boolean remove(SimEvent event);
+
+	/**
+	 * Returns the number of entries.
+	 *
+	 * @return Number of entries
+	 */
+	int size();
+
+	/**
+	 * Returns a snapshot of the entries, sorted in serving order.
+	 *
+	 * @return Sorted list of entries
+	 */
+	List<EventQueueEntry> toSortedList();
+}
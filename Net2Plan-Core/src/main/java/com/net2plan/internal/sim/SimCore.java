@@ -18,6 +18,11 @@
 
 package com.net2plan.internal.sim;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
 import com.net2plan.interfaces.simulation.SimEvent;
 import com.net2plan.internal.Constants.UserInterface;
@@ -26,6 +31,10 @@ import com.net2plan.internal.SystemUtils;
 /**
  * Core-class of the discrete event simulator.
  *
+ * <p>The event loop runs without locking: the simulation state is kept in an atomic reference, which is read once
+ * per event. While paused, the simulation thread is parked, and it is unparked by the state changes. Threads changing
+ * the state while an event is being processed are parked until the event finishes.</p>
+ *
  * @author Pablo Pavon-Marino, Jose-Luis Izquierdo-Zaragoza
  * @since 0.2.0
  */
@@ -99,8 +108,10 @@ public final class SimCore implements Runnable
 	private double totalSimTime;
 	private double totalTransitoryTime;
 	private boolean isInTransitory;
-	private SimState simulationState;
-	private boolean processingEvent;
+	private final AtomicReference<SimState> simulationState = new AtomicReference<SimState>();
+	private volatile boolean processingEvent;
+	private volatile Thread simulationThread;
+	private final Queue<Thread> threadsWaitingForEvent = new ConcurrentLinkedQueue<Thread>();
 
 	/**
 	 * Default constructor.
@@ -119,91 +130,92 @@ public final class SimCore implements Runnable
 	@Override
 	public void run()
 	{
-		if (simulationState == SimState.NOT_STARTED) throw new RuntimeException("Bad - Simulation not started yet");
+		if (simulationState.get() == SimState.NOT_STARTED) throw new RuntimeException("Bad - Simulation not started yet");
 
+		simulationThread = Thread.currentThread();
 		isInTransitory = true;
 		if (totalTransitoryEvents == -1 && totalTransitoryTime == -1) isInTransitory = false;
-		while (simulationState != SimState.STOPPED)
+		while (simulationState.get() != SimState.STOPPED)
 		{
+			SimState stateAfterEvent = simulationState.get();
 			while (futureEventList.hasMoreEvents())
 			{
-				synchronized (callback)
-				{
-					double nextEventTime = futureEventList.getNextEventSimulationTime();
-					if (nextEventTime == -1) throw new RuntimeException("Bad");
-
-					if (isInTransitory)
-					{
-						if (totalTransitoryTime != -1 && nextEventTime >= totalTransitoryTime)
-						{
-							finishTransitory(totalTransitoryTime);
-						}
-						else if (totalTransitoryEvents != -1 && futureEventList.getNumberOfProcessedEvents() == totalTransitoryEvents)
-						{
-							finishTransitory(futureEventList.getCurrentSimulationTime());
-						}
-					}
+				double nextEventTime = futureEventList.getNextEventSimulationTime();
+				if (nextEventTime == -1) throw new RuntimeException("Bad");
 
-					if (totalSimTime != -1 && nextEventTime >= totalSimTime)
+				if (isInTransitory)
+				{
+					if (totalTransitoryTime != -1 && nextEventTime >= totalTransitoryTime)
 					{
-						setSimulationState(SimState.STOPPED, new EndSimulationException());
-						return; // this kills the thread
+						finishTransitory(totalTransitoryTime);
 					}
-					else if (totalSimEvents != -1 && futureEventList.getNumberOfProcessedEvents() == totalSimEvents)
+					else if (totalTransitoryEvents != -1 && futureEventList.getNumberOfProcessedEvents() == totalTransitoryEvents)
 					{
-						setSimulationState(SimState.STOPPED, new EndSimulationException());
-						return;  // this kills the thread
+						finishTransitory(futureEventList.getCurrentSimulationTime());
 					}
+				}
 
-					/* Process next event in the future event list */
-					long start = System.nanoTime();
+				if (totalSimTime != -1 && nextEventTime >= totalSimTime)
+				{
+					setSimulationState(SimState.STOPPED, new EndSimulationException());
+					return; // this kills the thread
+				}
+				else if (totalSimEvents != -1 && futureEventList.getNumberOfProcessedEvents() == totalSimEvents)
+				{
+					setSimulationState(SimState.STOPPED, new EndSimulationException());
+					return;  // this kills the thread
+				}
 
-					SimEvent event = futureEventList.getNextEvent();
-					processingEvent = true;
-					
-					try
-					{
-						if (event == null) throw new RuntimeException("Event is a null object");
-						callback.processEvent(event);
-					}
-					catch (Throwable e)
-					{
-						processingEvent = false;
-						setSimulationState(SimCore.SimState.STOPPED, e);
+				/* Process next event in the future event list */
+				long start = System.nanoTime();
 
-						long end = System.nanoTime();
-						cpuTime += ((double) (end - start)) / 1e9;
-						callback.refresh(true);
+				SimEvent event = futureEventList.getNextEvent();
+				processingEvent = true;
 
-						return;  // this kills the thread
-					}
+				try
+				{
+					if (event == null) throw new RuntimeException("Event is a null object");
+					callback.processEvent(event);
+				}
+				catch (Throwable e)
+				{
+					finishProcessingEvent();
+					setSimulationState(SimCore.SimState.STOPPED, e);
 
-					processingEvent = false;
 					long end = System.nanoTime();
-
 					cpuTime += ((double) (end - start)) / 1e9;
+					callback.refresh(true);
 
-					if (cpuTime - timeSinceLastRefresh >= refreshTimeInSeconds)
-					{
-						callback.refresh(false);
-						timeSinceLastRefresh = cpuTime;
-					}
+					return;  // this kills the thread
+				}
 
-					if (futureEventList.getNumberOfProcessedEvents() == Long.MAX_VALUE)
-					{
-						setSimulationState(SimState.STOPPED);
-						return;  // this kills the thread
-					}
+				finishProcessingEvent();
+				long end = System.nanoTime();
 
-					if (simulationState == SimState.STEP)
-					{
-						setSimulationState(SimState.PAUSED);
-					}
+				cpuTime += ((double) (end - start)) / 1e9;
 
-					if (simulationState != SimState.RUNNING)
-					{
-						break;
-					}
+				if (cpuTime - timeSinceLastRefresh >= refreshTimeInSeconds)
+				{
+					callback.refresh(false);
+					timeSinceLastRefresh = cpuTime;
+				}
+
+				if (futureEventList.getNumberOfProcessedEvents() == Long.MAX_VALUE)
+				{
+					setSimulationState(SimState.STOPPED);
+					return;  // this kills the thread
+				}
+
+				stateAfterEvent = simulationState.get();
+				if (stateAfterEvent == SimState.STEP && simulationState.compareAndSet(SimState.STEP, SimState.PAUSED))
+				{
+					stateAfterEvent = SimState.PAUSED;
+					callback.simulationStateChanged(SimState.PAUSED, null);
+				}
+
+				if (stateAfterEvent != SimState.RUNNING)
+				{
+					break;
 				}
 			}
 
@@ -221,15 +233,13 @@ public final class SimCore implements Runnable
 				setSimulationState(SimState.STOPPED, new EndSimulationException());
 			}
 
-			simulationState = SimState.PAUSED;
+			/* Pause, unless the state was changed after the last event (e.g. resumed) */
+			simulationState.compareAndSet(stateAfterEvent, SimState.PAUSED);
 
-			while (simulationState == SimState.PAUSED)
+			while (simulationState.get() == SimState.PAUSED)
 			{
-				try
-				{
-					Thread.sleep(1);
-				}
-				catch (InterruptedException ex)
+				LockSupport.park(this);
+				if (Thread.interrupted())
 				{
 					setSimulationState(SimState.STOPPED);
 					break;
@@ -238,9 +248,16 @@ public final class SimCore implements Runnable
 		}
 	}
 	
+	/* Marks the end of the current event, and unparks the threads waiting for it to change the simulation state */
+	private void finishProcessingEvent()
+	{
+		processingEvent = false;
+		for (Thread thread : threadsWaitingForEvent) LockSupport.unpark(thread);
+	}
+
 	private void checkSimulationNotStartedYet()
 	{
-		if (simulationState != SimState.NOT_STARTED)
+		if (simulationState.get() != SimState.NOT_STARTED)
 		{
 			throw new RuntimeException("Simulation was already started. No configuration changes allowed");
 		}
@@ -292,7 +309,7 @@ public final class SimCore implements Runnable
 	 */
 	public SimState getSimulationState()
 	{
-		return simulationState;
+		return simulationState.get();
 	}
 
 	/**
@@ -312,11 +329,27 @@ public final class SimCore implements Runnable
 		totalSimTime = -1;
 		totalTransitoryTime = -1;
 		isInTransitory = true;
+		futureEventList.setType(FutureEventList.Type.BINARY_HEAP);
 
 		processingEvent = false;
 		setSimulationState(SimState.NOT_STARTED);
 	}
 	
+	/**
+	 * <p>Sets the type of priority structure backing the future event list.</p>
+	 *
+	 * <p><b>Important</b>: This method only can be executed before the simulation starts.</p>
+	 * 
+	 * @param type Type of the future event list
+	 * @since 0.6.0
+	 */
+	public void setFutureEventListType(FutureEventList.Type type)
+	{
+		checkSimulationNotStartedYet();
+
+		futureEventList.setType(type);
+	}
+
 	/**
 	 * <p>Sets the time to refresh the simulation log.</p>
 	 *
@@ -430,11 +463,18 @@ public final class SimCore implements Runnable
 
 	private void setSimulationState(SimState simulationState, Throwable reason)
 	{
-		this.simulationState = simulationState;
-		while (processingEvent)
+		this.simulationState.set(simulationState);
+
+		Thread thread = simulationThread;
+		if (thread != null) LockSupport.unpark(thread);
+
+		/* The callback is notified once the event being processed (if any) finishes */
+		if (thread != Thread.currentThread() && processingEvent)
 		{
-			try { Thread.sleep(1); }
-			catch (Throwable e) { }
+			Thread currentThread = Thread.currentThread();
+			threadsWaitingForEvent.add(currentThread);
+			while (processingEvent) LockSupport.park(this);
+			threadsWaitingForEvent.remove(currentThread);
 		}
 
 		callback.simulationStateChanged(simulationState, reason);
@@ -159,6 +159,7 @@ public class SimKernel implements IEventCallback
 
 		if (!simulationParameters.containsKey("disableStatistics"))	throw new Net2PlanException("'disableStatistics' parameter is not configured");
 		disableStatistics = Boolean.parseBoolean(simulationParameters.get("disableStatistics"));
+		if (disableStatistics && "batchMeans".equals(simulationParameters.get("stoppingRule"))) throw new Net2PlanException("'batchMeans' stopping rule requires 'disableStatistics' equal to 'false'");
 
 		if (!simulationParameters.containsKey("refreshTime")) throw new Net2PlanException("'refreshTime' parameter is not configured");
 		double refreshTimeInSeconds = Double.parseDouble(simulationParameters.get("refreshTime"));
@@ -179,6 +180,9 @@ public class SimKernel implements IEventCallback
 		if (!simulationParameters.containsKey("simTime")) throw new Net2PlanException("'simTime' parameter is not configured");
 		double simTime = Double.parseDouble(simulationParameters.get("simTime"));
 		simCore.setTotalSimulationTime(simTime);
+
+		/* Optional parameter, for backward compatibility with callers building the parameter map by hand */
+		if (simulationParameters.containsKey("futureEventList")) simCore.setFutureEventListType(FutureEventList.Type.fromLabel(simulationParameters.get("futureEventList")));
 		
 		if (!getEventGeneratorClass().isAssignableFrom(eventGenerator.getClass())) throw new RuntimeException("Bad - Event generator is not an instance of " + getEventGeneratorClass().getName());
 		if (!getEventProcessorClass().isAssignableFrom(eventProcessor.getClass())) throw new RuntimeException("Bad - Event processor is not an instance of " + getEventProcessorClass().getName());
@@ -270,6 +274,17 @@ public class SimKernel implements IEventCallback
 		return simCore;
 	}
 
+	/**
+	 * Returns the simulation statistics, or {@code null} if they are disabled or the simulation was not initialized.
+	 *
+	 * @return Simulation statistics
+	 * @since 0.6.0
+	 */
+	SimStats getSimStats()
+	{
+		return stats;
+	}
+
 	/**
 	 * Returns a brief simulation information report (current simulation time,
 	 * last event processed...).
@@ -326,6 +341,12 @@ public class SimKernel implements IEventCallback
 		parameters.add(Triple.of("transitoryEvents", "-1", "Number of events for transitory period (-1 means no transitory period). In case that 'transitoryTime' and 'transitoryEvents' are specified, the transitory period will finish when one of the previous values is reached"));
 		parameters.add(Triple.of("simTime", "-1", "Total simulation time (in seconds, including transitory period) (-1 means no limit). In case that 'simTime' and 'simEvents' are specified, the transitory period will finish when one of the previous values is reached"));
 		parameters.add(Triple.of("transitoryTime", "-1", "Transitory time (in seconds) (-1 means no transitory period). In case that 'transitoryTime' and 'transitoryEvents' are specified, the transitory period will finish when one of the previous values is reached"));
+		parameters.add(Triple.of("stoppingRule", "#select# fixed batchMeans", "Stopping rule: 'fixed' (the simulation finishes according to 'simEvents' and 'simTime'), or 'batchMeans' (in addition, the simulation finishes when the relative half-width of the confidence interval of the batch means of all the 'batchMeansMetrics' falls below 'batchMeansRelativePrecision'; the warm-up period is detected automatically with the MSER rule). The 'batchMeans' rule requires the statistics enabled"));
+		parameters.add(Triple.of("batchMeansMetrics", "blockingProbability, linkUtilization", "Metrics of the 'batchMeans' stopping rule (comma-separated): 'blockingProbability' (blocked traffic over offered traffic, in all the layers) and/or 'linkUtilization' (average link utilization, in all the layers)"));
+		parameters.add(Triple.of("batchMeansRelativePrecision", "0.05", "Target relative half-width of the confidence interval (half-width over mean) of the 'batchMeans' stopping rule"));
+		parameters.add(Triple.of("batchMeansConfidenceLevel", "0.95", "Confidence level of the 'batchMeans' stopping rule"));
+		parameters.add(Triple.of("batchMeansBatchSize", "1000", "Initial number of events per batch of the 'batchMeans' stopping rule (doubled each time the number of batches reaches " + BatchMeans.MAX_BATCHES + ")"));
+		parameters.add(Triple.of("futureEventList", "#select# binaryHeap calendarQueue", "Data structure of the future event list: 'binaryHeap' (O(log n) per event), or 'calendarQueue' (O(1) amortized per event, recommended for simulations with a large number of pending events)"));
 
 		return parameters;
 	}
@@ -366,6 +387,13 @@ public class SimKernel implements IEventCallback
 		else
 		{
 			info.append(stats.getResults(getSimCore().getFutureEventList().getCurrentSimulationTime()));
+
+			String batchMeansResults = stats.getBatchMeansResults();
+			if (batchMeansResults != null)
+			{
+				info.append("<h2>Batch means</h2>");
+				info.append(batchMeansResults);
+			}
 		}
 
 		info.append("<h1>Problem-specific results</h1>");
@@ -574,6 +602,10 @@ public class SimKernel implements IEventCallback
 				throw new RuntimeException("Bad");
 		}
 
-		if (!disableStatistics) stats.computeNextState(event.getEventTime());
+		if (!disableStatistics)
+		{
+			stats.computeNextState(event.getEventTime());
+			if (stats.isStoppingRuleSatisfied()) throw new EndSimulationException();
+		}
 	}
 }
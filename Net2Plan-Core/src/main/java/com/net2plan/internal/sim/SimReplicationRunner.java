@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+
+package com.net2plan.internal.sim;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.internal.CommandLineParser;
+import com.net2plan.internal.IExternal;
+import com.net2plan.utils.Pair;
+import com.net2plan.utils.Triple;
+
+/**
+ * <p>Runs independent replications of an online simulation in a thread pool, and merges their statistics into
+ * a report with the mean and the confidence interval of each network and layer metric.</p>
+ *
+ * <p>Each replication runs on its own {@link SimKernel}, with its own copy of the initial network plan, and its own
+ * event generator and event processor instances, obtained from the given factories. Factories creating each instance
+ * from a new class loader (as the CLI does, releasing it when the replication ends) also isolate the static state of the event generator and processor classes
+ * between replications. Modules with a {@code randomSeed} parameter get the seed {@code randomSeed + replication}
+ * (unless the seed is -1, meaning random).</p>
+ *
+ * @since 0.6.0
+ */
+public class SimReplicationRunner
+{
+	/**
+	 * Factory of the event generator or the event processor of each replication.
+	 *
+	 * @since 0.6.0
+	 */
+	public interface IExternalFactory
+	{
+		/**
+		 * Returns a new instance for the given replication.
+		 *
+		 * @param replication Replication index (starting from 0)
+		 * @return New event generator or event processor
+		 * @since 0.6.0
+		 */
+		public IExternal newInstance(int replication);
+
+		/**
+		 * Called when the replication finished (successfully or not) with the instance it used, so that the resources
+		 * associated to it (e.g. its class loader) can be released. By default, it does nothing.
+		 *
+		 * @param replication Replication index (starting from 0)
+		 * @param instance Instance returned by {@link #newInstance(int) newInstance} for the replication
+		 * @since 0.6.0
+		 */
+		public default void release(int replication, IExternal instance) { }
+	}
+
+	private final static String RANDOM_SEED_PARAMETER = "randomSeed";
+
+	private SimReplicationRunner() { }
+
+	/**
+	 * Runs the given number of independent replications of the simulation.
+	 *
+	 * @param netPlan Initial network design (not modified)
+	 * @param eventGeneratorFactory Factory of the event generator of each replication
+	 * @param customEventGeneratorParameters Custom event generator parameters (null means empty)
+	 * @param eventProcessorFactory Factory of the event processor of each replication
+	 * @param customEventProcessorParameters Custom event processor parameters (null means empty)
+	 * @param customSimulatorParameters Custom simulator parameters (null means empty)
+	 * @param net2planParameters Net2Plan parameters
+	 * @param numReplications Number of replications
+	 * @param numThreads Number of threads (replications running in parallel)
+	 * @param confidenceLevel Confidence level of the intervals, in range (0, 1)
+	 * @return The simulation report of each replication, and the summary report of all of them
+	 * @since 0.6.0
+	 */
+	public static Pair<List<String>, String> runReplications(final NetPlan netPlan, final IExternalFactory eventGeneratorFactory, final Properties customEventGeneratorParameters, final IExternalFactory eventProcessorFactory, final Properties customEventProcessorParameters, final Properties customSimulatorParameters, final Map<String, String> net2planParameters, int numReplications, int numThreads, double confidenceLevel)
+	{
+		if (numReplications <= 0) throw new Net2PlanException("'numReplications' must be greater than zero");
+		if (numThreads <= 0) throw new Net2PlanException("'numThreads' must be greater than zero");
+		if (confidenceLevel <= 0 || confidenceLevel >= 1) throw new Net2PlanException("'confidenceLevel' must be in range (0, 1)");
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, numReplications));
+		try
+		{
+			List<Future<Pair<String, Map<String, Double>>>> futures = new ArrayList<Future<Pair<String, Map<String, Double>>>>();
+			for (int replication = 0; replication < numReplications; replication++)
+			{
+				final int thisReplication = replication;
+				final NetPlan netPlan_thisReplication = netPlan.copy();
+				futures.add(executor.submit(new Callable<Pair<String, Map<String, Double>>>()
+				{
+					@Override
+					public Pair<String, Map<String, Double>> call()
+					{
+						final IExternal eventGenerator = eventGeneratorFactory.newInstance(thisReplication);
+						try
+						{
+							final IExternal eventProcessor = eventProcessorFactory.newInstance(thisReplication);
+							try
+							{
+								return runReplication(thisReplication, netPlan_thisReplication, eventGenerator, customEventGeneratorParameters, eventProcessor, customEventProcessorParameters, customSimulatorParameters, net2planParameters);
+							}
+							finally
+							{
+								eventProcessorFactory.release(thisReplication, eventProcessor);
+							}
+						}
+						finally
+						{
+							eventGeneratorFactory.release(thisReplication, eventGenerator);
+						}
+					}
+				}));
+			}
+
+			List<String> reports = new ArrayList<String>();
+			List<Map<String, Double>> metrics = new ArrayList<Map<String, Double>>();
+			for (int replication = 0; replication < numReplications; replication++)
+			{
+				Pair<String, Map<String, Double>> result;
+				try
+				{
+					result = futures.get(replication).get();
+				}
+				catch (ExecutionException e)
+				{
+					Throwable cause = e.getCause() instanceof RuntimeException && e.getCause().getCause() != null ? e.getCause().getCause() : e.getCause();
+					throw new Net2PlanException("Replication " + replication + " failed: " + cause.getMessage());
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+
+				reports.add(result.getFirst());
+				metrics.add(result.getSecond());
+			}
+
+			return Pair.of(reports, getSummaryReport(getReplicationSummary(metrics, confidenceLevel), numReplications, confidenceLevel));
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Merges the metrics of the replications. For each metric (in order of appearance), returns its mean, the
+	 * half-width of the confidence interval of the mean (Student's t, NaN if less than two replications report
+	 * the metric), and its minimum and maximum values among the replications.
+	 */
+	static Map<String, double[]> getReplicationSummary(List<Map<String, Double>> metrics, double confidenceLevel)
+	{
+		Map<String, List<Double>> valuesPerMetric = new LinkedHashMap<String, List<Double>>();
+		for (Map<String, Double> metrics_thisReplication : metrics)
+		{
+			for (Map.Entry<String, Double> entry : metrics_thisReplication.entrySet())
+			{
+				List<Double> values = valuesPerMetric.get(entry.getKey());
+				if (values == null) { values = new ArrayList<Double>(); valuesPerMetric.put(entry.getKey(), values); }
+				values.add(entry.getValue());
+			}
+		}
+
+		Map<String, double[]> summary = new LinkedHashMap<String, double[]>();
+		for (Map.Entry<String, List<Double>> entry : valuesPerMetric.entrySet())
+		{
+			List<Double> values = entry.getValue();
+			int n = values.size();
+			double sum = 0, min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+			for (double value : values) { sum += value; min = Math.min(min, value); max = Math.max(max, value); }
+			double mean = sum / n;
+
+			double halfWidth = Double.NaN;
+			if (n > 1)
+			{
+				double sumSquaredDeviations = 0;
+				for (double value : values) sumSquaredDeviations += (value - mean) * (value - mean);
+				double standardDeviation = Math.sqrt(sumSquaredDeviations / (n - 1));
+				double t = new TDistribution(n - 1).inverseCumulativeProbability(1 - (1 - confidenceLevel) / 2);
+				halfWidth = t * standardDeviation / Math.sqrt(n);
+			}
+
+			summary.put(entry.getKey(), new double[] { mean, halfWidth, min, max });
+		}
+
+		return summary;
+	}
+
+	private static String getSummaryReport(Map<String, double[]> summary, int numReplications, double confidenceLevel)
+	{
+		StringBuilder info = new StringBuilder();
+		info.append("<html><head><title>Simulation report</title></head>");
+		info.append("<body>");
+		info.append("<h1>Replication summary</h1>");
+		info.append(String.format("<p>Number of replications: %d. Confidence level: %.1f%%</p>", numReplications, 100 * confidenceLevel));
+
+		if (summary.isEmpty())
+		{
+			info.append("<p>No results available (statistics disabled, or no event was processed)</p>");
+		}
+		else
+		{
+			info.append("<center><table border='1'><tr><th>Metric</th><th>Mean</th><th>Confidence interval</th><th>Min</th><th>Max</th></tr>");
+			for (Map.Entry<String, double[]> entry : summary.entrySet())
+			{
+				double[] values = entry.getValue();
+				String interval = Double.isNaN(values[1]) ? "-" : String.format("%.6g &plusmn; %.3g", values[0], values[1]);
+				info.append(String.format("<tr><td>%s</td><td>%.6g</td><td>%s</td><td>%.6g</td><td>%.6g</td></tr>", entry.getKey(), values[0], interval, values[2], values[3]));
+			}
+			info.append("</table></center>");
+		}
+
+		info.append("</body></html>");
+		return info.toString();
+	}
+
+	private static Pair<String, Map<String, Double>> runReplication(int replication, NetPlan netPlan, IExternal eventGenerator, Properties customEventGeneratorParameters, IExternal eventProcessor, Properties customEventProcessorParameters, Properties customSimulatorParameters, Map<String, String> net2planParameters)
+	{
+		SimKernel simKernel = new SimKernel();
+		final Throwable[] lastReason = new Throwable[1];
+
+		/* The listener replaces the console output of the kernel, which would mix the output of all the replications */
+		simKernel.setGUIListener(new IGUISimulationListener()
+		{
+			@Override
+			public void refresh(boolean forceRefresh) { }
+
+			@Override
+			public void simulationStateChanged(SimCore.SimState simulationState, Throwable reason)
+			{
+				if (reason != null) lastReason[0] = reason;
+			}
+		});
+		simKernel.setNetPlan(netPlan);
+
+		Map<String, String> eventGeneratorParameters = getParameters(eventGenerator, customEventGeneratorParameters, replication);
+		Map<String, String> eventProcessorParameters = getParameters(eventProcessor, customEventProcessorParameters, replication);
+		Map<String, String> simulationParameters = CommandLineParser.getParameters(simKernel.getSimulationParameters(), customSimulatorParameters);
+
+		simKernel.configureSimulation(simulationParameters, net2planParameters, eventGenerator, eventGeneratorParameters, eventProcessor, eventProcessorParameters);
+		simKernel.initialize();
+		simKernel.getSimCore().setSimulationState(SimCore.SimState.RUNNING);
+		simKernel.getSimCore().run();
+		if (lastReason[0] != null && !(lastReason[0] instanceof EndSimulationException)) throw new RuntimeException(lastReason[0]);
+
+		SimStats stats = simKernel.getSimStats();
+		Map<String, Double> metrics = stats == null ? new LinkedHashMap<String, Double>() : stats.getSummaryMetrics(simKernel.getSimCore().getFutureEventList().getCurrentSimulationTime());
+		return Pair.of(simKernel.getSimulationReport(), metrics);
+	}
+
+	private static Map<String, String> getParameters(IExternal module, Properties customParameters, int replication)
+	{
+		List<Triple<String, String, String>> defaultParameters = null;
+		try { defaultParameters = module.getParameters(); }
+		catch(UnsupportedOperationException ex) { }
+
+		Map<String, String> parameters = CommandLineParser.getParameters(defaultParameters, customParameters);
+		if (parameters.containsKey(RANDOM_SEED_PARAMETER))
+		{
+			long randomSeed = Long.parseLong(parameters.get(RANDOM_SEED_PARAMETER));
+			if (randomSeed != -1) parameters.put(RANDOM_SEED_PARAMETER, Long.toString(randomSeed + replication));
+		}
+
+		return parameters;
+	}
+}
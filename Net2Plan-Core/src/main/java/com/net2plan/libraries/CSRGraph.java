@@ -0,0 +1,337 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.libraries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetworkLayer;
+import com.net2plan.interfaces.networkDesign.Node;
+
+/**
+ * <p>Immutable snapshot of a directed graph of nodes and links, stored in compressed sparse row (CSR) form: the
+ * output links of each node are stored contiguously, so the path algorithms iterate primitive arrays instead of
+ * graph objects. Link costs are given as {@code double} arrays, indexed by the position of the link in the graph,
+ * which is the link index when the links belong to the same layer.</p>
+ *
+ * <p>The graph with all the nodes and links of a layer is built once and cached in the layer
+ * (see {@link NetworkLayer#getCSRGraph()}), until a node or a link of the layer is added or removed. Since the
+ * graph is immutable, it can be shared by concurrent path computations.</p>
+ *
+ * @since 0.6.0
+ */
+public final class CSRGraph
+{
+	private final Node [] nodes;
+	private final Link [] links;
+	private final boolean isIndexedByLinkIndex;
+	private final Map<Link,Integer> linkPositions;
+	private final int [] originNodes;
+	private final int [] destinationNodes;
+	private final int [] outLinkOffsets;
+	private final int [] outLinks;
+
+	/**
+	 * Builds the graph from the given nodes and links. The end nodes of the links must be in the collection of nodes.
+	 *
+	 * @param nodes Collection of nodes
+	 * @param links Collection of links
+	 */
+	public CSRGraph (Collection<Node> nodes , Collection<Link> links)
+	{
+		int maxNodeIndex = -1;
+		for (Node node : nodes) maxNodeIndex = Math.max(maxNodeIndex, node.getIndex());
+		this.nodes = new Node [maxNodeIndex + 1];
+		for (Node node : nodes) this.nodes [node.getIndex()] = node;
+
+		/* links are placed in the position of their index, unless they are from different layers */
+		final Set<NetworkLayer> layers = new HashSet<> ();
+		int maxLinkIndex = -1;
+		for (Link e : links) { layers.add(e.getLayer()); maxLinkIndex = Math.max(maxLinkIndex, e.getIndex()); }
+		this.isIndexedByLinkIndex = layers.size() <= 1;
+		this.links = new Link [isIndexedByLinkIndex? maxLinkIndex + 1 : links.size()];
+		this.linkPositions = isIndexedByLinkIndex? null : new HashMap<> ();
+		for (Link e : links)
+		{
+			if (!containsNode(e.getOriginNode()) || !containsNode(e.getDestinationNode())) throw new RuntimeException("Bad");
+			if (isIndexedByLinkIndex) this.links [e.getIndex()] = e;
+			else { linkPositions.put(e, linkPositions.size()); this.links [linkPositions.get(e)] = e; }
+		}
+
+		final int N = this.nodes.length;
+		final int E = this.links.length;
+		this.originNodes = new int [E];
+		this.destinationNodes = new int [E];
+		this.outLinkOffsets = new int [N + 1];
+		for (int e = 0; e < E ; e ++)
+		{
+			if (this.links [e] == null) { originNodes [e] = -1; destinationNodes [e] = -1; continue; }
+			originNodes [e] = this.links [e].getOriginNode().getIndex();
+			destinationNodes [e] = this.links [e].getDestinationNode().getIndex();
+			outLinkOffsets [originNodes [e] + 1] ++;
+		}
+		for (int n = 0; n < N ; n ++) outLinkOffsets [n + 1] += outLinkOffsets [n];
+		this.outLinks = new int [outLinkOffsets [N]];
+		final int [] nextPosition = Arrays.copyOf(outLinkOffsets, N);
+		for (int e = 0; e < E ; e ++)
+			if (this.links [e] != null) outLinks [nextPosition [originNodes [e]] ++] = e;
+	}
+
+	/**
+	 * Returns the graph of the given nodes and links: the one cached in the layer if they are all the nodes of the
+	 * network and all the links of a layer, or a new one otherwise.
+	 */
+	static CSRGraph getGraph (Collection<Node> nodes , Collection<Link> links)
+	{
+		if (links.isEmpty()) return new CSRGraph(nodes, links);
+		final Link firstLink = links.iterator().next();
+		final NetPlan netPlan = firstLink.getNetPlan();
+		final NetworkLayer layer = firstLink.getLayer();
+		if ((nodes.size() != netPlan.getNumberOfNodes()) || (links.size() != netPlan.getNumberOfLinks(layer))) return new CSRGraph(nodes, links);
+
+		final boolean [] isNodeIncluded = new boolean [nodes.size()];
+		for (Node node : nodes)
+		{
+			if ((node.getNetPlan() != netPlan) || isNodeIncluded [node.getIndex()]) return new CSRGraph(nodes, links);
+			isNodeIncluded [node.getIndex()] = true;
+		}
+		final boolean [] isLinkIncluded = new boolean [links.size()];
+		for (Link e : links)
+		{
+			if ((e.getLayer() != layer) || isLinkIncluded [e.getIndex()]) return new CSRGraph(nodes, links);
+			isLinkIncluded [e.getIndex()] = true;
+		}
+		return layer.getCSRGraph();
+	}
+
+	/**
+	 * Returns the number of link positions, that is, the size of the link cost arrays.
+	 *
+	 * @return Number of link positions
+	 */
+	public int getNumberOfLinkPositions ()
+	{
+		return links.length;
+	}
+
+	/**
+	 * Returns the link costs as an array indexed by the position of the links in the graph.
+	 *
+	 * @param linkCostMap Cost per link (if {@code null}, all links have cost one). Links with cost {@code Double.MAX_VALUE} are not considered in the paths
+	 * @return Link costs
+	 */
+	public double [] getLinkCosts (Map<Link,Double> linkCostMap)
+	{
+		final double [] linkCosts = new double [links.length];
+		for (int e = 0; e < links.length ; e ++)
+			if (links [e] != null) linkCosts [e] = (linkCostMap == null)? 1.0 : linkCostMap.get(links [e]);
+		return linkCosts;
+	}
+
+	/**
+	 * Returns the shortest path between two nodes. Links with cost {@code Double.MAX_VALUE} are not considered.
+	 *
+	 * @param originNode Origin node
+	 * @param destinationNode Destination node
+	 * @param linkCosts Cost per link position (see {@link #getLinkCosts(Map) getLinkCosts})
+	 * @return Sequence of links in the shortest path (empty, if destination not reachable from origin)
+	 */
+	public List<Link> getShortestPath (Node originNode , Node destinationNode , double [] linkCosts)
+	{
+		if (!containsNode(originNode) || !containsNode(destinationNode)) return new ArrayList<> ();
+		final List<Link> path = computeShortestPath(originNode.getIndex(), destinationNode.getIndex(), linkCosts, null, null);
+		return (path == null)? new ArrayList<> () : path;
+	}
+
+	/**
+	 * Returns the K-loopless shortest paths between two nodes (Yen's algorithm), satisfying some user-defined
+	 * constraints. If only <i>n</i> shortest path are found (n&lt;K), those are returned. Links with cost
+	 * {@code Double.MAX_VALUE} are not considered.
+	 *
+	 * @param originNode Origin node
+	 * @param destinationNode Destination node
+	 * @param linkCosts Cost per link position (see {@link #getLinkCosts(Map) getLinkCosts})
+	 * @param K Desired nummber of paths
+	 * @param maxLengthInKm Maximum length of the path. If non-positive, no maximum limit is assumed
+	 * @param maxNumHops Maximum number of hops. If non-positive, no maximum limit is assumed
+	 * @param maxPropDelayInMs Maximum propagation delay of the path. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCost Maximum route cost. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCostFactorRespectToShortestPath Maximum route cost factor respect to the shortest path. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCostRespectToShortestPath Maximum route cost respect to the shortest path. If non-positive, no maximum limit is assumed
+	 * @return K-shortest paths, in increasing order of cost
+	 */
+	public List<List<Link>> getKLooplessShortestPaths (Node originNode , Node destinationNode , double [] linkCosts , int K , double maxLengthInKm , int maxNumHops , double maxPropDelayInMs , double maxRouteCost , double maxRouteCostFactorRespectToShortestPath , double maxRouteCostRespectToShortestPath)
+	{
+		if (maxLengthInKm <= 0) maxLengthInKm = Double.MAX_VALUE;
+		if (maxNumHops <= 0) maxNumHops = Integer.MAX_VALUE;
+		if (maxPropDelayInMs <= 0) maxPropDelayInMs = Double.MAX_VALUE;
+		if (maxRouteCost <= 0) maxRouteCost = Double.MAX_VALUE;
+		if (maxRouteCostFactorRespectToShortestPath <= 0) maxRouteCostFactorRespectToShortestPath = Double.MAX_VALUE;
+		if (maxRouteCostRespectToShortestPath <= 0) maxRouteCostRespectToShortestPath = Double.MAX_VALUE;
+
+		final List<List<Link>> paths = new ArrayList<> ();
+		if (!containsNode(originNode) || !containsNode(destinationNode) || (originNode == destinationNode)) return paths;
+		final int origin = originNode.getIndex();
+		final int destination = destinationNode.getIndex();
+		final List<Link> shortestPath = computeShortestPath(origin, destination, linkCosts, null, null);
+		if (shortestPath == null) return paths;
+		if (!isWithinLimits(shortestPath, maxLengthInKm, maxNumHops, maxPropDelayInMs)) return paths;
+		final double shortestPathCost = getPathCost(shortestPath, linkCosts);
+		paths.add(shortestPath);
+
+		final PriorityQueue<CandidatePath> candidates = new PriorityQueue<> ();
+		final Set<List<Link>> candidatesFound = new HashSet<> ();
+		final boolean [] isNodeBlocked = new boolean [nodes.length];
+		final boolean [] isLinkBlocked = new boolean [links.length];
+		while (paths.size() < K)
+		{
+			final List<Link> lastPath = paths.get(paths.size() - 1);
+			for (int deviationId = 0; deviationId < lastPath.size() ; deviationId ++)
+			{
+				final List<Link> head = lastPath.subList(0, deviationId);
+				final int deviationNode = head.isEmpty()? origin : head.get(deviationId - 1).getDestinationNode().getIndex();
+
+				/* the nodes in the head are blocked, as well as the links leaving the deviation node in the paths found with the same head */
+				Arrays.fill(isNodeBlocked, false);
+				Arrays.fill(isLinkBlocked, false);
+				for (Link e : head) isNodeBlocked [e.getOriginNode().getIndex()] = true;
+				for (List<Link> path : paths)
+					if ((path.size() > head.size()) && path.subList(0, head.size()).equals(head))
+						isLinkBlocked [getLinkPosition(path.get(head.size()))] = true;
+
+				final List<Link> tail = computeShortestPath(deviationNode, destination, linkCosts, isNodeBlocked, isLinkBlocked);
+				if (tail == null) continue;
+				final List<Link> candidatePath = new ArrayList<> (deviationId + tail.size());
+				candidatePath.addAll(head);
+				candidatePath.addAll(tail);
+				if (candidatesFound.contains(candidatePath)) continue;
+
+				final double candidateCost = getPathCost(candidatePath, linkCosts);
+				if (!isWithinLimits(candidatePath, maxLengthInKm, maxNumHops, maxPropDelayInMs)) continue;
+				if ((maxRouteCost != Double.MAX_VALUE) && (candidateCost > maxRouteCost)) continue;
+				if ((maxRouteCostFactorRespectToShortestPath != Double.MAX_VALUE) && (candidateCost > shortestPathCost * maxRouteCostFactorRespectToShortestPath)) continue;
+				if ((maxRouteCostRespectToShortestPath != Double.MAX_VALUE) && (candidateCost > shortestPathCost + maxRouteCostRespectToShortestPath)) continue;
+				candidatesFound.add(candidatePath);
+				candidates.add(new CandidatePath(candidatePath, candidateCost));
+			}
+
+			if (candidates.isEmpty()) break;
+			paths.add(candidates.poll().path);
+		}
+		return paths;
+	}
+
+	/* Dijkstra from the origin node, returning the path to the destination node, or null if not reachable */
+	private List<Link> computeShortestPath (int origin , int destination , double [] linkCosts , boolean [] isNodeBlocked , boolean [] isLinkBlocked)
+	{
+		final int N = nodes.length;
+		final double [] distance = new double [N];
+		final int [] predecessorLink = new int [N];
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+		Arrays.fill(predecessorLink, -1);
+		distance [origin] = 0;
+
+		final int [] heap = new int [N];
+		final int [] positionInHeap = new int [N];
+		Arrays.fill(positionInHeap, -1);
+		int heapSize = 0;
+		heap [heapSize] = origin; positionInHeap [origin] = heapSize ++;
+		while (heapSize > 0)
+		{
+			final int n = heap [0];
+			if (n == destination) break;
+			positionInHeap [n] = -1;
+			heapSize --;
+			if (heapSize > 0) { heap [0] = heap [heapSize]; positionInHeap [heap [0]] = 0; IPUtils.siftDown(heap, positionInHeap, heapSize, distance, 0); }
+			for (int pos = outLinkOffsets [n]; pos < outLinkOffsets [n + 1] ; pos ++)
+			{
+				final int e = outLinks [pos];
+				final int m = destinationNodes [e];
+				if ((linkCosts [e] == Double.MAX_VALUE) || ((isLinkBlocked != null) && isLinkBlocked [e]) || ((isNodeBlocked != null) && isNodeBlocked [m])) continue;
+				final double newDistance = distance [n] + linkCosts [e];
+				if (newDistance >= distance [m]) continue;
+				distance [m] = newDistance;
+				predecessorLink [m] = e;
+				if (positionInHeap [m] == -1) { heap [heapSize] = m; positionInHeap [m] = heapSize ++; }
+				IPUtils.siftUp(heap, positionInHeap, distance, positionInHeap [m]);
+			}
+		}
+		if (distance [destination] == Double.POSITIVE_INFINITY) return null;
+
+		final List<Link> path = new ArrayList<> ();
+		for (int n = destination; n != origin ; n = originNodes [predecessorLink [n]]) path.add(links [predecessorLink [n]]);
+		Collections.reverse(path);
+		return path;
+	}
+
+	private boolean containsNode (Node node)
+	{
+		return (node.getIndex() < nodes.length) && (nodes [node.getIndex()] == node);
+	}
+
+	/* Position of the link in the link cost arrays */
+	int getLinkPosition (Link e)
+	{
+		return isIndexedByLinkIndex? e.getIndex() : linkPositions.get(e);
+	}
+
+	private double getPathCost (List<Link> path , double [] linkCosts)
+	{
+		double cost = 0;
+		for (Link e : path) cost += linkCosts [getLinkPosition(e)];
+		return cost;
+	}
+
+	private static boolean isWithinLimits (List<Link> path , double maxLengthInKm , int maxNumHops , double maxPropDelayInMs)
+	{
+		if ((maxNumHops != Integer.MAX_VALUE) && (path.size() > maxNumHops)) return false;
+		if ((maxLengthInKm == Double.MAX_VALUE) && (maxPropDelayInMs == Double.MAX_VALUE)) return true;
+		double pathLengthInKm = 0;
+		double pathPropDelayInMs = 0;
+		for (Link e : path)
+		{
+			pathLengthInKm += e.getLengthInKm();
+			pathPropDelayInMs += e.getPropagationDelayInMs();
+		}
+		return (pathLengthInKm <= maxLengthInKm) && (pathPropDelayInMs <= maxPropDelayInMs);
+	}
+
+	/* Candidate path of Yen's algorithm, ordered by cost, and then giving priority to the longest ones (as in GraphUtils.GraphPath) */
+	private static final class CandidatePath implements Comparable<CandidatePath>
+	{
+		private final List<Link> path;
+		private final double cost;
+
+		private CandidatePath (List<Link> path , double cost)
+		{
+			this.path = path;
+			this.cost = cost;
+		}
+
+		@Override
+		public int compareTo (CandidatePath o)
+		{
+			if (cost != o.cost) return (cost < o.cost)? -1 : 1;
+			return (path.size() == o.path.size())? 0 : (path.size() > o.path.size()? -1 : 1);
+		}
+	}
+}
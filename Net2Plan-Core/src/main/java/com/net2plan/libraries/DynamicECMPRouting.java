@@ -0,0 +1,409 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.libraries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.stream.IntStream;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetworkLayer;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+
+/**
+ * <p>Carried traffic per link of an OSPF/ECMP routing, kept up to date as the link weights change, without modifying
+ * the network design. It is intended for link weight optimization heuristics, which evaluate many neighbor
+ * solutions differing in the weight of one link.</p>
+ *
+ * <p>For each egress node of the demands, the distance from every node to it, and the traffic towards it carried
+ * by each link, are stored. When the weight of a link changes, only the egress nodes whose shortest path DAG
+ * changes are updated: a weight decrease propagates the distance reductions from the origin node of the link, and
+ * a weight increase of a link in the DAG only recomputes the distances of the nodes all whose shortest paths
+ * traverse the link (Ramalingam-Reps approach). Then, the traffic towards the updated egress nodes is spread
+ * again along their new DAGs.</p>
+ *
+ * <p>The resulting carried traffic per link is the same as the one returned by
+ * {@link IPUtils#computeCarriedTrafficFromIGPWeights(NetPlan, DoubleMatrix1D, NetworkLayer...) computeCarriedTrafficFromIGPWeights}.
+ * Links with a weight of Double.MAX_VALUE are not considered. Changes in the network design made after creating
+ * the object (e.g. in the offered traffic) are not reflected.</p>
+ *
+ * @since 0.6.0
+ */
+public class DynamicECMPRouting
+{
+	private final static double PRECISION_FACTOR = 1E-10;
+
+	private final int N, E;
+	private final Map<Link,Integer> linkIndexes;
+	private final int [] originNodes;
+	private final int [] destinationNodes;
+	private final List<List<Integer>> inLinksPerNode;
+	private final List<List<Integer>> outLinksPerNode;
+	private final int [] egressNodes;
+	private final double [][] offeredTrafficPerIngressNode;
+	private final double [] weights;
+	private final double [][] distances;
+	private final double [][] trafficPerLink;
+	private final double [] carriedTrafficPerLink;
+	private LinkWeightChange lastEvaluation;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param netPlan Network design
+	 * @param linkWeightVector Cost per link (null means the current link weights). Link weights must be positive
+	 * @param optionalLayer Network layer (optional)
+	 */
+	public DynamicECMPRouting (NetPlan netPlan , DoubleMatrix1D linkWeightVector , NetworkLayer ... optionalLayer)
+	{
+		final NetworkLayer layer = netPlan.checkInThisNetPlanOptionalLayerParameter (optionalLayer);
+		if (linkWeightVector == null) linkWeightVector = IPUtils.getLinkWeightVector (netPlan, layer);
+
+		final List<Link> links = netPlan.getLinks(layer);
+		if (linkWeightVector.size() != links.size()) throw new Net2PlanException ("Wrong array size");
+		this.N = netPlan.getNumberOfNodes();
+		this.E = links.size();
+		this.weights = linkWeightVector.toArray();
+		for (double weight : weights) checkWeight(weight);
+
+		this.linkIndexes = new HashMap<> ();
+		this.originNodes = new int [E];
+		this.destinationNodes = new int [E];
+		this.inLinksPerNode = new ArrayList<> (N);
+		this.outLinksPerNode = new ArrayList<> (N);
+		for (int n = 0; n < N ; n ++) { inLinksPerNode.add(new ArrayList<> ()); outLinksPerNode.add(new ArrayList<> ()); }
+		for (int e = 0; e < E ; e ++)
+		{
+			final Link link = links.get(e);
+			linkIndexes.put(link, e);
+			originNodes [e] = link.getOriginNode().getIndex();
+			destinationNodes [e] = link.getDestinationNode().getIndex();
+			outLinksPerNode.get(originNodes [e]).add(e);
+			inLinksPerNode.get(destinationNodes [e]).add(e);
+		}
+
+		/* the demands towards the same egress node share the shortest path DAG */
+		final Map<Integer,Integer> destinationIndexes = new HashMap<> ();
+		for (Demand demand : netPlan.getDemands(layer))
+			if (!destinationIndexes.containsKey(demand.getEgressNode().getIndex()))
+				destinationIndexes.put(demand.getEgressNode().getIndex(), destinationIndexes.size());
+		final int T = destinationIndexes.size();
+		this.egressNodes = new int [T];
+		for (Entry<Integer,Integer> entry : destinationIndexes.entrySet()) egressNodes [entry.getValue()] = entry.getKey();
+		this.offeredTrafficPerIngressNode = new double [T][N];
+		for (Demand demand : netPlan.getDemands(layer))
+			offeredTrafficPerIngressNode [destinationIndexes.get(demand.getEgressNode().getIndex())][demand.getIngressNode().getIndex()] += demand.getOfferedTraffic();
+
+		this.distances = new double [T][];
+		this.trafficPerLink = new double [T][];
+		this.carriedTrafficPerLink = new double [E];
+		recomputeAll();
+	}
+
+	/**
+	 * Returns the carried traffic per link with the current link weights.
+	 *
+	 * @return Carried traffic per link
+	 */
+	public DoubleMatrix1D getCarriedTrafficPerLink ()
+	{
+		return DoubleFactory1D.dense.make(carriedTrafficPerLink.clone());
+	}
+
+	/**
+	 * Returns the current link weights.
+	 *
+	 * @return Cost per link
+	 */
+	public DoubleMatrix1D getLinkWeightVector ()
+	{
+		return DoubleFactory1D.dense.make(weights.clone());
+	}
+
+	/**
+	 * Returns the carried traffic per link that would result from changing the weight of the given link, without
+	 * changing the current link weights. If the change is then applied with {@link #setLinkWeight(Link, double) setLinkWeight},
+	 * the last evaluation is reused.
+	 *
+	 * @param link Link
+	 * @param newWeight New link weight (positive)
+	 * @return Carried traffic per link
+	 */
+	public DoubleMatrix1D evaluateLinkWeightChange (Link link , double newWeight)
+	{
+		this.lastEvaluation = computeLinkWeightChange(getLinkIndex(link), newWeight);
+		return DoubleFactory1D.dense.make(lastEvaluation.carriedTrafficPerLink.clone());
+	}
+
+	/**
+	 * Changes the weight of a link, updating the routing of the egress nodes affected.
+	 *
+	 * @param link Link
+	 * @param newWeight New link weight (positive)
+	 */
+	public void setLinkWeight (Link link , double newWeight)
+	{
+		setLinkWeight(getLinkIndex(link), newWeight);
+	}
+
+	/**
+	 * Changes the weights of the links. If only a few link weights change, they are updated one by one, otherwise, the
+	 * routing is recomputed from scratch.
+	 *
+	 * @param linkWeightVector Cost per link (positive)
+	 */
+	public void setLinkWeights (DoubleMatrix1D linkWeightVector)
+	{
+		if (linkWeightVector.size() != E) throw new Net2PlanException ("Wrong array size");
+		final List<Integer> changedLinks = new ArrayList<> ();
+		for (int e = 0; e < E ; e ++)
+		{
+			checkWeight(linkWeightVector.get(e));
+			if (linkWeightVector.get(e) != weights [e]) changedLinks.add(e);
+		}
+		if (changedLinks.size() > E / 4)
+		{
+			for (int e : changedLinks) weights [e] = linkWeightVector.get(e);
+			recomputeAll();
+			this.lastEvaluation = null;
+		}
+		else
+		{
+			for (int e : changedLinks) setLinkWeight(e, linkWeightVector.get(e));
+		}
+	}
+
+	private void setLinkWeight (int e , double newWeight)
+	{
+		final LinkWeightChange change = (lastEvaluation != null) && (lastEvaluation.link == e) && (lastEvaluation.newWeight == newWeight)? lastEvaluation : computeLinkWeightChange(e, newWeight);
+		weights [e] = newWeight;
+		for (Entry<Integer,double []> entry : change.newDistancesPerDestination.entrySet())
+			distances [entry.getKey()] = entry.getValue();
+		for (Entry<Integer,double []> entry : change.newTrafficPerLinkPerDestination.entrySet())
+			trafficPerLink [entry.getKey()] = entry.getValue();
+		System.arraycopy(change.carriedTrafficPerLink, 0, carriedTrafficPerLink, 0, E);
+		this.lastEvaluation = null;
+	}
+
+	private LinkWeightChange computeLinkWeightChange (int e , double newWeight)
+	{
+		checkWeight(newWeight);
+		final LinkWeightChange change = new LinkWeightChange(e, newWeight);
+		final boolean [] isLinkTrafficChanged = new boolean [E];
+		if (newWeight != weights [e])
+		{
+			for (int t = 0; t < egressNodes.length ; t ++)
+			{
+				final double [] newDistances = computeDistancesAfterLinkWeightChange(t, e, newWeight);
+				if (newDistances == null) continue;
+				final double [] newTraffic = computeTrafficPerLink(t, newDistances, e, newWeight);
+				for (int f = 0; f < E ; f ++) if (newTraffic [f] != trafficPerLink [t][f]) isLinkTrafficChanged [f] = true;
+				change.newDistancesPerDestination.put(t, newDistances);
+				change.newTrafficPerLinkPerDestination.put(t, newTraffic);
+			}
+		}
+
+		/* the carried traffic of the links changed is summed again, so a link not carrying traffic gets exactly zero */
+		change.carriedTrafficPerLink = carriedTrafficPerLink.clone();
+		for (int f = 0; f < E ; f ++)
+		{
+			if (!isLinkTrafficChanged [f]) continue;
+			double carriedTraffic = 0;
+			for (int t = 0; t < egressNodes.length ; t ++)
+			{
+				final double [] traffic = change.newTrafficPerLinkPerDestination.get(t);
+				carriedTraffic += (traffic == null)? trafficPerLink [t][f] : traffic [f];
+			}
+			change.carriedTrafficPerLink [f] = carriedTraffic;
+		}
+		return change;
+	}
+
+	/* New distances to the egress node t when the weight of link e changes, the current ones if only the shortest path DAG changes, or null if the routing towards t does not change */
+	private double [] computeDistancesAfterLinkWeightChange (int t , int e , double newWeight)
+	{
+		final double [] distance = distances [t];
+		final int u = originNodes [e];
+		final int v = destinationNodes [e];
+		if (distance [v] == Double.POSITIVE_INFINITY) return null;
+		if (newWeight < weights [e])
+		{
+			if (newWeight + distance [v] > distance [u] + PRECISION_FACTOR) return null;
+			if (newWeight + distance [v] > distance [u] - PRECISION_FACTOR) return distance;
+			final double [] newDistance = distance.clone();
+			newDistance [u] = newWeight + distance [v];
+			runDijkstra(newDistance, Arrays.asList(u), null, e, newWeight);
+			return newDistance;
+		}
+
+		if (!isShortestPathLink(e, distance, -1, 0)) return null;
+		for (int f : outLinksPerNode.get(u))
+			if ((f != e) && isShortestPathLink(f, distance, -1, 0)) return distance;
+
+		/* the nodes all whose shortest paths traverse the link: those all whose DAG output links lead to such nodes */
+		final boolean [] isAffected = new boolean [N];
+		final int [] numNonAffectedShortestPathLinks = new int [N];
+		Arrays.fill(numNonAffectedShortestPathLinks, -1);
+		final List<Integer> affectedNodes = new ArrayList<> ();
+		isAffected [u] = true;
+		affectedNodes.add(u);
+		for (int cont = 0; cont < affectedNodes.size() ; cont ++)
+		{
+			for (int f : inLinksPerNode.get(affectedNodes.get(cont)))
+			{
+				final int m = originNodes [f];
+				if (isAffected [m] || !isShortestPathLink(f, distance, -1, 0)) continue;
+				if (numNonAffectedShortestPathLinks [m] == -1)
+				{
+					numNonAffectedShortestPathLinks [m] = 0;
+					for (int g : outLinksPerNode.get(m)) if (isShortestPathLink(g, distance, -1, 0)) numNonAffectedShortestPathLinks [m] ++;
+				}
+				if (-- numNonAffectedShortestPathLinks [m] == 0) { isAffected [m] = true; affectedNodes.add(m); }
+			}
+		}
+
+		/* the distance of the affected nodes through the non-affected ones, improved running Dijkstra among the affected nodes */
+		final double [] newDistance = distance.clone();
+		for (int n : affectedNodes)
+		{
+			newDistance [n] = Double.POSITIVE_INFINITY;
+			for (int f : outLinksPerNode.get(n))
+			{
+				final double weight = getWeight(f, e, newWeight);
+				if (isAffected [destinationNodes [f]] || (weight == Double.MAX_VALUE)) continue;
+				newDistance [n] = Math.min(newDistance [n], weight + distance [destinationNodes [f]]);
+			}
+		}
+		runDijkstra(newDistance, affectedNodes, isAffected, e, newWeight);
+		return newDistance;
+	}
+
+	/* Dijkstra in the reverse graph starting from the given nodes, only updating the distances of the updatable nodes (all if null) */
+	private void runDijkstra (double [] distance , List<Integer> initialNodes , boolean [] isUpdatable , int changedLink , double newWeight)
+	{
+		final int [] heap = new int [N];
+		final int [] positionInHeap = new int [N];
+		Arrays.fill(positionInHeap, -1);
+		int heapSize = 0;
+		for (int n : initialNodes)
+		{
+			if (distance [n] == Double.POSITIVE_INFINITY) continue;
+			heap [heapSize] = n; positionInHeap [n] = heapSize ++;
+			IPUtils.siftUp(heap, positionInHeap, distance, positionInHeap [n]);
+		}
+		while (heapSize > 0)
+		{
+			final int n = heap [0];
+			positionInHeap [n] = -1;
+			heapSize --;
+			if (heapSize > 0) { heap [0] = heap [heapSize]; positionInHeap [heap [0]] = 0; IPUtils.siftDown(heap, positionInHeap, heapSize, distance, 0); }
+			for (int f : inLinksPerNode.get(n))
+			{
+				final int m = originNodes [f];
+				final double weight = getWeight(f, changedLink, newWeight);
+				if ((weight == Double.MAX_VALUE) || ((isUpdatable != null) && !isUpdatable [m])) continue;
+				final double newDistance = distance [n] + weight;
+				if (newDistance >= distance [m]) continue;
+				distance [m] = newDistance;
+				if (positionInHeap [m] == -1) { heap [heapSize] = m; positionInHeap [m] = heapSize ++; }
+				IPUtils.siftUp(heap, positionInHeap, distance, positionInHeap [m]);
+			}
+		}
+	}
+
+	/* Traffic towards the egress node t in each link, spreading it along the shortest path DAG, from the nodes farthest to the egress node */
+	private double [] computeTrafficPerLink (int t , double [] distance , int changedLink , double newWeight)
+	{
+		final double [] trafficPerNode = offeredTrafficPerIngressNode [t].clone();
+		final double [] traffic = new double [E];
+		final int [] nodesByDecreasingDistance = IntStream.range(0, N).filter(n -> (n != egressNodes [t]) && (distance [n] != Double.POSITIVE_INFINITY)).
+				boxed().sorted((n1 , n2) -> Double.compare(distance [n2], distance [n1])).mapToInt(n -> n).toArray();
+		for (int n : nodesByDecreasingDistance)
+		{
+			if (trafficPerNode [n] == 0) continue;
+			int numShortestPathLinks = 0;
+			for (int f : outLinksPerNode.get(n)) if (isShortestPathLink(f, distance, changedLink, newWeight)) numShortestPathLinks ++;
+			if (numShortestPathLinks == 0) continue;
+			final double trafficPerShortestPathLink = trafficPerNode [n] / numShortestPathLinks;
+			for (int f : outLinksPerNode.get(n))
+			{
+				if (!isShortestPathLink(f, distance, changedLink, newWeight)) continue;
+				traffic [f] = trafficPerShortestPathLink;
+				trafficPerNode [destinationNodes [f]] += trafficPerShortestPathLink;
+			}
+		}
+		return traffic;
+	}
+
+	private void recomputeAll ()
+	{
+		IntStream.range(0, egressNodes.length).parallel().forEach(t ->
+		{
+			distances [t] = IPUtils.computeReverseDijkstraDistances(egressNodes [t], inLinksPerNode, originNodes, weights);
+			trafficPerLink [t] = computeTrafficPerLink(t, distances [t], -1, 0);
+		});
+		for (int e = 0; e < E ; e ++)
+		{
+			carriedTrafficPerLink [e] = 0;
+			for (int t = 0; t < egressNodes.length ; t ++) carriedTrafficPerLink [e] += trafficPerLink [t][e];
+		}
+	}
+
+	private boolean isShortestPathLink (int e , double [] distance , int changedLink , double newWeight)
+	{
+		final double weight = getWeight(e, changedLink, newWeight);
+		if ((weight == Double.MAX_VALUE) || (distance [destinationNodes [e]] == Double.POSITIVE_INFINITY)) return false;
+		return Math.abs(distance [originNodes [e]] - (weight + distance [destinationNodes [e]])) < PRECISION_FACTOR;
+	}
+
+	private double getWeight (int e , int changedLink , double newWeight)
+	{
+		return (e == changedLink)? newWeight : weights [e];
+	}
+
+	private int getLinkIndex (Link link)
+	{
+		final Integer e = linkIndexes.get(link);
+		if (e == null) throw new Net2PlanException ("Link " + link + " is not in the routing");
+		return e;
+	}
+
+	private static void checkWeight (double weight)
+	{
+		if (!(weight > 0)) throw new Net2PlanException ("Link weights must be positive");
+	}
+
+	/* The routing towards the egress nodes affected by a link weight change, and the resulting carried traffic per link */
+	private static final class LinkWeightChange
+	{
+		private final int link;
+		private final double newWeight;
+		private final Map<Integer,double []> newDistancesPerDestination = new HashMap<> ();
+		private final Map<Integer,double []> newTrafficPerLinkPerDestination = new HashMap<> ();
+		private double [] carriedTrafficPerLink;
+
+		private LinkWeightChange (int link , double newWeight)
+		{
+			this.link = link;
+			this.newWeight = newWeight;
+		}
+	}
+}
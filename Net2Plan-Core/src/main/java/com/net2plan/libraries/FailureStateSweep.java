@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetworkLayer;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.interfaces.networkDesign.SharedRiskGroup;
+import com.net2plan.interfaces.simulation.IEventProcessor;
+import com.net2plan.interfaces.simulation.SimEvent;
+
+import cern.colt.list.tdouble.DoubleArrayList;
+import cern.colt.list.tint.IntArrayList;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+
+/**
+ * <p>Engine for evaluating a network design under a set of failure states (e.g. the single and double SRG failures enumerated by
+ * {@link SRGUtils#getMatrixFailureState2SRG(java.util.Collection, boolean, boolean) SRGUtils.getMatrixFailureState2SRG}), in parallel.</p>
+ *
+ * <p>Each worker thread owns a copy of the design and its own instance of the provisioning algorithm. For each failure state assigned to it,
+ * the worker makes the algorithm react to the nodes and links of the failing SRGs going down, passes the resulting design to an aggregator
+ * together with the state probability, and makes the algorithm react to the repair of all the nodes and links. Each worker accumulates the
+ * results of its own states, and the accumulators of the workers are merged at the end.</p>
+ *
+ * <p>Workers receive contiguous blocks of failure states and their accumulators are merged in worker order, so the result does not depend on
+ * the thread scheduling.</p>
+ *
+ * @since 0.6.0
+ */
+public final class FailureStateSweep
+{
+	/**
+	 * Factory of the provisioning algorithm: a new instance is requested for each worker thread.
+	 *
+	 * @since 0.6.0
+	 */
+	public interface IProvisioningAlgorithmFactory
+	{
+		/**
+		 * Returns a new (not initialized) instance of the provisioning algorithm.
+		 *
+		 * @return New instance of the provisioning algorithm
+		 * @since 0.6.0
+		 */
+		public IEventProcessor newInstance();
+	}
+
+	/**
+	 * Aggregates the network state of each failure state. Each worker thread calls the methods on its own accumulators, so implementations
+	 * do not need to be thread-safe as long as the accumulators do not share mutable state.
+	 *
+	 * @param <A> Accumulator type
+	 * @since 0.6.0
+	 */
+	public interface IFailureStateAggregator<A>
+	{
+		/**
+		 * Returns a new empty accumulator.
+		 *
+		 * @return New accumulator
+		 * @since 0.6.0
+		 */
+		public A newAccumulator();
+
+		/**
+		 * Accumulates the network state in a failure state, after the reaction of the provisioning algorithm. The design must not be modified,
+		 * and it is only valid during the call (copy the information needed).
+		 *
+		 * @param accumulator Accumulator of the worker
+		 * @param failureState Failure state index (row in the failure state matrix)
+		 * @param probability Probability of the failure state
+		 * @param netPlan Network design in the failure state
+		 * @since 0.6.0
+		 */
+		public void accumulate(A accumulator, int failureState, double probability, NetPlan netPlan);
+
+		/**
+		 * Merges the second accumulator into the first one. The second accumulator always contains later failure states than the first one.
+		 *
+		 * @param accumulator Accumulator to update
+		 * @param otherAccumulator Accumulator to merge (not used afterwards)
+		 * @since 0.6.0
+		 */
+		public void merge(A accumulator, A otherAccumulator);
+	}
+
+	private FailureStateSweep() { }
+
+	/**
+	 * Evaluates the failure states in the given range, in parallel.
+	 *
+	 * @param <A> Accumulator type
+	 * @param netPlan Network design with all the nodes and links up (not modified)
+	 * @param F_s Failure state matrix: one row per failure state, one column per SRG (1 if the SRG fails in the state, 0 otherwise)
+	 * @param pi_s Probability of each failure state (if null, all the states are considered equally likely)
+	 * @param firstFailureState First failure state evaluated (previous rows are skipped, e.g. to skip the no-failure state)
+	 * @param algorithmFactory Factory of the provisioning algorithm reacting to the failures
+	 * @param algorithmParameters Parameters of the provisioning algorithm
+	 * @param simulationParameters Parameters given to the provisioning algorithm as simulation parameters
+	 * @param net2planParameters Net2Plan parameters
+	 * @param aggregator Aggregator of the network state in each failure state
+	 * @param numThreads Number of worker threads. If non-positive, the number of available processors
+	 * @return The accumulator with the aggregated results of all the evaluated failure states
+	 * @since 0.6.0
+	 */
+	public static <A> A sweep(NetPlan netPlan, DoubleMatrix2D F_s, DoubleMatrix1D pi_s, int firstFailureState, IProvisioningAlgorithmFactory algorithmFactory, Map<String, String> algorithmParameters, Map<String, String> simulationParameters, Map<String, String> net2planParameters, IFailureStateAggregator<A> aggregator, int numThreads)
+	{
+		if (F_s.columns() != netPlan.getNumberOfSRGs()) throw new Net2PlanException("The failure state matrix must have one column per SRG");
+		if ((pi_s != null) && (pi_s.size() != F_s.rows())) throw new Net2PlanException("The probability vector must have one element per failure state");
+		if ((firstFailureState < 0) || (firstFailureState > F_s.rows())) throw new Net2PlanException("Wrong first failure state");
+		if (!netPlan.getLinksDownAllLayers().isEmpty() || !netPlan.getNodesDown().isEmpty()) throw new Net2PlanException("All the nodes and links must be up");
+
+		/* Failing SRGs of each state, computed here to keep the (sparse) failure state matrix out of the worker threads */
+		final int numStates = F_s.rows() - firstFailureState;
+		if (numStates == 0) return aggregator.newAccumulator();
+		final int[][] failingSRGs = new int[numStates][];
+		final double[] probabilities = new double[numStates];
+		for (int state = 0; state < numStates; state++)
+		{
+			final IntArrayList srgIndexes = new IntArrayList();
+			F_s.viewRow(firstFailureState + state).getNonZeros(srgIndexes, new DoubleArrayList());
+			srgIndexes.trimToSize();
+			failingSRGs[state] = srgIndexes.elements();
+			probabilities[state] = pi_s == null ? 1.0 / F_s.rows() : pi_s.get(firstFailureState + state);
+		}
+
+		if (numThreads <= 0) numThreads = Runtime.getRuntime().availableProcessors();
+		numThreads = Math.min(numThreads, numStates);
+		final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try
+		{
+			final List<Future<A>> futures = new ArrayList<Future<A>>(numThreads);
+			for (int worker = 0; worker < numThreads; worker++)
+			{
+				final int fromState = (int) ((long) numStates * worker / numThreads);
+				final int toState = (int) ((long) numStates * (worker + 1) / numThreads);
+				final NetPlan netPlan_thisWorker = netPlan.copy();
+				futures.add(executor.submit(new Callable<A>()
+				{
+					@Override
+					public A call()
+					{
+						final IEventProcessor algorithm = algorithmFactory.newInstance();
+						algorithm.initialize(netPlan_thisWorker, algorithmParameters, simulationParameters, net2planParameters);
+						final Set<Link> initialLinksDownAllLayers = netPlan_thisWorker.getLinksDownAllLayers();
+						final Set<Node> initialNodesDown = netPlan_thisWorker.getNodesDown();
+						final A accumulator = aggregator.newAccumulator();
+						for (int state = fromState; state < toState; state++)
+						{
+							if (!netPlan_thisWorker.getLinksDownAllLayers().equals(initialLinksDownAllLayers) || !netPlan_thisWorker.getNodesDown().equals(initialNodesDown)) throw new RuntimeException("Bad");
+							evaluateFailureState(netPlan_thisWorker, algorithm, failingSRGs[state], firstFailureState + state, probabilities[state], aggregator, accumulator);
+						}
+						return accumulator;
+					}
+				}));
+			}
+
+			A result = null;
+			for (Future<A> future : futures)
+			{
+				final A accumulator;
+				try
+				{
+					accumulator = future.get();
+				}
+				catch (ExecutionException e)
+				{
+					if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+					if (e.getCause() instanceof Error) throw (Error) e.getCause();
+					throw new RuntimeException(e.getCause());
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+
+				if (result == null) result = accumulator;
+				else aggregator.merge(result, accumulator);
+			}
+
+			return result;
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	private static <A> void evaluateFailureState(NetPlan netPlan, IEventProcessor algorithm, int[] failingSRGs, int failureState, double probability, IFailureStateAggregator<A> aggregator, A accumulator)
+	{
+		/* No failing SRG (e.g. the no-failure state): the algorithm does not need to react */
+		if (failingSRGs.length == 0)
+		{
+			aggregator.accumulate(accumulator, failureState, probability, netPlan);
+			return;
+		}
+
+		final Set<Link> linksToSetAsDown = new HashSet<Link>();
+		final Set<Node> nodesToSetAsDown = new HashSet<Node>();
+		for (int srgIndex : failingSRGs)
+		{
+			final SharedRiskGroup srg = netPlan.getSRG(srgIndex);
+			nodesToSetAsDown.addAll(srg.getNodes());
+			linksToSetAsDown.addAll(srg.getLinksAllLayers());
+		}
+
+		/* Make the algorithm process the event of nodes and links down */
+		final SimEvent.NodesAndLinksChangeFailureState failureInfo = new SimEvent.NodesAndLinksChangeFailureState(null, nodesToSetAsDown, null, linksToSetAsDown);
+		algorithm.processEvent(netPlan, new SimEvent(0, SimEvent.DestinationModule.EVENT_PROCESSOR, -1, failureInfo));
+
+		aggregator.accumulate(accumulator, failureState, probability, netPlan);
+
+		/* Go back to the no failure state */
+		final Set<Link> linksAllLayers = new HashSet<Link>();
+		for (NetworkLayer layer : netPlan.getNetworkLayers()) linksAllLayers.addAll(netPlan.getLinks(layer));
+		final SimEvent.NodesAndLinksChangeFailureState repairInfo = new SimEvent.NodesAndLinksChangeFailureState(netPlan.getNodes(), null, linksAllLayers, null);
+		algorithm.processEvent(netPlan, new SimEvent(0, SimEvent.DestinationModule.EVENT_PROCESSOR, -1, repairInfo));
+	}
+}
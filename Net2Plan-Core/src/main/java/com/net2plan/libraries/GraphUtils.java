@@ -37,7 +37,6 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -850,21 +849,8 @@ public class GraphUtils
 	 * @return All loopless shortest paths */
 	public static List<List<Link>> getAllLooplessShortestPaths(List<Node> nodes, List<Link> links, Node originNode, Node destinationNode, Map<Link, Double> linkCostMap)
 	{
-		final List<Link> filteredLinks = linkCostMap == null? links : links.stream().filter(e->linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		Graph<Node, Link> g = JUNGUtils.getGraphFromLinkMap(nodes, filteredLinks);
-		Transformer<Link, Double> nev = JUNGUtils.getEdgeWeightTransformer(linkCostMap);
-
-		YenAlgorithm<Node, Link> paths = new YenAlgorithm<Node, Link>(g, nev)
-		{
-			@Override
-			public boolean compareCandidateToShortestPath(GraphPath<Link> candidate, GraphPath<Link> shortestPath)
-			{
-				return Math.abs(candidate.getPathWeight() - shortestPath.getPathWeight()) < 1E-10;
-			}
-		};
-
-		List<List<Link>> pathList = paths.getPaths(originNode, destinationNode, Integer.MAX_VALUE);
-		return pathList;
+		final CSRGraph graph = CSRGraph.getGraph(nodes, links);
+		return graph.getKLooplessShortestPaths(originNode, destinationNode, graph.getLinkCosts(linkCostMap), Integer.MAX_VALUE, -1, -1, -1, -1, -1, 1E-10);
 	}
 
 	/** @param nodes List of nodes
@@ -883,14 +869,10 @@ public class GraphUtils
 			for (Link e : links)
 				linkSpareCapacityMap.put(e, Math.max(0, e.getCapacity() - e.getOccupiedCapacity()));
 		}
-		final Map<Link,Double> auxMapLinkCost = linkSpareCapacityMap;
-		final List<Link> validLinks = linkCostMap == null? links.stream().filter(e->auxMapLinkCost.get(e) >= capacityGoal).collect(Collectors.toList()) : 
-			links.stream().filter(e->auxMapLinkCost.get(e) >= capacityGoal && linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> graph = JUNGUtils.getGraphFromLinkMap(nodes, validLinks);
-		if (!graph.containsVertex(originNode)) return new LinkedList<Link>();
-		if (!graph.containsVertex(destinationNode)) return new LinkedList<Link>();
-		Transformer<Link, Double> nev = JUNGUtils.getEdgeWeightTransformer(linkCostMap);
-		return JUNGUtils.getShortestPath(graph, nev, originNode, destinationNode);
+		final CSRGraph graph = CSRGraph.getGraph(nodes, links);
+		final double [] linkCosts = graph.getLinkCosts(linkCostMap);
+		for (Link e : links) if (linkSpareCapacityMap.get(e) < capacityGoal) linkCosts [graph.getLinkPosition(e)] = Double.MAX_VALUE;
+		return graph.getShortestPath(originNode, destinationNode, linkCosts);
 	}
 
 	
@@ -910,49 +892,8 @@ public class GraphUtils
 	 * @return K-shortest paths */
 	public static List<List<Link>> getKLooplessShortestPaths(List<Node> nodes, List<Link> links, Node originNode, Node destinationNode, Map<Link, Double> linkCostMap, int K, double maxLengthInKm, int maxNumHops, double maxPropDelayInMs, double maxRouteCost, double maxRouteCostFactorRespectToShortestPath, double maxRouteCostRespectToShortestPath)
 	{
-		if (maxLengthInKm <= 0) maxLengthInKm = Double.MAX_VALUE;
-		if (maxNumHops <= 0) maxNumHops = Integer.MAX_VALUE;
-		if (maxPropDelayInMs <= 0) maxPropDelayInMs = Double.MAX_VALUE;
-		if (maxRouteCost <= 0) maxRouteCost = Double.MAX_VALUE;
-		if (maxRouteCostFactorRespectToShortestPath <= 0) maxRouteCostFactorRespectToShortestPath = Double.MAX_VALUE;
-		if (maxRouteCostRespectToShortestPath <= 0) maxRouteCostRespectToShortestPath = Double.MAX_VALUE;
-
-		final List<Link> filteredListLinks = linkCostMap == null? links : links.stream().filter(e->linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> g = JUNGUtils.getGraphFromLinkMap(nodes, filteredListLinks);
-		YenAlgorithm<Node, Link> paths = new YenAlgorithm<Node, Link>(g, 
-				(Transformer<Link, Double>) JUNGUtils.getEdgeWeightTransformer(linkCostMap), 
-				K, maxNumHops, maxLengthInKm, maxPropDelayInMs, maxRouteCost, 
-				maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath)
-		{
-			@Override
-			public boolean acceptPath(GraphPath<Link> candidate)
-			{
-				if (maxNumHops != Integer.MAX_VALUE && candidate.getPathLength() > maxNumHops) return false;
-
-				if (maxLengthInKm == Double.MAX_VALUE && maxPropDelayInMs == Double.MAX_VALUE) return true;
-
-				double pathLengthInKm = 0;
-				double pathPropDelayInMs = 0;
-				for (Link link : candidate.getPath())
-				{
-					pathLengthInKm += link.getLengthInKm();
-					pathPropDelayInMs += link.getPropagationDelayInMs();
-				}
-
-				return pathLengthInKm <= maxLengthInKm && pathPropDelayInMs <= maxPropDelayInMs;
-			}
-
-			@Override
-			public boolean compareCandidateToShortestPath(GraphPath<Link> candidate, GraphPath<Link> shortestPath)
-			{
-				if (maxRouteCost != Double.MAX_VALUE && candidate.getPathWeight() > maxRouteCost) { return false; }
-
-				if (maxRouteCostFactorRespectToShortestPath != Double.MAX_VALUE && candidate.getPathWeight() > shortestPath.getPathWeight() * maxRouteCostFactorRespectToShortestPath) { return false; }
-
-				return !(maxRouteCostRespectToShortestPath != Double.MAX_VALUE && candidate.getPathWeight() > shortestPath.getPathWeight() + maxRouteCostRespectToShortestPath);
-			}
-		};
-		return paths.getPaths(originNode, destinationNode, K);
+		final CSRGraph graph = CSRGraph.getGraph(nodes, links);
+		return graph.getKLooplessShortestPaths(originNode, destinationNode, graph.getLinkCosts(linkCostMap), K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath);
 	}
 
 	/** Returns the K minimum cost service chains between two nodes (summing costs of links and resources traversed), traversing a given set of resource types, satisfying some user-defined constraints.
@@ -1477,14 +1418,8 @@ public class GraphUtils
 	 * @return Sequence of links in the shortest path (empty, if destination not reachable from origin) */
 	public static List<Link> getShortestPath(Collection<Node> nodes, Collection<Link> links, Node originNode, Node destinationNode, Map<Link, Double> linkCostMap)
 	{
-		final Collection<Link> linksToUse = linkCostMap == null? links : links.stream().filter(e->linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> graph = JUNGUtils.getGraphFromLinkMap(nodes, linksToUse);
-		if (!graph.containsVertex(originNode)) return new LinkedList<>();
-		if (!graph.containsVertex(destinationNode)) return new LinkedList<>();
-		final Transformer<Link, Double> nev = JUNGUtils.getEdgeWeightTransformer(linkCostMap);
-		final DijkstraShortestPath<Node, Link> dsp = new DijkstraShortestPath<Node, Link>(graph, nev);
-		final List<Link> path = dsp.getPath(originNode, destinationNode);
-		return path;
+		final CSRGraph graph = CSRGraph.getGraph(nodes, links);
+		return graph.getShortestPath(originNode, destinationNode, graph.getLinkCosts(linkCostMap));
 	}
 
 	
@@ -3084,190 +3019,6 @@ public class GraphUtils
 		}
 	}
 
-	/** <p>Class to calculate the (loopless) <i>k</i>-shortest paths between a node pair using Yen's algorithm.</p>
-	 * 
-	 * <p>Reference: {@code J.Y. Yen, "Finding the K Shortest Loopless Paths in a Network," <i>Management Science</i>, vol. 17, no. 11, pp. 712-716, Jul. 1971}</p>
-	 * 
-	 * @param <V> Vertex type
-	 * @param <E> Edge type */
-	static class YenAlgorithm<V, E>
-	{
-		private final Graph<V, E> graph;
-		private final Transformer<E, Double> nev;
-		private final DijkstraShortestPath<V, E> dijkstra;
-
-		protected int K;
-		protected double maxLengthInKm;
-		protected int maxNumHops;
-		protected double maxPropDelayInMs;
-		protected double maxRouteCost;
-		protected double maxRouteCostFactorRespectToShortestPath;
-		protected double maxRouteCostRespectToShortestPath;
-
-		/** Default constructor. Links with cost {@code Double.MAX_VALUE} are not considered.
-		 * 
-		 * @param graph Graph on which shortest paths are searched
-		 * @param nev The class responsible for returning weights for edges */
-		private YenAlgorithm(Graph<V, E> graph, Transformer<E, Double> nev, int K, int maxNumHops, double maxLengthInKm, double maxPropDelayInMs, double maxRouteCost, double maxRouteCostFactorRespectToShortestPath, double maxRouteCostRespectToShortestPath)
-		{
-			this.K = K;
-			this.maxLengthInKm = maxLengthInKm;
-			this.maxNumHops = maxNumHops;
-			this.maxPropDelayInMs = maxPropDelayInMs;
-			this.maxRouteCost = maxRouteCost;
-			this.maxRouteCostFactorRespectToShortestPath = maxRouteCostFactorRespectToShortestPath;
-			this.maxRouteCostRespectToShortestPath = maxRouteCostRespectToShortestPath;
-			this.graph = graph;
-			this.nev = nev;
-			dijkstra = new DijkstraShortestPath<V, E>(graph, nev);
-		}
-
-		/** Default constructor. Links with cost {@code Double.MAX_VALUE} are not considered.
-		 * 
-		 * @param graph Graph on which shortest paths are searched
-		 * @param nev The class responsible for returning weights for edges */
-		YenAlgorithm(Graph<V, E> graph, Transformer<E, Double> nev)
-		{
-			this.K = -1;
-			this.maxLengthInKm = -1;
-			this.maxNumHops = -1;
-			this.maxPropDelayInMs = -1;
-			this.maxRouteCost = -1;
-			this.maxRouteCostFactorRespectToShortestPath = -1;
-			this.maxRouteCostRespectToShortestPath = -1;
-			this.graph = graph;
-			this.nev = nev;
-			dijkstra = new DijkstraShortestPath<V, E>(graph, nev);
-		}
-
-		/** <p>Returns the (loopless) <i>k</i>-shortest simple paths in increasing order of weight.</p> <p><b>Important</b>: If only <i>n</i> < <i>k</i> paths can be found, only such <i>n</i> paths will be returned.</p>
-		 * 
-		 * @param startVertex Start vertex of the calculated paths
-		 * @param endVertex Target vertex of the calculated paths
-		 * @param k Number of paths to be computed
-		 * @return List of paths in increasing order of weight */
-		private List<List<E>> getPaths(V startVertex, V endVertex, int k)
-		{
-
-			LinkedList<List<E>> paths = new LinkedList<List<E>>();
-
-			if (!graph.containsVertex(startVertex) || !graph.containsVertex(endVertex) || startVertex.equals(endVertex)) return paths;
-			if (dijkstra.getDistance(startVertex, endVertex) == null) return paths;
-
-			PriorityQueue<GraphPath> priorityQueue = new PriorityQueue<GraphPath>();
-			List<E> aux = dijkstra.getPath(startVertex, endVertex);
-			double cost = GraphUtils.JUNGUtils.getPathWeight(aux, nev);
-			GraphPath<E> shortestPath = new GraphPath<E>(aux, cost);
-
-			if (!acceptPath(shortestPath)) return paths;
-			paths.add(aux);
-
-			DijkstraShortestPath<V, E> blockedDijkstra;
-
-			while (paths.size() < k)
-			{
-				List<E> curShortestPath = paths.getLast();
-
-				int currentPathLength = curShortestPath.size();
-
-				/* Split path into Head and NextEdge */
-				for (int deviationId = 0; deviationId < currentPathLength; deviationId++)
-				{
-					List<E> head = curShortestPath.subList(0, deviationId);
-					V deviationVertex = head.isEmpty() ? startVertex : graph.getDest(head.get(deviationId - 1));
-
-					/* 1. Block edges */
-					Graph<V, E> blocked = blockFilter(head, deviationVertex, paths);
-
-					/* 2. Get shortest path in graph with blocked edges */
-					blockedDijkstra = new DijkstraShortestPath<V, E>(blocked, nev);
-
-					Number dist = blockedDijkstra.getDistance(deviationVertex, endVertex);
-					if (dist == null) continue;
-
-					List<E> tail = blockedDijkstra.getPath(deviationVertex, endVertex);
-
-					/* 3. Combine head and tail into new path */
-					List<E> candidatePath = new ArrayList<E>(deviationId + tail.size());
-					candidatePath.addAll(head);
-					candidatePath.addAll(tail);
-
-					GraphPath<E> candidate = new GraphPath<E>(candidatePath, JUNGUtils.getPathWeight(candidatePath, nev));
-
-					/* Check if we already found this solution */
-					if (priorityQueue.contains(candidate)) continue;
-
-					if (!acceptPath(candidate) || !compareCandidateToShortestPath(candidate, shortestPath)) continue;
-
-					priorityQueue.add(candidate);
-				}
-
-				if (priorityQueue.isEmpty()) break; /* No more candidate paths */
-				paths.add(priorityQueue.poll().getPath());
-			}
-
-			return paths;
-		}
-
-		/** Blocks all incident edges of the vertices in head as well as the edge connecting head to the next node by creating a new filtered graph.
-		 * 
-		 * @param head The current head, from source to deviation node
-		 * @param deviation The edge to the next node
-		 * @param foundPaths The solutions already found and to check against
-		 * @return The filtered graph without the blocked edges
-		 * @since 0.3.0 */
-		private Graph<V, E> blockFilter(List<E> head, V deviation, List<List<E>> foundPaths)
-		{
-			final Set<E> blocked = new LinkedHashSet<E>();
-
-			/* Block incident edges to make all vertices in head unreachable. */
-			for (E e : head)
-			{
-				for (E e2 : graph.getIncidentEdges(graph.getSource(e)))
-				{
-					blocked.add(e2);
-				}
-			}
-
-			/* Block all outgoing edges that have been used at deviation vertex */
-			for (List<E> path : foundPaths)
-			{
-				if (path.size() > head.size() && ListUtils.isEqualList(path.subList(0, head.size()), head))
-				{
-					for (E e : path)
-					{
-						if (graph.isSource(deviation, e))
-						{
-							blocked.add(e);
-							break; /* Continue with next path */
-						}
-					}
-				}
-			}
-
-			return JUNGUtils.filterGraph(graph, null, null, null, blocked);
-		}
-
-		/** Indicates whether a path is valid. It can be override to implement checks like maximum path length. In contrast, {@link #compareCandidateToShortestPath(GraphUtils.GraphPath, GraphUtils.GraphPath) compareCandidateToShortestPath()} method. method can be used to compare current candidate path with the shortest path.
-		 * 
-		 * @param candidate Candidate path
-		 * @return {@code true} must be accepted. Otherwise, {@code false} */
-		public boolean acceptPath(GraphPath<E> candidate)
-		{
-			return true;
-		}
-
-		/** Indicates whether a path is valid when compared to the shortest path. It can be override to implement checks like maximum distance from the shortest path.
-		 * 
-		 * @param candidate Candidate path
-		 * @param shortestPath
-		 * @return {@code true} must be accepted. Otherwise, {@code false} */
-		public boolean compareCandidateToShortestPath(GraphPath<E> candidate, GraphPath<E> shortestPath)
-		{
-			return true;
-		}
-	}
-
 	/** Exception thrown when hop-by-hop routing includes closed cycles.
 	 * 
 	 * @author Pablo Pavon-Marino, Jose-Luis Izquierdo-Zaragoza */
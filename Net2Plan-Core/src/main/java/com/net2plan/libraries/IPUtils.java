@@ -12,25 +12,23 @@
 package com.net2plan.libraries;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import org.apache.commons.collections15.Transformer;
-
 import com.net2plan.interfaces.networkDesign.Demand;
 import com.net2plan.interfaces.networkDesign.Link;
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
 import com.net2plan.interfaces.networkDesign.NetPlan;
 import com.net2plan.interfaces.networkDesign.NetworkLayer;
 import com.net2plan.interfaces.networkDesign.Node;
-import com.net2plan.libraries.GraphUtils.JUNGUtils;
-import com.net2plan.utils.CollectionUtils;
 import com.net2plan.utils.Constants;
-import com.net2plan.utils.Pair;
 import com.net2plan.utils.Quadruple;
 import com.net2plan.utils.Triple;
 
@@ -38,8 +36,6 @@ import cern.colt.matrix.tdouble.DoubleFactory1D;
 import cern.colt.matrix.tdouble.DoubleFactory2D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
-import edu.uci.ics.jung.algorithms.shortestpath.DijkstraDistance;
-import edu.uci.ics.jung.graph.Graph;
 
 /**
  * Class for destination-based routing (IP-like).
@@ -268,66 +264,11 @@ public class IPUtils
 	 */
 	public static DoubleMatrix2D computeECMPRoutingTableMatrix_fte (List<Node> nodes, List<Link> links, DoubleMatrix1D linkWeightVector)
 	{
-		final int N = nodes.size();
-		final int E = links.size();
-
-		final Map<Link,Double> linkWeightMap = CollectionUtils.toMap(links, linkWeightVector);
-		final Transformer<Link, Double> nev = JUNGUtils.getEdgeWeightTransformer(linkWeightMap);
-		final List<Link> linksToConsider = links.stream().filter(e->linkWeightMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> graph = JUNGUtils.getGraphFromLinkMap(nodes, linksToConsider);
-		final DijkstraDistance<Node,Link> shortestDistanceMatrix = new DijkstraDistance<Node,Link> (graph, nev); 
-		
-		final DoubleMatrix2D f_te = DoubleFactory2D.sparse.make(N,E);
-		
-		final Map<Pair<Node, Node>, Pair<Set<Link>,Double>> linksPerNodeSameMinimumCost = new HashMap<>();
-		for(Link link : linksToConsider)
-		{
-			final double newLinkCost = linkWeightMap.get(link);
-			final Pair<Node,Node> nodePair_thisLink = Pair.of(link.getOriginNode() , link.getDestinationNode());
-			final Pair<Set<Link>,Double> links_thisNodePair = linksPerNodeSameMinimumCost.get(nodePair_thisLink);
-			if (links_thisNodePair == null)
-			{
-				final Set<Link> setForLinkThisNodePair = new HashSet<Link>();
-				setForLinkThisNodePair.add(link);
-				linksPerNodeSameMinimumCost.put(nodePair_thisLink, Pair.of(setForLinkThisNodePair , newLinkCost));
-			}
-			else
-			{
-				final double previousLinksCost = links_thisNodePair.getSecond();
-				if (newLinkCost < previousLinksCost) { links_thisNodePair.getFirst().clear(); links_thisNodePair.getFirst().add(link); links_thisNodePair.setSecond(newLinkCost); }
-				else if (newLinkCost == previousLinksCost) { links_thisNodePair.getFirst().add(link); }
-				else if (newLinkCost > previousLinksCost) { continue; }
-			}
-		}
-
-		for (Node egressNode : nodes)
-		{
-			final int t = egressNode.getIndex();
-			for (Node sourceNode : nodes)
-			{
-				final int n = sourceNode.getIndex ();
-				if (n == t) continue;
-				final Number shortestPathDistance_ij = shortestDistanceMatrix.getDistance(sourceNode, egressNode);
-				if (shortestPathDistance_ij == null) continue; // egress not reachable
-				final Set<Link> minCostLinks = new HashSet<> (); 
-				for (Node intermediateNode : graph.getNeighbors(sourceNode))
-				{
-					if (nodes.equals (intermediateNode)) continue;
-					final Pair<Set<Link>,Double> nodePairLinks = linksPerNodeSameMinimumCost.get(Pair.of(sourceNode, intermediateNode));
-					if (nodePairLinks == null) continue;
-					if (nodePairLinks.getFirst().isEmpty()) continue;
-					final Number costFromIntermediateToEnd = shortestDistanceMatrix.getDistance(intermediateNode, egressNode);
-					if (costFromIntermediateToEnd == null) continue;
-					final double costThroghThisIntermediate = nodePairLinks.getSecond() + costFromIntermediateToEnd.doubleValue();
-					if (Math.abs(shortestPathDistance_ij.doubleValue() - costThroghThisIntermediate) < 1E-10)
-						minCostLinks.addAll(nodePairLinks.getFirst());
-				}
-				final int outdegree = minCostLinks.size();
-				if (outdegree > 0)
-					for (Link link : minCostLinks)
-						f_te.set (t , link.getIndex () , 1.0 / outdegree);
-			}
-		}
+		final DoubleMatrix2D f_te = DoubleFactory2D.sparse.make(nodes.size(),links.size());
+		final Map<Node,Map<Link,Double>> frsPerEgressNode = computeECMPForwardingRulesPerEgressNode(nodes, links, nodes, linkWeightVector);
+		for (Entry<Node,Map<Link,Double>> frsThisEgressNode : frsPerEgressNode.entrySet())
+			for (Entry<Link,Double> fr : frsThisEgressNode.getValue().entrySet())
+				f_te.set (frsThisEgressNode.getKey().getIndex() , fr.getKey().getIndex () , fr.getValue());
 		return f_te;
 	}
 
@@ -342,65 +283,141 @@ public class IPUtils
 	 */
 	public static Triple<List<Demand>,List<Link>,List<Double>> computeECMPForwardinRules (List<Node> nodes, List<Link> links, List<Demand> demands , DoubleMatrix1D linkWeightVector)
 	{
-		final Map<Link,Double> linkWeightMap = CollectionUtils.toMap(links, linkWeightVector);
-		final Transformer<Link, Double> nev = JUNGUtils.getEdgeWeightTransformer(linkWeightMap);
-		final List<Link> linksToConsider = links.stream().filter(e->linkWeightMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> graph = JUNGUtils.getGraphFromLinkMap(nodes, linksToConsider);
-		final DijkstraDistance<Node,Link> shortestDistanceMatrix = new DijkstraDistance<Node,Link> (graph, nev); 
+		final Set<Node> egressNodes = demands.stream().map(d->d.getEgressNode()).collect(Collectors.toSet());
+		final Map<Node,Map<Link,Double>> frsPerEgressNode = computeECMPForwardingRulesPerEgressNode(nodes, links, egressNodes, linkWeightVector);
 		final List<Demand> frDemands = new ArrayList<> ();
 		final List<Link> frLinks = new ArrayList<> ();
 		final List<Double> frSplits = new ArrayList<> ();
-		
-		final Map<Pair<Node, Node>, Pair<Set<Link>,Double>> linksPerNodeSameMinimumCost = new HashMap<>();
-		for(Link link : linksToConsider)
+		for (Demand demand : demands)
 		{
-			final double newLinkCost = linkWeightMap.get(link);
-			final Pair<Node,Node> nodePair_thisLink = Pair.of(link.getOriginNode() , link.getDestinationNode());
-			final Pair<Set<Link>,Double> links_thisNodePair = linksPerNodeSameMinimumCost.get(nodePair_thisLink);
-			if (links_thisNodePair == null)
-			{
-				final Set<Link> setForLinkThisNodePair = new HashSet<Link>();
-				setForLinkThisNodePair.add(link);
-				linksPerNodeSameMinimumCost.put(nodePair_thisLink, Pair.of(setForLinkThisNodePair , newLinkCost));
-			}
-			else
+			for (Entry<Link,Double> fr : frsPerEgressNode.get(demand.getEgressNode()).entrySet())
 			{
-				final double previousLinksCost = links_thisNodePair.getSecond();
-				if (newLinkCost < previousLinksCost) { links_thisNodePair.getFirst().clear(); links_thisNodePair.getFirst().add(link); links_thisNodePair.setSecond(newLinkCost); }
-				else if (newLinkCost == previousLinksCost) { links_thisNodePair.getFirst().add(link); }
-				else if (newLinkCost > previousLinksCost) { continue; }
+				frDemands.add(demand);
+				frLinks.add(fr.getKey());
+				frSplits.add(fr.getValue());
 			}
 		}
+		return Triple.of(frDemands, frLinks, frSplits);
+	}
 
-		for (Demand demand : demands)
+	/**
+	 * Computes the forwarding rules according to an OSPF/ECMP scheme, towards each of the given egress nodes. 
+	 * ECMP routing only depends on the egress node, so the forwarding rules of an egress node are shared by all 
+	 * the demands towards it. For each egress node, a reverse Dijkstra computes the distance from every node to it, 
+	 * and the traffic arriving to a node is split equally among its output links in a shortest path to the egress node. 
+	 * The egress nodes are processed in parallel. Links with a weight of Double.MAX_VALUE are not considered.
+	 * @param nodes List of nodes
+	 * @param links List of links
+	 * @param egressNodes Egress nodes
+	 * @param linkWeightVector Cost per link vector (in the same order as the list of links). Links with weight Double.MAX_VALUE are not considered
+	 * @return For each egress node, the splitting factor of the links with non-zero forwarding rules towards it 
+	 * (i.e. the fraction of the traffic arriving to the link origin node, that is forwarded through the link)
+	 * @since 0.6.0
+	 */
+	public static Map<Node,Map<Link,Double>> computeECMPForwardingRulesPerEgressNode (List<Node> nodes, List<Link> links, Collection<Node> egressNodes , DoubleMatrix1D linkWeightVector)
+	{
+		if (linkWeightVector.size() != links.size()) throw new Net2PlanException ("Wrong array size");
+		final int N = nodes.size();
+		final Map<Node,Integer> nodeIndexes = new HashMap<> ();
+		for (int n = 0; n < N ; n ++) nodeIndexes.put(nodes.get(n), n);
+
+		/* the input and output links of each node, as positions in the list of links */
+		final List<List<Integer>> inLinksPerNode = new ArrayList<> (N);
+		final List<List<Integer>> outLinksPerNode = new ArrayList<> (N);
+		for (int n = 0; n < N ; n ++) { inLinksPerNode.add(new ArrayList<> ()); outLinksPerNode.add(new ArrayList<> ()); }
+		final int [] originNodes = new int [links.size()];
+		final int [] destinationNodes = new int [links.size()];
+		final double [] weights = linkWeightVector.toArray();
+		for (int e = 0; e < links.size() ; e ++)
 		{
-			final Node egressNode = demand.getEgressNode();
-			for (Node sourceNode : nodes)
+			originNodes [e] = nodeIndexes.get(links.get(e).getOriginNode());
+			destinationNodes [e] = nodeIndexes.get(links.get(e).getDestinationNode());
+			if (weights [e] == Double.MAX_VALUE) continue;
+			outLinksPerNode.get(originNodes [e]).add(e);
+			inLinksPerNode.get(destinationNodes [e]).add(e);
+		}
+
+		return new HashSet<> (egressNodes).parallelStream().collect(Collectors.toMap(egressNode -> egressNode , egressNode -> 
+		{
+			final int t = nodeIndexes.get(egressNode);
+			final double [] distanceToEgressNode = computeReverseDijkstraDistances(t, inLinksPerNode, originNodes, weights);
+			final Map<Link,Double> frs = new HashMap<> ();
+			final List<Link> minCostLinks = new ArrayList<> ();
+			for (int n = 0; n < N ; n ++)
 			{
-				if (egressNode == sourceNode) continue;
-				final Number shortestPathDistance_ij = shortestDistanceMatrix.getDistance(sourceNode, egressNode);
-				if (shortestPathDistance_ij == null) continue; // egress not reachable
-				final Set<Link> minCostLinks = new HashSet<> (); 
-				for (Node intermediateNode : graph.getNeighbors(sourceNode))
-				{
-					if (nodes.equals (intermediateNode)) continue;
-					final Pair<Set<Link>,Double> nodePairLinks = linksPerNodeSameMinimumCost.get(Pair.of(sourceNode, intermediateNode));
-					if (nodePairLinks == null) continue;
-					if (nodePairLinks.getFirst().isEmpty()) continue;
-					final double costThroghThisIntermediate = nodePairLinks.getSecond() + shortestDistanceMatrix.getDistance(intermediateNode, egressNode).doubleValue();
-					if (Math.abs(shortestPathDistance_ij.doubleValue() - costThroghThisIntermediate) < 1E-10)
-						minCostLinks.addAll(nodePairLinks.getFirst());
-				}
-				final int outdegree = minCostLinks.size();
-				for (Link link : minCostLinks)
+				if (n == t) continue;
+				if (distanceToEgressNode [n] == Double.POSITIVE_INFINITY) continue; // egress not reachable
+				minCostLinks.clear();
+				for (int e : outLinksPerNode.get(n))
 				{
-					frDemands.add(demand);
-					frLinks.add(link);
-					frSplits.add(1.0 / outdegree);
+					final double costThroughThisLink = weights [e] + distanceToEgressNode [destinationNodes [e]];
+					if (Math.abs(distanceToEgressNode [n] - costThroughThisLink) < 1E-10) minCostLinks.add(links.get(e));
 				}
+				for (Link link : minCostLinks) frs.put(link, 1.0 / minCostLinks.size());
+			}
+			return frs;
+		}));
+	}
+
+	/* Distance from each node to the destination node, running Dijkstra in the reverse graph (infinity if not reachable). Links with weight Double.MAX_VALUE are not considered */
+	static double [] computeReverseDijkstraDistances (int destinationNode , List<List<Integer>> inLinksPerNode , int [] originNodes , double [] weights)
+	{
+		final int N = inLinksPerNode.size();
+		final double [] distance = new double [N];
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+		distance [destinationNode] = 0;
+
+		/* binary heap of nodes, indexed by the position of each node in the heap (-1 if not in the heap) */
+		final int [] heap = new int [N];
+		final int [] positionInHeap = new int [N];
+		Arrays.fill(positionInHeap, -1);
+		int heapSize = 0;
+		heap [heapSize] = destinationNode; positionInHeap [destinationNode] = heapSize ++;
+		while (heapSize > 0)
+		{
+			final int n = heap [0];
+			positionInHeap [n] = -1;
+			heapSize --;
+			if (heapSize > 0) { heap [0] = heap [heapSize]; positionInHeap [heap [0]] = 0; siftDown(heap, positionInHeap, heapSize, distance, 0); }
+			for (int e : inLinksPerNode.get(n))
+			{
+				if (weights [e] == Double.MAX_VALUE) continue;
+				final int m = originNodes [e];
+				final double newDistance = distance [n] + weights [e];
+				if (newDistance >= distance [m]) continue;
+				distance [m] = newDistance;
+				if (positionInHeap [m] == -1) { heap [heapSize] = m; positionInHeap [m] = heapSize ++; }
+				siftUp(heap, positionInHeap, distance, positionInHeap [m]);
 			}
 		}
-		return Triple.of(frDemands, frLinks, frSplits);
+		return distance;
+	}
+
+	static void siftUp (int [] heap , int [] positionInHeap , double [] distance , int pos)
+	{
+		final int n = heap [pos];
+		while (pos > 0)
+		{
+			final int parent = (pos - 1) / 2;
+			if (distance [heap [parent]] <= distance [n]) break;
+			heap [pos] = heap [parent]; positionInHeap [heap [pos]] = pos;
+			pos = parent;
+		}
+		heap [pos] = n; positionInHeap [n] = pos;
+	}
+
+	static void siftDown (int [] heap , int [] positionInHeap , int heapSize , double [] distance , int pos)
+	{
+		final int n = heap [pos];
+		while (2 * pos + 1 < heapSize)
+		{
+			int child = 2 * pos + 1;
+			if ((child + 1 < heapSize) && (distance [heap [child + 1]] < distance [heap [child]])) child ++;
+			if (distance [n] <= distance [heap [child]]) break;
+			heap [pos] = heap [child]; positionInHeap [heap [pos]] = pos;
+			pos = child;
+		}
+		heap [pos] = n; positionInHeap [n] = pos;
 	}
 
 	
@@ -644,8 +661,9 @@ public class IPUtils
 	/**
 	 * Sets the OSPF/ECMP forwarding rules in the given design, according to the 
 	 * given IGP weight setting. Any previous routing information (either source 
-	 * routing or hop-by-hop routing) will be removed. This method calls 
-	 * sequentually to {@code computeECMPForwardingRules} and {@code setForwardingRules} methods.
+	 * routing or hop-by-hop routing) will be removed. The forwarding rules are computed once per egress node 
+	 * (see {@link #computeECMPForwardingRulesPerEgressNode(List, List, Collection, DoubleMatrix1D)}), and shared by 
+	 * all the demands towards it.
 	 * 
 	 * @param netPlan Network design
 	 * @param optionalLayer Network layer (optional)
@@ -654,10 +672,13 @@ public class IPUtils
 	public static void setECMPForwardingRulesFromLinkWeights(NetPlan netPlan, DoubleMatrix1D linkWeightMap , NetworkLayer ... optionalLayer)
 	{
 		final NetworkLayer layer = netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayer);
-		final Quadruple<DoubleMatrix2D, DoubleMatrix2D, DoubleMatrix1D, DoubleMatrix1D> q = 
-				computeCarriedTrafficFromIGPWeights(netPlan, linkWeightMap , layer);
-		final DoubleMatrix2D f_de = q.getFirst ();
-		netPlan.setForwardingRules(f_de , layer);
+		if (linkWeightMap == null) linkWeightMap = IPUtils.getLinkWeightVector (netPlan, layer);
+		final List<Demand> demands = netPlan.getDemands(layer);
+		final Set<Node> egressNodes = demands.stream().map(d->d.getEgressNode()).collect(Collectors.toSet());
+		final Map<Node,Map<Link,Double>> frsPerEgressNode = computeECMPForwardingRulesPerEgressNode(netPlan.getNodes(), netPlan.getLinks(layer), egressNodes, linkWeightMap);
+		final Map<Demand,Map<Link,Double>> frsPerDemand = new HashMap<> ();
+		for (Demand d : demands) frsPerDemand.put(d, frsPerEgressNode.get(d.getEgressNode()));
+		netPlan.setForwardingRules(frsPerDemand);
 	}
 	
 	/**
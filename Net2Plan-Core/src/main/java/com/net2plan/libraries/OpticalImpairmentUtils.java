@@ -1,10 +1,18 @@
 package com.net2plan.libraries;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
 import com.net2plan.utils.DoubleUtils;
 import com.net2plan.utils.Quadruple;
@@ -36,6 +44,9 @@ public class OpticalImpairmentUtils
 	public final static String stFiber_effectiveArea_um2 = "Aeff";
 	public final static String stFiber_n2Coeff_m2_per_W = "n2";
 
+	/* NLI coefficients per fiber type and channel grid (see getNLICoefficients). Bounded, since each entry grows with the square of the number of channels */
+	private final static Cache<NLICoefficientsKey, double[]> cache_nliCoefficients = CacheBuilder.newBuilder().maximumSize(16).build();
+
 	private OpticalImpairmentUtils()
 	{}
 
@@ -90,33 +101,94 @@ public class OpticalImpairmentUtils
 		final double powerSpectralDensityPerChannel_W_per_THz[] = DoubleUtils.divide(powerPerChannel_W, bandwidthPerChannel_THz);
 
 		final double attenuation_linear[] = getAttenuationCompLinear(fiberAlpha_dB_per_km, fiberAlpha1st_dB_per_km_per_THz, spanLength_km, frequenciesPerChannel_THz);
+		final double nliCoefficients_ni[] = getNLICoefficients(Math.abs(fiberBeta2_ps2_per_km), asymptoticEffectiveLength_km, bandwidthPerChannel_THz, frequenciesPerChannel_THz);
+		final double factor = (16.0 / 27.0) * (gamma_per_W_per_km * effectiveLength_km) * (gamma_per_W_per_km * effectiveLength_km)
+				/ (2 * Math.PI * Math.abs(fiberBeta2_ps2_per_km) * asymptoticEffectiveLength_km);
 
-		double nliComputed[] = new double[numChannels];
+		final double nliComputed[] = new double[numChannels];
 		for (int n = 0; n < numChannels; n++)
 		{
 			double sum = 0;
+			final int rowOffset = n * numChannels;
+			for (int i = 0; i < numChannels; i++)
+				sum += powerSpectralDensityPerChannel_W_per_THz[i] * nliCoefficients_ni[rowOffset + i];
+
+			nliComputed[n] = sum * powerSpectralDensityPerChannel_W_per_THz[n] * powerSpectralDensityPerChannel_W_per_THz[n] * factor * attenuation_linear[n] * bandwidthPerChannel_THz[n];
+		}
+
+		return nliComputed;
+	}
+
+	/**
+	 * Gets the GN-model coefficients of the non-linear interference between each pair of channels in a fiber span (the asinh terms), as 
+	 * a matrix stored by rows in an array (position {@code n * numChannels + i} for the channel under test {@code n}, and the interfering channel {@code i}). 
+	 * They only depend on the fiber dispersion and attenuation, and on the channel grid, so they are the same in all the spans of the same fiber type: 
+	 * they are cached, since their computation grows with the square of the number of channels
+	 * 
+	 * @param fiberBeta2Abs_ps2_per_km the absolute value of the dispersion coefficient [ps^2/km]
+	 * @param asymptoticEffectiveLength_km the asymptotic effective length [km]
+	 * @param bandwidthPerChannel_THz the bandwidth per channel [THz]
+	 * @param frequenciesPerChannel_THz the frequency per channel [THz]
+	 * @return the coefficients (not to be modified)
+	 */
+	private static double[] getNLICoefficients(double fiberBeta2Abs_ps2_per_km, double asymptoticEffectiveLength_km, double[] bandwidthPerChannel_THz, double[] frequenciesPerChannel_THz)
+	{
+		final NLICoefficientsKey key = new NLICoefficientsKey(fiberBeta2Abs_ps2_per_km, asymptoticEffectiveLength_km, bandwidthPerChannel_THz, frequenciesPerChannel_THz);
+		final double[] cached = cache_nliCoefficients.getIfPresent(key);
+		if (cached != null) return cached;
+
+		final int numChannels = frequenciesPerChannel_THz.length;
+		final double aux = Math.PI * Math.PI * asymptoticEffectiveLength_km * fiberBeta2Abs_ps2_per_km;
+		final double[] nliCoefficients_ni = new double[numChannels * numChannels];
+		for (int n = 0; n < numChannels; n++)
 			for (int i = 0; i < numChannels; i++)
 			{
-				double psi = 0;
 				if (n == i)
-					psi = asinh(0.5 * Math.PI * Math.PI * asymptoticEffectiveLength_km * Math.abs(fiberBeta2_ps2_per_km) * bandwidthPerChannel_THz[n] * bandwidthPerChannel_THz[n]);
+					nliCoefficients_ni[n * numChannels + i] = asinh(0.5 * aux * bandwidthPerChannel_THz[n] * bandwidthPerChannel_THz[n]);
 				else
-					psi = asinh(Math.PI * Math.PI * asymptoticEffectiveLength_km * Math.abs(fiberBeta2_ps2_per_km) * bandwidthPerChannel_THz[n]
-							* (frequenciesPerChannel_THz[n] - frequenciesPerChannel_THz[i] + 0.5 * bandwidthPerChannel_THz[i]))
-							- asinh(Math.PI * Math.PI * asymptoticEffectiveLength_km * Math.abs(fiberBeta2_ps2_per_km) * bandwidthPerChannel_THz[n]
-									* (frequenciesPerChannel_THz[n] - frequenciesPerChannel_THz[i] - 0.5 * bandwidthPerChannel_THz[i]));
-
-				sum += powerSpectralDensityPerChannel_W_per_THz[i] * powerSpectralDensityPerChannel_W_per_THz[n] * powerSpectralDensityPerChannel_W_per_THz[n] * psi;
+					nliCoefficients_ni[n * numChannels + i] = asinh(aux * bandwidthPerChannel_THz[n] * (frequenciesPerChannel_THz[n] - frequenciesPerChannel_THz[i] + 0.5 * bandwidthPerChannel_THz[i]))
+							- asinh(aux * bandwidthPerChannel_THz[n] * (frequenciesPerChannel_THz[n] - frequenciesPerChannel_THz[i] - 0.5 * bandwidthPerChannel_THz[i]));
 			}
 
-			nliComputed[n] = sum * (16.0 / 27.0) * (gamma_per_W_per_km * effectiveLength_km) * (gamma_per_W_per_km * effectiveLength_km)
-					/ (2 * Math.PI * Math.abs(fiberBeta2_ps2_per_km) * asymptoticEffectiveLength_km);
+		/* the key keeps its own copy of the arrays */
+		cache_nliCoefficients.put(new NLICoefficientsKey(fiberBeta2Abs_ps2_per_km, asymptoticEffectiveLength_km, bandwidthPerChannel_THz.clone(), frequenciesPerChannel_THz.clone()), nliCoefficients_ni);
+		return nliCoefficients_ni;
+	}
 
+	/* Key of the cache of NLI coefficients: fiber dispersion and attenuation, and channel grid (compared by content) */
+	private static final class NLICoefficientsKey
+	{
+		private final double fiberBeta2Abs_ps2_per_km;
+		private final double asymptoticEffectiveLength_km;
+		private final double[] bandwidthPerChannel_THz;
+		private final double[] frequenciesPerChannel_THz;
+
+		private NLICoefficientsKey(double fiberBeta2Abs_ps2_per_km, double asymptoticEffectiveLength_km, double[] bandwidthPerChannel_THz, double[] frequenciesPerChannel_THz)
+		{
+			this.fiberBeta2Abs_ps2_per_km = fiberBeta2Abs_ps2_per_km;
+			this.asymptoticEffectiveLength_km = asymptoticEffectiveLength_km;
+			this.bandwidthPerChannel_THz = bandwidthPerChannel_THz;
+			this.frequenciesPerChannel_THz = frequenciesPerChannel_THz;
 		}
 
-		nliComputed = DoubleUtils.mult(nliComputed, attenuation_linear);
+		@Override
+		public boolean equals(Object o)
+		{
+			if (this == o) return true;
+			if (!(o instanceof NLICoefficientsKey)) return false;
+			final NLICoefficientsKey other = (NLICoefficientsKey) o;
+			return (Double.compare(fiberBeta2Abs_ps2_per_km, other.fiberBeta2Abs_ps2_per_km) == 0) && (Double.compare(asymptoticEffectiveLength_km, other.asymptoticEffectiveLength_km) == 0)
+					&& Arrays.equals(bandwidthPerChannel_THz, other.bandwidthPerChannel_THz) && Arrays.equals(frequenciesPerChannel_THz, other.frequenciesPerChannel_THz);
+		}
 
-		return DoubleUtils.mult(nliComputed, bandwidthPerChannel_THz);
+		@Override
+		public int hashCode()
+		{
+			int res = Double.hashCode(fiberBeta2Abs_ps2_per_km);
+			res = 31 * res + Double.hashCode(asymptoticEffectiveLength_km);
+			res = 31 * res + Arrays.hashCode(bandwidthPerChannel_THz);
+			return 31 * res + Arrays.hashCode(frequenciesPerChannel_THz);
+		}
 	}
 
 	/**
@@ -257,7 +329,7 @@ public class OpticalImpairmentUtils
 				aseNoisePower_W = DoubleUtils.mult(aseNoisePower_W, lin_att);
 
 				final double[] nliNoisePowerThisSpan_W = computeNLIfiber(this_beta2, this_alpha, this_alpha1st, this_n2, this_aeff, spanLength_km,
-						spectrumParameters.get(stSpectrum_bandwidthPerChannel_THz), spectrumParameters.get(stSpectrum_powerPerChannel_W), this_aeff, nliNoisePower_W);
+						spectrumParameters.get(stSpectrum_bandwidthPerChannel_THz), spectrumParameters.get(stSpectrum_powerPerChannel_W), centralFrequency_THz, frequenciesPerChannel_THz);
 				nliNoisePower_W = DoubleUtils.sum(nliNoisePower_W, nliNoisePowerThisSpan_W);
 
 				/* Update spectrum */
@@ -329,6 +401,87 @@ public class OpticalImpairmentUtils
 		return res;
 	}
 
+	/**
+	 * Computes the impairments of several lightpaths (or fiber links), as {@link #computeImpairments(List, Map, Map, double, double, double, double, double, double, double, double[], double, double, double) computeImpairments}, 
+	 * evaluating them in parallel. The computation for each lightpath starts from the given initial spectrum, which is not modified. The 
+	 * spans of the same fiber type share their GN-model NLI coefficients, so they are computed once for all the lightpaths.
+	 *
+	 * @param linkElementsPerLightpath for each lightpath, the list of Quadruples of its elements where 1st: position (km); 2nd: Type; 3rd: data; 4th: auxData
+	 * @param initialSpectrumParameters Map with keys stSpectrum_XX, with the spectrum at the transmitter
+	 * @param fibersParameters Map with key fiberType, and value a Map of (stFiber_XXX, paramValue)
+	 * @param oadm_perChannelOutputPower_W output power for all OADMs (per channel)
+	 * @param fiber_PMD_ps_per_sqroot_km PMD fiber coefficient
+	 * @param edfa_PMD edfa PMD coefficient
+	 * @param pc_PMD PC PMD coefficient
+	 * @param oadm_muxDemuxPMD_ps mux OADM PMD coefficient
+	 * @param oadm_preAmplifierPMD_ps pre-amplifier OADM PMD coefficient
+	 * @param oadm_boosterPMD_ps booster OAMD PMD coefficient
+	 * @param frequenciesPerChannel_THz array with the frequencies of each channel
+	 * @param centralFrequency_THz the central frequency of the used spectrum
+	 * @param tp_inputPowerSensitivityMin_dBm minimum input power of the final transponder
+	 * @param tp_inputPowerSensitivityMax_dBm maximum input power of the final transponder
+	 * @param numThreads Number of worker threads. If non-positive, the number of available processors
+	 * @return for each lightpath (in the same order), the list of elements as returned by {@code computeImpairments}
+	 * @since 0.6.0
+	 */
+	public static List<List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>> computeImpairmentsOfLightpaths(final List<List<Quadruple<Double, String, Double, String>>> linkElementsPerLightpath,
+			final Map<String, double[]> initialSpectrumParameters, final Map<String, Map<String, Double>> fibersParameters, final double oadm_perChannelOutputPower_W, final double fiber_PMD_ps_per_sqroot_km, final double edfa_PMD,
+			final double pc_PMD, final double oadm_muxDemuxPMD_ps, final double oadm_preAmplifierPMD_ps, final double oadm_boosterPMD_ps, final double[] frequenciesPerChannel_THz, final double centralFrequency_THz,
+			final double tp_inputPowerSensitivityMin_dBm, final double tp_inputPowerSensitivityMax_dBm, int numThreads)
+	{
+		final int numLightpaths = linkElementsPerLightpath.size();
+		final List<List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>> res = new ArrayList<List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>>(Collections.nCopies(numLightpaths, (List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>) null));
+		if (numLightpaths == 0) return res;
+
+		if (numThreads <= 0) numThreads = Runtime.getRuntime().availableProcessors();
+		numThreads = Math.min(numThreads, numLightpaths);
+		final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try
+		{
+			final List<Future<?>> futures = new ArrayList<Future<?>>(numThreads);
+			for (int worker = 0; worker < numThreads; worker++)
+			{
+				final int fromLightpath = (int) ((long) numLightpaths * worker / numThreads);
+				final int toLightpath = (int) ((long) numLightpaths * (worker + 1) / numThreads);
+				futures.add(executor.submit(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						/* each lightpath updates its own copy of the map: the spectrum arrays are replaced, never modified */
+						for (int lp = fromLightpath; lp < toLightpath; lp++)
+							res.set(lp, computeImpairments(linkElementsPerLightpath.get(lp), Maps.newHashMap(initialSpectrumParameters), fibersParameters, oadm_perChannelOutputPower_W, fiber_PMD_ps_per_sqroot_km, edfa_PMD,
+									pc_PMD, oadm_muxDemuxPMD_ps, oadm_preAmplifierPMD_ps, oadm_boosterPMD_ps, frequenciesPerChannel_THz, centralFrequency_THz, tp_inputPowerSensitivityMin_dBm, tp_inputPowerSensitivityMax_dBm));
+					}
+				}));
+			}
+
+			for (Future<?> future : futures)
+			{
+				try
+				{
+					future.get();
+				}
+				catch (ExecutionException e)
+				{
+					if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+					if (e.getCause() instanceof Error) throw (Error) e.getCause();
+					throw new RuntimeException(e.getCause());
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+		return res;
+	}
+
 	/**
 	 * Computes power, ASE noise and NLI noise after an OADM
 	 * 
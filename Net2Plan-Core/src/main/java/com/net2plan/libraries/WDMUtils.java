@@ -12,6 +12,8 @@
 
 package com.net2plan.libraries;
 
+import cern.colt.list.tdouble.DoubleArrayList;
+import cern.colt.list.tint.IntArrayList;
 import cern.colt.matrix.tdouble.DoubleFactory1D;
 import cern.colt.matrix.tdouble.DoubleFactory2D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
@@ -19,6 +21,7 @@ import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.colt.matrix.tint.IntFactory2D;
 import cern.colt.matrix.tint.IntMatrix1D;
 import cern.colt.matrix.tint.IntMatrix2D;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Sets;
 import com.net2plan.interfaces.networkDesign.*;
 import com.net2plan.utils.*;
@@ -293,11 +296,11 @@ public class WDMUtils
 			{
 				if (!isNonNegativeInteger(r.getOccupiedCapacity())) throw new WDMException ("");
 				if (!isNonNegativeInteger(r.getOccupiedCapacityInNoFailureState())) throw new WDMException ("");
-				final IntMatrix2D candidateSeqFreqSlots = StringUtils.readIntMatrix
-						(r.getAttribute(initializeWithTheInitialState? WDMUtils.SEQUENCE_OF_FREQUENCYSLOTS_INITIAL_ROUTE_ATTRIBUTE_NAME : WDMUtils.SEQUENCE_OF_FREQUENCYSLOTS_ATTRIBUTE_NAME));
-				this.seqFrequencySlots_se = candidateSeqFreqSlots.rows() > 0? candidateSeqFreqSlots : IntFactory2D.dense.make(0,this.seqLinks.size());
-				final int[] candidateSeqRegenerators = r.getAttribute(initializeWithTheInitialState? WDMUtils.SEQUENCE_OF_REGENERATORS_INITIAL_ROUTE_ATTRIBUTE_NAME : WDMUtils.SEQUENCE_OF_REGENERATORS_ATTRIBUTE_NAME) == null? new int [seqLinks.size()] : StringUtils.toIntArray(StringUtils.split(initializeWithTheInitialState? r.getAttribute(SEQUENCE_OF_REGENERATORS_INITIAL_ROUTE_ATTRIBUTE_NAME): r.getAttribute(SEQUENCE_OF_REGENERATORS_ATTRIBUTE_NAME), " "));
-				this.seqRegeneratorsOccupancy_e = candidateSeqRegenerators.length == 0 ? new int[this.seqLinks.size()] : candidateSeqRegenerators;
+				final ParsedRSAAttributes parsedAttributes = getParsedRSAAttributes (r , initializeWithTheInitialState);
+				final IntMatrix2D candidateSeqFreqSlots = parsedAttributes.seqFrequencySlots_se;
+				this.seqFrequencySlots_se = candidateSeqFreqSlots.rows() > 0? candidateSeqFreqSlots.copy() : IntFactory2D.dense.make(0,this.seqLinks.size());
+				final int[] candidateSeqRegenerators = parsedAttributes.seqRegenerators_e == null? new int [seqLinks.size()] : parsedAttributes.seqRegenerators_e;
+				this.seqRegeneratorsOccupancy_e = candidateSeqRegenerators.length == 0 ? new int[this.seqLinks.size()] : Arrays.copyOf(candidateSeqRegenerators , candidateSeqRegenerators.length);
 			} catch (Exception e) { throw new WDMException("RSA not correctly defined"); }
 
 			if (initializeWithTheInitialState && getNumSlots() != r.getInitialState().getThird().get(0)) throw new WDMException("The occupied link capacity is different to the number of slots");
@@ -663,6 +666,43 @@ public class WDMUtils
 	 */
 	private final static String SEQUENCE_OF_REGENERATORS_INITIAL_ROUTE_ATTRIBUTE_NAME = "seqRegeneratorsInitialRoute";
 
+	/* The RSA information of the lightpaths parsed from the route attributes, so the attributes are parsed again only when they change. 
+	 * An entry is valid while the route attributes are the same String objects it was created from. Weak keys (compared by identity), 
+	 * so removed routes are discarded. One map for the current RSA, and one for the initial RSA */
+	private static final Map<Route,ParsedRSAAttributes> parsedRSAAttributesCurrentRoute = new MapMaker().weakKeys().makeMap();
+	private static final Map<Route,ParsedRSAAttributes> parsedRSAAttributesInitialRoute = new MapMaker().weakKeys().makeMap();
+
+	/* The slots and regenerators of a lightpath as parsed from the route attributes (not modified: RSA objects receive copies) */
+	private static final class ParsedRSAAttributes
+	{
+		final String seqFrequencySlotsAttribute;
+		final String seqRegeneratorsAttribute;
+		final IntMatrix2D seqFrequencySlots_se;
+		final int [] seqRegenerators_e; // null if the attribute does not exist
+
+		ParsedRSAAttributes (String seqFrequencySlotsAttribute , String seqRegeneratorsAttribute , IntMatrix2D seqFrequencySlots_se , int [] seqRegenerators_e)
+		{
+			this.seqFrequencySlotsAttribute = seqFrequencySlotsAttribute;
+			this.seqRegeneratorsAttribute = seqRegeneratorsAttribute;
+			this.seqFrequencySlots_se = seqFrequencySlots_se;
+			this.seqRegenerators_e = seqRegenerators_e;
+		}
+	}
+
+	private static ParsedRSAAttributes getParsedRSAAttributes (Route r , boolean initialRoute)
+	{
+		final String seqFrequencySlotsAttribute = r.getAttribute(initialRoute? SEQUENCE_OF_FREQUENCYSLOTS_INITIAL_ROUTE_ATTRIBUTE_NAME : SEQUENCE_OF_FREQUENCYSLOTS_ATTRIBUTE_NAME);
+		final String seqRegeneratorsAttribute = r.getAttribute(initialRoute? SEQUENCE_OF_REGENERATORS_INITIAL_ROUTE_ATTRIBUTE_NAME : SEQUENCE_OF_REGENERATORS_ATTRIBUTE_NAME);
+		final Map<Route,ParsedRSAAttributes> cache = initialRoute? parsedRSAAttributesInitialRoute : parsedRSAAttributesCurrentRoute;
+		final ParsedRSAAttributes cached = cache.get(r);
+		if ((cached != null) && (cached.seqFrequencySlotsAttribute == seqFrequencySlotsAttribute) && (cached.seqRegeneratorsAttribute == seqRegeneratorsAttribute)) return cached;
+		final ParsedRSAAttributes parsed = new ParsedRSAAttributes(seqFrequencySlotsAttribute , seqRegeneratorsAttribute , 
+				StringUtils.readIntMatrix(seqFrequencySlotsAttribute) , 
+				seqRegeneratorsAttribute == null? null : StringUtils.toIntArray(StringUtils.split(seqRegeneratorsAttribute, " ")));
+		cache.put(r , parsed);
+		return parsed;
+	}
+
 	private static class WDMException extends Net2PlanException
 	{
 		public WDMException(String message)
@@ -866,6 +906,36 @@ public class WDMUtils
 		return true;
 	}
 
+	/**
+	 * The same as {@link #isAllocatableRSASet(DoubleMatrix2D, RSA...)}, with the slot occupancy given as a {@link SpectrumOccupancy} object.
+	 * @param spectrumOccupancy Current slot-fiber occupancy
+	 * @param rsas one or more RSAs to check
+	 * @return See description above
+	 * @since 0.6.0
+	 */
+	public static boolean isAllocatableRSASet (SpectrumOccupancy spectrumOccupancy , RSA ... rsas)
+	{
+		final Map<Link,long []> checkOccupancy = new HashMap<Link,long []> ();
+		for (RSA rsa : rsas)
+		{
+			int orderTravLink = 0; 
+			for (Link e : rsa.seqLinks)
+			{
+				long [] checkOccupancy_e = checkOccupancy.get(e);
+				if (checkOccupancy_e == null) { checkOccupancy_e = new long [spectrumOccupancy.occupancy_e [e.getIndex()].length]; checkOccupancy.put(e , checkOccupancy_e); }
+				for (int s = 0; s < rsa.seqFrequencySlots_se.rows() ; s ++)
+				{
+					final int slotIndex = rsa.seqFrequencySlots_se.get(s,orderTravLink);
+					if (spectrumOccupancy.isOccupied(slotIndex , e)) return false; 
+					if (isSetBit(checkOccupancy_e , slotIndex)) return false; 
+					checkOccupancy_e [slotIndex >>> 6] |= 1L << slotIndex;
+				}
+				orderTravLink ++;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Returns the fiber occupied (columns) in each wavelength (rows), and an array with the number of occupied regenerators in each node.
 	 * The lightpaths with occupied capacity equal to zero (as Route objects) are not counted. 
@@ -899,6 +969,39 @@ public class WDMUtils
 		return Pair.of(frequencySlot2FiberOccupancy_se,nodeRegeneratorOccupancy);
 	}
 
+	/**
+	 * The same as {@link #getNetworkSlotAndRegeneratorOcupancy(NetPlan, boolean, NetworkLayer...)}, but the slot occupancy is returned as a 
+	 * {@link SpectrumOccupancy} object.
+	 * @param netPlan Current design
+	 * @param countFailedLightpaths Include paths (current, primary or backup) that are down
+	 * @param optionalLayerParameter WDM network layer. If not present, the default layer is assumed
+	 * @return Frequency slot - links occupation, and per node regenerator occupation vector
+	 * @since 0.6.0
+	 */
+	public static Pair<SpectrumOccupancy,DoubleMatrix1D> getNetworkSpectrumAndRegeneratorOccupancy(NetPlan netPlan, 
+			boolean countFailedLightpaths , NetworkLayer ... optionalLayerParameter)
+	{
+		NetworkLayer layer = netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
+		final int E = netPlan.getNumberOfLinks (layer);
+		final int N = netPlan.getNumberOfNodes ();
+		DoubleMatrix1D w_f = getVectorFiberNumFrequencySlots (netPlan, layer);
+		final int W = w_f.size () == 0? 0 : (int) w_f.getMaxLocation() [0];
+		SpectrumOccupancy spectrumOccupancy = new SpectrumOccupancy (W,E);
+		DoubleMatrix1D nodeRegeneratorOccupancy = DoubleFactory1D.dense.make (N);
+
+		/* The wavelengths above the maximum number of wavelengths of a fiber, are set as occupied */
+		for (int e = 0 ; e < E ; e ++) setBits (spectrumOccupancy.occupancy_e [e] , (int) w_f.get(e) , W);
+
+		/* Wavlengths occupied by the lightpaths as routes */
+		for (Route lpRoute : netPlan.getRoutes(layer))
+		{
+			final RSA rsa = new RSA (lpRoute , false);
+			if (!countFailedLightpaths && rsa.isDown()) continue;
+			allocateResources(rsa , spectrumOccupancy , nodeRegeneratorOccupancy);
+		}
+		return Pair.of(spectrumOccupancy,nodeRegeneratorOccupancy);
+	}
+
 	/**
 	 * Returns two maps, showing the frequency slots in the links and signal regenerator in the nodes occupancies. 
 	 * The slot occupancy is a map where the keys are the pairs (fiber,slot) occupied by at least one lightpath, and the 
@@ -976,6 +1079,32 @@ public class WDMUtils
 				}
 		}
 	}
+
+	/**
+	 * The same as {@link #releaseResources(RSA, DoubleMatrix2D, DoubleMatrix1D)}, with the slot occupancy given as a {@link SpectrumOccupancy} object.
+	 * @param rsa The RSA to release
+	 * @param spectrumOccupancy Current slot-fiber occupancy (updated inside the method)
+	 * @param nodeRegeneratorOccupancy Current node regenerator occupancy (updated inside the method). If {@code null} regenerator information is not updated
+	 * @since 0.6.0
+	 */
+	public static void releaseResources(RSA rsa , SpectrumOccupancy spectrumOccupancy, DoubleMatrix1D nodeRegeneratorOccupancy)
+	{
+		final int S = rsa.getNumSlots();
+		ListIterator<Link> fiberIt = rsa.seqLinks.listIterator();
+		while(fiberIt.hasNext())
+		{
+			final int hopId = fiberIt.nextIndex();
+			final Link fiber = fiberIt.next();
+			for (int s = 0; s < S ; s ++)
+				spectrumOccupancy.release(rsa.seqFrequencySlots_se.get(s,hopId) , fiber);
+			if ((nodeRegeneratorOccupancy != null) && (rsa.seqRegeneratorsOccupancy_e != null))
+				if (rsa.seqRegeneratorsOccupancy_e[hopId] == 1)
+				{
+					Node node = fiber.getOriginNode();
+					nodeRegeneratorOccupancy.set(node.getIndex (), nodeRegeneratorOccupancy.get(node.getIndex()) - 1);
+				}
+		}
+	}
 	
 	/**
 	 * Sets the number of frequency slots available on the given fiber.
@@ -1035,8 +1164,14 @@ public class WDMUtils
 			attNameSE = SEQUENCE_OF_FREQUENCYSLOTS_ATTRIBUTE_NAME;
 			attNameREG = SEQUENCE_OF_REGENERATORS_ATTRIBUTE_NAME;
 		}
-		lp.setAttribute(attNameSE, StringUtils.writeMatrix(rsa.seqFrequencySlots_se));
-		lp.setAttribute(attNameREG, IntUtils.join(rsa.seqRegeneratorsOccupancy_e, " "));
+		final String seqFrequencySlotsAttribute = StringUtils.writeMatrix(rsa.seqFrequencySlots_se);
+		final String seqRegeneratorsAttribute = IntUtils.join(rsa.seqRegeneratorsOccupancy_e, " ");
+		lp.setAttribute(attNameSE, seqFrequencySlotsAttribute);
+		lp.setAttribute(attNameREG, seqRegeneratorsAttribute);
+
+		/* the RSA is known: reading it back does not need to parse the attributes */
+		(initializeThePrimaryRoute? parsedRSAAttributesInitialRoute : parsedRSAAttributesCurrentRoute).put(lp , new ParsedRSAAttributes(seqFrequencySlotsAttribute , seqRegeneratorsAttribute , 
+				rsa.seqFrequencySlots_se.copy() , Arrays.copyOf(rsa.seqRegeneratorsOccupancy_e , rsa.seqRegeneratorsOccupancy_e.length)));
 	}
 
 	/**
@@ -1053,19 +1188,24 @@ public class WDMUtils
 	{
 		GraphUtils.checkRouteContinuity(seqFibers, Constants.CheckRoutingCycleType.NO_REPEAT_LINK);
 		final int W = frequencySlot2FiberOccupancy_se.rows();
-		for(int initialSlotId = 0; initialSlotId < W - numContiguousSlotsRequired + 1; initialSlotId++)
-		{
-			boolean freePaths = true;
-			for (Link link : seqFibers)
-			{
-				for (int cont = 0; cont < numContiguousSlotsRequired ; cont ++)
-					if (frequencySlot2FiberOccupancy_se.get(initialSlotId+cont,link.getIndex()) != 0) {freePaths = false; break; }
-				if (!freePaths) break;
-			}
-			if (!freePaths) continue;
-			return initialSlotId;
-		}
-		return -1;
+		return getFirstFitBlock(getPathOccupancy(seqFibers , frequencySlot2FiberOccupancy_se) , W , numContiguousSlotsRequired , 0);
+	}
+
+	/**
+	 * The same as {@link #spectrumAssignment_firstFit(List, DoubleMatrix2D, int)}, with the slot occupancy given as a {@link SpectrumOccupancy} object.
+	 * The path occupancy is computed OR-ing the bitsets of the fibers, and the contiguous blocks of idle slots are searched word by word.
+	 * <p><b>Important</b>: {@code spectrumOccupancy} is not updated by this method
+	 *
+	 * @param seqFibers Sequence of traversed fibers
+	 * @param spectrumOccupancy Current slot-fiber occupancy 
+	 * @param numContiguousSlotsRequired Number of slots of the block (in fixed-grid WDM, this is 1)
+	 * @return The id of the initial slot of the contiguous block, or -1 if there is no such block of contigous slots with free resources in all the links
+	 * @since 0.6.0
+	 */
+	public static int spectrumAssignment_firstFit(List<Link> seqFibers, SpectrumOccupancy spectrumOccupancy , int numContiguousSlotsRequired)
+	{
+		GraphUtils.checkRouteContinuity(seqFibers, Constants.CheckRoutingCycleType.NO_REPEAT_LINK);
+		return getFirstFitBlock(spectrumOccupancy.getPathOccupancy(seqFibers) , spectrumOccupancy.numSlots , numContiguousSlotsRequired , 0);
 	}
 
 	/**
@@ -1089,29 +1229,41 @@ public class WDMUtils
 		GraphUtils.checkRouteContinuity(seqFibers_2, Constants.CheckRoutingCycleType.NO_REPEAT_LINK);
 		final int W = frequencySlot2FiberOccupancy_se.rows();
 		final boolean haveLinksInCommon = !Sets.intersection(new HashSet<>(seqFibers_1)  , new HashSet<>(seqFibers_2)).isEmpty();
-		for(int initialSlot_1 = 0; initialSlot_1 < W - numContiguousSlotsRequired + 1; initialSlot_1 ++)
+		return getFirstFitBlockPair(getPathOccupancy(seqFibers_1 , frequencySlot2FiberOccupancy_se) , getPathOccupancy(seqFibers_2 , frequencySlot2FiberOccupancy_se) , W , numContiguousSlotsRequired , haveLinksInCommon);
+	}
+
+	/**
+	 * The same as {@link #spectrumAssignment_firstFitTwoRoutes(List, List, DoubleMatrix2D, int)}, with the slot occupancy given as a {@link SpectrumOccupancy} object.
+	 * <p><b>Important</b>: {@code spectrumOccupancy} is not updated by this method
+	 *
+	 * @param seqFibers_1 First sequence of traversed fibers
+	 * @param seqFibers_2 Second sequence of traversed fibers
+	 * @param spectrumOccupancy Current slot-fiber occupancy 
+	 * @param numContiguousSlotsRequired Number of slots of the block (in fixed-grid WDM, this is 1)
+	 * @return Pair of sequences of wavelengths traversed by each lightpath
+	 * @since 0.6.0
+	 */
+	public static Pair<Integer,Integer> spectrumAssignment_firstFitTwoRoutes(List<Link> seqFibers_1, List<Link> seqFibers_2 , SpectrumOccupancy spectrumOccupancy , int numContiguousSlotsRequired)
+	{
+		GraphUtils.checkRouteContinuity(seqFibers_1, Constants.CheckRoutingCycleType.NO_REPEAT_LINK);
+		GraphUtils.checkRouteContinuity(seqFibers_2, Constants.CheckRoutingCycleType.NO_REPEAT_LINK);
+		final boolean haveLinksInCommon = !Sets.intersection(new HashSet<>(seqFibers_1)  , new HashSet<>(seqFibers_2)).isEmpty();
+		return getFirstFitBlockPair(spectrumOccupancy.getPathOccupancy(seqFibers_1) , spectrumOccupancy.getPathOccupancy(seqFibers_2) , spectrumOccupancy.numSlots , numContiguousSlotsRequired , haveLinksInCommon);
+	}
+
+	/* The lowest (s1,s2) pair of blocks idle in each path, that do not overlap if the paths have links in common */
+	private static Pair<Integer,Integer> getFirstFitBlockPair (long [] pathOccupancy_1 , long [] pathOccupancy_2 , int W , int numContiguousSlotsRequired , boolean haveLinksInCommon)
+	{
+		final int firstBlock_2 = getFirstFitBlock(pathOccupancy_2 , W , numContiguousSlotsRequired , 0);
+		if (firstBlock_2 == -1) return null;
+		int initialSlot_1 = getFirstFitBlock(pathOccupancy_1 , W , numContiguousSlotsRequired , 0);
+		while (initialSlot_1 != -1)
 		{
-			boolean freePath_1 = true;
-			for (Link link : seqFibers_1) 
-			{
-				for (int cont = 0 ; cont < numContiguousSlotsRequired ; cont ++)
-					if (frequencySlot2FiberOccupancy_se.get(initialSlot_1 + cont,link.getIndex()) != 0) {freePath_1 = false; break; }
-				if (!freePath_1) break;
-			}
-			if (!freePath_1) continue;
-			for(int initialSlot_2 = 0; initialSlot_2 < W - numContiguousSlotsRequired + 1; initialSlot_2 ++)
-			{
-				if (haveLinksInCommon && (Math.abs(initialSlot_1 - initialSlot_2) < numContiguousSlotsRequired)) continue;
-				boolean freePath_2 = true;
-				for (Link link : seqFibers_2)
-				{ 
-					for (int cont = 0 ; cont < numContiguousSlotsRequired ; cont ++)
-						if (frequencySlot2FiberOccupancy_se.get(initialSlot_2 + cont,link.getIndex()) != 0) { freePath_2 = false ; break; }
-					if (!freePath_2) break;
-				}
-				if (!freePath_2) continue;
-				return Pair.of(initialSlot_1, initialSlot_2);
-			}			
+			/* if the lowest block of the second path overlaps, the next candidate starts after the block of the first path */
+			if (!haveLinksInCommon || (Math.abs(initialSlot_1 - firstBlock_2) >= numContiguousSlotsRequired)) return Pair.of(initialSlot_1, firstBlock_2);
+			final int initialSlot_2 = getFirstFitBlock(pathOccupancy_2 , W , numContiguousSlotsRequired , initialSlot_1 + Math.max(numContiguousSlotsRequired , 1));
+			if (initialSlot_2 != -1) return Pair.of(initialSlot_1, initialSlot_2);
+			initialSlot_1 = getFirstFitBlock(pathOccupancy_1 , W , numContiguousSlotsRequired , initialSlot_1 + 1);
 		}
 		return null;
 	}
@@ -1138,21 +1290,50 @@ public class WDMUtils
 	public static Pair<int[], int[]> wavelengthAssignment_RPP_firstFit(List<Link> seqFibers, DoubleMatrix2D frequencySlot2FiberOccupancy_se, DoubleMatrix1D nodeRegeneratorOccupancy, double maxRegeneratorDistanceInKm)
 	{
 		final int W = frequencySlot2FiberOccupancy_se.rows ();
+		final List<long []> seqFiberOccupancy = new ArrayList<long []> (seqFibers.size());
+		for (Link fiber : seqFibers) seqFiberOccupancy.add(getPathOccupancy(Collections.singletonList(fiber) , frequencySlot2FiberOccupancy_se));
+		return wavelengthAssignment_RPP_firstFit(seqFibers, seqFiberOccupancy, W, maxRegeneratorDistanceInKm);
+	}
+
+	/**
+	 * The same as {@link #wavelengthAssignment_RPP_firstFit(List, DoubleMatrix2D, DoubleMatrix1D, double)}, with the slot occupancy given as a 
+	 * {@link SpectrumOccupancy} object.
+	 *
+	 * @param seqFibers Sequence of traversed fibers
+	 * @param spectrumOccupancy Current slot-fiber occupancy 
+	 * @param nodeRegeneratorOccupancy Number of regenerators installed per node
+	 * @param maxRegeneratorDistanceInKm Maximum regeneration distance
+	 * @return Sequence of wavelengths traversed by each lightpath, and a 0-1 array indicating whether (1) or not (0) a regenerator/wavelength converter is required at the origin node of the corresponding fiber
+	 * @since 0.6.0
+	 */
+	public static Pair<int[], int[]> wavelengthAssignment_RPP_firstFit(List<Link> seqFibers, SpectrumOccupancy spectrumOccupancy, DoubleMatrix1D nodeRegeneratorOccupancy, double maxRegeneratorDistanceInKm)
+	{
+		final List<long []> seqFiberOccupancy = new ArrayList<long []> (seqFibers.size());
+		for (Link fiber : seqFibers) seqFiberOccupancy.add(spectrumOccupancy.occupancy_e [fiber.getIndex()]);
+		return wavelengthAssignment_RPP_firstFit(seqFibers, seqFiberOccupancy, spectrumOccupancy.numSlots, maxRegeneratorDistanceInKm);
+	}
+
+	/* The RPP first-fit on the occupancy bitsets of the traversed fibers (not modified) */
+	private static Pair<int[], int[]> wavelengthAssignment_RPP_firstFit(List<Link> seqFibers, List<long []> seqFiberOccupancy, int W, double maxRegeneratorDistanceInKm)
+	{
+		final int numWords = (W + 63) >>> 6;
 
 		List<Integer> seqWavelengths = new LinkedList<Integer>();
 		List<Integer> seqRegenerators = new LinkedList<Integer>();
 
 		double control_accumDistance = 0;
-		Set<Integer> control_occupied_w = new LinkedHashSet<Integer>();
+		long [] control_occupied_w = new long [numWords];
 		int control_firstFitValidWavelengthForSubpath = -1;
 		List<Link> control_currentSubpathSeqLinks = new LinkedList<Link>();
 
 		boolean lpAllocated = true;
 
-		Map<Link, Set<Integer>> avoidLoopWavelengthClash = new LinkedHashMap<Link, Set<Integer>>();
+		Map<Link, long []> avoidLoopWavelengthClash = new LinkedHashMap<Link, long []>();
 
-		for (Link fiber : seqFibers)
+		for (int hopId = 0; hopId < seqFibers.size() ; hopId ++)
 		{
+			final Link fiber = seqFibers.get(hopId);
+			final long [] fiberOccupancy = seqFiberOccupancy.get(hopId);
 			double fiberLengthInKm = fiber.getLengthInKm();
 
 			if (fiberLengthInKm > maxRegeneratorDistanceInKm)
@@ -1162,25 +1343,11 @@ public class WDMUtils
 
 			/* update the info as if this link was included in the subpath */
 			final double plusLink_accumDistance = control_accumDistance + fiberLengthInKm;
-			int plusLink_firstFitValidWavelengthForSubpath = -1;
-			Set<Integer> plusLink_occupied_w = new LinkedHashSet<Integer>(control_occupied_w);
-
+			long [] plusLink_occupied_w = Arrays.copyOf(control_occupied_w , numWords);
+			orBits(plusLink_occupied_w , fiberOccupancy);
 			if (avoidLoopWavelengthClash.containsKey(fiber))
-			{
-				plusLink_occupied_w.addAll(avoidLoopWavelengthClash.get(fiber));
-			}
-
-			for (int wavelengthId = W - 1; wavelengthId >= 0; wavelengthId--)
-			{
-				if (!plusLink_occupied_w.contains(wavelengthId) && (frequencySlot2FiberOccupancy_se.get(wavelengthId , fiber.getIndex()) == 0))
-				{
-					plusLink_firstFitValidWavelengthForSubpath = wavelengthId;
-				}
-				else
-				{
-					plusLink_occupied_w.add(wavelengthId);
-				}
-			}
+				orBits(plusLink_occupied_w , avoidLoopWavelengthClash.get(fiber));
+			final int plusLink_firstFitValidWavelengthForSubpath = nextClearBit(plusLink_occupied_w , 0 , W);
 
 			if (!control_currentSubpathSeqLinks.contains(fiber) && plusLink_accumDistance <= maxRegeneratorDistanceInKm && plusLink_firstFitValidWavelengthForSubpath != -1)
 			{
@@ -1208,27 +1375,21 @@ public class WDMUtils
 
 				Link aux_fiber = control_currentSubpathSeqLinks.get(cont);
 				if (!avoidLoopWavelengthClash.containsKey(aux_fiber))
-					avoidLoopWavelengthClash.put(aux_fiber, new LinkedHashSet<Integer>());
+					avoidLoopWavelengthClash.put(aux_fiber, new long [numWords]);
 
-				avoidLoopWavelengthClash.get(aux_fiber).add(control_firstFitValidWavelengthForSubpath);
+				setBits(avoidLoopWavelengthClash.get(aux_fiber) , control_firstFitValidWavelengthForSubpath , control_firstFitValidWavelengthForSubpath + 1);
 			}
 
 			/* new span includes just this link */
 			control_accumDistance = fiberLengthInKm;
 			control_currentSubpathSeqLinks = new LinkedList<Link>();
 			control_currentSubpathSeqLinks.add(fiber);
-			control_occupied_w = new LinkedHashSet<Integer>();
+			control_occupied_w = Arrays.copyOf(fiberOccupancy , numWords);
 			if (avoidLoopWavelengthClash.containsKey(fiber))
-				control_occupied_w.addAll(avoidLoopWavelengthClash.get(fiber));
+				orBits(control_occupied_w , avoidLoopWavelengthClash.get(fiber));
 
-			control_firstFitValidWavelengthForSubpath = -1;
-			for (int wavelengthId = 0; wavelengthId < W; wavelengthId++)
-			{
-				if (frequencySlot2FiberOccupancy_se.get(wavelengthId , fiber.getIndex()) != 0)
-					control_occupied_w.add(wavelengthId);
-				else if (control_firstFitValidWavelengthForSubpath == -1)
-					control_firstFitValidWavelengthForSubpath = wavelengthId;
-			}
+			/* as in the first fit: the first wavelength idle in the fiber */
+			control_firstFitValidWavelengthForSubpath = nextClearBit(fiberOccupancy , 0 , W);
 
 			if (control_firstFitValidWavelengthForSubpath == -1)
 			{
@@ -1284,6 +1445,34 @@ public class WDMUtils
 		}
 	}
 
+	/**
+	 * The same as {@link #allocateResources(RSA, DoubleMatrix2D, DoubleMatrix1D)}, with the slot occupancy given as a {@link SpectrumOccupancy} object.
+	 * 
+	 * @param rsa The rsa
+	 * @param spectrumOccupancy Current slot-fiber occupancy (updated inside the method)
+	 * @param nodeRegeneratorOccupancy Current number of regenerators occupied per node
+	 * @since 0.6.0
+	 */
+	public static void allocateResources(RSA rsa, SpectrumOccupancy spectrumOccupancy, DoubleMatrix1D nodeRegeneratorOccupancy)
+	{
+		ListIterator<Link> fiberIt = rsa.seqLinks.listIterator();
+		while(fiberIt.hasNext())
+		{
+			final int hopId = fiberIt.nextIndex();
+			final Link fiber = fiberIt.next();
+			IntMatrix1D slotIds = rsa.seqFrequencySlots_se.viewColumn(hopId);
+			for (int cont = 0 ; cont < slotIds.size() ; cont ++)
+				spectrumOccupancy.occupy(slotIds.get(cont) , fiber);
+
+			if (rsa.seqRegeneratorsOccupancy_e != null)
+				if (rsa.seqRegeneratorsOccupancy_e[hopId] == 1)
+				{
+					Node node = fiber.getOriginNode();
+					nodeRegeneratorOccupancy.set (node.getIndex (), nodeRegeneratorOccupancy.get(node.getIndex ()) + 1);
+				}
+		}
+	}
+
 	/**
 	 * <p>Computes the list of spectral voids (list of available contiguous slots) 
 	 * from a slot availability vector (of a fiber or of a path).</p>
@@ -1315,6 +1504,30 @@ public class WDMUtils
 		
 		return out;
 	}
+
+	/**
+	 * <p>Computes the list of spectral voids (list of available contiguous slots) of a path, as 
+	 * {@link #computeAvailableSpectrumVoids(TreeSet, int)}, directly from the slot occupancy bitsets of the traversed fibers.</p>
+	 * 
+	 * @param seqFibers Sequence of traversed fibers (unchecked for continuity or cycles)
+	 * @param spectrumOccupancy Current slot-fiber occupancy
+	 * @return List of spectrum voids, each one with a pair indicating both the initial slot id and the number of consecutive slots within the void. If no spectrum void is found, it returns an empty list
+	 * @since 0.6.0
+	 */
+	public static List<Pair<Integer, Integer>> computeAvailableSpectrumVoids(List<Link> seqFibers, SpectrumOccupancy spectrumOccupancy)
+	{
+		List<Pair<Integer, Integer>> out = new LinkedList<Pair<Integer, Integer>>();
+		final long [] pathOccupancy = spectrumOccupancy.getPathOccupancy(seqFibers);
+		final int W = spectrumOccupancy.numSlots;
+		int firstAvailableSlot = nextClearBit(pathOccupancy , 0 , W);
+		while (firstAvailableSlot != -1)
+		{
+			final int firstNotAvailableSlot = nextSetBit(pathOccupancy , firstAvailableSlot , W);
+			out.add(Pair.of(firstAvailableSlot, firstNotAvailableSlot - firstAvailableSlot));
+			firstAvailableSlot = nextClearBit(pathOccupancy , firstNotAvailableSlot , W);
+		}
+		return out;
+	}
 	
 	/**
 	 * Computes the maximum number of requests (each one of the same given number of frequency slots) which 
@@ -1430,18 +1643,103 @@ public class WDMUtils
 	public static TreeSet<Integer> computePathSlotOccupancy(List<Link> seqFibers, DoubleMatrix2D frequencySlot2FiberOccupancy_se)
 	{
 		final int S = frequencySlot2FiberOccupancy_se.rows();
+		return getSlotSet(getPathOccupancy(seqFibers , frequencySlot2FiberOccupancy_se) , S);
+	}
+
+	/**
+	 * The same as {@link #computePathSlotOccupancy(List, DoubleMatrix2D)}, with the slot occupancy given as a {@link SpectrumOccupancy} object.
+	 * 
+	 * @param seqFibers (Loop-free) Sequence of traversed fibers (unchecked for conitinuity or cycles)
+	 * @param spectrumOccupancy Current slot-fiber occupancy
+	 * @return Set of the slots occupied in at least one fiber of the path
+	 * @since 0.6.0
+	 */
+	public static TreeSet<Integer> computePathSlotOccupancy(List<Link> seqFibers, SpectrumOccupancy spectrumOccupancy)
+	{
+		return getSlotSet(spectrumOccupancy.getPathOccupancy(seqFibers) , spectrumOccupancy.numSlots);
+	}
+
+	private static TreeSet<Integer> getSlotSet (long [] bits , int W)
+	{
 		TreeSet<Integer> out = new TreeSet<Integer>();
-		for (int s = 0; s < S ; s ++)
+		for (int s = nextSetBit(bits , 0 , W); s < W ; s = nextSetBit(bits , s + 1 , W)) out.add (s);
+		return out;
+	}
+
+	/* Bitset with the slots occupied (non-zero) in any of the given fibers, reading only the matrix columns of the fibers */
+	private static long [] getPathOccupancy (List<Link> seqFibers , DoubleMatrix2D frequencySlot2FiberOccupancy_se)
+	{
+		final int W = frequencySlot2FiberOccupancy_se.rows();
+		final long [] bits = new long [(W + 63) >>> 6];
+		for (Link fiber : seqFibers)
 		{
-			boolean free = true;
-			for (Link fiber : seqFibers) if (frequencySlot2FiberOccupancy_se.get (s , fiber.getIndex ()) == 1) { free = false; break;  }
-			if (!free) out.add (s);
+			final DoubleMatrix1D occupancy_s = frequencySlot2FiberOccupancy_se.viewColumn(fiber.getIndex());
+			for (int s = 0; s < W ; s ++) if (occupancy_s.getQuick(s) != 0) bits [s >>> 6] |= 1L << s;
 		}
-		return out;
+		return bits;
 	}
 
-	
-	/** Returns true if the {@code Route} object is a well formed lightpath, according to the {@code WDMUtils} requirements. This means that 
+	/* The lowest initial slot, not lower than fromSlot, of a block of the given number of contiguous idle slots, or -1 if none. 
+	 * The runs of idle and occupied slots are skipped word by word */
+	private static int getFirstFitBlock (long [] pathOccupancy , int W , int numContiguousSlotsRequired , int fromSlot)
+	{
+		if (numContiguousSlotsRequired <= 0) return fromSlot <= W? fromSlot : -1;
+		int initialSlotId = fromSlot;
+		while (true)
+		{
+			initialSlotId = nextClearBit(pathOccupancy , initialSlotId , W);
+			if ((initialSlotId == -1) || (initialSlotId + numContiguousSlotsRequired > W)) return -1;
+			final int firstOccupiedSlot = nextSetBit(pathOccupancy , initialSlotId , initialSlotId + numContiguousSlotsRequired);
+			if (firstOccupiedSlot == initialSlotId + numContiguousSlotsRequired) return initialSlotId;
+			initialSlotId = firstOccupiedSlot + 1;
+		}
+	}
+
+	/* The first set bit in [fromIndex, toIndex), or toIndex if none */
+	private static int nextSetBit (long [] bits , int fromIndex , int toIndex)
+	{
+		if (fromIndex >= toIndex) return toIndex;
+		int wordIndex = fromIndex >>> 6;
+		long word = bits [wordIndex] & (-1L << fromIndex);
+		while (true)
+		{
+			if (word != 0) return Math.min(toIndex , (wordIndex << 6) + Long.numberOfTrailingZeros(word));
+			if (++ wordIndex << 6 >= toIndex) return toIndex;
+			word = bits [wordIndex];
+		}
+	}
+
+	/* The first clear bit in [fromIndex, toIndex), or -1 if none */
+	private static int nextClearBit (long [] bits , int fromIndex , int toIndex)
+	{
+		if (fromIndex >= toIndex) return -1;
+		int wordIndex = fromIndex >>> 6;
+		long word = ~bits [wordIndex] & (-1L << fromIndex);
+		while (true)
+		{
+			if (word != 0) { final int res = (wordIndex << 6) + Long.numberOfTrailingZeros(word); return res < toIndex? res : -1; }
+			if (++ wordIndex << 6 >= toIndex) return -1;
+			word = ~bits [wordIndex];
+		}
+	}
+
+	private static boolean isSetBit (long [] bits , int index)
+	{
+		return (bits [index >>> 6] & (1L << index)) != 0;
+	}
+
+	/* Sets the bits in [fromIndex, toIndex) */
+	private static void setBits (long [] bits , int fromIndex , int toIndex)
+	{
+		for (int index = fromIndex; index < toIndex ; index ++) bits [index >>> 6] |= 1L << index;
+	}
+
+	private static void orBits (long [] bits , long [] otherBits)
+	{
+		for (int cont = 0; cont < bits.length ; cont ++) bits [cont] |= otherBits [cont];
+	}
+
+		/** Returns true if the {@code Route} object is a well formed lightpath, according to the {@code WDMUtils} requirements. This means that 
 	 * the attributes stating the assigned frequency slots, occupied signal regenerators are correct, and lp occupied link 
 	 * capacity (curent and in no failure state) are non negative integers. This mehotd does NOT 
 	 * check any frequency slot clashing (two lightpaths occupying the same slot in the same fiber).
@@ -1473,6 +1771,492 @@ public class WDMUtils
 		return true;
 	}
 
+	/**
+	 * <p>Occupancy of the frequency slots in the fibers of a WDM layer, equivalent to the slot-fiber occupancy matrices {@code frequencySlot2FiberOccupancy_se} 
+	 * received by other methods of this class, but stored as one bitset per fiber (a {@code long} word per 64 slots). The occupancy of a path is 
+	 * computed OR-ing the words of its fibers, and the blocks of contiguous idle slots are searched word by word, instead of slot by slot. 
+	 * Fibers are identified by their index in the layer.</p>
+	 * 
+	 * @since 0.6.0
+	 */
+	public static class SpectrumOccupancy
+	{
+		private final int numSlots;
+		private final long [][] occupancy_e;
+
+		/**
+		 * Creates an occupancy object with all the slots idle.
+		 * 
+		 * @param numSlots Number of frequency slots (the maximum among the fibers)
+		 * @param numFibers Number of fibers
+		 * @since 0.6.0
+		 */
+		public SpectrumOccupancy (int numSlots , int numFibers)
+		{
+			if (numSlots < 0) throw new WDMException ("The number of slots must be non-negative");
+			this.numSlots = numSlots;
+			this.occupancy_e = new long [numFibers][(numSlots + 63) >>> 6];
+		}
+
+		/**
+		 * Creates an occupancy object from a slot-fiber occupancy matrix (a slot is occupied if the matrix value is non-zero).
+		 * 
+		 * @param frequencySlot2FiberOccupancy_se Slot-fiber occupancy matrix (one row per slot, one column per fiber)
+		 * @since 0.6.0
+		 */
+		public SpectrumOccupancy (DoubleMatrix2D frequencySlot2FiberOccupancy_se)
+		{
+			this (frequencySlot2FiberOccupancy_se.rows() , frequencySlot2FiberOccupancy_se.columns());
+			final IntArrayList rowList = new IntArrayList ();
+			final IntArrayList columnList = new IntArrayList ();
+			frequencySlot2FiberOccupancy_se.getNonZeros(rowList , columnList , new DoubleArrayList ());
+			for (int cont = 0; cont < rowList.size() ; cont ++)
+				occupancy_e [columnList.get(cont)][rowList.get(cont) >>> 6] |= 1L << rowList.get(cont);
+		}
+
+		/**
+		 * Returns a deep copy of this object.
+		 * 
+		 * @return The copy
+		 * @since 0.6.0
+		 */
+		public SpectrumOccupancy copy ()
+		{
+			final SpectrumOccupancy copy = new SpectrumOccupancy (numSlots , occupancy_e.length);
+			for (int e = 0; e < occupancy_e.length ; e ++) System.arraycopy(occupancy_e [e], 0, copy.occupancy_e [e], 0, occupancy_e [e].length);
+			return copy;
+		}
+
+		/**
+		 * Returns the number of frequency slots.
+		 * 
+		 * @return The number of slots
+		 * @since 0.6.0
+		 */
+		public int getNumSlots () { return numSlots; }
+
+		/**
+		 * Returns the number of fibers.
+		 * 
+		 * @return The number of fibers
+		 * @since 0.6.0
+		 */
+		public int getNumFibers () { return occupancy_e.length; }
+
+		/**
+		 * Returns {@code true} if the given slot is occupied in the given fiber.
+		 * 
+		 * @param slotId Slot identifier
+		 * @param fiber The fiber
+		 * @return {@code true} if occupied, {@code false} otherwise
+		 * @since 0.6.0
+		 */
+		public boolean isOccupied (int slotId , Link fiber)
+		{
+			checkSlotId (slotId);
+			return isSetBit (occupancy_e [fiber.getIndex()] , slotId);
+		}
+
+		/**
+		 * Sets the given slot as occupied in the given fiber. An exception is raised if the slot was already occupied.
+		 * 
+		 * @param slotId Slot identifier
+		 * @param fiber The fiber
+		 * @since 0.6.0
+		 */
+		public void occupy (int slotId , Link fiber)
+		{
+			if (slotId >= numSlots) throw new WDMException ("The slot id is higher than the number of slots available");
+			if (isOccupied (slotId , fiber)) throw new WDMException ("Frequency slot clashing: slot " + slotId + ", fiber: " + fiber.getId ());
+			occupancy_e [fiber.getIndex()][slotId >>> 6] |= 1L << slotId;
+		}
+
+		/**
+		 * Sets the given slot as idle in the given fiber. An exception is raised if the slot was not occupied.
+		 * 
+		 * @param slotId Slot identifier
+		 * @param fiber The fiber
+		 * @since 0.6.0
+		 */
+		public void release (int slotId , Link fiber)
+		{
+			if (!isOccupied (slotId , fiber)) throw new WDMException("Wavelength " + slotId + " was unused in fiber " + fiber.getId ());
+			occupancy_e [fiber.getIndex()][slotId >>> 6] &= ~(1L << slotId);
+		}
+
+		/**
+		 * Returns the occupancy of a path, as a bitset with one bit per slot (bit {@code s} is in position {@code s % 64} of word {@code s / 64}), 
+		 * set if the slot is occupied in at least one of the fibers.
+		 * 
+		 * @param seqFibers Sequence of fibers (unchecked for continuity or cycles)
+		 * @return The path occupancy bitset (a new array)
+		 * @since 0.6.0
+		 */
+		public long [] getPathOccupancy (List<Link> seqFibers)
+		{
+			final long [] res = new long [(numSlots + 63) >>> 6];
+			for (Link fiber : seqFibers) orBits (res , occupancy_e [fiber.getIndex()]);
+			return res;
+		}
+
+		/**
+		 * Returns the equivalent slot-fiber occupancy matrix (one row per slot, one column per fiber, 1 if occupied and 0 otherwise).
+		 * 
+		 * @return The occupancy matrix
+		 * @since 0.6.0
+		 */
+		public DoubleMatrix2D getMatrixFrequencySlot2FiberOccupancy ()
+		{
+			final DoubleMatrix2D res = DoubleFactory2D.dense.make (numSlots , occupancy_e.length);
+			for (int e = 0; e < occupancy_e.length ; e ++)
+				for (int s = nextSetBit(occupancy_e [e] , 0 , numSlots); s < numSlots ; s = nextSetBit(occupancy_e [e] , s + 1 , numSlots))
+					res.setQuick(s , e , 1.0);
+			return res;
+		}
+
+		@Override
+		public boolean equals (Object o)
+		{
+			if (this == o) return true;
+			if (!(o instanceof SpectrumOccupancy)) return false;
+			final SpectrumOccupancy other = (SpectrumOccupancy) o;
+			return (numSlots == other.numSlots) && Arrays.deepEquals(occupancy_e , other.occupancy_e);
+		}
+
+		@Override
+		public int hashCode ()
+		{
+			return 31 * numSlots + Arrays.deepHashCode(occupancy_e);
+		}
+
+		private void checkSlotId (int slotId)
+		{
+			if ((slotId < 0) || (slotId >= numSlots)) throw new WDMException ("Wrong slot id: " + slotId);
+		}
+	}
+
+	/**
+	 * <p>Index of the lightpaths occupying each frequency slot of each fiber in a WDM layer, kept up to date incrementally. Once created, 
+	 * the index is updated with {@link #updateLightpath(Route) updateLightpath} for the lightpaths (current, primary or backup) added, removed, 
+	 * or whose RSA or up/down state changed, or with {@link #synchronize() synchronize} when those lightpaths are not known. Then, 
+	 * the occupancy and clashing of a slot is obtained in constant time, with no need to rebuild the network occupancy 
+	 * (as in {@link WDMUtils#getNetworkSlotOccupancyMap(NetPlan, boolean, NetworkLayer...) getNetworkSlotOccupancyMap}).</p>
+	 * 
+	 * <p>The index also provides some metrics of the spectrum fragmentation in each fiber.</p>
+	 * 
+	 * @since 0.6.0
+	 */
+	public static class SpectrumOccupancyIndex
+	{
+		private final NetPlan netPlan;
+		private final NetworkLayer layer;
+		private final boolean countFailedLightpaths;
+		private final Map<Link,FiberSlots> fiberSlots = new HashMap<Link,FiberSlots> ();
+		private final Map<Route,IndexedLightpath> lightpaths = new HashMap<Route,IndexedLightpath> ();
+		private int numClashingSlots; // number of (fiber,slot) pairs occupied by more than one lightpath
+
+		/* The lightpaths in each slot of a fiber (null if none), and the number of slots with at least one lightpath */
+		private static final class FiberSlots
+		{
+			final ArrayList<List<Route>> lightpaths_s = new ArrayList<List<Route>> ();
+			int numOccupiedSlots;
+		}
+
+		/* The RSA indexed for a lightpath, and the attribute it was read from (to detect changes) */
+		private static final class IndexedLightpath
+		{
+			final String seqFrequencySlotsAttribute;
+			final RSA rsa;
+			final boolean isDown;
+
+			IndexedLightpath (String seqFrequencySlotsAttribute , RSA rsa , boolean isDown)
+			{
+				this.seqFrequencySlotsAttribute = seqFrequencySlotsAttribute;
+				this.rsa = rsa;
+				this.isDown = isDown;
+			}
+		}
+
+		/**
+		 * Creates the index of the lightpaths currently in the given layer.
+		 * 
+		 * @param netPlan Current design
+		 * @param countFailedLightpaths Include the lightpaths (current, primary or backup) that are down
+		 * @param optionalLayerParameter WDM network layer. If not present, the default layer is assumed
+		 * @since 0.6.0
+		 */
+		public SpectrumOccupancyIndex (NetPlan netPlan , boolean countFailedLightpaths , NetworkLayer ... optionalLayerParameter)
+		{
+			this.netPlan = netPlan;
+			this.layer = netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
+			this.countFailedLightpaths = countFailedLightpaths;
+			for (Route lp : netPlan.getRoutes(layer)) updateLightpath(lp);
+		}
+
+		/**
+		 * Returns the design this index refers to.
+		 * 
+		 * @return The design
+		 * @since 0.6.0
+		 */
+		public NetPlan getNetPlan () { return netPlan; }
+
+		/**
+		 * Returns the WDM layer this index refers to.
+		 * 
+		 * @return The layer
+		 * @since 0.6.0
+		 */
+		public NetworkLayer getLayer () { return layer; }
+
+		/**
+		 * Updates the index for the given lightpath: it is added if new, removed if it is not in the design anymore, and its 
+		 * slots are updated if its RSA or its up/down state changed. Only the fibers traversed by the lightpath (before and after 
+		 * the change) are visited.
+		 * 
+		 * @param lp The lightpath (current, primary or backup)
+		 * @since 0.6.0
+		 */
+		public void updateLightpath (Route lp)
+		{
+			final boolean inLayer = (lp.getNetPlan() == netPlan) && (lp.getLayer() == layer);
+			final IndexedLightpath previous = lightpaths.get(lp);
+			if (!inLayer)
+			{
+				if (previous != null) { lightpaths.remove(lp); removeSlots (lp , previous); }
+				return;
+			}
+			final String seqFrequencySlotsAttribute = lp.getAttribute(SEQUENCE_OF_FREQUENCYSLOTS_ATTRIBUTE_NAME);
+			final boolean isDown = lp.isDown();
+			if ((previous != null) && isUpToDate (lp , previous , seqFrequencySlotsAttribute , isDown)) return;
+			final IndexedLightpath current = new IndexedLightpath(seqFrequencySlotsAttribute , new RSA (lp , false) , isDown);
+			if (previous != null) removeSlots (lp , previous);
+			lightpaths.put(lp , current);
+			if (countFailedLightpaths || !isDown)
+			{
+				final RSA rsa = current.rsa;
+				for (int contLink = 0; contLink < rsa.seqLinks.size() ; contLink ++)
+				{
+					final Link fiber = rsa.seqLinks.get(contLink);
+					FiberSlots slots = fiberSlots.get(fiber);
+					if (slots == null) { slots = new FiberSlots (); fiberSlots.put(fiber , slots); }
+					for (int s = 0; s < rsa.getNumSlots() ; s ++)
+					{
+						final int slotId = rsa.seqFrequencySlots_se.get(s , contLink);
+						while (slots.lightpaths_s.size() <= slotId) slots.lightpaths_s.add(null);
+						List<Route> slotLightpaths = slots.lightpaths_s.get(slotId);
+						if (slotLightpaths == null) { slotLightpaths = new ArrayList<Route> (1); slots.lightpaths_s.set(slotId , slotLightpaths); slots.numOccupiedSlots ++; }
+						slotLightpaths.add(lp);
+						if (slotLightpaths.size() == 2) numClashingSlots ++;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Updates the index with all the changes made in the design since it was created or last updated: the lightpaths added, removed, 
+		 * or whose RSA or up/down state changed. Each lightpath is checked in constant time (besides comparing its sequence of fibers), 
+		 * and only the ones that changed are updated.
+		 * 
+		 * @since 0.6.0
+		 */
+		public void synchronize ()
+		{
+			for (Route lp : new ArrayList<Route> (lightpaths.keySet()))
+				if ((lp.getNetPlan() != netPlan) || (lp.getLayer() != layer)) updateLightpath(lp);
+			for (Route lp : netPlan.getRoutes(layer)) updateLightpath(lp);
+		}
+
+		/**
+		 * Returns the lightpaths occupying the given slot in the given fiber (more than one if there is a clash).
+		 * 
+		 * @param fiber The fiber
+		 * @param slotId Slot identifier
+		 * @return The lightpaths (an unmodifiable list, empty if the slot is idle)
+		 * @since 0.6.0
+		 */
+		public List<Route> getLightpaths (Link fiber , int slotId)
+		{
+			final List<Route> res = getSlotLightpaths (fiber , slotId);
+			return res == null? Collections.<Route>emptyList() : Collections.unmodifiableList(res);
+		}
+
+		/**
+		 * Returns {@code true} if the given slot is occupied by at least one lightpath in the given fiber.
+		 * 
+		 * @param fiber The fiber
+		 * @param slotId Slot identifier
+		 * @return see above
+		 * @since 0.6.0
+		 */
+		public boolean isOccupied (Link fiber , int slotId)
+		{
+			return getSlotLightpaths (fiber , slotId) != null;
+		}
+
+		/**
+		 * Returns {@code true} if the given slot is occupied in the given fiber by more than one lightpath, or if it is occupied 
+		 * and its id is not lower than the number of slots of the fiber.
+		 * 
+		 * @param fiber The fiber
+		 * @param slotId Slot identifier
+		 * @return see above
+		 * @since 0.6.0
+		 */
+		public boolean isClashing (Link fiber , int slotId)
+		{
+			final List<Route> slotLightpaths = getSlotLightpaths (fiber , slotId);
+			if (slotLightpaths == null) return false;
+			return (slotLightpaths.size() > 1) || (slotId >= getFiberNumFrequencySlots(fiber));
+		}
+
+		/**
+		 * Returns the number of pairs (fiber,slot) occupied by more than one lightpath.
+		 * 
+		 * @return see above
+		 * @since 0.6.0
+		 */
+		public int getNumberOfClashingSlots ()
+		{
+			return numClashingSlots;
+		}
+
+		/**
+		 * Checks resource clashing as {@link WDMUtils#checkResourceAllocationClashing(NetPlan, boolean, boolean, NetworkLayer...) checkResourceAllocationClashing}
+		 * (without checking the regenerators): no frequency slot in the same fiber can be occupied by more than one lightpath, nor 
+		 * any slot of an index higher than the fiber capacity can be occupied. An exception is raised otherwise.
+		 * 
+		 * @since 0.6.0
+		 */
+		public void checkResourceAllocationClashing ()
+		{
+			for (Map.Entry<Link,FiberSlots> entry : fiberSlots.entrySet())
+			{
+				final Link fiber = entry.getKey();
+				final ArrayList<List<Route>> lightpaths_s = entry.getValue().lightpaths_s;
+				final int W = getFiberNumFrequencySlots(fiber);
+				for (int slotId = W; slotId < lightpaths_s.size() ; slotId ++)
+					if (lightpaths_s.get(slotId) != null) throw new WDMException ("The slot id is higher than the number of slots available. Slot: " + slotId + ", fiber: " + fiber.getId ());
+				if (numClashingSlots == 0) continue;
+				for (int slotId = 0; slotId < lightpaths_s.size() ; slotId ++)
+					if ((lightpaths_s.get(slotId) != null) && (lightpaths_s.get(slotId).size() > 1)) throw new WDMException ("Frequency slot clashing: slot " + slotId + ", fiber: " + fiber.getId ());
+			}
+		}
+
+		/**
+		 * Returns {@code true} if all the slots of the given RSA are idle, and with an id lower than the number of slots of the fiber.
+		 * 
+		 * @param rsa The RSA
+		 * @return see above
+		 * @since 0.6.0
+		 */
+		public boolean isAllocatable (RSA rsa)
+		{
+			for (int contLink = 0; contLink < rsa.seqLinks.size() ; contLink ++)
+			{
+				final Link fiber = rsa.seqLinks.get(contLink);
+				final int W = getFiberNumFrequencySlots(fiber);
+				for (int s = 0; s < rsa.getNumSlots() ; s ++)
+				{
+					final int slotId = rsa.seqFrequencySlots_se.get(s , contLink);
+					if ((slotId >= W) || isOccupied (fiber , slotId)) return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Returns the number of slots in the given fiber occupied by at least one lightpath.
+		 * 
+		 * @param fiber The fiber
+		 * @return see above
+		 * @since 0.6.0
+		 */
+		public int getNumberOfOccupiedSlots (Link fiber)
+		{
+			final FiberSlots slots = fiberSlots.get(fiber);
+			return slots == null? 0 : slots.numOccupiedSlots;
+		}
+
+		/**
+		 * Returns the size of the largest block of contiguous idle slots in the given fiber (among the slots with an id lower than 
+		 * the number of slots of the fiber).
+		 * 
+		 * @param fiber The fiber
+		 * @return see above
+		 * @since 0.6.0
+		 */
+		public int getLargestFreeBlock (Link fiber)
+		{
+			final int W = getFiberNumFrequencySlots(fiber);
+			int res = 0;
+			int currentBlock = 0;
+			for (int slotId = 0; slotId < W ; slotId ++)
+			{
+				if (isOccupied (fiber , slotId)) currentBlock = 0; else currentBlock ++;
+				res = Math.max(res , currentBlock);
+			}
+			return res;
+		}
+
+		/**
+		 * Returns the spectrum entropy of the given fiber, as a measure of its fragmentation: the spectrum (the slots with an id lower than 
+		 * the number of slots of the fiber, {@code W}) is divided into maximal blocks of contiguous slots that are all idle or all occupied, 
+		 * and the entropy is the sum of {@code -(D/W) ln(D/W)} for every block of {@code D} slots. It is zero for an idle or fully occupied fiber, 
+		 * and grows as the spectrum is divided into more (and smaller) blocks.
+		 * 
+		 * @param fiber The fiber
+		 * @return see above
+		 * @since 0.6.0
+		 */
+		public double getSpectrumEntropy (Link fiber)
+		{
+			final int W = getFiberNumFrequencySlots(fiber);
+			double res = 0;
+			int blockStart = 0;
+			for (int slotId = 1; slotId <= W ; slotId ++)
+			{
+				if ((slotId < W) && (isOccupied (fiber , slotId) == isOccupied (fiber , blockStart))) continue;
+				final double blockFraction = (slotId - blockStart) / (double) W;
+				res -= blockFraction * Math.log(blockFraction);
+				blockStart = slotId;
+			}
+			return res;
+		}
+
+		private List<Route> getSlotLightpaths (Link fiber , int slotId)
+		{
+			final FiberSlots slots = fiberSlots.get(fiber);
+			if ((slots == null) || (slotId < 0) || (slotId >= slots.lightpaths_s.size())) return null;
+			return slots.lightpaths_s.get(slotId);
+		}
+
+		private boolean isUpToDate (Route lp , IndexedLightpath indexed , String seqFrequencySlotsAttribute , boolean isDown)
+		{
+			if (indexed.seqFrequencySlotsAttribute != seqFrequencySlotsAttribute) return false;
+			if ((indexed.isDown != isDown) && !countFailedLightpaths) return false;
+			return indexed.rsa.seqLinks.equals(lp.getSeqLinks());
+		}
+
+		private void removeSlots (Route lp , IndexedLightpath indexed)
+		{
+			if (!countFailedLightpaths && indexed.isDown) return;
+			final RSA rsa = indexed.rsa;
+			for (int contLink = 0; contLink < rsa.seqLinks.size() ; contLink ++)
+			{
+				final FiberSlots slots = fiberSlots.get(rsa.seqLinks.get(contLink));
+				for (int s = 0; s < rsa.getNumSlots() ; s ++)
+				{
+					final int slotId = rsa.seqFrequencySlots_se.get(s , contLink);
+					final List<Route> slotLightpaths = slots.lightpaths_s.get(slotId);
+					if (slotLightpaths.size() == 2) numClashingSlots --;
+					slotLightpaths.remove(lp);
+					if (slotLightpaths.isEmpty()) { slots.lightpaths_s.set(slotId , null); slots.numOccupiedSlots --; }
+				}
+			}
+		}
+	}
+
 	/**
 	 * Class to define typical modulation formats. Data for default formats were obtained 
 	 * from [1].
@@ -17,6 +17,7 @@ import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -24,6 +25,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import org.junit.*;
@@ -457,4 +459,76 @@ public class DemandTest
 		assertEquals(d12.getRoutes().iterator().next().getSeqLinks() , Collections.singletonList(link12));
 	}
 
+	@Test
+	public void testIncrementalHopByHopRoutingUpdate() 
+	{
+		/* links i -> j for i < j, so any forwarding rule is acyclic */
+		final Random rng = new Random (1L);
+		final NetPlan hbhNp = new NetPlan ();
+		final int N = 6;
+		for (int n = 0; n < N ; n ++) hbhNp.addNode(0 , 0 , "node" + n , null);
+		for (int i = 0; i < N ; i ++) for (int j = i+1; j < N ; j ++) hbhNp.addLink(hbhNp.getNode(i), hbhNp.getNode(j), 100 , 100 , 1 , null);
+		hbhNp.setRoutingType(RoutingType.HOP_BY_HOP_ROUTING);
+		for (int i = 0; i < N ; i ++) for (int j = i+1; j < N ; j ++) if (rng.nextBoolean()) hbhNp.addDemand(hbhNp.getNode(i), hbhNp.getNode(j), 1 + rng.nextInt(10) , null);
+		for (Demand d : hbhNp.getDemands())
+			for (int n = d.getIngressNode().getIndex(); n < d.getEgressNode().getIndex() ; n ++)
+				setRandomForwardingRules(hbhNp , d , hbhNp.getNode(n) , rng);
+		hbhNp.checkCachesConsistency();
+		assertSameAsFullRecomputation(hbhNp);
+
+		for (int it = 0; it < 200 ; it ++)
+		{
+			final Demand d = hbhNp.getDemand(rng.nextInt(hbhNp.getNumberOfDemands()));
+			switch (rng.nextInt(3))
+			{
+				case 0: 
+					setRandomForwardingRules(hbhNp , d , hbhNp.getNode(d.getIngressNode().getIndex() + rng.nextInt(d.getEgressNode().getIndex() - d.getIngressNode().getIndex())) , rng); 
+					break;
+				case 1:
+					final Link e = hbhNp.getLink(rng.nextInt(hbhNp.getNumberOfLinks()));
+					if (e.isUp()) hbhNp.setLinksAndNodesFailureState(null , Collections.singleton(e) , null , null); else hbhNp.setLinksAndNodesFailureState(Collections.singleton(e) , null , null , null);
+					break;
+				default:
+					d.setOfferedTraffic(rng.nextInt(10));
+			}
+			hbhNp.checkCachesConsistency();
+			assertSameAsFullRecomputation(hbhNp);
+		}
+	}
+
+	private static void setRandomForwardingRules (NetPlan np , Demand d , Node n , Random rng)
+	{
+		final List<Link> outLinks = new ArrayList<Link> ();
+		for (Link e : n.getOutgoingLinks()) if (e.getDestinationNode().getIndex() <= d.getEgressNode().getIndex()) outLinks.add(e);
+		for (Link e : outLinks) np.setForwardingRule(d, e, 0);
+		/* up to three links with equal splitting factors, so that no link carries a negligible fraction of the traffic */
+		Collections.shuffle(outLinks , rng);
+		final int numLinks = 1 + rng.nextInt(Math.min(3 , outLinks.size()));
+		final double splittingFactor = (rng.nextInt(4) == 0? 0.9 : 1.0) / numLinks;
+		for (Link e : outLinks.subList(0 , numLinks)) np.setForwardingRule(d, e, splittingFactor);
+	}
+
+	private static void assertSameAsFullRecomputation (NetPlan np)
+	{
+		final NetPlan fullNp = np.copy();
+		for (Demand d : fullNp.getDemands())
+		{
+			d.invalidateHopByHopIncrementalCaches();
+			d.updateHopByHopRoutingToGivenFrs(new HashMap<> (d.cacheHbH_frs));
+		}
+		fullNp.checkCachesConsistency();
+		for (Demand d : np.getDemands())
+		{
+			final Demand fullD = fullNp.getDemandFromId(d.getId());
+			assertEquals (d.getCarriedTraffic() , fullD.getCarriedTraffic() , 1e-9);
+			assertEquals (d.getRoutingCycleType() , fullD.getRoutingCycleType());
+			assertEquals (d.getWorstCasePropagationTimeInMs() , fullD.getWorstCasePropagationTimeInMs() , 1e-9);
+			final Set<Long> linkIds = new HashSet<Long> (); for (Link e : d.cacheHbH_normCarriedOccupiedPerLinkCurrentState.keySet()) linkIds.add(e.getId());
+			final Set<Long> fullLinkIds = new HashSet<Long> (); for (Link e : fullD.cacheHbH_normCarriedOccupiedPerLinkCurrentState.keySet()) fullLinkIds.add(e.getId());
+			assertEquals (linkIds , fullLinkIds);
+		}
+		for (Link e : np.getLinks())
+			assertEquals (e.getCarriedTraffic() , fullNp.getLinkFromId(e.getId()).getCarriedTraffic() , 1e-9);
+	}
+
 }
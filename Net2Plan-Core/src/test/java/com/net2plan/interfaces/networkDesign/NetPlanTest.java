@@ -11,19 +11,24 @@
 package com.net2plan.interfaces.networkDesign;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.awt.geom.Point2D;
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
@@ -32,10 +37,15 @@ import org.junit.*;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
+import com.net2plan.internal.Constants.NetworkElementType;
+import com.net2plan.libraries.GraphUtils.ClosedCycleRoutingException;
+import com.net2plan.libraries.IPUtils;
 import com.net2plan.utils.Constants.RoutingType;
 import com.net2plan.utils.Pair;
 
+import cern.colt.matrix.tdouble.DoubleFactory1D;
 import cern.colt.matrix.tdouble.DoubleFactory2D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import org.junit.rules.TemporaryFolder;
 
@@ -232,6 +242,71 @@ public class NetPlanTest
 		assertTrue (np2.isDeepCopy(np1));
 	}
 
+	@Test
+	public void testNetPlanFileBulkLoad() throws IOException
+	{
+		/* routes whose current state is not the initial one, sharing links and resources */
+		File f = temporaryFolder.newFile("temp.n2p");
+		r123b.setPath(2 , Collections.singletonList(link13) , Collections.singletonList(2.5));
+		sc123.setCarriedTraffic(10 , Arrays.asList(20.0 , 30.0 , 40.0));
+		np.addServiceChain(scd123 , 5 , Arrays.asList(1.0 , 2.0 , 3.0) , pathSc123 , null);
+		np.saveToFile(f);
+		NetPlan readNp = new NetPlan (f);
+		readNp.checkCachesConsistency();
+		assertTrue(readNp.isDeepCopy(np));
+		final Link readLink12 = readNp.getLinkFromId(link12.getId());
+		assertEquals(link12.getCarriedTraffic() , readLink12.getCarriedTraffic() , 0);
+		assertEquals(link12.getOccupiedCapacity() , readLink12.getOccupiedCapacity() , 0);
+		assertEquals(res2.getOccupiedCapacity() , readNp.getResourceFromId(res2.getId()).getOccupiedCapacity() , 0);
+		assertEquals(scd123.getCarriedTraffic() , readNp.getDemandFromId(scd123.getId()).getCarriedTraffic() , 0);
+
+		/* hop-by-hop routing and multicast trees in the same layer */
+		netTriangle.setRoutingType(RoutingType.HOP_BY_HOP_ROUTING);
+		final MulticastDemand md = netTriangle.addMulticastDemand(netTriangle_n1 , Sets.newHashSet(netTriangle_n2 , netTriangle_n3) , 7 , null);
+		netTriangle.addMulticastTree(md , 7 , 7 , Sets.newHashSet(netTriangle_e12 , netTriangle_e13) , null);
+		netTriangle.saveToFile(f);
+		readNp = new NetPlan (f);
+		readNp.checkCachesConsistency();
+		assertTrue(readNp.isDeepCopy(netTriangle));
+		assertEquals(netTriangle_e12.getCarriedTraffic() , readNp.getLinkFromId(netTriangle_e12.getId()).getCarriedTraffic() , 0);
+	}
+
+	@Test
+	public void testNetPlanBinaryFile() throws IOException
+	{
+		File f = temporaryFolder.newFile("temp.n2pb");
+		this.np.saveToBinaryFile(f);
+		NetPlan readNp = NetPlan.loadFromBinaryFile(f);
+		readNp.checkCachesConsistency();
+		assertTrue(readNp.isDeepCopy(np));
+		assertTrue(np.isDeepCopy(readNp));
+		assertEquals(1 , f.getParentFile().listFiles().length); // the temporary file was moved
+
+		/* hop-by-hop routing */
+		netTriangle.setRoutingType(RoutingType.HOP_BY_HOP_ROUTING);
+		netTriangle.saveToBinaryFile(f);
+		readNp = NetPlan.loadFromBinaryFile(f);
+		readNp.checkCachesConsistency();
+		assertTrue(readNp.isDeepCopy(netTriangle));
+
+		/* conversion from and to the XML format */
+		NetPlan np1 = new NetPlan (new File ("src/main/resources/data/networkTopologies/example7nodes_ipOverWDM.n2p"));
+		np1.saveToBinaryFile(f);
+		NetPlan np2 = NetPlan.loadFromBinaryFile(f);
+		np2.checkCachesConsistency();
+		assertTrue (np1.isDeepCopy(np2));
+		File xmlFile = temporaryFolder.newFile("temp.n2p");
+		np2.saveToFile(xmlFile);
+		assertTrue (np1.isDeepCopy(new NetPlan (xmlFile)));
+
+		try { NetPlan.loadFromBinaryFile(xmlFile); fail (); } catch (Net2PlanException e) {}
+
+		/* a negative number of elements (here, of planning domains) is a corrupted file */
+		np1.saveToBinaryFile(f);
+		try (RandomAccessFile raf = new RandomAccessFile(f , "rw")) { raf.seek(32); raf.writeInt(-1); }
+		try { NetPlan.loadFromBinaryFile(f); fail (); } catch (Net2PlanException e) {}
+	}
+
 	@Test
 	public void testGetIds()
 	{
@@ -467,6 +542,12 @@ public class NetPlanTest
 		maxRouteCostRespectToShortestPath = -1;
 		for (Demand d : netTriangle.getDemands())
 			assertEquals(cpl.get(Pair.of(d.getIngressNode(),d.getEgressNode())) , Arrays.asList(Arrays.asList(netTriangle.getNodePairLinks(d.getIngressNode() , d.getEgressNode() , false).iterator().next())));
+
+		/* Parallel computation gives the same paths, iterating the node pairs by origin and destination index */
+		K=3; cpl = netTriangle.computeUnicastCandidatePathList(null ,K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost,maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath , null , 1);
+		Map<Pair<Node,Node>,List<List<Link>>> cplParallel = netTriangle.computeUnicastCandidatePathList(null ,K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost,maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath , null , 4);
+		assertEquals(new ArrayList<> (cpl.entrySet()) , new ArrayList<> (cplParallel.entrySet()));
+		assertEquals(new ArrayList<> (cplParallel.keySet()) , Arrays.asList(Pair.of(netTriangle_n1,netTriangle_n2) , Pair.of(netTriangle_n1,netTriangle_n3) , Pair.of(netTriangle_n2,netTriangle_n1) , Pair.of(netTriangle_n2,netTriangle_n3) , Pair.of(netTriangle_n3,netTriangle_n1) , Pair.of(netTriangle_n3,netTriangle_n2)));
 	}
 
 	@Test
@@ -643,6 +724,136 @@ public class NetPlanTest
 		assertTrue (np2.isDeepCopy(np));
 	}
 
+	@Test
+	public void testCopySharesAttributesUntilModified()
+	{
+		np.setAttribute("att" , "np");
+		n1.setAttribute("att" , "1");
+		r12.setAttribute("att" , "r12");
+		NetPlan np2 = np.copy();
+		final Node n1Copy = np2.getNodeFromId(n1.getId());
+		final Route r12Copy = np2.getRouteFromId(r12.getId());
+		assertSame (n1.attributes , n1Copy.attributes);
+
+		/* the modified copy does not change the origin, and the other way round */
+		n1Copy.setAttribute("att" , "1copy");
+		r12.removeAttribute("att");
+		np2.setAttributeMap(null);
+		assertEquals ("1" , n1.getAttribute("att"));
+		assertEquals ("1copy" , n1Copy.getAttribute("att"));
+		assertEquals (null , r12.getAttribute("att"));
+		assertEquals ("r12" , r12Copy.getAttribute("att"));
+		assertEquals ("np" , np.getAttribute("att"));
+		assertEquals (null , np2.getAttribute("att"));
+		n1.setAttribute("att2" , "2");
+		assertEquals (null , n1Copy.getAttribute("att2"));
+
+		/* copies of copies */
+		NetPlan np3 = np2.copy();
+		np3.getRouteFromId(r12.getId()).setAttribute("att" , "r12copy");
+		assertEquals ("r12" , r12Copy.getAttribute("att"));
+		np.copyFrom(np3);
+		assertTrue (np.isDeepCopy(np3));
+		np3.getNodeFromId(n1.getId()).removeAllAttributes();
+		assertEquals ("1copy" , np.getNodeFromId(n1.getId()).getAttribute("att"));
+	}
+
+	@Test
+	public void testComputeAndApplyDiff()
+	{
+		assertTrue (np.computeDiffTo(np.copy()).isEmpty());
+
+		final NetPlan np2 = np.copy();
+		np2.setNetworkName("modified");
+		final Node n4 = np2.addNode(1 , 2 , "node4" , null);
+		n4.addTag("t4");
+		final Link link34 = np2.addLink(np2.getNodeFromId(n3.getId()) , n4 , 20 , 10 , 1 , null , np2.getNetworkLayerFromId(lowerLayer.getId()));
+		final Demand d14 = np2.addDemand(np2.getNodeFromId(n1.getId()) , n4 , 4 , null , np2.getNetworkLayerFromId(lowerLayer.getId()));
+		final Route r134 = np2.addRoute(d14 , 2 , 2 , Arrays.asList(np2.getLinkFromId(link13.getId()) , link34) , null);
+		r134.setAttribute("att" , "r134");
+		np2.getRouteFromId(r123b.getId()).setPath(2 , Collections.singletonList(np2.getLinkFromId(link13.getId())) , Collections.singletonList(2.5));
+		np2.getRouteFromId(r123a.getId()).removeBackupRoute(np2.getRouteFromId(segm13.getId()));
+		np2.getRouteFromId(r12.getId()).remove();
+		np2.getLinkFromId(link23.getId()).setCapacity(200);
+		np2.getLinkFromId(link12.getId()).removeTag("t1");
+		np2.getNodeFromId(n1.getId()).setAttribute("att" , "2");
+		np2.getNodeFromId(n2.getId()).setFailureState(false);
+		np2.getMulticastTreeFromId(tStar.getId()).remove();
+		np2.getResourceFromId(res2backup.getId()).remove();
+		np2.getDemandFromId(d12.getId()).decouple();
+		final SharedRiskGroup srg = np2.addSRG(10 , 1 , null);
+		srg.addLink(link34);
+
+		final NetPlanDiff diff = np.computeDiffTo(np2);
+		assertTrue (diff.getAddedElementIds().containsAll(Arrays.asList(n4.getId() , link34.getId() , d14.getId() , r134.getId() , srg.getId())));
+		assertEquals (new HashSet<Long> (Arrays.asList(r12.getId() , tStar.getId() , res2backup.getId())) , diff.getRemovedElementIds());
+		assertTrue (diff.getModifiedElementIds().containsAll(Arrays.asList(r123a.getId() , r123b.getId() , link23.getId() , link12.getId() , n1.getId() , n2.getId() , d12.getId())));
+		assertTrue (!diff.getModifiedElementIds().contains(n3.getId()));
+
+		/* the change set applied to the first design gives the second */
+		final NetPlan np3 = np.copy();
+		np3.applyDiff(diff);
+		np3.checkCachesConsistency();
+		assertTrue (np3.isDeepCopy(np2));
+		assertTrue (np2.isDeepCopy(np3));
+		assertTrue (np3.computeDiffTo(np2).isEmpty());
+
+		/* hop-by-hop routing */
+		final NetPlan triangle2 = netTriangle.copy();
+		triangle2.setRoutingType(RoutingType.HOP_BY_HOP_ROUTING);
+		final Map<Demand,Map<Link,Double>> frs = new HashMap<> ();
+		frs.put(triangle2.getDemandFromId(netTriangle_d12.getId()) , Collections.singletonMap(triangle2.getLinkFromId(netTriangle_e12.getId()) , 1.0));
+		frs.put(triangle2.getDemandFromId(netTriangle_d13.getId()) , Collections.singletonMap(triangle2.getLinkFromId(netTriangle_e13.getId()) , 0.5));
+		triangle2.setForwardingRules(frs);
+		final NetPlan triangle3 = netTriangle.copy();
+		triangle3.applyDiff(netTriangle.computeDiffTo(triangle2));
+		assertTrue (triangle3.isDeepCopy(triangle2));
+		final NetPlan triangle4 = triangle2.copy();
+		triangle4.getDemandFromId(netTriangle_d13.getId()).removeAllForwardingRules();
+		triangle3.applyDiff(triangle2.computeDiffTo(triangle4));
+		assertTrue (triangle3.isDeepCopy(triangle4));
+
+		/* the removed and modified elements must exist */
+		try { new NetPlan ().applyDiff(diff); fail (); } catch (Net2PlanException e) {}
+	}
+
+	@Test
+	public void testChangeEvents()
+	{
+		final List<NetPlanChangeEvent> events = new ArrayList<> ();
+		final INetPlanChangeListener listener = e -> events.add(e);
+		np.addChangeListener(listener);
+		assertEquals (null , np.fireChangeEvent());
+
+		final Node n4 = np.addNode(1 , 2 , "node4" , null);
+		n4.setName("node4b");
+		np.addNode(1 , 2 , "node5" , null).remove();
+		link12.setCapacity(200);
+		link13.setAttribute("att" , "1");
+		n2.setFailureState(false);
+		r12.remove();
+
+		/* all the changes are coalesced in one event */
+		final NetPlanChangeEvent event = np.fireChangeEvent();
+		assertEquals (Collections.singletonList(event) , events);
+		assertEquals (Collections.singleton(n4) , event.getElements(NetPlanChangeEvent.ChangeType.ADDED));
+		assertEquals (Collections.singleton(r12) , event.getElements(NetPlanChangeEvent.ChangeType.REMOVED));
+		assertTrue (event.getElements(NetPlanChangeEvent.ChangeType.MODIFIED).contains(link12));
+		assertTrue (!event.getElements(NetPlanChangeEvent.ChangeType.MODIFIED).contains(n4));
+		assertEquals (Collections.singleton(link13) , event.getElements(NetPlanChangeEvent.ChangeType.ATTRIBUTES_CHANGED));
+		assertEquals (Collections.singleton(n2) , event.getElements(NetPlanChangeEvent.ChangeType.FAILURE_STATE_CHANGED));
+		assertEquals (Collections.singleton(NetworkElementType.NODE) , event.getElementTypes(NetPlanChangeEvent.ChangeType.ADDED));
+		assertEquals (null , np.fireChangeEvent());
+
+		np.copyFrom(netTriangle);
+		assertTrue (np.fireChangeEvent().isDesignReplaced());
+		assertEquals (2 , events.size());
+
+		np.removeChangeListener(listener);
+		np.addNode(1 , 2 , "node6" , null);
+		assertEquals (null , np.fireChangeEvent());
+	}
+
 	@Test
 	public void testCopyFrom()
 	{
@@ -929,6 +1140,66 @@ public class NetPlanTest
 		assertTrue (upperLink12.isUp());
 	}
 
+	@Test
+	public void testSetLinksAndNodesFailureStateTransaction()
+	{
+		/* source routing, multicast trees and coupled layers */
+		final NetPlan npBefore = np.copy();
+		final FailureStateTransaction t1 = np.setLinksAndNodesFailureStateTransaction(null , Arrays.asList(link12 , upperLink12), null, null);
+		assertTrue (r12.isDown());
+		assertTrue (t123.isDown());
+		final FailureStateTransaction t2 = np.setLinksAndNodesFailureStateTransaction(null , Arrays.asList(link12 , link13), null, Arrays.asList(n3));
+		assertEquals (t2.getNumberOfLinksAndNodesChanged() , 2);
+		try { t1.revert(); fail (); } catch (Net2PlanException e) {}
+		t2.revert();
+		t1.revert();
+		try { t1.revert(); fail (); } catch (Net2PlanException e) {}
+		np.checkCachesConsistency();
+		assertSameFailureStateAndTraffic (npBefore , np);
+
+		/* hop-by-hop routing, with traffic split in both paths */
+		sc123.remove();
+		scd123.setServiceChainSequenceOfTraversedResourceTypes(null);
+		np.setRoutingType(RoutingType.HOP_BY_HOP_ROUTING , lowerLayer);
+		np.setForwardingRules(Collections.singletonMap(d13 , ImmutableMap.of(link12 , 0.5 , link13 , 0.5 , link23 , 1.0)));
+		final NetPlan npBeforeHbH = np.copy();
+		final FailureStateTransaction t3 = np.setLinksAndNodesFailureStateTransaction(null , Arrays.asList(link13), null, null);
+		np.checkCachesConsistency();
+		assertEquals (d13.getCarriedTraffic() , 0.5 * d13.getOfferedTraffic() , 1e-9);
+		t3.revert();
+		np.checkCachesConsistency();
+		assertEquals (d13.getCarriedTraffic() , d13.getOfferedTraffic() , 1e-9);
+		assertSameFailureStateAndTraffic (npBeforeHbH , np);
+
+		/* the routing was changed after the transaction */
+		final FailureStateTransaction t4 = np.setLinksAndNodesFailureStateTransaction(null , Arrays.asList(link13), null, null);
+		np.setForwardingRules(Collections.singletonMap(d13 , ImmutableMap.of(link12 , 1.0 , link23 , 1.0)));
+		try { t4.revert(); fail (); } catch (Net2PlanException e) {}
+	}
+
+	private static void assertSameFailureStateAndTraffic (NetPlan expected , NetPlan np)
+	{
+		for (NetworkLayer layer : np.getNetworkLayers())
+		{
+			final NetworkLayer expectedLayer = expected.getNetworkLayer(layer.getIndex());
+			for (Link e : np.getLinks(layer))
+			{
+				final Link expectedLink = expected.getLink(e.getIndex() , expectedLayer);
+				assertEquals (expectedLink.getCarriedTraffic() , e.getCarriedTraffic() , 1e-9);
+				assertEquals (expectedLink.getOccupiedCapacity() , e.getOccupiedCapacity() , 1e-9);
+				assertEquals (expectedLink.getCapacity() , e.getCapacity() , 1e-9);
+			}
+			for (Demand d : np.getDemands(layer))
+				assertEquals (expected.getDemand(d.getIndex() , expectedLayer).getCarriedTraffic() , d.getCarriedTraffic() , 1e-9);
+			for (MulticastDemand d : np.getMulticastDemands(layer))
+				assertEquals (expected.getMulticastDemand(d.getIndex() , expectedLayer).getCarriedTraffic() , d.getCarriedTraffic() , 1e-9);
+			assertEquals (expected.getRoutesDown(expectedLayer).size() , np.getRoutesDown(layer).size());
+			assertEquals (expected.getMulticastTreesDown(expectedLayer).size() , np.getMulticastTreesDown(layer).size());
+			assertEquals (expected.getLinksDown(expectedLayer).size() , np.getLinksDown(layer).size());
+		}
+		assertEquals (expected.getNodesDown().size() , np.getNodesDown().size());
+	}
+
 	@Test
 	public void testSetDemandTrafficUnitsName()
 	{
@@ -973,6 +1244,82 @@ public class NetPlanTest
 		assertEquals(np.getForwardingRuleSplittingFactor(d12,   link12) , 0.7 , 0);
 	}
 
+	@Test
+	public void testSetForwardingRulesMapOfDemandMapOfLinkDouble()
+	{
+		sc123.remove();
+		scd123.setServiceChainSequenceOfTraversedResourceTypes(null);
+		np.setRoutingType(RoutingType.HOP_BY_HOP_ROUTING , lowerLayer);
+
+		/* the same forwarding rules for the demands to node 3 */
+		final Map<Link,Double> frsTo3 = ImmutableMap.of(link12 , 0.5 , link13 , 0.5 , link23 , 1.0);
+		final Map<Demand,Map<Link,Double>> frsPerDemand = new HashMap<Demand,Map<Link,Double>> ();
+		frsPerDemand.put(d13 , frsTo3);
+		frsPerDemand.put(scd123 , frsTo3);
+		np.setForwardingRules(frsPerDemand);
+		np.checkCachesConsistency();
+		for (Demand d : Arrays.asList(d13 , scd123))
+		{
+			assertEquals(np.getForwardingRuleSplittingFactor(d , link12) , 0.5 , 0);
+			assertEquals(np.getForwardingRuleSplittingFactor(d , link13) , 0.5 , 0);
+			assertEquals(d.getCarriedTraffic() , d.getOfferedTraffic() , 1e-9);
+		}
+		assertEquals(link23.getCarriedTraffic() - link23.getMulticastCarriedTraffic() , 0.5 * (d13.getOfferedTraffic() + scd123.getOfferedTraffic()) , 1e-9);
+
+		/* ECMP with unit weights: the demands to node 3 use only the direct link */
+		IPUtils.setECMPForwardingRulesFromLinkWeights(np , DoubleFactory1D.dense.make(np.getNumberOfLinks(lowerLayer) , 1.0) , lowerLayer);
+		np.checkCachesConsistency();
+		assertEquals(np.getForwardingRuleSplittingFactor(d13 , link13) , 1 , 0);
+		assertEquals(np.getForwardingRuleSplittingFactor(d13 , link12) , 0 , 0);
+
+		try { np.setForwardingRules(Collections.singletonMap(d13 , ImmutableMap.of(link12 , 0.7 , link13 , 0.7))); fail (); } catch (Net2PlanException e) {}
+	}
+
+	@Test
+	public void testSetForwardingRulesBatchedUpdate()
+	{
+		/* enough demands to compute their routing in parallel */
+		final Random rng = new Random (1L);
+		final NetPlan meshNp = new NetPlan ();
+		final int N = 10;
+		for (int n = 0; n < N ; n ++) meshNp.addNode(0 , 0 , "node" + n , null);
+		for (Node n1 : meshNp.getNodes()) for (Node n2 : meshNp.getNodes()) if (n1 != n2) meshNp.addLink(n1, n2, 100 , 100 , 1 , null);
+		for (Node n1 : meshNp.getNodes()) for (Node n2 : meshNp.getNodes()) if (n1 != n2) meshNp.addDemand(n1, n2, 1 + rng.nextInt(10) , null);
+		meshNp.setRoutingType(RoutingType.HOP_BY_HOP_ROUTING);
+		assertTrue(meshNp.getNumberOfDemands() >= NetPlan.MIN_DEMANDS_PARALLEL_HOP_BY_HOP_UPDATE);
+
+		final DoubleMatrix1D linkWeights = DoubleFactory1D.dense.make(meshNp.getNumberOfLinks());
+		for (int e = 0; e < linkWeights.size() ; e ++) linkWeights.set(e, 1 + rng.nextInt(3));
+		final DoubleMatrix2D f_de = IPUtils.computeCarriedTrafficFromIGPWeights(meshNp, linkWeights).getFirst();
+
+		/* the same routing applied demand by demand */
+		final NetPlan sequentialNp = meshNp.copy();
+		for (Demand d : sequentialNp.getDemands())
+		{
+			final Map<Link,Double> frs = new HashMap<Link,Double> ();
+			for (Link e : sequentialNp.getLinks()) if (f_de.get(d.getIndex(), e.getIndex()) >= Configuration.precisionFactor) frs.put(e, f_de.get(d.getIndex(), e.getIndex()));
+			d.updateHopByHopRoutingToGivenFrs(frs);
+		}
+
+		meshNp.setForwardingRules(f_de);
+		meshNp.checkCachesConsistency();
+		sequentialNp.checkCachesConsistency();
+		for (Demand d : meshNp.getDemands()) assertEquals(d.getCarriedTraffic() , sequentialNp.getDemand(d.getIndex()).getCarriedTraffic() , 1e-9);
+		for (Link e : meshNp.getLinks()) assertEquals(e.getCarriedTraffic() , sequentialNp.getLink(e.getIndex()).getCarriedTraffic() , 1e-9);
+
+		/* a closed cycle in one demand does not modify the routing of any demand */
+		final DoubleMatrix2D f_de_cycle = f_de.copy();
+		final Demand d01 = meshNp.getNodePairDemands(meshNp.getNode(0), meshNp.getNode(1), false).iterator().next();
+		f_de_cycle.viewRow(d01.getIndex()).assign(0);
+		f_de_cycle.set(d01.getIndex(), meshNp.getNodePairLinks(meshNp.getNode(0), meshNp.getNode(2), false).iterator().next().getIndex(), 1);
+		f_de_cycle.set(d01.getIndex(), meshNp.getNodePairLinks(meshNp.getNode(2), meshNp.getNode(0), false).iterator().next().getIndex(), 1);
+		final DoubleMatrix1D carriedTrafficBefore = meshNp.getVectorLinkCarriedTraffic();
+		try { meshNp.setForwardingRules(f_de_cycle); fail (); } catch (ClosedCycleRoutingException e) {}
+		meshNp.checkCachesConsistency();
+		assertEquals(meshNp.getVectorLinkCarriedTraffic() , carriedTrafficBefore);
+		assertEquals(meshNp.getMatrixDemandBasedForwardingRules() , f_de);
+	}
+
 	@Test
 	public void testSetLinkCapacityUnitsName()
 	{
@@ -1196,6 +1543,36 @@ public class NetPlanTest
 				n1,n2,n3,low12,low23,dlow12,dlow13,rlow13,upperLink13)));
 
 	}		
+
+	@Test
+	public void testModifiedElementsTracking ()
+	{
+		assertEquals(np.pollModifiedElements() , null);
+		np.setModifiedElementsTracking(true);
+		assertEquals(np.pollModifiedElements() , Sets.newHashSet());
+
+		link13.setCapacity(50);
+		d12.setOfferedTraffic(10);
+		final Node n4 = np.addNode(0 , 0 , "node4" , null);
+		final Set<NetworkElement> modified = np.pollModifiedElements();
+		assertTrue(modified.containsAll(Arrays.asList(link13 , d12 , n4)));
+		assertTrue(!modified.contains(link23) && !modified.contains(d13));
+		assertEquals(np.pollModifiedElements() , Sets.newHashSet());
+
+		link23.remove();
+		assertTrue(np.pollModifiedElements().containsAll(Arrays.asList(link23 , n2 , n3)));
+
+		np.setLinksAndNodesFailureState(null , Collections.singleton(link12) , null , null);
+		assertTrue(np.pollModifiedElements().contains(link12));
+
+		np.assignFrom(np.copy());
+		assertEquals(np.pollModifiedElements() , null);
+		assertEquals(np.pollModifiedElements() , Sets.newHashSet());
+
+		np.setModifiedElementsTracking(false);
+		link12.setCapacity(10);
+		assertEquals(np.pollModifiedElements() , null);
+	}
 //		allElements = new HashSet<> ();
 //		allElements.addAll(netTriangle.getNodes());
 //		allElements.addAll(netTriangle.getResources());
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BatchMeansTest
+{
+	@Test
+	public void testBatchMerging()
+	{
+		BatchMeans batchMeans = new BatchMeans(10);
+		for (int event = 0; event < 10 * (BatchMeans.MAX_BATCHES - 1); event++)
+			batchMeans.addObservation(1, 1);
+		assertEquals(BatchMeans.MAX_BATCHES - 1, batchMeans.getNumberOfBatches());
+		assertEquals(10, batchMeans.getNumberOfEventsPerBatch());
+
+		/* Closing the last batch merges all of them in pairs */
+		for (int event = 0; event < 10; event++)
+			batchMeans.addObservation(1, 1);
+		assertEquals(BatchMeans.MAX_BATCHES / 2, batchMeans.getNumberOfBatches());
+		assertEquals(20, batchMeans.getNumberOfEventsPerBatch());
+		assertEquals(1, batchMeans.getMean(), 1e-12);
+	}
+
+	@Test
+	public void testBatchesHaveEqualSizeAfterMerging()
+	{
+		BatchMeans batchMeans = new BatchMeans(3);
+		for (int event = 0; event < 3 * BatchMeans.MAX_BATCHES * 5 + 7; event++)
+		{
+			batchMeans.addObservation(event % 2, 1);
+			for (int batch = 0; batch < batchMeans.getNumberOfBatches(); batch++)
+				assertEquals(batchMeans.getNumberOfEventsPerBatch(), batchMeans.getNumberOfEvents(batch));
+		}
+		assertTrue(batchMeans.getNumberOfEventsPerBatch() > 3);
+	}
+
+	@Test
+	public void testZeroMetricDoesNotConverge()
+	{
+		BatchMeans batchMeans = new BatchMeans(10);
+		for (int event = 0; event < 10 * BatchMeans.MAX_BATCHES * 4; event++)
+			batchMeans.addObservation(0, 1);
+		assertEquals(0, batchMeans.getHalfWidth(0.95), 0);
+		assertFalse(batchMeans.hasConverged(0.01, 0.95));
+	}
+
+	@Test
+	public void testTimeWeightedMean()
+	{
+		BatchMeans batchMeans = new BatchMeans(2);
+		for (int batch = 0; batch < BatchMeans.MIN_BATCHES; batch++)
+		{
+			batchMeans.addObservation(1, 3);
+			assertTrue(batchMeans.addObservation(5, 1));
+		}
+
+		assertEquals(2, batchMeans.getMean(), 1e-12);
+		assertEquals(0, batchMeans.getWarmupBatches());
+		assertEquals(0, batchMeans.getHalfWidth(0.95), 1e-12);
+		assertTrue(batchMeans.hasConverged(0.01, 0.95));
+	}
+
+	@Test
+	public void testWarmupDetectionAndConvergence()
+	{
+		Random rng = new Random(1L);
+		BatchMeans batchMeans = new BatchMeans(100);
+
+		/* Warm-up: the metric decays from 10 to its steady-state mean (1) along the first batches */
+		for (int event = 0; event < 1000; event++)
+			batchMeans.addObservation(1 + 9 * Math.exp(-event / 200.0) + rng.nextGaussian() * 0.1, 1);
+		assertFalse(batchMeans.hasConverged(0.01, 0.95));
+
+		for (int event = 0; event < 20000; event++)
+			batchMeans.addObservation(1 + rng.nextGaussian() * 0.1, 1);
+
+		assertTrue(batchMeans.getWarmupBatches() > 0);
+		assertEquals(1, batchMeans.getMean(), 0.01);
+		assertTrue(batchMeans.hasConverged(0.01, 0.95));
+	}
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ElementStatsTableTest
+{
+	@Test
+	public void testAccumulateAndInitialValues()
+	{
+		final ElementStatsTable table = new ElementStatsTable(0, Double.MAX_VALUE, 0);
+		assertEquals(Double.MAX_VALUE, table.get(table.getRow(5), 1), 0);
+
+		final int row = table.addRow(5);
+		assertEquals(row, table.addRow(5));
+		table.accumulate(row, 0, 2.0, 0.5);
+		table.accumulate(row, 0, 4.0, 1.0);
+		assertEquals(5.0, table.get(row, 0), 0);
+		assertEquals(2.0, table.get(row, 1), 0);
+		assertEquals(4.0, table.get(row, 2), 0);
+
+		/* A removed row is reused, with the initial values */
+		assertTrue(table.removeRow(5));
+		assertFalse(table.removeRow(5));
+		assertEquals(-1, table.getId(row));
+		assertEquals(row, table.addRow(7));
+		assertEquals(0, table.get(row, 0), 0);
+		assertEquals(Double.MAX_VALUE, table.get(row, 1), 0);
+	}
+
+	@Test
+	public void testRandomAddAndRemove()
+	{
+		final Random rng = new Random(1L);
+		final ElementStatsTable table = new ElementStatsTable(0);
+		final Map<Long, Double> expected = new HashMap<Long, Double>();
+		for (int cont = 0; cont < 100000; cont++)
+		{
+			final long id = rng.nextInt(5000);
+			if (rng.nextInt(3) == 0)
+			{
+				assertEquals(expected.remove(id) != null, table.removeRow(id));
+			}
+			else
+			{
+				final double value = rng.nextDouble();
+				table.set(table.addRow(id), 0, value);
+				expected.put(id, value);
+			}
+		}
+
+		assertEquals(expected.size(), table.size());
+		final List<Long> idsInRows = new ArrayList<Long>();
+		for (int row = 0; row < table.getNumberOfRows(); row++)
+		{
+			final long id = table.getId(row);
+			if (id == -1) continue;
+			idsInRows.add(id);
+			assertEquals(row, table.getRow(id));
+			assertEquals(expected.get(id), table.get(row, 0), 0);
+		}
+		assertEquals(expected.size(), idsInRows.size());
+		for (long id = 0; id < 5000; id++)
+			assertEquals(expected.containsKey(id), table.contains(id));
+	}
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+/**
+ * JMH benchmark of the future event list implementations under the classical hold model: the FEL is
+ * pre-loaded with a number of pending events, and each operation extracts the head event and schedules
+ * a new one at an exponentially distributed time in the future. Run it from the test classpath
+ * (e.g. executing the {@code main} method of this class).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class FutureEventListBenchmark
+{
+	@Param({"BINARY_HEAP", "CALENDAR_QUEUE"})
+	public FutureEventList.Type type;
+
+	@Param({"1000", "100000", "1000000"})
+	public int pendingEvents;
+
+	private FutureEventList fel;
+	private Random rng;
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		rng = new Random(1L);
+		fel = new FutureEventList(type);
+		for (int cont = 0; cont < pendingEvents; cont++)
+			fel.addEvent(new SimEvent(-Math.log(rng.nextDouble()), SimEvent.DestinationModule.EVENT_PROCESSOR, 0, null));
+	}
+
+	@Benchmark
+	public SimEvent hold()
+	{
+		final SimEvent next = fel.getNextEvent();
+		fel.addEvent(new SimEvent(next.getEventTime() - Math.log(rng.nextDouble()), SimEvent.DestinationModule.EVENT_PROCESSOR, 0, null));
+		return next;
+	}
+
+	public static void main(String[] args) throws RunnerException
+	{
+		new Runner(new OptionsBuilder().include(FutureEventListBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+public class FutureEventListTest
+{
+	private static List<SimEvent> sortedByContract (final List<SimEvent> eventsInInsertionOrder)
+	{
+		final List<SimEvent> res = new ArrayList<SimEvent> (eventsInInsertionOrder);
+		Collections.sort(res , new Comparator<SimEvent> ()
+		{
+			@Override
+			public int compare(SimEvent e1, SimEvent e2)
+			{
+				final int c = e1.compareTo(e2);
+				if (c != 0) return c;
+				return Integer.compare(eventsInInsertionOrder.indexOf(e1) , eventsInInsertionOrder.indexOf(e2));
+			}
+		});
+		return res;
+	}
+
+	private static SimEvent event (double time , int priority)
+	{
+		return new SimEvent(time , SimEvent.DestinationModule.EVENT_PROCESSOR , 0 , priority , null);
+	}
+
+	@Test
+	public void testOrderTimePriorityFifo()
+	{
+		for (FutureEventList.Type type : FutureEventList.Type.values())
+		{
+			final Random rng = new Random (1L);
+			final List<SimEvent> events = new ArrayList<SimEvent> ();
+			final FutureEventList fel = new FutureEventList(type);
+			for (int cont = 0; cont < 2000 ; cont ++)
+			{
+				final SimEvent e = event(rng.nextInt(50) * 0.5 , rng.nextInt(3));
+				events.add(e);
+				fel.addEvent(e);
+			}
+			assertEquals(sortedByContract(events) , fel.getPendingEvents());
+			for (SimEvent e : sortedByContract(events))
+				assertSame(e , fel.getNextEvent());
+			assertFalse(fel.hasMoreEvents());
+		}
+	}
+
+	@Test
+	public void testHoldModel()
+	{
+		/* Classical hold model: extract the head event, schedule a new one at a random time in the future */
+		final FutureEventList heap = new FutureEventList(FutureEventList.Type.BINARY_HEAP);
+		final FutureEventList calendar = new FutureEventList(FutureEventList.Type.CALENDAR_QUEUE);
+		final Random rng = new Random (1L);
+		for (int cont = 0; cont < 5000 ; cont ++)
+		{
+			final SimEvent e = event(-Math.log(rng.nextDouble()) , 0);
+			heap.addEvent(e); calendar.addEvent(e);
+		}
+		for (int cont = 0; cont < 50000 ; cont ++)
+		{
+			final SimEvent next = heap.getNextEvent();
+			assertSame(next , calendar.getNextEvent());
+			assertEquals(heap.getCurrentSimulationTime() , calendar.getCurrentSimulationTime() , 0);
+			final SimEvent e = event(next.getEventTime() + (rng.nextInt(10) == 0? 100 : 1) * -Math.log(rng.nextDouble()) , 0);
+			heap.addEvent(e); calendar.addEvent(e);
+		}
+		while (heap.hasMoreEvents())
+			assertSame(heap.getNextEvent() , calendar.getNextEvent());
+		assertFalse(calendar.hasMoreEvents());
+	}
+
+	@Test
+	public void testRemoveAndChangeType()
+	{
+		final FutureEventList fel = new FutureEventList(FutureEventList.Type.CALENDAR_QUEUE);
+		final List<SimEvent> events = new ArrayList<SimEvent> ();
+		for (int cont = 0; cont < 100 ; cont ++) { final SimEvent e = event(100 - cont , 0); events.add(e); fel.addEvent(e); }
+		fel.remove(events.get(0));
+		fel.remove(events.get(50));
+		assertEquals(98 , fel.getNumberOfPendingEvents());
+		fel.setType(FutureEventList.Type.BINARY_HEAP);
+		assertEquals(98 , fel.getNumberOfPendingEvents());
+		assertEquals(1.0 , fel.getNextEventSimulationTime() , 0);
+		double lastTime = 0;
+		while (fel.hasMoreEvents())
+		{
+			final SimEvent e = fel.getNextEvent();
+			assertTrue(e != events.get(0) && e != events.get(50));
+			assertTrue(e.getEventTime() > lastTime);
+			lastTime = e.getEventTime();
+		}
+	}
+}
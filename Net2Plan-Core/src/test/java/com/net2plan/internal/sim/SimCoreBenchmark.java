@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+/**
+ * JMH benchmark of the event loop of the simulation core: an empty event processor schedules the next event when
+ * processing each one, so the score (events per second) measures the per-event overhead of the simulation core.
+ * Run it from the test classpath (e.g. executing the {@code main} method of this class).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SimCoreBenchmark
+{
+	private final static int EVENTS_PER_INVOCATION = 1000000;
+
+	private SimCore simCore;
+
+	@Setup(Level.Invocation)
+	public void setUp()
+	{
+		simCore = new SimCore(new EmptyEventCallback());
+		simCore.setRefreshTimeInSeconds(Double.MAX_VALUE);
+		simCore.setTotalSimulationEvents(EVENTS_PER_INVOCATION);
+		simCore.getFutureEventList().addEvent(new SimEvent(0, SimEvent.DestinationModule.EVENT_PROCESSOR, 0, null));
+		simCore.setSimulationState(SimCore.SimState.RUNNING);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS_PER_INVOCATION)
+	public long emptyProcessor()
+	{
+		simCore.run();
+		return simCore.getFutureEventList().getNumberOfProcessedEvents();
+	}
+
+	public static void main(String[] args) throws RunnerException
+	{
+		new Runner(new OptionsBuilder().include(SimCoreBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	private final class EmptyEventCallback implements IEventCallback
+	{
+		@Override
+		public void endTransitory() { }
+
+		@Override
+		public void finishTransitory(double currentSimTime) { }
+
+		@Override
+		public void processEvent(SimEvent event)
+		{
+			scheduleEvent(new SimEvent(event.getEventTime() + 1, SimEvent.DestinationModule.EVENT_PROCESSOR, 0, null));
+		}
+
+		@Override
+		public void scheduleEvent(SimEvent event)
+		{
+			simCore.getFutureEventList().addEvent(event);
+		}
+
+		@Override
+		public void refresh(boolean forceRefresh) { }
+
+		@Override
+		public void simulationStateChanged(SimCore.SimState simulationState, Throwable reason) { }
+	}
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class SimReplicationRunnerTest
+{
+	@Test
+	public void testReplicationSummary()
+	{
+		List<Map<String, Double>> metrics = new ArrayList<Map<String, Double>>();
+		for (int replication = 1; replication <= 5; replication++)
+		{
+			Map<String, Double> metrics_thisReplication = new LinkedHashMap<String, Double>();
+			metrics_thisReplication.put("a", (double) replication);
+			if (replication == 1) metrics_thisReplication.put("b", 7.0);
+			metrics.add(metrics_thisReplication);
+		}
+
+		Map<String, double[]> summary = SimReplicationRunner.getReplicationSummary(metrics, 0.95);
+		assertEquals(2, summary.size());
+
+		/* Mean 3, sample standard deviation sqrt(2.5), and t(0.975, 4) = 2.7764 */
+		double[] a = summary.get("a");
+		assertEquals(3, a[0], 1e-12);
+		assertEquals(2.7764451 * Math.sqrt(2.5) / Math.sqrt(5), a[1], 1e-6);
+		assertEquals(1, a[2], 0);
+		assertEquals(5, a[3], 0);
+
+		/* A single value has no confidence interval */
+		double[] b = summary.get("b");
+		assertEquals(7, b[0], 0);
+		assertTrue(Double.isNaN(b[1]));
+	}
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.internal.sim;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+
+/**
+ * Memory benchmark of the simulation statistics: builds a synthetic network (1000 nodes by default, each one connected
+ * bidirectionally to the next two ones in a ring, and 10 demands per node between random node pairs), processes a number
+ * of events changing the demand offered traffic and the link capacities, and prints the heap retained by the
+ * {@link SimStats} object. Run it from the test classpath (e.g. executing the {@code main} method of this class, with
+ * the number of nodes and events as optional arguments).
+ */
+public class SimStatsMemoryBenchmark
+{
+	public static void main(String[] args)
+	{
+		final int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		final int numEvents = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+		final Random rng = new Random(1L);
+
+		final NetPlan netPlan = new NetPlan();
+		final List<Node> nodes = new ArrayList<Node>();
+		for (int cont = 0; cont < numNodes; cont++)
+			nodes.add(netPlan.addNode(rng.nextDouble(), rng.nextDouble(), "n" + cont, null));
+		for (int cont = 0; cont < numNodes; cont++)
+		{
+			netPlan.addLinkBidirectional(nodes.get(cont), nodes.get((cont + 1) % numNodes), 100, 10, 200000, null);
+			netPlan.addLinkBidirectional(nodes.get(cont), nodes.get((cont + 2) % numNodes), 100, 10, 200000, null);
+		}
+		for (int cont = 0; cont < 10 * numNodes; cont++)
+		{
+			final Node ingressNode = nodes.get(rng.nextInt(numNodes));
+			Node egressNode = nodes.get(rng.nextInt(numNodes));
+			while (egressNode == ingressNode) egressNode = nodes.get(rng.nextInt(numNodes));
+			netPlan.addDemand(ingressNode, egressNode, 1, null);
+		}
+		final List<Demand> demands = netPlan.getDemands();
+		final List<Link> links = netPlan.getLinks();
+
+		final Map<String, String> net2planParameters = new HashMap<String, String>();
+		net2planParameters.put("precisionFactor", "0.001");
+
+		final long heapBefore = getUsedHeap();
+		final SimStats stats = new SimStats(netPlan, new HashMap<String, String>(), net2planParameters);
+		final long startTime = System.nanoTime();
+		double simTime = 0;
+		for (int event = 0; event < numEvents; event++)
+		{
+			simTime += -Math.log(rng.nextDouble());
+			if (rng.nextBoolean()) demands.get(rng.nextInt(demands.size())).setOfferedTraffic(rng.nextDouble());
+			else links.get(rng.nextInt(links.size())).setCapacity(100 * rng.nextDouble());
+			stats.computeNextState(simTime);
+		}
+		final long elapsedTime = System.nanoTime() - startTime;
+		final long heapAfter = getUsedHeap();
+
+		System.out.println(String.format("Network: %d nodes, %d links, %d demands", netPlan.getNumberOfNodes(), netPlan.getNumberOfLinks(), netPlan.getNumberOfDemands()));
+		System.out.println(String.format("Processed %d events in %.3f s", numEvents, elapsedTime / 1e9));
+		System.out.println(String.format("Heap retained by the statistics: %.1f KiB (%.1f bytes per link and demand)", (heapAfter - heapBefore) / 1024.0, (heapAfter - heapBefore) / (double) (links.size() + demands.size())));
+		System.out.println(String.format("Statistics report: %d characters", stats.getResults(simTime).length()));
+	}
+
+	private static long getUsedHeap()
+	{
+		final Runtime runtime = Runtime.getRuntime();
+		for (int cont = 0; cont < 5; cont++)
+		{
+			System.gc();
+			try { Thread.sleep(100); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
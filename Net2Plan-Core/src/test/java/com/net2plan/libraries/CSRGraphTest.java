@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+
+public class CSRGraphTest
+{
+	private NetPlan np;
+	private Node n1, n2, n3, n4;
+	private Link e12, e23, e13, e34, e24;
+
+	@Before
+	public void setUp()
+	{
+		this.np = new NetPlan();
+		this.n1 = np.addNode(0, 0, "n1", null);
+		this.n2 = np.addNode(0, 0, "n2", null);
+		this.n3 = np.addNode(0, 0, "n3", null);
+		this.n4 = np.addNode(0, 0, "n4", null);
+		this.e12 = np.addLink(n1, n2, 100, 100, 200000, null);
+		this.e23 = np.addLink(n2, n3, 100, 100, 200000, null);
+		this.e13 = np.addLink(n1, n3, 100, 300, 200000, null);
+		this.e34 = np.addLink(n3, n4, 100, 100, 200000, null);
+		this.e24 = np.addLink(n2, n4, 100, 500, 200000, null);
+	}
+
+	@Test
+	public void testKLooplessShortestPaths()
+	{
+		final CSRGraph graph = np.getNetworkLayerDefault().getCSRGraph();
+		final Map<Link, Double> linkCostMap = new HashMap<Link, Double>();
+		for (Link e : np.getLinks()) linkCostMap.put(e, e == e24 ? 3.0 : 1.0);
+		final double[] costs = graph.getLinkCosts(linkCostMap);
+		assertEquals(Arrays.asList(e13, e34), graph.getShortestPath(n1, n4, costs));
+
+		final List<List<Link>> paths = graph.getKLooplessShortestPaths(n1, n4, costs, 5, -1, -1, -1, -1, -1, -1);
+		assertEquals(3, paths.size());
+		assertEquals(Arrays.asList(e13, e34), paths.get(0));
+		assertEquals(Arrays.asList(e12, e23, e34), paths.get(1));
+		assertEquals(Arrays.asList(e12, e24), paths.get(2));
+
+		/* Length limit: only the paths up to 400 km are returned */
+		final List<List<Link>> shortPaths = graph.getKLooplessShortestPaths(n1, n4, costs, 5, 400, -1, -1, -1, -1, -1);
+		assertEquals(Arrays.asList(Arrays.asList(e13, e34), Arrays.asList(e12, e23, e34)), shortPaths);
+		assertTrue(graph.getShortestPath(n4, n1, costs).isEmpty());
+	}
+
+	@Test
+	public void testCacheInvalidation()
+	{
+		final CSRGraph graph = np.getNetworkLayerDefault().getCSRGraph();
+		assertSame(graph, np.getNetworkLayerDefault().getCSRGraph());
+
+		final Link e41 = np.addLink(n4, n1, 100, 100, 200000, null);
+		final CSRGraph newGraph = np.getNetworkLayerDefault().getCSRGraph();
+		assertNotSame(graph, newGraph);
+		assertEquals(Arrays.asList(e41), newGraph.getShortestPath(n4, n1, newGraph.getLinkCosts(null)));
+
+		e41.remove();
+		assertTrue(GraphUtils.getShortestPath(np.getNodes(), np.getLinks(), n4, n1, null).isEmpty());
+
+		n3.remove();
+		assertEquals(Arrays.asList(e12, e24), GraphUtils.getShortestPath(np.getNodes(), np.getLinks(), n1, n4, null));
+	}
+}
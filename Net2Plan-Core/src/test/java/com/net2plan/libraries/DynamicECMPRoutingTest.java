@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+
+public class DynamicECMPRoutingTest
+{
+	private NetPlan np;
+	private Random rng;
+
+	@Before
+	public void setUp()
+	{
+		this.rng = new Random(1L);
+		this.np = new NetPlan();
+		final int N = 8;
+		for (int n = 0; n < N; n++) np.addNode(0, 0, "node" + n, null);
+		for (Node n1 : np.getNodes())
+			for (Node n2 : np.getNodes())
+				if ((n1 != n2) && (rng.nextDouble() < 0.4)) np.addLink(n1, n2, 100, 100, 200000, null);
+		for (int d = 0; d < 2 * N; d++)
+		{
+			final Node ingress = np.getNode(rng.nextInt(N));
+			final Node egress = np.getNode(rng.nextInt(N));
+			if (ingress != egress) np.addDemand(ingress, egress, 1 + rng.nextInt(10), null);
+		}
+	}
+
+	@Test
+	public void testLinkWeightChanges()
+	{
+		final int E = np.getNumberOfLinks();
+		final DoubleMatrix1D weights = DoubleFactory1D.dense.make(E);
+		for (int e = 0; e < E; e++) weights.set(e, 1 + rng.nextInt(4));
+		final DynamicECMPRouting routing = new DynamicECMPRouting(np, weights.copy());
+		assertSameCarriedTraffic(weights, routing.getCarriedTrafficPerLink());
+
+		for (int move = 0; move < 500; move++)
+		{
+			final Link link = np.getLink(rng.nextInt(E));
+			final double newWeight = rng.nextDouble() < 0.1 ? Double.MAX_VALUE : 1 + rng.nextInt(4);
+			final DoubleMatrix1D neighborWeights = weights.copy();
+			neighborWeights.set(link.getIndex(), newWeight);
+
+			/* Evaluating a move does not change the current routing */
+			assertSameCarriedTraffic(neighborWeights, routing.evaluateLinkWeightChange(link, newWeight));
+			assertSameCarriedTraffic(weights, routing.getCarriedTrafficPerLink());
+
+			if (rng.nextBoolean())
+			{
+				routing.setLinkWeight(link, newWeight);
+				weights.assign(neighborWeights);
+				assertSameCarriedTraffic(weights, routing.getCarriedTrafficPerLink());
+			}
+		}
+
+		/* Many weights changing at once are recomputed from scratch */
+		for (int e = 0; e < E; e++) weights.set(e, 1 + rng.nextInt(4));
+		routing.setLinkWeights(weights);
+		assertSameCarriedTraffic(weights, routing.getCarriedTrafficPerLink());
+	}
+
+	@Test(expected = Net2PlanException.class)
+	public void testNonPositiveLinkWeight()
+	{
+		new DynamicECMPRouting(np, null).evaluateLinkWeightChange(np.getLink(0), 0);
+	}
+
+	private void assertSameCarriedTraffic(DoubleMatrix1D weights, DoubleMatrix1D y_e)
+	{
+		final DoubleMatrix1D expected_y_e = IPUtils.computeCarriedTrafficFromIGPWeights(np, weights).getFourth();
+		for (int e = 0; e < np.getNumberOfLinks(); e++)
+			assertEquals(expected_y_e.get(e), y_e.get(e), 1e-9);
+	}
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.interfaces.simulation.IEventProcessor;
+import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.utils.Triple;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+
+public class FailureStateSweepTest
+{
+	private NetPlan np;
+	private Demand d13, d12;
+	private DoubleMatrix2D F_s;
+	private DoubleMatrix1D pi_s;
+
+	@Before
+	public void setUp()
+	{
+		this.np = new NetPlan();
+		final Node n1 = np.addNode(0, 0, "n1", null);
+		final Node n2 = np.addNode(0, 0, "n2", null);
+		final Node n3 = np.addNode(0, 0, "n3", null);
+		final Link e12 = np.addLink(n1, n2, 100, 100, 200000, null);
+		final Link e23 = np.addLink(n2, n3, 100, 100, 200000, null);
+		final Link e13 = np.addLink(n1, n3, 100, 100, 200000, null);
+		this.d13 = np.addDemand(n1, n3, 10, null);
+		this.d12 = np.addDemand(n1, n2, 5, null);
+		np.addRoute(d13, 10, 10, Arrays.asList(e13), null);
+		np.addRoute(d12, 5, 5, Arrays.asList(e12), null);
+		for (Link e : Arrays.asList(e12, e23, e13)) np.addSRG(8748, 12, null).addLink(e);
+
+		this.F_s = SRGUtils.getMatrixFailureState2SRG(np.getSRGs(), true, true);
+		this.pi_s = SRGUtils.computeStateProbabilities(F_s, np.getVectorSRGAvailability());
+	}
+
+	@Test
+	public void testSweep()
+	{
+		final List<Integer> expectedStates = new ArrayList<Integer>();
+		for (int state = 1; state < F_s.rows(); state++) expectedStates.add(state);
+
+		/* Expected blocked traffic: a demand is blocked when the SRG of the link of its route fails (no restoration) */
+		final double[] expectedBlocked_d = new double[2];
+		for (int state = 1; state < F_s.rows(); state++)
+		{
+			if (F_s.get(state, 2) == 1) expectedBlocked_d[d13.getIndex()] += pi_s.get(state) * 10;
+			if (F_s.get(state, 0) == 1) expectedBlocked_d[d12.getIndex()] += pi_s.get(state) * 5;
+		}
+
+		for (int numThreads : new int[] { 1, 2, 4, 100 })
+		{
+			final Accumulator result = FailureStateSweep.sweep(np, F_s, pi_s, 1, new FailureStateSweep.IProvisioningAlgorithmFactory()
+			{
+				@Override
+				public IEventProcessor newInstance()
+				{
+					return new FailureApplyingEventProcessor();
+				}
+			}, null, null, null, new BlockedTrafficAggregator(), numThreads);
+
+			assertEquals(expectedStates, result.states);
+			for (int d = 0; d < 2; d++) assertEquals(expectedBlocked_d[d], result.blocked_d[d], 1e-12);
+		}
+
+		/* The input design is not modified */
+		assertTrue(np.getLinksDownAllLayers().isEmpty());
+		assertEquals(0, np.getVectorDemandBlockedTraffic().zSum(), 0);
+	}
+
+	private static class Accumulator
+	{
+		private final List<Integer> states = new ArrayList<Integer>();
+		private final double[] blocked_d = new double[2];
+	}
+
+	private static class BlockedTrafficAggregator implements FailureStateSweep.IFailureStateAggregator<Accumulator>
+	{
+		@Override
+		public Accumulator newAccumulator()
+		{
+			return new Accumulator();
+		}
+
+		@Override
+		public void accumulate(Accumulator accumulator, int failureState, double probability, NetPlan netPlan)
+		{
+			accumulator.states.add(failureState);
+			for (Demand d : netPlan.getDemands())
+				accumulator.blocked_d[d.getIndex()] += probability * d.getBlockedTraffic();
+		}
+
+		@Override
+		public void merge(Accumulator accumulator, Accumulator otherAccumulator)
+		{
+			accumulator.states.addAll(otherAccumulator.states);
+			for (int d = 0; d < 2; d++) accumulator.blocked_d[d] += otherAccumulator.blocked_d[d];
+		}
+	}
+
+	/* Applies the failures and repairs, without any reaction */
+	private static class FailureApplyingEventProcessor extends IEventProcessor
+	{
+		@Override
+		public String getDescription()
+		{
+			return null;
+		}
+
+		@Override
+		public List<Triple<String, String, String>> getParameters()
+		{
+			return Collections.emptyList();
+		}
+
+		@Override
+		public void initialize(NetPlan initialNetPlan, Map<String, String> algorithmParameters, Map<String, String> simulationParameters, Map<String, String> net2planParameters)
+		{
+		}
+
+		@Override
+		public void processEvent(NetPlan currentNetPlan, SimEvent event)
+		{
+			final SimEvent.NodesAndLinksChangeFailureState info = (SimEvent.NodesAndLinksChangeFailureState) event.getEventObject();
+			currentNetPlan.setLinksAndNodesFailureState(info.linksToUp, info.linksToDown, info.nodesToUp, info.nodesToDown);
+		}
+	}
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.utils.Quadruple;
+
+public class OpticalImpairmentUtilsTest
+{
+	private static final int NUM_CHANNELS = 8;
+	private static final double CENTRAL_FREQUENCY_THZ = 193.1;
+
+	private Map<String, Map<String, Double>> fibersParameters;
+
+	@Before
+	public void setUp()
+	{
+		final Map<String, Double> smf = new HashMap<String, Double>();
+		smf.put(OpticalImpairmentUtils.stFiber_alpha_dB_per_km, 0.2);
+		smf.put(OpticalImpairmentUtils.stFiber_alpha1st_dB_per_km_per_THz, 0.0);
+		smf.put(OpticalImpairmentUtils.stFiber_beta2_ps2_per_km, 21.27);
+		smf.put(OpticalImpairmentUtils.stFiber_effectiveArea_um2, 77.77);
+		smf.put(OpticalImpairmentUtils.stFiber_n2Coeff_m2_per_W, 2.5E-20);
+		this.fibersParameters = new HashMap<String, Map<String, Double>>();
+		fibersParameters.put("SMF", smf);
+	}
+
+	@Test
+	public void testParallelEqualsSequential()
+	{
+		final double[] frequencies_THz = getFrequencies(0.05);
+		final List<List<Quadruple<Double, String, Double, String>>> elementsPerLightpath = new ArrayList<List<Quadruple<Double, String, Double, String>>>();
+		for (int numSpans = 1; numSpans <= 5; numSpans++)
+			elementsPerLightpath.add(getElements(numSpans));
+
+		final Map<String, double[]> initialSpectrum = getInitialSpectrum();
+		final Map<String, double[]> initialSpectrumCopy = new HashMap<String, double[]>(initialSpectrum);
+		final List<List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>> parallelResults = OpticalImpairmentUtils.computeImpairmentsOfLightpaths(elementsPerLightpath, initialSpectrum,
+				fibersParameters, 1E-3, 0.4, 0.5, 0.5, 0.5, 0.5, 0.5, frequencies_THz, CENTRAL_FREQUENCY_THZ, -20, -8, 3);
+
+		/* the initial spectrum is not modified */
+		assertEquals(initialSpectrumCopy.keySet(), initialSpectrum.keySet());
+		for (String key : initialSpectrum.keySet()) assertSame(initialSpectrumCopy.get(key), initialSpectrum.get(key));
+
+		assertEquals(elementsPerLightpath.size(), parallelResults.size());
+		for (int lp = 0; lp < elementsPerLightpath.size(); lp++)
+		{
+			final List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> sequentialResult = computeImpairments(elementsPerLightpath.get(lp), frequencies_THz);
+			assertEquals(sequentialResult.size(), parallelResults.get(lp).size());
+			for (int element = 0; element < sequentialResult.size(); element++)
+			{
+				assertEquals(sequentialResult.get(element).getFourth(), parallelResults.get(lp).get(element).getFourth(), 0);
+				for (String key : sequentialResult.get(element).getThird().keySet())
+					assertArrayEquals(sequentialResult.get(element).getThird().get(key), parallelResults.get(lp).get(element).getThird().get(key), 0);
+			}
+		}
+	}
+
+	@Test
+	public void testNonLinearInterferenceDependsOnChannelSpacing()
+	{
+		final double[] nliAfterSpan_narrowSpacing = computeImpairments(getElements(1), getFrequencies(0.05)).get(1).getThird().get(OpticalImpairmentUtils.stSpectrum_nliNoisePowerg_W);
+		final double[] nliAfterSpan_wideSpacing = computeImpairments(getElements(1), getFrequencies(0.2)).get(1).getThird().get(OpticalImpairmentUtils.stSpectrum_nliNoisePowerg_W);
+		for (int n = 0; n < NUM_CHANNELS; n++)
+		{
+			assertTrue(nliAfterSpan_narrowSpacing[n] > 0);
+			assertTrue(nliAfterSpan_wideSpacing[n] < nliAfterSpan_narrowSpacing[n]);
+		}
+
+		/* the central channels suffer more interference than the ones at the edges of the band */
+		assertTrue(nliAfterSpan_narrowSpacing[NUM_CHANNELS / 2] > nliAfterSpan_narrowSpacing[0]);
+	}
+
+	private List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> computeImpairments(List<Quadruple<Double, String, Double, String>> elements, double[] frequencies_THz)
+	{
+		return OpticalImpairmentUtils.computeImpairments(elements, getInitialSpectrum(), fibersParameters, 1E-3, 0.4, 0.5, 0.5, 0.5, 0.5, 0.5, frequencies_THz, CENTRAL_FREQUENCY_THZ, -20, -8);
+	}
+
+	private static List<Quadruple<Double, String, Double, String>> getElements(int numSpans)
+	{
+		final List<Quadruple<Double, String, Double, String>> elements = new ArrayList<Quadruple<Double, String, Double, String>>();
+		elements.add(Quadruple.of(0.0, "OADM-ADD", 0.0, "6"));
+		for (int span = 0; span < numSpans; span++)
+		{
+			elements.add(Quadruple.of(80.0 * span, "SPAN", 80.0, "SMF"));
+			elements.add(Quadruple.of(80.0 * (span + 1), "EDFA", 16.0, "5"));
+		}
+		elements.add(Quadruple.of(80.0 * numSpans, "OADM-DROP", 0.0, "6"));
+		return elements;
+	}
+
+	private static double[] getFrequencies(double channelSpacing_THz)
+	{
+		final double[] frequencies_THz = new double[NUM_CHANNELS];
+		for (int n = 0; n < NUM_CHANNELS; n++)
+			frequencies_THz[n] = (n - NUM_CHANNELS / 2) * channelSpacing_THz;
+		return frequencies_THz;
+	}
+
+	private static Map<String, double[]> getInitialSpectrum()
+	{
+		final double[] bandwidthPerChannel_THz = new double[NUM_CHANNELS];
+		final double[] powerPerChannel_W = new double[NUM_CHANNELS];
+		Arrays.fill(bandwidthPerChannel_THz, 0.032);
+		Arrays.fill(powerPerChannel_W, 1E-3);
+		final Map<String, double[]> spectrum = new HashMap<String, double[]>();
+		spectrum.put(OpticalImpairmentUtils.stSpectrum_bandwidthPerChannel_THz, bandwidthPerChannel_THz);
+		spectrum.put(OpticalImpairmentUtils.stSpectrum_powerPerChannel_W, powerPerChannel_W);
+		spectrum.put(OpticalImpairmentUtils.stSpectrum_aseNoisePower_W, new double[NUM_CHANNELS]);
+		spectrum.put(OpticalImpairmentUtils.stSpectrum_nliNoisePowerg_W, new double[NUM_CHANNELS]);
+		return spectrum;
+	}
+}
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.interfaces.networkDesign.Route;
+import com.net2plan.libraries.WDMUtils.SpectrumOccupancy;
+import com.net2plan.libraries.WDMUtils.SpectrumOccupancyIndex;
+import com.net2plan.utils.Pair;
+
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+
+public class WDMUtilsTest
+{
+	private NetPlan np;
+	private Link e12, e23, e34;
+	private List<Link> path13, path24;
+
+	@Before
+	public void setUp()
+	{
+		this.np = new NetPlan();
+		final Node n1 = np.addNode(0, 0, "n1", null);
+		final Node n2 = np.addNode(0, 0, "n2", null);
+		final Node n3 = np.addNode(0, 0, "n3", null);
+		final Node n4 = np.addNode(0, 0, "n4", null);
+		this.e12 = np.addLink(n1, n2, 320, 100, 200000, null);
+		this.e23 = np.addLink(n2, n3, 320, 100, 200000, null);
+		this.e34 = np.addLink(n3, n4, 320, 100, 200000, null);
+		this.path13 = Arrays.asList(e12, e23);
+		this.path24 = Arrays.asList(e23, e34);
+	}
+
+	@Test
+	public void testSpectrumOccupancy()
+	{
+		final SpectrumOccupancy occupancy = WDMUtils.getNetworkSpectrumAndRegeneratorOccupancy(np, true).getFirst();
+		assertEquals(320, occupancy.getNumSlots());
+		assertEquals(0, WDMUtils.spectrumAssignment_firstFit(path13, occupancy, 4));
+
+		/* slots 0-3 in e12, 62-65 (crossing a word boundary) in e23 */
+		WDMUtils.allocateResources(new WDMUtils.RSA(Arrays.asList(e12), 0, 4), occupancy, null);
+		WDMUtils.allocateResources(new WDMUtils.RSA(Arrays.asList(e23), 62, 4), occupancy, null);
+		assertEquals(4, WDMUtils.spectrumAssignment_firstFit(path13, occupancy, 4));
+		assertEquals(0, WDMUtils.spectrumAssignment_firstFit(path24, occupancy, 62));
+		assertEquals(66, WDMUtils.spectrumAssignment_firstFit(path24, occupancy, 63));
+		assertEquals(-1, WDMUtils.spectrumAssignment_firstFit(path24, occupancy, 255));
+		assertEquals(Arrays.asList(Pair.of(4, 58), Pair.of(66, 254)), WDMUtils.computeAvailableSpectrumVoids(path13, occupancy));
+		assertEquals(WDMUtils.computePathSlotOccupancy(path13, occupancy.getMatrixFrequencySlot2FiberOccupancy()), WDMUtils.computePathSlotOccupancy(path13, occupancy));
+
+		/* the two paths share e23: the blocks cannot overlap */
+		assertEquals(Pair.of(4, 9), WDMUtils.spectrumAssignment_firstFitTwoRoutes(path13, path24, occupancy, 5));
+		assertEquals(Pair.of(4, 0), WDMUtils.spectrumAssignment_firstFitTwoRoutes(path13, Arrays.asList(e34), occupancy, 4));
+
+		try { WDMUtils.allocateResources(new WDMUtils.RSA(Arrays.asList(e12), 3, 1), occupancy, null); fail(); } catch (Net2PlanException e) {}
+		assertFalse(WDMUtils.isAllocatableRSASet(occupancy, new WDMUtils.RSA(path13, 10, 2), new WDMUtils.RSA(Arrays.asList(e23), 11, 1)));
+		assertTrue(WDMUtils.isAllocatableRSASet(occupancy, new WDMUtils.RSA(path13, 10, 2), new WDMUtils.RSA(Arrays.asList(e23), 12, 1)));
+
+		WDMUtils.releaseResources(new WDMUtils.RSA(Arrays.asList(e23), 62, 4), occupancy, null);
+		assertEquals(Arrays.asList(Pair.of(4, 316)), WDMUtils.computeAvailableSpectrumVoids(path13, occupancy));
+		try { WDMUtils.releaseResources(new WDMUtils.RSA(Arrays.asList(e23), 62, 4), occupancy, null); fail(); } catch (Net2PlanException e) {}
+	}
+
+	@Test
+	public void testSameAssignmentAsOccupancyMatrix()
+	{
+		final Random rng = new Random(1L);
+		final SpectrumOccupancy occupancy = new SpectrumOccupancy(320, np.getNumberOfLinks());
+		for (int cont = 0; cont < 500; cont++)
+		{
+			final Link e = np.getLink(rng.nextInt(np.getNumberOfLinks()));
+			final int slot = rng.nextInt(320);
+			if (!occupancy.isOccupied(slot, e)) occupancy.occupy(slot, e);
+		}
+		final DoubleMatrix2D frequencySlot2FiberOccupancy_se = occupancy.getMatrixFrequencySlot2FiberOccupancy();
+		assertEquals(occupancy, new SpectrumOccupancy(frequencySlot2FiberOccupancy_se));
+
+		for (int numSlots = 1; numSlots <= 8; numSlots++)
+		{
+			assertEquals(WDMUtils.spectrumAssignment_firstFit(path13, frequencySlot2FiberOccupancy_se, numSlots), WDMUtils.spectrumAssignment_firstFit(path13, occupancy, numSlots));
+			assertEquals(WDMUtils.spectrumAssignment_firstFitTwoRoutes(path13, path24, frequencySlot2FiberOccupancy_se, numSlots), WDMUtils.spectrumAssignment_firstFitTwoRoutes(path13, path24, occupancy, numSlots));
+		}
+		assertEquals(WDMUtils.computeAvailableSpectrumVoids(WDMUtils.computePathSlotOccupancy(path24, frequencySlot2FiberOccupancy_se), 320), WDMUtils.computeAvailableSpectrumVoids(path24, occupancy));
+
+		final Pair<int[], int[]> rpp = WDMUtils.wavelengthAssignment_RPP_firstFit(Arrays.asList(e12, e23, e34), occupancy, null, 250);
+		final Pair<int[], int[]> rppMatrix = WDMUtils.wavelengthAssignment_RPP_firstFit(Arrays.asList(e12, e23, e34), frequencySlot2FiberOccupancy_se, null, 250);
+		assertTrue(Arrays.equals(rppMatrix.getFirst(), rpp.getFirst()));
+		assertTrue(Arrays.equals(rppMatrix.getSecond(), rpp.getSecond()));
+		assertNull(WDMUtils.spectrumAssignment_firstFitTwoRoutes(path13, path24, new SpectrumOccupancy(3, 3), 2));
+	}
+
+	@Test
+	public void testLightpathRSAReadBack()
+	{
+		final Demand d13 = np.addDemand(np.getNode(0), np.getNode(2), 10, null);
+		final Route lp = WDMUtils.addLightpath(d13, new WDMUtils.RSA(path13, 5, 2), 10);
+		final WDMUtils.RSA rsa = new WDMUtils.RSA(lp, false);
+		assertEquals(path13, rsa.seqLinks);
+		assertEquals(5, rsa.seqFrequencySlots_se.get(0, 1));
+		assertEquals(6, rsa.seqFrequencySlots_se.get(1, 0));
+
+		/* the returned RSA objects do not share their matrices */
+		rsa.seqFrequencySlots_se.set(0, 0, 100);
+		assertEquals(5, new WDMUtils.RSA(lp, false).seqFrequencySlots_se.get(0, 0));
+		assertEquals(5, new WDMUtils.RSA(lp, true).seqFrequencySlots_se.get(0, 0));
+
+		/* attributes changed outside WDMUtils are read again */
+		lp.setAttribute("seqFrequencySlots_se", " 7 7; 8 8");
+		assertEquals(7, new WDMUtils.RSA(lp, false).seqFrequencySlots_se.get(0, 0));
+		assertEquals(5, new WDMUtils.RSA(lp, true).seqFrequencySlots_se.get(0, 0));
+		WDMUtils.setLightpathRSAAttributes(lp, new WDMUtils.RSA(path13, 20, 2), false);
+		assertEquals(21, new WDMUtils.RSA(lp, false).seqFrequencySlots_se.get(1, 1));
+	}
+
+	@Test
+	public void testSpectrumOccupancyIndex()
+	{
+		final Demand d13 = np.addDemand(np.getNode(0), np.getNode(2), 10, null);
+		final Demand d24 = np.addDemand(np.getNode(1), np.getNode(3), 10, null);
+		final Route lp13 = WDMUtils.addLightpath(d13, new WDMUtils.RSA(path13, 0, 4), 10);
+		final SpectrumOccupancyIndex index = new SpectrumOccupancyIndex(np, false);
+		assertEquals(Arrays.asList(lp13), index.getLightpaths(e23, 3));
+		assertTrue(index.getLightpaths(e23, 4).isEmpty());
+		assertEquals(4, index.getNumberOfOccupiedSlots(e12));
+		assertEquals(316, index.getLargestFreeBlock(e12));
+		assertFalse(index.isAllocatable(new WDMUtils.RSA(path24, 3, 2)));
+		assertTrue(index.isAllocatable(new WDMUtils.RSA(path24, 4, 2)));
+		assertFalse(index.isAllocatable(new WDMUtils.RSA(path24, 319, 2)));
+
+		/* a clashing lightpath, added incrementally */
+		final Route lp24 = WDMUtils.addLightpath(d24, new WDMUtils.RSA(path24, 2, 4), 10);
+		index.updateLightpath(lp24);
+		assertEquals(2, index.getNumberOfClashingSlots());
+		assertTrue(index.isClashing(e23, 3));
+		assertFalse(index.isClashing(e34, 3));
+		assertEquals(Arrays.asList(lp13, lp24), index.getLightpaths(e23, 3));
+		try { index.checkResourceAllocationClashing(); fail(); } catch (Net2PlanException e) {}
+
+		/* the clash is solved changing the RSA, and the changes are found synchronizing */
+		WDMUtils.setLightpathRSAAttributes(lp24, new WDMUtils.RSA(path24, 4, 4), false);
+		index.synchronize();
+		assertEquals(0, index.getNumberOfClashingSlots());
+		index.checkResourceAllocationClashing();
+		assertEquals(8, index.getNumberOfOccupiedSlots(e23));
+		assertEquals(312, index.getLargestFreeBlock(e23));
+		final double f = 8 / 320.0;
+		assertEquals(-f * Math.log(f) - (1 - f) * Math.log(1 - f), index.getSpectrumEntropy(e23), 1e-12);
+		assertEquals(0, new SpectrumOccupancyIndex(np, false).getSpectrumEntropy(np.addLink(np.getNode(0), np.getNode(3), 320, 100, 200000, null)), 0);
+
+		/* failed lightpaths are not counted, and removed lightpaths are dropped */
+		np.setLinksAndNodesFailureState(null, Arrays.asList(e12), null, null);
+		index.synchronize();
+		assertFalse(index.isOccupied(e23, 0));
+		assertTrue(index.isOccupied(e23, 4));
+		np.setLinksAndNodesFailureState(Arrays.asList(e12), null, null, null);
+		index.updateLightpath(lp13);
+		lp24.remove();
+		index.updateLightpath(lp24);
+		assertTrue(index.isOccupied(e23, 0));
+		assertFalse(index.isOccupied(e23, 4));
+		assertEquals(4, index.getNumberOfOccupiedSlots(e23));
+		assertEquals(0, index.getNumberOfOccupiedSlots(e34));
+	}
+}
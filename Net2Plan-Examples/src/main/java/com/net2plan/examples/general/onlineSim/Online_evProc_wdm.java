@@ -34,6 +34,7 @@ import com.net2plan.interfaces.simulation.SimEvent;
 import com.net2plan.libraries.GraphUtils;
 import com.net2plan.libraries.SRGUtils;
 import com.net2plan.libraries.WDMUtils;
+import com.net2plan.libraries.WDMUtils.SpectrumOccupancy;
 import com.net2plan.libraries.WDMUtils.TransponderTypesInfo;
 import com.net2plan.utils.Constants.RoutingType;
 import com.net2plan.utils.InputParameter;
@@ -42,7 +43,6 @@ import com.net2plan.utils.Quadruple;
 import com.net2plan.utils.RandomUtils;
 import com.net2plan.utils.Triple;
 
-import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.jet.math.tdouble.DoubleFunctions;
 
 /** Implements the reactions of a WDM network carrying lightpaths in a fixed or flexi grid of wavelengths. 
@@ -92,7 +92,8 @@ public class Online_evProc_wdm extends IEventProcessor
 	//private Map<Route,Pair<WDMUtils.RSA,WDMUtils.RSA>> wdmRouteOriginalRwa;
 	private Map<Pair<Node,Node>,List<List<Link>>> cplWdm;
 	private Map<Pair<Node,Node>,List<Pair<List<Link>,List<Link>>>> cplWdm11;
-	private DoubleMatrix2D wavelengthFiberOccupancy;
+	private SpectrumOccupancy wavelengthFiberOccupancy;
+	private WDMUtils.SpectrumOccupancyIndex clashCheckIndex;
 	private TransponderTypesInfo tpInfo;
 	private Map<Route,Integer> transponderTypeOfNewLps;
 
@@ -157,7 +158,7 @@ public class Online_evProc_wdm extends IEventProcessor
 		this.protectionTypeCode = wdmDefaultAndNewRouteRevoveryType.getString ().equals("1+1-srg-disjoint") ? 0 : wdmDefaultAndNewRouteRevoveryType.getString ().equals("1+1-node-disjoint")? 1 : 2;
 		this.cplWdm11 = isProtectionRecovery? new HashMap<> () : null; 
 		
-		this.wavelengthFiberOccupancy = WDMUtils.getNetworkSlotAndRegeneratorOcupancy(initialNetPlan, true , wdmLayer).getFirst();
+		this.wavelengthFiberOccupancy = WDMUtils.getNetworkSpectrumAndRegeneratorOccupancy(initialNetPlan, true , wdmLayer).getFirst();
 		if (DEBUG) { checkWaveOccupEqualsNp(initialNetPlan); checkClashing (initialNetPlan); } 
 		initialNetPlan.setLinkCapacityUnitsName("Frequency slots" , wdmLayer);
 
@@ -621,7 +622,11 @@ public class Online_evProc_wdm extends IEventProcessor
 
 	private void checkClashing (NetPlan np)
 	{
-		WDMUtils.checkResourceAllocationClashing(np, false, false, wdmLayer);
+		if ((clashCheckIndex == null) || (clashCheckIndex.getNetPlan() != np) || (clashCheckIndex.getLayer() != wdmLayer))
+			clashCheckIndex = new WDMUtils.SpectrumOccupancyIndex(np, false, wdmLayer);
+		else
+			clashCheckIndex.synchronize();
+		clashCheckIndex.checkResourceAllocationClashing();
 	}
 	
 	private static void checkDisjointness (List<Link> p1 , List<Link> p2 , int disjointnessType)
@@ -650,10 +655,10 @@ public class Online_evProc_wdm extends IEventProcessor
 	private static double getLengthInKm (List<Link> p) { double res = 0; for (Link e : p) res += e.getLengthInKm(); return res; }
 	private void checkWaveOccupEqualsNp (NetPlan currentNetPlan)
 	{
-		DoubleMatrix2D freqNow_se = WDMUtils.getNetworkSlotAndRegeneratorOcupancy(currentNetPlan, true , wdmLayer).getFirst();
+		SpectrumOccupancy freqNow_se = WDMUtils.getNetworkSpectrumAndRegeneratorOccupancy(currentNetPlan, true , wdmLayer).getFirst();
 		if (!freqNow_se.equals(wavelengthFiberOccupancy))
 		{
-			System.out.println(freqNow_se.assign(wavelengthFiberOccupancy , DoubleFunctions.minusMult(1.0)));
+			System.out.println(freqNow_se.getMatrixFrequencySlot2FiberOccupancy().assign(wavelengthFiberOccupancy.getMatrixFrequencySlot2FiberOccupancy() , DoubleFunctions.minusMult(1.0)));
 			throw new RuntimeException ();
 		} 
 
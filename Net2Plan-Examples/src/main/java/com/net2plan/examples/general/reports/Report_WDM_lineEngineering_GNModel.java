@@ -14,6 +14,7 @@ import com.net2plan.utils.StringUtils;
 import com.net2plan.utils.Triple;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -147,6 +148,9 @@ public class Report_WDM_lineEngineering_GNModel implements IReport
 	private final InputParameter	osnrPenalty_unassignedMargin_dB	= new InputParameter("osnrPenalty_unassignedMargin_dB", (double) 3, "OSNR penalty caused by not assigned margins (e.g. random effects, aging, ...)");
 	private double					osnrPenalty_SUM_dB;
 
+	/* Computation */
+	private final InputParameter	numThreads	= new InputParameter("numThreads", (int) 0, "Number of links and lightpaths whose impairments are computed in parallel (a non-positive value means the number of available processors)");
+
 	/* Global parameters */
 	private Map<String, double[]>		spectrumParameters;
 	Map<String, Map<String, Double>>	fiberParameters;
@@ -180,43 +184,39 @@ public class Report_WDM_lineEngineering_GNModel implements IReport
 		final Map<Link, List<Quadruple<Double, String, Double, String>>> elements_e = new LinkedHashMap<Link, List<Quadruple<Double, String, Double, String>>>();
 		final Map<Link, List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>> impairments_e = new LinkedHashMap<Link, List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>>();
 		final Map<Link, List<String>> warnings_e = new LinkedHashMap<Link, List<String>>();
+		final Map<Route, List<Quadruple<Double, String, Double, String>>> elements_r = new LinkedHashMap<Route, List<Quadruple<Double, String, Double, String>>>();
+		final Map<Route, List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>> impairments_r = new LinkedHashMap<Route, List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>>();
+		final Map<Route, List<String>> warnings_r = new LinkedHashMap<Route, List<String>>();
 
 		for (Link link : netPlan.getLinks())
 		{
 			final List<Link> seqLinks = new LinkedList<Link>();
 			seqLinks.add(link);
-			final List<Quadruple<Double, String, Double, String>> elementPositions = getElementPositionsListPerLightpath(seqLinks);
-
-			spectrumParameters = initializeSpectrum();
-
-			final List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> impairmentsAtInputAndOutputs = OpticalImpairmentUtils.computeImpairments(elementPositions, spectrumParameters, fiberParameters,
-					oadm_outputPowerPerChannel_W.getDouble(), fiber_PMD_ps_per_sqroot_km.getDouble(), edfa_PMD_ps.getDouble(), pc_PMD_ps.getDouble(), oadm_muxDemuxPMD_ps.getDouble(), oadm_preAmplifierPMD_ps.getDouble(),
-					oadm_boosterPMD_ps.getDouble(), frequenciesPerChannel_THz, centralFreq_THz, tp_inputPowerSensitivityMin_dBm.getDouble(), tp_inputPowerSensitivityMax_dBm.getDouble());
-			final List<String> warningMessages = computeWarningMessages(elementPositions, impairmentsAtInputAndOutputs);
-
-			elements_e.put(link, elementPositions);
-			impairments_e.put(link, impairmentsAtInputAndOutputs);
-			warnings_e.put(link, warningMessages);
+			elements_e.put(link, getElementPositionsListPerLightpath(seqLinks));
 		}
-
-		final Map<Route, List<Quadruple<Double, String, Double, String>>> elements_r = new LinkedHashMap<Route, List<Quadruple<Double, String, Double, String>>>();
-		final Map<Route, List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>> impairments_r = new LinkedHashMap<Route, List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>>();
-		final Map<Route, List<String>> warnings_r = new LinkedHashMap<Route, List<String>>();
 		for (Route r : netPlan.getRoutes())
+			elements_r.put(r, getElementPositionsListPerLightpath(r.getSeqLinks()));
+
+		/* The impairments of all the links and lightpaths, computed in parallel */
+		final List<List<Quadruple<Double, String, Double, String>>> elementPositionsList = new ArrayList<List<Quadruple<Double, String, Double, String>>>(elements_e.values());
+		elementPositionsList.addAll(elements_r.values());
+		spectrumParameters = initializeSpectrum();
+		final Iterator<List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>> it_impairments = OpticalImpairmentUtils.computeImpairmentsOfLightpaths(elementPositionsList, spectrumParameters,
+				fiberParameters, oadm_outputPowerPerChannel_W.getDouble(), fiber_PMD_ps_per_sqroot_km.getDouble(), edfa_PMD_ps.getDouble(), pc_PMD_ps.getDouble(), oadm_muxDemuxPMD_ps.getDouble(),
+				oadm_preAmplifierPMD_ps.getDouble(), oadm_boosterPMD_ps.getDouble(), frequenciesPerChannel_THz, centralFreq_THz, tp_inputPowerSensitivityMin_dBm.getDouble(),
+				tp_inputPowerSensitivityMax_dBm.getDouble(), numThreads.getInt()).iterator();
+
+		for (Link link : elements_e.keySet())
 		{
-			final List<Link> seqLinks = r.getSeqLinks();
-			final List<Quadruple<Double, String, Double, String>> elementPositions = getElementPositionsListPerLightpath(seqLinks);
-
-			spectrumParameters = initializeSpectrum();
-
-			final List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> impairmentsAtInputAndOutputs = OpticalImpairmentUtils.computeImpairments(elementPositions, spectrumParameters, fiberParameters,
-					oadm_outputPowerPerChannel_W.getDouble(), fiber_PMD_ps_per_sqroot_km.getDouble(), edfa_PMD_ps.getDouble(), pc_PMD_ps.getDouble(), oadm_muxDemuxPMD_ps.getDouble(), oadm_preAmplifierPMD_ps.getDouble(),
-					oadm_boosterPMD_ps.getDouble(), frequenciesPerChannel_THz, centralFreq_THz, tp_inputPowerSensitivityMin_dBm.getDouble(), tp_inputPowerSensitivityMax_dBm.getDouble());
-			final List<String> warningMessages = computeWarningMessages(elementPositions, impairmentsAtInputAndOutputs);
-
-			elements_r.put(r, elementPositions);
+			final List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> impairmentsAtInputAndOutputs = it_impairments.next();
+			impairments_e.put(link, impairmentsAtInputAndOutputs);
+			warnings_e.put(link, computeWarningMessages(elements_e.get(link), impairmentsAtInputAndOutputs));
+		}
+		for (Route r : elements_r.keySet())
+		{
+			final List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> impairmentsAtInputAndOutputs = it_impairments.next();
 			impairments_r.put(r, impairmentsAtInputAndOutputs);
-			warnings_r.put(r, warningMessages);
+			warnings_r.put(r, computeWarningMessages(elements_r.get(r), impairmentsAtInputAndOutputs));
 		}
 
 		return printReport(elements_e, impairments_e, warnings_e, elements_r, impairments_r, warnings_r);
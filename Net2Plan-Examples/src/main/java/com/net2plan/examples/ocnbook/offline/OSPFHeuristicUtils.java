@@ -13,13 +13,11 @@ package com.net2plan.examples.ocnbook.offline;
 
 import cern.colt.matrix.tdouble.DoubleFactory1D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
-import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import com.net2plan.interfaces.networkDesign.Link;
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
 import com.net2plan.interfaces.networkDesign.NetPlan;
-import com.net2plan.libraries.IPUtils;
+import com.net2plan.libraries.DynamicECMPRouting;
 import com.net2plan.utils.Pair;
-import com.net2plan.utils.Quadruple;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -32,6 +30,7 @@ class OSPFHeuristicUtils
 	final int maxLinkWeight;
 	final double weightOfMaxUtilizationInObjectiveFunction;
 	final Random rng;
+	private DynamicECMPRouting ecmpRouting;
 	
 	OSPFHeuristicUtils (NetPlan netPlan , int maxLinkWeight , double weightOfMaxUtilizationInObjectiveFunction , Random rng)
 	{
@@ -61,6 +60,7 @@ class OSPFHeuristicUtils
 		List<Link> shuffledLinks = new ArrayList<Link> (netPlan.getLinks()); 
 		Collections.shuffle(shuffledLinks ,rng);
 		int numObjFunctionEvaluations = 0;
+		synchronizeRouting(currentSol);
 		do
 		{
 			Link bestNeighborLink = null;
@@ -77,9 +77,7 @@ class OSPFHeuristicUtils
 				{
 					if (w1 == currentWeight1) continue;
 					if (Math.abs(w1 - currentWeight1) > differenceInWeightToBeNeighbors) throw new RuntimeException ("Bad");
-					currentSol.set(e1.getIndex (), (double) w1);
-					Pair<Double,DoubleMatrix1D> neighborEvaluation = computeObjectiveFunction(currentSol); 
-					currentSol.set(e1.getIndex (), (double) currentWeight1);
+					Pair<Double,DoubleMatrix1D> neighborEvaluation = computeObjectiveFunctionFromCarriedTraffic(ecmpRouting.evaluateLinkWeightChange(e1, w1)); 
 					final double neighborObjFunction = neighborEvaluation.getFirst();
 					final DoubleMatrix1D y_e = neighborEvaluation.getSecond();
 					numObjFunctionEvaluations ++;
@@ -95,6 +93,7 @@ class OSPFHeuristicUtils
 			}
 			if (bestNeighborLink == null) break;
 			currentSol.set(bestNeighborLink.getIndex (), (double) bestNeighborWeight);
+			ecmpRouting.setLinkWeight(bestNeighborLink, bestNeighborWeight);
 			currentObjFunction = bestNeighborObjFunction;
 		} while (true); // algorithm ends
 		
@@ -111,6 +110,7 @@ class OSPFHeuristicUtils
 		int [] wIds = new int [numWeightsNeighborhood];
 		double [] objFunc = new double [numWeightsNeighborhood];
 		
+		synchronizeRouting(currentSol);
 		Pair<Double,DoubleMatrix1D> previousNeighborEvaluation= null; //(initialWeightNeighborhood == originalWeight)? currentSolEvaluation : null;
 		Pair<Double,DoubleMatrix1D> neighborEvaluation = null;
 		for (int cont = 0 ; cont < numWeightsNeighborhood ; cont ++)
@@ -119,8 +119,10 @@ class OSPFHeuristicUtils
 			if (Math.abs(w1 - originalWeight) > differenceInWeightToBeNeighbors) throw new RuntimeException ("Bad");
 			if  ((w1 == originalWeight) && (currentSolEvaluation != null))
 				neighborEvaluation = currentSolEvaluation; 
+			else if ((previousNeighborEvaluation != null) && (previousNeighborEvaluation.getSecond().get(e.getIndex ()) <= 0))
+				neighborEvaluation = previousNeighborEvaluation; // the link does not carry traffic => increasing the weight does not change the routing
 			else
-				neighborEvaluation = computeObjectiveFunctionOfNeighborSolution (currentSol, previousNeighborEvaluation , e , w1 , false);
+				neighborEvaluation = computeObjectiveFunctionFromCarriedTraffic(ecmpRouting.evaluateLinkWeightChange(e, w1));
 			
 			wIds [cont] = w1;
 			objFunc [cont] = neighborEvaluation.getFirst();
@@ -135,7 +137,6 @@ class OSPFHeuristicUtils
 //			objFunc [cont] = pair.getFirst();
 //			linkDoesNotCarryTraffic = (pair.getSecond().get(e) <= 0);
 		}
-		currentSol.set(e.getIndex (), (double) originalWeight);
 		return Pair.of(objFunc , wIds);
 	}
 	
@@ -146,16 +147,27 @@ class OSPFHeuristicUtils
 		if ((originalWeight == newWeight) && (initialSolEvaluation != null)) return initialSolEvaluation;
 		if ((newWeight > originalWeight) && (initialSolEvaluation != null)) 
 			if (initialSolEvaluation.getSecond().get(changingLink.getIndex ()) <= 0) return initialSolEvaluation;
-		initialSol.set(changingLink.getIndex () , (double) newWeight);
-		Pair<Double,DoubleMatrix1D> eval = computeObjectiveFunction(initialSol);
-		if (keepInitialSolutionUnchanged) initialSol.set(changingLink.getIndex () , originalWeight);
+		synchronizeRouting(initialSol);
+		Pair<Double,DoubleMatrix1D> eval = computeObjectiveFunctionFromCarriedTraffic(ecmpRouting.evaluateLinkWeightChange(changingLink, newWeight));
+		if (!keepInitialSolutionUnchanged) initialSol.set(changingLink.getIndex () , (double) newWeight);
 		return eval;
 	}
 	
 	Pair<Double,DoubleMatrix1D> computeObjectiveFunction (DoubleMatrix1D sol)
 	{
-		Quadruple<DoubleMatrix2D, DoubleMatrix2D, DoubleMatrix1D, DoubleMatrix1D> q = IPUtils.computeCarriedTrafficFromIGPWeights(netPlan, sol);
-		DoubleMatrix1D y_e = q.getFourth();
+		synchronizeRouting(sol);
+		return computeObjectiveFunctionFromCarriedTraffic(ecmpRouting.getCarriedTrafficPerLink());
+	}
+
+	/* The ECMP routing is updated incrementally from the last solution evaluated, which is usually a neighbor of the given one */
+	private void synchronizeRouting (DoubleMatrix1D sol)
+	{
+		if (ecmpRouting == null) ecmpRouting = new DynamicECMPRouting(netPlan, sol);
+		else ecmpRouting.setLinkWeights(sol);
+	}
+
+	private Pair<Double,DoubleMatrix1D> computeObjectiveFunctionFromCarriedTraffic (DoubleMatrix1D y_e)
+	{
 		double congestion = 0;
 		double accumUtilization = 0;
 		for (Link e : netPlan.getLinks ())
@@ -16,14 +16,13 @@ package com.net2plan.examples.ocnbook.reports;
 
 import cern.colt.function.tdouble.DoubleDoubleFunction;
 import cern.colt.function.tdouble.DoubleFunction;
-import cern.colt.list.tdouble.DoubleArrayList;
-import cern.colt.list.tint.IntArrayList;
 import cern.colt.matrix.tdouble.DoubleFactory1D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.jet.math.tdouble.DoubleFunctions;
 import com.net2plan.interfaces.networkDesign.*;
 import com.net2plan.interfaces.simulation.IEventProcessor;
-import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.libraries.FailureStateSweep;
 import com.net2plan.libraries.SRGUtils;
 import com.net2plan.utils.ClassLoaderUtils;
 import com.net2plan.utils.InputParameter;
@@ -53,12 +52,11 @@ public class Report_availability implements IReport
 	private InputParameter failureModel = new InputParameter ("failureModel" , "#select# perBidirectionalLinkBundle SRGfromNetPlan perNode perLink perDirectionalLinkBundle" , "Failure model selection: SRGfromNetPlan, perNode, perLink, perDirectionalLinkBundle, perBidirectionalLinkBundle");
 	private InputParameter considerTrafficInOversubscribedLinksAsLost = new InputParameter ("considerTrafficInOversubscribedLinksAsLost" , true , "If true, all the demands whose traffic (even only a fraction of it) traverses an oversubscribed link, are considered that all its treaffic is blocked, as they are supposed to fail to satisfy QoS agreements");
 	private InputParameter maximumE2ELatencyMs = new InputParameter ("maximumE2ELatencyMs", (double) -1 , "Maximum end-to-end latency of the traffic of any demand (a non-positive value means no limit). All the traffic of demands where a fraction of its traffic can exceed this value, are considered as lost, as they are supposed to fail to satisfy QoS agreements");
+	private InputParameter numThreads = new InputParameter ("numThreads", (int) 0 , "Number of failure states evaluated in parallel, each one with its own copy of the network design and of the provisioning algorithm (a non-positive value means the number of available processors)");
 	
 	private ArrayList<DoubleMatrix1D> availabilityClassicNoFailure_ld, availabilityWeightedNoFailure_ld, availabilityClassicNoFailure_lmd, availabilityWeightedNoFailure_lmd;
 	private ArrayList<DoubleMatrix1D> availabilityClassicTotal_ld, availabilityWeightedTotal_ld, availabilityClassicTotal_lmd, availabilityWeightedTotal_lmd;
 	private double pi_excess;
-
-	private IEventProcessor algorithm;
 	
 	@Override
 	public String executeReport(NetPlan netPlan, Map<String, String> reportParameters, Map<String, String> net2planParameters)
@@ -123,15 +121,17 @@ public class Report_availability implements IReport
 		availabilityWeightedTotal_ld = new ArrayList<DoubleMatrix1D> ();
 		availabilityClassicTotal_lmd = new ArrayList<DoubleMatrix1D> ();
 		availabilityWeightedTotal_lmd = new ArrayList<DoubleMatrix1D> ();
+		/* For each layer: classic and weighted availability of the unicast demands, and of the multicast demands */
+		final DoubleMatrix1D [] totals = new DoubleMatrix1D [4 * netPlan.getNumberOfLayers()];
 		for(int indexLayer = 0 ; indexLayer < netPlan.getNumberOfLayers() ; indexLayer ++)
 		{
 			final NetworkLayer layer = netPlan.getNetworkLayer (indexLayer);
 			final int D = netPlan.getNumberOfDemands(layer);
 			final int MD = netPlan.getNumberOfMulticastDemands(layer);
-			availabilityClassicTotal_ld.add (DoubleFactory1D.dense.make (D,0.0));
-			availabilityWeightedTotal_ld.add (DoubleFactory1D.dense.make (D,0.0));
-			availabilityClassicTotal_lmd.add (DoubleFactory1D.dense.make (MD,0.0));
-			availabilityWeightedTotal_lmd.add (DoubleFactory1D.dense.make (MD,0.0));
+			totals [4 * indexLayer] = DoubleFactory1D.dense.make (D,0.0);
+			totals [4 * indexLayer + 1] = DoubleFactory1D.dense.make (D,0.0);
+			totals [4 * indexLayer + 2] = DoubleFactory1D.dense.make (MD,0.0);
+			totals [4 * indexLayer + 3] = DoubleFactory1D.dense.make (MD,0.0);
 		}
 
 //		List<Link> upAndOversubscribedLinksSetToDown = new LinkedList<Link> ();
@@ -153,119 +153,103 @@ public class Report_availability implements IReport
 		for(int indexLayer = 0 ; indexLayer < netPlan.getNumberOfLayers() ; indexLayer ++)
 		{
 			final NetworkLayer layer = netPlan.getNetworkLayer (indexLayer);
-
-			final DoubleMatrix1D h_d = netPlan.getVectorDemandOfferedTraffic(layer);
-			final DoubleMatrix1D blocked_d = netPlan.getVectorDemandBlockedTraffic(layer);
-			if (considerTrafficInOversubscribedLinksAsLost.getBoolean()) for (Demand d : netPlan.getDemands (layer)) if (d.isTraversingOversubscribedLinks()) blocked_d.set (d.getIndex () , d.getOfferedTraffic());
-			if (maximumE2ELatencyMs.getDouble () > 0) for (Demand d : netPlan.getDemands (layer)) if (d.getWorstCasePropagationTimeInMs() > maximumE2ELatencyMs.getDouble ()) blocked_d.set (d.getIndex () , d.getOfferedTraffic());
-			
-			final DoubleMatrix1D h_md = netPlan.getVectorMulticastDemandOfferedTraffic(layer);
-			final DoubleMatrix1D blocked_md = netPlan.getVectorMulticastDemandBlockedTraffic(layer);
-			if (considerTrafficInOversubscribedLinksAsLost.getBoolean()) for (MulticastDemand d : netPlan.getMulticastDemands (layer)) if (d.isTraversingOversubscribedLinks()) blocked_md.set (d.getIndex () , d.getOfferedTraffic());
-			if (maximumE2ELatencyMs.getDouble () > 0) for (MulticastDemand d : netPlan.getMulticastDemands(layer)) if (d.getWorseCasePropagationTimeInMs() > maximumE2ELatencyMs.getDouble ()) blocked_md.set (d.getIndex () , d.getOfferedTraffic());
-
-			//			System.out.println ("****** No failure Layer  " + layer + ", blocked_d: " + blocked_d);
-			final DoubleMatrix1D availabilityClassic_d = blocked_d.copy ().assign (new DoubleFunction () { public double apply (double x) { return x > PRECISION_FACTOR_blocking? 0 : 1;  }  } );
-			final DoubleMatrix1D availabilityWeighted_d = blocked_d.copy ().assign (h_d , new DoubleDoubleFunction () { public double apply (double x , double y) { return y < PRECISION_FACTOR_hd? 1 : 1 - x/y; }  } );
-			final DoubleMatrix1D availabilityClassic_md = blocked_md.copy ().assign (new DoubleFunction () { public double apply (double x) { return x > PRECISION_FACTOR_blocking ? 0 : 1;  }  } );
-			final DoubleMatrix1D availabilityWeighted_md = blocked_md.copy ().assign (h_md , new DoubleDoubleFunction () { public double apply (double x , double y) { return y < PRECISION_FACTOR_hd ? 1 : 1 - x/y; }  } );
-
-			availabilityClassicTotal_ld.get(layer.getIndex ()).assign (availabilityClassic_d , new DoubleDoubleFunction () { public double apply (double x , double y) { return x + pi_s0 * y; } } );
-			availabilityWeightedTotal_ld.get(layer.getIndex ()).assign (availabilityWeighted_d , new DoubleDoubleFunction () { public double apply (double x , double y) { return x + pi_s0 * y; } } );
-			availabilityClassicTotal_lmd.get(layer.getIndex ()).assign (availabilityClassic_md , new DoubleDoubleFunction () { public double apply (double x , double y) { return x + pi_s0 * y; } } );
-			availabilityWeightedTotal_lmd.get(layer.getIndex ()).assign (availabilityWeighted_md , new DoubleDoubleFunction () { public double apply (double x , double y) { return x + pi_s0 * y; } } );
-
-			availabilityClassicNoFailure_ld.add(availabilityClassic_d);
-			availabilityWeightedNoFailure_ld.add(availabilityWeighted_d);
-			availabilityClassicNoFailure_lmd.add(availabilityClassic_md);
-			availabilityWeightedNoFailure_lmd.add(availabilityWeighted_md);
+			final DoubleMatrix1D [] availabilities = computeAvailabilities (netPlan , layer , PRECISION_FACTOR_hd , PRECISION_FACTOR_blocking);
+			accumulateAvailabilities (totals , layer.getIndex () , availabilities , pi_s0);
+			availabilityClassicNoFailure_ld.add(availabilities [0]);
+			availabilityWeightedNoFailure_ld.add(availabilities [1]);
+			availabilityClassicNoFailure_lmd.add(availabilities [2]);
+			availabilityWeightedNoFailure_lmd.add(availabilities [3]);
 		}
-//		System.out.println ("Before any failure state: availabilityClassicTotal_ld: " + availabilityClassicTotal_ld);
-
-		
-		/* the up and oversubscribed links that were set as down, are set to up again */
-//		if (considerTrafficInOversubscribedLinksAsLost.getBoolean())
-//			netPlan.setLinksAndNodesFailureState(upAndOversubscribedLinksSetToDown , null , null , null);
 
 		if (!netPlan.getLinksDownAllLayers().isEmpty() || !netPlan.getNodesDown().isEmpty()) throw new RuntimeException ("Bad");
 
-		NetPlan auxNetPlan = netPlan.copy ();
-		this.algorithm = ClassLoaderUtils.getInstance(new File(algorithmFile), algorithmName, IEventProcessor.class , null);
-		this.algorithm.initialize(auxNetPlan , algorithmParameters , reportParameters , net2planParameters);
-		Set<Link> initialLinksDownAllLayers = auxNetPlan.getLinksDownAllLayers();
-		Set<Node> initialNodesDown = auxNetPlan.getNodesDown();
-		Set<Link> linksAllLayers = new HashSet<Link> (); for (NetworkLayer layer : auxNetPlan.getNetworkLayers()) linksAllLayers.addAll (auxNetPlan.getLinks (layer));
-
-		for (int failureState = 1 ; failureState < F_s.rows () ; failureState ++) // first failure state (no failure) was already considered
+		/* Failure states (the first one, no failure, was already considered), evaluated in parallel: each thread has its own copy of the design and instance of the algorithm */
+		final List<IEventProcessor> algorithms = Collections.synchronizedList(new ArrayList<IEventProcessor> ());
+		final FailureStateSweep.IProvisioningAlgorithmFactory algorithmFactory = new FailureStateSweep.IProvisioningAlgorithmFactory ()
 		{
-			if (!auxNetPlan.getLinksDownAllLayers().equals (initialLinksDownAllLayers) || !auxNetPlan.getNodesDown().equals(initialNodesDown)) throw new RuntimeException ("Bad");
-
-			IntArrayList srgs_thisState = new IntArrayList (); F_s.viewRow (failureState).getNonZeros (srgs_thisState , new DoubleArrayList ());
-			final double pi_s_thisState = pi_s.get (failureState);
-
-			Set<Link> linksToSetAsDown = new HashSet<Link> ();
-			Set<Node> nodesToSetAsDown = new HashSet<Node> ();
-			for (SharedRiskGroup srg : auxNetPlan.getSRGs())
+			@Override
+			public IEventProcessor newInstance () 
 			{
-				if (F_s.get(failureState , srg.getIndex ()) != 1) continue;
-				nodesToSetAsDown.addAll (srg.getNodes ());
-				linksToSetAsDown.addAll (srg.getLinksAllLayers ());
+				final IEventProcessor algorithm = ClassLoaderUtils.getInstance(new File(algorithmFile), algorithmName, IEventProcessor.class , null);
+				algorithms.add (algorithm);
+				return algorithm; 
 			}
-
-			/* Make the algorithm process the event of nodes and links down */
-			SimEvent.NodesAndLinksChangeFailureState failureInfo = new SimEvent.NodesAndLinksChangeFailureState(null , nodesToSetAsDown , null , linksToSetAsDown);
-			try
+		};
+		final FailureStateSweep.IFailureStateAggregator<DoubleMatrix1D []> aggregator = new FailureStateSweep.IFailureStateAggregator<DoubleMatrix1D []> ()
+		{
+			@Override
+			public DoubleMatrix1D [] newAccumulator () 
 			{
-				/* Apply the reaction algorithm */
-				algorithm.processEvent(auxNetPlan, new SimEvent(0, SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , failureInfo));
+				final DoubleMatrix1D [] accumulator = new DoubleMatrix1D [totals.length];
+				for (int cont = 0 ; cont < totals.length ; cont ++) accumulator [cont] = totals [cont].like ();
+				return accumulator;
 			}
-			catch (Throwable e)
-			{
-				try { ((Closeable) algorithm.getClass().getClassLoader()).close();  }
-				catch (Throwable e1) { e.printStackTrace();}					
 
-				throw (e);
-			}
-			
-			/* Only close the class loader if it is a different one than this class. If problems: just do not close the class loader, and wait for garbage collection*/
-			if (!this.getClass().getClassLoader().equals(algorithm.getClass().getClassLoader()))
+			@Override
+			public void accumulate (DoubleMatrix1D [] accumulator , int failureState , double probability , NetPlan auxNetPlan) 
 			{
-				try { ((Closeable) algorithm.getClass().getClassLoader()).close();	} catch (Throwable e1) { }					
+				for(NetworkLayer layer : auxNetPlan.getNetworkLayers ())
+					accumulateAvailabilities (accumulator , layer.getIndex () , computeAvailabilities (auxNetPlan , layer , PRECISION_FACTOR_hd , PRECISION_FACTOR_blocking) , probability);
 			}
-			
-			for(NetworkLayer layer : auxNetPlan.getNetworkLayers ())
+
+			@Override
+			public void merge (DoubleMatrix1D [] accumulator , DoubleMatrix1D [] otherAccumulator) 
 			{
-				final DoubleMatrix1D h_d = auxNetPlan.getVectorDemandOfferedTraffic(layer);
-				final DoubleMatrix1D blocked_d = auxNetPlan.getVectorDemandBlockedTraffic(layer);
-				if (considerTrafficInOversubscribedLinksAsLost.getBoolean()) for (Demand d : auxNetPlan.getDemands (layer)) if (d.isTraversingOversubscribedLinks()) blocked_d.set (d.getIndex () , d.getOfferedTraffic());
-
-				if (maximumE2ELatencyMs.getDouble () > 0) for (Demand d : auxNetPlan.getDemands (layer)) if (d.getWorstCasePropagationTimeInMs() > maximumE2ELatencyMs.getDouble ()) blocked_d.set (d.getIndex () , d.getOfferedTraffic());
-				final DoubleMatrix1D h_md = auxNetPlan.getVectorMulticastDemandOfferedTraffic(layer);
-				final DoubleMatrix1D blocked_md = auxNetPlan.getVectorMulticastDemandBlockedTraffic(layer);
-				if (considerTrafficInOversubscribedLinksAsLost.getBoolean()) for (MulticastDemand d : auxNetPlan.getMulticastDemands (layer)) if (d.isTraversingOversubscribedLinks()) blocked_md.set (d.getIndex () , d.getOfferedTraffic());
-
-				if (maximumE2ELatencyMs.getDouble () > 0) for (MulticastDemand d : auxNetPlan.getMulticastDemands(layer)) if (d.getWorseCasePropagationTimeInMs() > maximumE2ELatencyMs.getDouble ()) blocked_md.set (d.getIndex () , d.getOfferedTraffic());
-
-				final DoubleMatrix1D availabilityClassic_d = blocked_d.copy ().assign (new DoubleFunction () { public double apply (double x) { return x > PRECISION_FACTOR_blocking? 0 : 1;  }  } );
-				final DoubleMatrix1D availabilityWeighted_d = blocked_d.copy ().assign (h_d , new DoubleDoubleFunction () { public double apply (double x , double y) { return y < PRECISION_FACTOR_hd? 1 : 1 - x/y; }  } );
-				final DoubleMatrix1D availabilityClassic_md = blocked_md.copy ().assign (new DoubleFunction () { public double apply (double x) { return x > PRECISION_FACTOR_blocking? 0 : 1;  }  } );
-				final DoubleMatrix1D availabilityWeighted_md = blocked_md.copy ().assign (h_md , new DoubleDoubleFunction () { public double apply (double x , double y) { return y < PRECISION_FACTOR_hd? 1 : 1 - x/y; }  } );
-
-				availabilityClassicTotal_ld.get(layer.getIndex ()).assign (availabilityClassic_d , new DoubleDoubleFunction () { public double apply (double x , double y) { return x + pi_s_thisState * y; } } );
-				availabilityWeightedTotal_ld.get(layer.getIndex ()).assign (availabilityWeighted_d , new DoubleDoubleFunction () { public double apply (double x , double y) { return x + pi_s_thisState * y; } } );
-				availabilityClassicTotal_lmd.get(layer.getIndex ()).assign (availabilityClassic_md , new DoubleDoubleFunction () { public double apply (double x , double y) { return x + pi_s_thisState * y; } } );
-				availabilityWeightedTotal_lmd.get(layer.getIndex ()).assign (availabilityWeighted_md , new DoubleDoubleFunction () { public double apply (double x , double y) { return x + pi_s_thisState * y; } } );
-				
-//				System.out.println ("Failure " + failureState + ", availabilityClassicTotal_ld: " + availabilityClassicTotal_ld);
+				for (int cont = 0 ; cont < accumulator.length ; cont ++) accumulator [cont].assign (otherAccumulator [cont] , DoubleFunctions.plus);
 			}
-			
-			failureInfo = new SimEvent.NodesAndLinksChangeFailureState(auxNetPlan.getNodes() , null , linksAllLayers , null);
-			algorithm.processEvent(auxNetPlan, new SimEvent(0, SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , failureInfo));
+		};
+		try
+		{
+			final DoubleMatrix1D [] failureStatesTotals = FailureStateSweep.sweep(netPlan , F_s , pi_s , 1 , algorithmFactory , algorithmParameters , reportParameters , net2planParameters , aggregator , numThreads.getInt ());
+			for (int cont = 0 ; cont < totals.length ; cont ++) totals [cont].assign (failureStatesTotals [cont] , DoubleFunctions.plus);
+		}
+		finally
+		{
+			/* Only close the class loader if it is a different one than this class. If problems: just do not close the class loader, and wait for garbage collection*/
+			for (IEventProcessor algorithm : algorithms)
+				if (!this.getClass().getClassLoader().equals(algorithm.getClass().getClassLoader()))
+				{
+					try { ((Closeable) algorithm.getClass().getClassLoader()).close();	} catch (Throwable e1) { }					
+				}
+		}
+
+		for(int indexLayer = 0 ; indexLayer < netPlan.getNumberOfLayers() ; indexLayer ++)
+		{
+			availabilityClassicTotal_ld.add (totals [4 * indexLayer]);
+			availabilityWeightedTotal_ld.add (totals [4 * indexLayer + 1]);
+			availabilityClassicTotal_lmd.add (totals [4 * indexLayer + 2]);
+			availabilityWeightedTotal_lmd.add (totals [4 * indexLayer + 3]);
 		}
 
 		return printReport(netPlan , reportParameters);
 	}
 
+	/* Returns the classic and weighted availability of the unicast demands, and of the multicast demands, of the layer in the current network state */
+	private DoubleMatrix1D [] computeAvailabilities (NetPlan np , NetworkLayer layer , final double PRECISION_FACTOR_hd , final double PRECISION_FACTOR_blocking)
+	{
+		final DoubleMatrix1D h_d = np.getVectorDemandOfferedTraffic(layer);
+		final DoubleMatrix1D blocked_d = np.getVectorDemandBlockedTraffic(layer);
+		if (considerTrafficInOversubscribedLinksAsLost.getBoolean()) for (Demand d : np.getDemands (layer)) if (d.isTraversingOversubscribedLinks()) blocked_d.set (d.getIndex () , d.getOfferedTraffic());
+		if (maximumE2ELatencyMs.getDouble () > 0) for (Demand d : np.getDemands (layer)) if (d.getWorstCasePropagationTimeInMs() > maximumE2ELatencyMs.getDouble ()) blocked_d.set (d.getIndex () , d.getOfferedTraffic());
+
+		final DoubleMatrix1D h_md = np.getVectorMulticastDemandOfferedTraffic(layer);
+		final DoubleMatrix1D blocked_md = np.getVectorMulticastDemandBlockedTraffic(layer);
+		if (considerTrafficInOversubscribedLinksAsLost.getBoolean()) for (MulticastDemand d : np.getMulticastDemands (layer)) if (d.isTraversingOversubscribedLinks()) blocked_md.set (d.getIndex () , d.getOfferedTraffic());
+		if (maximumE2ELatencyMs.getDouble () > 0) for (MulticastDemand d : np.getMulticastDemands(layer)) if (d.getWorseCasePropagationTimeInMs() > maximumE2ELatencyMs.getDouble ()) blocked_md.set (d.getIndex () , d.getOfferedTraffic());
+
+		final DoubleMatrix1D availabilityClassic_d = blocked_d.copy ().assign (new DoubleFunction () { public double apply (double x) { return x > PRECISION_FACTOR_blocking? 0 : 1;  }  } );
+		final DoubleMatrix1D availabilityWeighted_d = blocked_d.copy ().assign (h_d , new DoubleDoubleFunction () { public double apply (double x , double y) { return y < PRECISION_FACTOR_hd? 1 : 1 - x/y; }  } );
+		final DoubleMatrix1D availabilityClassic_md = blocked_md.copy ().assign (new DoubleFunction () { public double apply (double x) { return x > PRECISION_FACTOR_blocking ? 0 : 1;  }  } );
+		final DoubleMatrix1D availabilityWeighted_md = blocked_md.copy ().assign (h_md , new DoubleDoubleFunction () { public double apply (double x , double y) { return y < PRECISION_FACTOR_hd ? 1 : 1 - x/y; }  } );
+		return new DoubleMatrix1D [] { availabilityClassic_d , availabilityWeighted_d , availabilityClassic_md , availabilityWeighted_md };
+	}
+
+	private static void accumulateAvailabilities (DoubleMatrix1D [] totals , int layerIndex , DoubleMatrix1D [] availabilities , final double probability)
+	{
+		for (int cont = 0 ; cont < 4 ; cont ++)
+			totals [4 * layerIndex + cont].assign (availabilities [cont] , new DoubleDoubleFunction () { public double apply (double x , double y) { return x + probability * y; } } );
+	}
+
 	@Override
 	public String getDescription()
 	{
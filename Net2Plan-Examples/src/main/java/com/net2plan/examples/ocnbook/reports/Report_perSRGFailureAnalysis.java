@@ -19,15 +19,17 @@
 
 package com.net2plan.examples.ocnbook.reports;
 
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import com.net2plan.interfaces.networkDesign.*;
 import com.net2plan.interfaces.simulation.IEventProcessor;
-import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.libraries.FailureStateSweep;
 import com.net2plan.libraries.SRGUtils;
 import com.net2plan.utils.ClassLoaderUtils;
 import com.net2plan.utils.InputParameter;
 import com.net2plan.utils.StringUtils;
 import com.net2plan.utils.Triple;
 
+import java.io.Closeable;
 import java.io.File;
 import java.text.DecimalFormat;
 import java.util.*;
@@ -47,9 +49,9 @@ public class Report_perSRGFailureAnalysis implements IReport
 	private InputParameter considerTrafficInOversubscribedLinksAsLost = new InputParameter ("considerTrafficInOversubscribedLinksAsLost" , true , "If true, all the demands whose traffic (even only a fraction of it) traverses an oversubscribed link, are considered that all its treaffic is blocked, as they are supposed to fail to satisfy QoS agreements");
 	private InputParameter maximumE2ELatencyMs = new InputParameter ("maximumE2ELatencyMs", (double) -1 , "Maximum end-to-end latency of the traffic of any demand (a non-positive value means no limit). All the traffic of demands where a fraction of its traffic can exceed this value, are considered as lost, as they are supposed to fail to satisfy QoS agreements");
 	private InputParameter failureModel = new InputParameter ("failureModel" , "#select# perBidirectionalLinkBundle SRGfromNetPlan perNode perLink perDirectionalLinkBundle" , "Failure model selection: SRGfromNetPlan, perNode, perLink, perDirectionalLinkBundle, perBidirectionalLinkBundle");
+	private InputParameter numThreads = new InputParameter ("numThreads", (int) 0 , "Number of failure states evaluated in parallel, each one with its own copy of the network design and of the provisioning algorithm (a non-positive value means the number of available processors)");
 	private InputParameter rootNameOfOutFiles = new InputParameter ("rootNameOfOutFiles" , "./reportPerSRGFailure" , "For each single-SRG failure state and for the no-failure state, a n2p file is produced with the result of the network in that state. The file is named XXX_srgIndex.n2p, and XXX_noFailure.n2p, where XXX is this parameter");
 
-	private IEventProcessor algorithm;
 	private double PRECISION_FACTOR;
 	
 	@Override
@@ -98,37 +100,48 @@ public class Report_perSRGFailureAnalysis implements IReport
 		NetPlan npNoFailure = netPlan.copy ();
 		npNoFailure.saveToFile(new File (rootNameOfOutFiles.getString () + "_noFailure"));
 
-		/* Initialize the provisioning algorithm */
-		NetPlan npForProducingAllFailures = netPlan.copy ();
-		Set<Link> npForProducingAllFailures_linksAllLayers = new HashSet<Link> (); for (NetworkLayer layer : npForProducingAllFailures.getNetworkLayers()) npForProducingAllFailures_linksAllLayers.addAll (npForProducingAllFailures.getLinks (layer));
+		/* Compute the single-SRG failure states in parallel: each thread has its own copy of the design and instance of the provisioning algorithm */
+		final List<IEventProcessor> algorithms = Collections.synchronizedList(new ArrayList<IEventProcessor> ());
+		final FailureStateSweep.IProvisioningAlgorithmFactory algorithmFactory = new FailureStateSweep.IProvisioningAlgorithmFactory ()
+		{
+			@Override
+			public IEventProcessor newInstance () 
+			{
+				final IEventProcessor algorithm = ClassLoaderUtils.getInstance(new File(algorithmFile), algorithmName, IEventProcessor.class , null);
+				algorithms.add (algorithm);
+				return algorithm; 
+			}
+		};
+		final FailureStateSweep.IFailureStateAggregator<List<NetPlan>> aggregator = new FailureStateSweep.IFailureStateAggregator<List<NetPlan>> ()
+		{
+			@Override
+			public List<NetPlan> newAccumulator () { return new ArrayList<NetPlan> (); }
 
-		this.algorithm = ClassLoaderUtils.getInstance(new File(algorithmFile), algorithmName, IEventProcessor.class , null);
-		this.algorithm.initialize(npForProducingAllFailures , algorithmParameters , reportParameters , net2planParameters);
+			@Override
+			public void accumulate (List<NetPlan> accumulator , int srgIndex , double probability , NetPlan npThisFailureState) 
+			{
+				/* Save a copy of the new state */
+				npThisFailureState.saveToFile(new File (rootNameOfOutFiles.getString () + "_srgIndex_" + srgIndex));
+				accumulator.add (npThisFailureState.copy ());
+			}
 
-		/* Compute the other network states */
-		List<NetPlan> npsFailureStates = new ArrayList<NetPlan> (netPlan.getNumberOfSRGs());
-		for (int srgIndex = 0 ; srgIndex < netPlan.getNumberOfSRGs() ; srgIndex ++)
+			@Override
+			public void merge (List<NetPlan> accumulator , List<NetPlan> otherAccumulator) { accumulator.addAll (otherAccumulator); }
+		};
+		final DoubleMatrix2D F_s = SRGUtils.getMatrixFailureState2SRG(netPlan.getSRGs() , false , false);
+		final List<NetPlan> npsFailureStates;
+		try
 		{
-			if (!npForProducingAllFailures.getLinksDownAllLayers().isEmpty() || !npForProducingAllFailures.getNodesDown().isEmpty()) throw new RuntimeException ("Bad");
-
-			/* Fail this SRG */
-			final SharedRiskGroup srg = npForProducingAllFailures.getSRG(srgIndex);
-			Set<Link> linksToSetAsDown = new HashSet<Link> ();
-			Set<Node> nodesToSetAsDown = new HashSet<Node> ();
-			nodesToSetAsDown.addAll (srg.getNodes ());
-			linksToSetAsDown.addAll (srg.getLinksAllLayers ());
-			
-			/* Make the algorithm process the event of nodes and links down */
-			SimEvent.NodesAndLinksChangeFailureState failureInfo = new SimEvent.NodesAndLinksChangeFailureState(null , nodesToSetAsDown , null , linksToSetAsDown);
-			algorithm.processEvent(npForProducingAllFailures, new SimEvent(0, SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , failureInfo)); 
-		
-			/* Save a coy of the new state */
-			npForProducingAllFailures.saveToFile(new File (rootNameOfOutFiles.getString () + "_srgIndex_" + srgIndex));
-			npsFailureStates.add (npForProducingAllFailures.copy ());
-			
-			/* Go back to the no failure state */
-			SimEvent.NodesAndLinksChangeFailureState repairInfo = new SimEvent.NodesAndLinksChangeFailureState(npForProducingAllFailures.getNodes() , null , npForProducingAllFailures_linksAllLayers , null);
-			algorithm.processEvent(npForProducingAllFailures, new SimEvent(0, SimEvent.DestinationModule.EVENT_PROCESSOR , -1 , repairInfo));
+			npsFailureStates = FailureStateSweep.sweep(netPlan , F_s , null , 0 , algorithmFactory , algorithmParameters , reportParameters , net2planParameters , aggregator , numThreads.getInt ());
+		}
+		finally
+		{
+			/* Only close the class loader if it is a different one than this class. If problems: just do not close the class loader, and wait for garbage collection*/
+			for (IEventProcessor algorithm : algorithms)
+				if (!this.getClass().getClassLoader().equals(algorithm.getClass().getClassLoader()))
+				{
+					try { ((Closeable) algorithm.getClass().getClassLoader()).close();	} catch (Throwable e1) { }					
+				}
 		}
 		
 		return printReport(npNoFailure , npsFailureStates , reportParameters);
@@ -82,6 +82,10 @@ public class GUINetworkDesign extends IGUIModule
     private WindowController windowController;
     private GUIWindow tableControlWindow;
 
+    private NetPlan listenedDesign;
+    private INetPlanChangeListener designChangeListener;
+    private Set<NetworkElementType> declaredModificationsMade;
+
     /**
      * Default constructor.
      *
@@ -730,6 +734,7 @@ public class GUINetworkDesign extends IGUIModule
 
     public void updateVisualizationAfterNewTopology()
     {
+        listenDesignChanges(getDesign());
         vs.updateTableRowFilter(null, null);
         topologyPanel.updateMultilayerPanel();
         topologyPanel.getCanvas().rebuildGraph();
@@ -755,6 +760,68 @@ public class GUINetworkDesign extends IGUIModule
             throw new RuntimeException("Unable to update non-existent network elements");
         }
 
+        /* If the design changes are being listened, the event delivered tells what to update */
+        final NetPlan design = getDesign();
+        if ((design != null) && (design == listenedDesign))
+        {
+            declaredModificationsMade = modificationsMade;
+            final NetPlanChangeEvent event = design.fireChangeEvent();
+            declaredModificationsMade = null;
+            if (event != null) return;
+        } else listenDesignChanges(design);
+
+        updateVisualizationAfterChangesFull(modificationsMade);
+    }
+
+    private void listenDesignChanges(NetPlan design)
+    {
+        if (designChangeListener == null) designChangeListener = this::updateVisualizationAfterChangeEvent;
+        if (listenedDesign != null) listenedDesign.removeChangeListener(designChangeListener);
+        listenedDesign = design;
+        if (design != null) design.addChangeListener(designChangeListener); // starts with no pending changes
+    }
+
+    private void updateVisualizationAfterChangeEvent(NetPlanChangeEvent event)
+    {
+        final Set<NetworkElementType> addedOrRemovedTypes = EnumSet.noneOf(NetworkElementType.class);
+        addedOrRemovedTypes.addAll(event.getElementTypes(NetPlanChangeEvent.ChangeType.ADDED));
+        addedOrRemovedTypes.addAll(event.getElementTypes(NetPlanChangeEvent.ChangeType.REMOVED));
+        final Set<NetworkElementType> changedTypes = EnumSet.noneOf(NetworkElementType.class);
+        for (NetPlanChangeEvent.ChangeType changeType : NetPlanChangeEvent.ChangeType.values())
+            changedTypes.addAll(event.getElementTypes(changeType));
+
+        /* Changes not reflected in the event (e.g. in the visualization state), or in the layers, need the full update */
+        boolean fullUpdate = event.isDesignReplaced() || changedTypes.contains(NetworkElementType.LAYER);
+        final Set<NetworkElementType> declaredTypes = declaredModificationsMade == null ? Collections.emptySet() : declaredModificationsMade;
+        for (NetworkElementType type : declaredTypes)
+        {
+            if (type == NetworkElementType.FORWARDING_RULE)
+                fullUpdate |= !changedTypes.contains(NetworkElementType.DEMAND) && !changedTypes.contains(NetworkElementType.LINK);
+            else fullUpdate |= !changedTypes.contains(type);
+        }
+        if (fullUpdate)
+        {
+            final Set<NetworkElementType> modificationsMade = EnumSet.copyOf(changedTypes);
+            modificationsMade.addAll(declaredTypes);
+            updateVisualizationAfterChangesFull(modificationsMade);
+            return;
+        }
+
+        final ITopologyCanvas canvas = topologyPanel.getCanvas();
+        if (addedOrRemovedTypes.contains(NetworkElementType.NODE) || addedOrRemovedTypes.contains(NetworkElementType.LINK))
+            canvas.rebuildGraph();
+        else if (changedTypes.contains(NetworkElementType.NODE))
+        {
+            canvas.updateAllVerticesXYPosition();
+            canvas.refresh();
+        } else if (changedTypes.contains(NetworkElementType.LINK))
+            canvas.refresh();
+        viewEditTopTables.updateView(event);
+        focusPanel.updateView();
+    }
+
+    private void updateVisualizationAfterChangesFull(Set<NetworkElementType> modificationsMade)
+    {
         if (modificationsMade.contains(NetworkElementType.LAYER))
         {
             topologyPanel.updateMultilayerPanel();
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.gui.plugins.networkDesign.topologyPane.jung;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Quadtree over the bounding rectangles of canvas elements (in layout coordinates), to find the elements inside a
+ * region (e.g. the visible window, or the surroundings of the mouse) without checking all of them. Each element is
+ * stored in the deepest cell that fully contains its rectangle. The elements found are returned in the order in
+ * which they were given, which is the order in which the canvas paints them.
+ */
+final class CanvasSpatialIndex<T>
+{
+    private static final int MAX_ELEMENTS_PER_CELL = 16;
+    private static final int MAX_DEPTH = 16;
+
+    private final Cell root;
+    private final int numElements;
+
+    /**
+     * Builds the index of the given elements.
+     *
+     * @param elements Elements, in painting order
+     * @param bounds   Bounding rectangle of each element
+     */
+    CanvasSpatialIndex(Collection<T> elements, Function<T, Rectangle2D> bounds)
+    {
+        final List<Entry<T>> entries = new ArrayList<>(elements.size());
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (T element : elements)
+        {
+            final Entry<T> entry = new Entry<>(element, entries.size(), bounds.apply(element));
+            entries.add(entry);
+            minX = Math.min(minX, entry.minX);
+            minY = Math.min(minY, entry.minY);
+            maxX = Math.max(maxX, entry.maxX);
+            maxY = Math.max(maxY, entry.maxY);
+        }
+        if (entries.isEmpty()) minX = minY = maxX = maxY = 0;
+
+        /* Square root cell, slightly larger than the elements, so that no element lies in its border */
+        final double size = Math.max(1, Math.max(maxX - minX, maxY - minY)) * 1.01;
+        this.root = new Cell(minX - size * 0.005, minY - size * 0.005, size, 0);
+        for (Entry<T> entry : entries) root.insert(entry);
+        this.numElements = entries.size();
+    }
+
+    /**
+     * Returns the number of elements in the index.
+     *
+     * @return See description above
+     */
+    int size()
+    {
+        return numElements;
+    }
+
+    /**
+     * Returns the elements whose bounding rectangle intersects the given region, in the order in which they were given.
+     *
+     * @param region Region in layout coordinates
+     * @return The elements found
+     */
+    List<T> query(Rectangle2D region)
+    {
+        final List<Entry<T>> found = new ArrayList<>();
+        root.query(region.getMinX(), region.getMinY(), region.getMaxX(), region.getMaxY(), found);
+        found.sort(Comparator.comparingInt(e -> e.order));
+        final List<T> res = new ArrayList<>(found.size());
+        for (Entry<T> entry : found) res.add(entry.element);
+        return res;
+    }
+
+    private static final class Entry<T>
+    {
+        private final T element;
+        private final int order;
+        private final double minX, minY, maxX, maxY;
+
+        private Entry(T element, int order, Rectangle2D bounds)
+        {
+            this.element = element;
+            this.order = order;
+            this.minX = bounds.getMinX();
+            this.minY = bounds.getMinY();
+            this.maxX = bounds.getMaxX();
+            this.maxY = bounds.getMaxY();
+        }
+    }
+
+    private final class Cell
+    {
+        private final double minX, minY, size;
+        private final int depth;
+        private List<Entry<T>> entries = new ArrayList<>();
+        private Cell[] children;
+
+        private Cell(double minX, double minY, double size, int depth)
+        {
+            this.minX = minX;
+            this.minY = minY;
+            this.size = size;
+            this.depth = depth;
+        }
+
+        private void insert(Entry<T> entry)
+        {
+            if (children != null)
+            {
+                final Cell child = getChildContaining(entry);
+                if (child != null)
+                {
+                    child.insert(entry);
+                    return;
+                }
+            }
+            entries.add(entry);
+            if ((children == null) && (entries.size() > MAX_ELEMENTS_PER_CELL) && (depth < MAX_DEPTH)) split();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void split()
+        {
+            final double half = size / 2;
+            children = new CanvasSpatialIndex.Cell[4];
+            children[0] = new Cell(minX, minY, half, depth + 1);
+            children[1] = new Cell(minX + half, minY, half, depth + 1);
+            children[2] = new Cell(minX, minY + half, half, depth + 1);
+            children[3] = new Cell(minX + half, minY + half, half, depth + 1);
+
+            final List<Entry<T>> previousEntries = entries;
+            entries = new ArrayList<>();
+            for (Entry<T> entry : previousEntries)
+            {
+                final Cell child = getChildContaining(entry);
+                if (child == null) entries.add(entry);
+                else child.insert(entry);
+            }
+        }
+
+        private Cell getChildContaining(Entry<T> entry)
+        {
+            final double midX = minX + size / 2;
+            final double midY = minY + size / 2;
+            final int column;
+            if (entry.maxX < midX) column = 0;
+            else if (entry.minX >= midX) column = 1;
+            else return null;
+            final int row;
+            if (entry.maxY < midY) row = 0;
+            else if (entry.minY >= midY) row = 1;
+            else return null;
+            return children[2 * row + column];
+        }
+
+        private void query(double qMinX, double qMinY, double qMaxX, double qMaxY, List<Entry<T>> found)
+        {
+            if ((qMaxX < minX) || (qMinX > minX + size) || (qMaxY < minY) || (qMinY > minY + size)) return;
+            for (Entry<T> entry : entries)
+                if ((entry.maxX >= qMinX) && (entry.minX <= qMaxX) && (entry.maxY >= qMinY) && (entry.minY <= qMaxY))
+                    found.add(entry);
+            if (children != null)
+                for (Cell child : children) child.query(qMinX, qMinY, qMaxX, qMaxY, found);
+        }
+    }
+}
@@ -20,9 +20,12 @@ import com.net2plan.gui.plugins.networkDesign.topologyPane.jung.plugins.GraphMou
 import com.net2plan.gui.plugins.networkDesign.topologyPane.jung.state.CanvasOption;
 import com.net2plan.gui.plugins.networkDesign.topologyPane.jung.state.CanvasStateController;
 import com.net2plan.gui.plugins.networkDesign.visualizationControl.VisualizationConstants;
+import com.net2plan.gui.plugins.networkDesign.visualizationControl.VisualizationState;
 import com.net2plan.interfaces.networkDesign.Configuration;
+import com.net2plan.interfaces.networkDesign.NetworkElement;
 import com.net2plan.interfaces.networkDesign.Node;
 import com.net2plan.internal.CommandLineParser;
+import com.net2plan.utils.Pair;
 import com.net2plan.utils.Triple;
 import edu.uci.ics.jung.algorithms.layout.GraphElementAccessor;
 import edu.uci.ics.jung.algorithms.layout.Layout;
@@ -37,7 +40,9 @@ import edu.uci.ics.jung.visualization.VisualizationViewer;
 import edu.uci.ics.jung.visualization.control.*;
 import edu.uci.ics.jung.visualization.decorators.ConstantDirectionalEdgeValueTransformer;
 import edu.uci.ics.jung.visualization.decorators.EdgeShape;
+import edu.uci.ics.jung.visualization.picking.ShapePickSupport;
 import edu.uci.ics.jung.visualization.renderers.BasicEdgeLabelRenderer;
+import edu.uci.ics.jung.visualization.renderers.BasicRenderer;
 import edu.uci.ics.jung.visualization.renderers.BasicVertexLabelRenderer;
 import edu.uci.ics.jung.visualization.renderers.DefaultEdgeLabelRenderer;
 import edu.uci.ics.jung.visualization.renderers.Renderer;
@@ -79,6 +84,16 @@ public final class JUNGCanvas implements ITopologyCanvas
 
     private final CanvasStateController stateController;
 
+    /* Nodes and links are only painted and hit-tested if they are in (or close to) the region of interest, found with a spatial index */
+    private static final int VIEW_MARGIN_IN_PIXELS = 100; // icons, labels and curved links are drawn beyond the positions of the nodes
+    private static final int LOW_DETAIL_MIN_NODES_IN_VIEW = 500;
+    private static final int LOW_DETAIL_CELL_SIZE_IN_PIXELS = 6;
+
+    private CanvasSpatialIndex<GUINode> nodeIndex; // null if the nodes moved, or the graph changed
+    private CanvasSpatialIndex<GUILink> linkIndex;
+    private ViewContent viewContent; // null if it should be recomputed at the next paint
+    private boolean isLowDetailView;
+
     /**
      * Default constructor.
      *
@@ -97,8 +112,18 @@ public final class JUNGCanvas implements ITopologyCanvas
         };
 
         g = new DirectedOrderedSparseMultigraph<>();
-        l = new StaticLayout<>(g, transformNetPlanCoordinatesToJungCoordinates); 
+        l = new StaticLayout<GUINode, GUILink>(g, transformNetPlanCoordinatesToJungCoordinates)
+        {
+            @Override
+            public void setLocation(GUINode vertex, Point2D location)
+            {
+                super.setLocation(vertex, location);
+                invalidateSpatialIndex();
+            }
+        };
         vv = new VisualizationViewer<>(l);
+        vv.setRenderer(new LevelOfDetailRenderer());
+        vv.setPickSupport(new SpatialIndexPickSupport());
 
         stateController = new CanvasStateController(callback, topologyPanel, this);
 
@@ -139,7 +164,7 @@ public final class JUNGCanvas implements ITopologyCanvas
 
 
         vv.getRenderContext().setEdgeIncludePredicate(context -> callback.getVisualizationState().isVisibleInCanvas(context.element));
-        vv.getRenderContext().setEdgeArrowPredicate(context -> callback.getVisualizationState().isVisibleInCanvas(context.element) && context.element.getHasArrow());
+        vv.getRenderContext().setEdgeArrowPredicate(context -> !isLowDetailView && callback.getVisualizationState().isVisibleInCanvas(context.element) && context.element.getHasArrow());
         vv.getRenderContext().setEdgeArrowStrokeTransformer(i -> i.getStroke());
         vv.getRenderContext().setEdgeArrowTransformer(new ConstantTransformer(ArrowFactory.getNotchedArrow(7, 10, 5)));
         vv.getRenderContext().setEdgeLabelClosenessTransformer(new ConstantDirectionalEdgeValueTransformer(.6, .6));
@@ -296,6 +321,7 @@ public final class JUNGCanvas implements ITopologyCanvas
     @Override
     public void refresh()
     {
+        viewContent = null;
         vv.repaint();
     }
 
@@ -317,6 +343,7 @@ public final class JUNGCanvas implements ITopologyCanvas
         for (GUINode gn : callback.getVisualizationState().getCanvasAllGUINodes()) g.addVertex(gn);
         for (GUILink gl : callback.getVisualizationState().getCanvasAllGUILinks(true, true))
             g.addEdge(gl, gl.getOriginNode(), gl.getDestinationNode());
+        invalidateSpatialIndex();
 
         updateAllVerticesXYPosition();
         refresh();
@@ -435,6 +462,187 @@ public final class JUNGCanvas implements ITopologyCanvas
 
     /** ------ **/
 
+    private void invalidateSpatialIndex()
+    {
+        nodeIndex = null;
+        linkIndex = null;
+        viewContent = null;
+    }
+
+    private void updateSpatialIndex()
+    {
+        if (nodeIndex != null) return;
+        nodeIndex = new CanvasSpatialIndex<>(g.getVertices(), gn ->
+        {
+            final Point2D position = l.transform(gn);
+            return new Rectangle2D.Double(position.getX(), position.getY(), 0, 0);
+        });
+        linkIndex = new CanvasSpatialIndex<>(g.getEdges(), gl ->
+        {
+            final Point2D origin = l.transform(gl.getOriginNode());
+            final Point2D destination = l.transform(gl.getDestinationNode());
+            final Rectangle2D bounds = new Rectangle2D.Double(origin.getX(), origin.getY(), 0, 0);
+            bounds.add(destination);
+            return bounds;
+        });
+    }
+
+    private Rectangle2D getLayoutRegion(Rectangle2D screenRegion)
+    {
+        return vv.getRenderContext().getMultiLayerTransformer().inverseTransform(screenRegion).getBounds2D();
+    }
+
+    /**
+     * Returns the nodes and links to paint in the current view. If there are many nodes in view, only one node is painted
+     * per cell of a few pixels, and one link per pair of cells (picked elements are always painted), and no labels or
+     * arrows are painted. The content is kept until the view is moved, zoomed or refreshed.
+     */
+    private ViewContent getViewContent()
+    {
+        updateSpatialIndex();
+        final Rectangle2D viewRegion = getLayoutRegion(new Rectangle(-VIEW_MARGIN_IN_PIXELS, -VIEW_MARGIN_IN_PIXELS, vv.getWidth() + 2 * VIEW_MARGIN_IN_PIXELS, vv.getHeight() + 2 * VIEW_MARGIN_IN_PIXELS));
+        if ((viewContent != null) && viewContent.viewRegion.equals(viewRegion)) return viewContent;
+
+        final VisualizationState vs = callback.getVisualizationState();
+        final List<GUINode> nodes = nodeIndex.query(viewRegion);
+        nodes.removeIf(gn -> !vs.isVisibleInCanvas(gn));
+        final List<GUILink> links = linkIndex.query(viewRegion);
+        links.removeIf(gl -> !vs.isVisibleInCanvas(gl));
+        if (nodes.size() <= LOW_DETAIL_MIN_NODES_IN_VIEW)
+        {
+            viewContent = new ViewContent(viewRegion, nodes, links, false);
+            return viewContent;
+        }
+
+        /* The last element painted in each cell (or pair of cells) is the one that would be seen on top */
+        final Set<NetworkElement> pickedElements = new HashSet<>(vs.getPickedNetworkElements());
+        final Map<Long, GUINode> cell2Node = new LinkedHashMap<>();
+        final List<GUINode> pickedNodes = new ArrayList<>();
+        for (GUINode gn : nodes)
+        {
+            if (pickedElements.contains(gn.getAssociatedNode())) pickedNodes.add(gn);
+            else cell2Node.put(getScreenCell(gn), gn);
+        }
+        final Map<Pair<Long, Long>, GUILink> cellPair2Link = new LinkedHashMap<>();
+        final List<GUILink> pickedLinks = new ArrayList<>();
+        for (GUILink gl : links)
+        {
+            if (pickedElements.contains(gl.getAssociatedNetPlanLink()))
+            {
+                pickedLinks.add(gl);
+                continue;
+            }
+            final long originCell = getScreenCell(gl.getOriginNode());
+            final long destinationCell = getScreenCell(gl.getDestinationNode());
+            if (originCell == destinationCell) continue; // hidden by the node painted in the cell
+            cellPair2Link.put(Pair.of(Math.min(originCell, destinationCell), Math.max(originCell, destinationCell)), gl);
+        }
+        final List<GUINode> lowDetailNodes = new ArrayList<>(cell2Node.values());
+        lowDetailNodes.addAll(pickedNodes);
+        final List<GUILink> lowDetailLinks = new ArrayList<>(cellPair2Link.values());
+        lowDetailLinks.addAll(pickedLinks);
+        viewContent = new ViewContent(viewRegion, lowDetailNodes, lowDetailLinks, true);
+        return viewContent;
+    }
+
+    private long getScreenCell(GUINode gn)
+    {
+        final Point2D screenPosition = vv.getRenderContext().getMultiLayerTransformer().transform(l.transform(gn));
+        final long column = (long) Math.floor(screenPosition.getX() / LOW_DETAIL_CELL_SIZE_IN_PIXELS);
+        final long row = (long) Math.floor(screenPosition.getY() / LOW_DETAIL_CELL_SIZE_IN_PIXELS);
+        return (column << 32) ^ (row & 0xFFFFFFFFL);
+    }
+
+    private static final class ViewContent
+    {
+        private final Rectangle2D viewRegion;
+        private final List<GUINode> nodes;
+        private final List<GUILink> links;
+        private final boolean isLowDetail;
+
+        private ViewContent(Rectangle2D viewRegion, List<GUINode> nodes, List<GUILink> links, boolean isLowDetail)
+        {
+            this.viewRegion = viewRegion;
+            this.nodes = nodes;
+            this.links = links;
+            this.isLowDetail = isLowDetail;
+        }
+    }
+
+    /**
+     * Paints only the nodes and links of the current view content, instead of all the graph.
+     */
+    private class LevelOfDetailRenderer extends BasicRenderer<GUINode, GUILink>
+    {
+        @Override
+        public void render(RenderContext<GUINode, GUILink> rc, Layout<GUINode, GUILink> layout)
+        {
+            final ViewContent content = getViewContent();
+            isLowDetailView = content.isLowDetail;
+            for (GUILink gl : content.links)
+            {
+                getEdgeRenderer().paintEdge(rc, layout, gl);
+                if (!content.isLowDetail) getEdgeLabelRenderer().labelEdge(rc, layout, gl, rc.getEdgeLabelTransformer().transform(gl));
+            }
+            for (GUINode gn : content.nodes)
+            {
+                getVertexRenderer().paintVertex(rc, layout, gn);
+                if (!content.isLowDetail) getVertexLabelRenderer().labelVertex(rc, layout, gn, rc.getVertexLabelTransformer().transform(gn));
+            }
+        }
+    }
+
+    /**
+     * Hit-tests (for picking, tooltips...) only the nodes and links close to the point or region of interest, found
+     * with the spatial index. The hit test itself is the default one of JUNG.
+     */
+    private class SpatialIndexPickSupport implements GraphElementAccessor<GUINode, GUILink>
+    {
+        private final ShapePickSupport<GUINode, GUILink> shapePickSupport = new ShapePickSupport<>(vv);
+
+        @Override
+        public GUINode getVertex(Layout<GUINode, GUILink> layout, double x, double y)
+        {
+            return shapePickSupport.getVertex(getCandidatesLayout(layout, getScreenRegionAround(x, y)), x, y);
+        }
+
+        @Override
+        public Collection<GUINode> getVertices(Layout<GUINode, GUILink> layout, Shape rectangle)
+        {
+            final Rectangle2D bounds = rectangle.getBounds2D();
+            final Rectangle2D screenRegion = new Rectangle2D.Double(bounds.getX() - VIEW_MARGIN_IN_PIXELS, bounds.getY() - VIEW_MARGIN_IN_PIXELS, bounds.getWidth() + 2 * VIEW_MARGIN_IN_PIXELS, bounds.getHeight() + 2 * VIEW_MARGIN_IN_PIXELS);
+            return shapePickSupport.getVertices(getCandidatesLayout(layout, screenRegion), rectangle);
+        }
+
+        @Override
+        public GUILink getEdge(Layout<GUINode, GUILink> layout, double x, double y)
+        {
+            return shapePickSupport.getEdge(getCandidatesLayout(layout, getScreenRegionAround(x, y)), x, y);
+        }
+
+        private Rectangle2D getScreenRegionAround(double x, double y)
+        {
+            return new Rectangle2D.Double(x - VIEW_MARGIN_IN_PIXELS, y - VIEW_MARGIN_IN_PIXELS, 2 * VIEW_MARGIN_IN_PIXELS, 2 * VIEW_MARGIN_IN_PIXELS);
+        }
+
+        /* Layout with the same positions, over the subgraph of the nodes and links in the given region */
+        private Layout<GUINode, GUILink> getCandidatesLayout(Layout<GUINode, GUILink> layout, Rectangle2D screenRegion)
+        {
+            updateSpatialIndex();
+            final Rectangle2D region = getLayoutRegion(screenRegion);
+            final Graph<GUINode, GUILink> candidates = new DirectedOrderedSparseMultigraph<>();
+            for (GUINode gn : nodeIndex.query(region))
+                candidates.addVertex(gn);
+            for (GUILink gl : linkIndex.query(region))
+            {
+                candidates.addVertex(gl.getOriginNode());
+                candidates.addVertex(gl.getDestinationNode());
+                candidates.addEdge(gl, gl.getOriginNode(), gl.getDestinationNode());
+            }
+            return new StaticLayout<>(candidates, layout);
+        }
+    }
+
     private class NodeLabelRenderer extends BasicVertexLabelRenderer<GUINode, GUILink>
     {
         @Override
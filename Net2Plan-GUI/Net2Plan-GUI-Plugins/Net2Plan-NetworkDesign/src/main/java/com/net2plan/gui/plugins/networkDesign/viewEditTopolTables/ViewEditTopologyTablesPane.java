@@ -35,6 +35,7 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.io.File;
 import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -248,15 +249,42 @@ public class ViewEditTopologyTablesPane extends JPanel
             if (!layer.isSourceRouting() && (entry.getKey() == NetworkElementType.ROUTE)) continue;
             final AdvancedJTable_networkElement table = entry.getValue();
             table.updateView(currentState);
-            final JLabel label = netPlanViewTableNumEntriesLabel.get(entry.getKey());
-            if (label != null)
-            {
-                final int numEntries = table.getModel().getRowCount() - 1; // last columns is for the aggregation
-                if (callback.getVisualizationState().getTableRowFilter() != null)
-                    label.setText("Number of entries: " + numEntries + " / " + table.getModel().getRowCount() + ", FILTERED VIEW: " + callback.getVisualizationState().getTableRowFilter().getDescription());
-                else
-                    label.setText("Number of entries: " + numEntries);
-            }
+            updateNumEntriesLabel(entry.getKey(), table);
+        }
+
+        trafficMatrixComponent.updateNetPlanView();
+        ((NetPlanViewTableComponent_layer) netPlanViewTableComponent.get(NetworkElementType.LAYER)).updateNetPlanView(currentState);
+        ((NetPlanViewTableComponent_network) netPlanViewTableComponent.get(NetworkElementType.NETWORK)).updateNetPlanView(currentState);
+    }
+
+    /**
+     * Updates the tables after the given changes in the design, which did not add or remove layers. Only the tables of the
+     * element types with elements added, removed or with new attributes are rebuilt. In the rest, the cells are recomputed when shown.
+     *
+     * @param event Changes made in the design
+     * @since 0.6.0
+     */
+    public void updateView(NetPlanChangeEvent event)
+    {
+        final NetPlan currentState = callback.getDesign();
+        final NetworkLayer layer = currentState.getNetworkLayerDefault();
+        if (ErrorHandling.isDebugEnabled()) currentState.checkCachesConsistency();
+
+        final Set<NetworkElementType> typesToRebuild = EnumSet.noneOf(NetworkElementType.class);
+        typesToRebuild.addAll(event.getElementTypes(NetPlanChangeEvent.ChangeType.ADDED));
+        typesToRebuild.addAll(event.getElementTypes(NetPlanChangeEvent.ChangeType.REMOVED));
+        typesToRebuild.addAll(event.getElementTypes(NetPlanChangeEvent.ChangeType.ATTRIBUTES_CHANGED));
+        if (!layer.isSourceRouting() && (typesToRebuild.contains(NetworkElementType.DEMAND) || typesToRebuild.contains(NetworkElementType.LINK)))
+            typesToRebuild.add(NetworkElementType.FORWARDING_RULE);
+
+        for (Map.Entry<Constants.NetworkElementType, AdvancedJTable_networkElement> entry : netPlanViewTable.entrySet())
+        {
+            if (layer.isSourceRouting() && entry.getKey() == NetworkElementType.FORWARDING_RULE) continue;
+            if (!layer.isSourceRouting() && (entry.getKey() == NetworkElementType.ROUTE)) continue;
+            final AdvancedJTable_networkElement table = entry.getValue();
+            if (typesToRebuild.contains(entry.getKey())) table.updateView(currentState);
+            else table.updateCells(currentState);
+            updateNumEntriesLabel(entry.getKey(), table);
         }
 
         trafficMatrixComponent.updateNetPlanView();
@@ -264,6 +292,17 @@ public class ViewEditTopologyTablesPane extends JPanel
         ((NetPlanViewTableComponent_network) netPlanViewTableComponent.get(NetworkElementType.NETWORK)).updateNetPlanView(currentState);
     }
 
+    private void updateNumEntriesLabel(NetworkElementType type, AdvancedJTable_networkElement table)
+    {
+        final JLabel label = netPlanViewTableNumEntriesLabel.get(type);
+        if (label == null) return;
+        final int numEntries = table.getModel().getRowCount() - 1; // last columns is for the aggregation
+        if (callback.getVisualizationState().getTableRowFilter() != null)
+            label.setText("Number of entries: " + numEntries + " / " + table.getModel().getRowCount() + ", FILTERED VIEW: " + callback.getVisualizationState().getTableRowFilter().getDescription());
+        else
+            label.setText("Number of entries: " + numEntries);
+    }
+
 
     /**
      * Shows the tab corresponding associated to a network element.
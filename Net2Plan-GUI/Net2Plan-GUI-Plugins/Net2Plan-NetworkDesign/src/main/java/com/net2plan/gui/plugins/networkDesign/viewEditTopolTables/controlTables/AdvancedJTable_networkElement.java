@@ -168,8 +168,12 @@ public abstract class AdvancedJTable_networkElement extends AdvancedJTable
         {
             ArrayList<String> attColumnsHeaders = getAttributesColumnsHeaders();
 
-            List<Object[]> allData = getAllData(currentState, attColumnsHeaders);
-            ((DefaultTableModel) getModel()).setDataVector(allData.toArray(new Object[allData.size()][tableHeaders.length]), tableHeaders);
+            final boolean isLazy = getModel() instanceof LazyTableModel && setRowElements((LazyTableModel) getModel(), attColumnsHeaders, tableHeaders);
+            if (!isLazy)
+            {
+                List<Object[]> allData = getAllData(currentState, attColumnsHeaders);
+                ((DefaultTableModel) getModel()).setDataVector(allData.toArray(new Object[allData.size()][tableHeaders.length]), tableHeaders);
+            }
             this.createDefaultColumnsFromModel();
 
             if (attColumnsHeaders != null && networkElementType != NetworkElementType.FORWARDING_RULE)
@@ -214,6 +218,20 @@ public abstract class AdvancedJTable_networkElement extends AdvancedJTable
         setEnabled(true);
     }
 
+    /**
+     * Updates the cells of the table after some of its elements changed, keeping the same rows. Tables whose cells are not
+     * computed on demand, or with a row filter applied, are fully updated with {@link #updateView(NetPlan)}.
+     *
+     * @param currentState Current design
+     * @since 0.6.0
+     */
+    public void updateCells(NetPlan currentState)
+    {
+        final boolean isFiltered = callback.getVisualizationState().getTableRowFilter() != null;
+        if (isFiltered || !(getModel() instanceof LazyTableModel) || !((LazyTableModel) getModel()).invalidateCells())
+            updateView(currentState);
+    }
+
     protected final void addPopupMenuAttributeOptions(ElementSelection selection, JPopupMenu popup)
     {
         assert popup != null;
@@ -454,7 +472,7 @@ public abstract class AdvancedJTable_networkElement extends AdvancedJTable
             {
                 final Number oo1 = (Number) o1;
                 final Number oo2 = (Number) o2;
-                return new Double(oo1.doubleValue()).compareTo(new Double(oo2.doubleValue()));
+                return Double.compare(oo1.doubleValue(), oo2.doubleValue());
             }
             String oo1 = (String) o1;
             String oo2 = (String) o2;
@@ -916,6 +934,21 @@ public abstract class AdvancedJTable_networkElement extends AdvancedJTable
 
     public abstract List<Object[]> getAllData(NetPlan currentState, ArrayList<String> attributesTitles);
 
+    /**
+     * Sets in the model the elements shown in the table rows, so that their cells are computed only when the table needs them.
+     * Tables that do not support it return {@code false}, and are filled at once with {@link #getAllData(NetPlan, ArrayList)}.
+     *
+     * @param model             Table model
+     * @param attributesColumns Attributes shown as columns
+     * @param tableHeaders      Column names
+     * @return {@code true} if the elements were set in the model, {@code false} otherwise
+     * @since 0.6.0
+     */
+    protected boolean setRowElements(LazyTableModel model, ArrayList<String> attributesColumns, String[] tableHeaders)
+    {
+        return false;
+    }
+
     public abstract String getTabName();
 
     public abstract String[] getTableHeaders();
@@ -42,6 +42,16 @@ public class AggregationUtils
         }
     }
 
+    public static void updateRowSum(double[] aggreg, int index, double val)
+    {
+        aggreg[index] += val;
+    }
+
+    public static void updateRowMax(double[] aggreg, int index, double val)
+    {
+        aggreg[index] = Math.max(val, aggreg[index]);
+    }
+
     public static void updateRowCount(double[] aggreg, int index, int amount)
     {
         aggreg[index] = aggreg[index] + amount;
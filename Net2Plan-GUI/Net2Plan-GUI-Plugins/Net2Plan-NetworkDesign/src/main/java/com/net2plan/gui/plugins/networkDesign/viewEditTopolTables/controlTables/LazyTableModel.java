@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables;
+
+import com.net2plan.gui.utils.ClassAwareTableModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Vector;
+
+/**
+ * <p>Table model whose rows are backed by a list of elements, instead of by a matrix with all the cells. Each cell is
+ * computed by a {@link CellProvider} the first time the table asks for it (e.g. to paint a visible row, or to sort by
+ * its column), and then kept until a new list of elements is set. The last row is the aggregation row, computed
+ * from all the elements once it is first shown after each refresh (a new list of elements, or discarded cells). Setting
+ * the value of a cell never recomputes it.</p>
+ * <p>While no list of elements is set, it behaves as a regular {@code ClassAwareTableModel}.</p>
+ *
+ * @since 0.6.0
+ */
+@SuppressWarnings("unchecked")
+public class LazyTableModel extends ClassAwareTableModel
+{
+    private static final int PAGE_SIZE = 1024;
+    private static final Object NOT_COMPUTED = new Object();
+
+    private List<?> rowElements;
+    private CellProvider<Object> cellProvider;
+    private Object[][][] cellPages;
+    private Object[] aggregatedRow;
+
+    /**
+     * Computes the cells of the rows associated to elements of type {@code T}.
+     *
+     * @param <T> Type of the element associated to each row
+     * @since 0.6.0
+     */
+    public interface CellProvider<T>
+    {
+        /**
+         * Returns the value of the given column for the row of the given element.
+         *
+         * @param rowElement Element associated to the row
+         * @param column     Column index
+         * @return Cell value
+         */
+        Object getCellValue(T rowElement, int column);
+
+        /**
+         * Returns the aggregation row, shown after the rows of all the elements.
+         *
+         * @param rowElements Elements associated to the rows
+         * @return Aggregation row, with one value per column
+         */
+        Object[] getAggregatedRow(List<T> rowElements);
+    }
+
+    /**
+     * Constructs a {@code LazyTableModel} and initializes the table with some data.
+     *
+     * @param data        Table data
+     * @param columnNames Column names
+     * @since 0.6.0
+     */
+    public LazyTableModel(Object[][] data, Object[] columnNames)
+    {
+        super(data, columnNames);
+    }
+
+    /**
+     * Sets the elements associated to the table rows. Previously computed cells are discarded.
+     *
+     * @param rowElements  Elements associated to the rows, in order
+     * @param cellProvider Provider of the cell values
+     * @param columnNames  Column names
+     * @param <T>          Type of the element associated to each row
+     * @since 0.6.0
+     */
+    public <T> void setRowElements(List<T> rowElements, CellProvider<T> cellProvider, Object[] columnNames)
+    {
+        this.columnIdentifiers = convertToVector(columnNames);
+        this.dataVector = new Vector();
+        this.rowElements = rowElements instanceof RandomAccess ? rowElements : new ArrayList<>(rowElements);
+        this.cellProvider = (CellProvider<Object>) cellProvider;
+        this.cellPages = new Object[columnNames.length][][];
+        this.aggregatedRow = null;
+        fireTableStructureChanged();
+    }
+
+    /**
+     * Computes all the rows of the given elements at once, followed by the aggregation row.
+     *
+     * @param rowElements  Elements associated to the rows, in order
+     * @param cellProvider Provider of the cell values
+     * @param numColumns   Number of columns
+     * @param <T>          Type of the element associated to each row
+     * @return All the rows
+     * @since 0.6.0
+     */
+    public static <T> List<Object[]> getAllRows(List<T> rowElements, CellProvider<T> cellProvider, int numColumns)
+    {
+        final List<Object[]> allRows = new ArrayList<>(rowElements.size() + 1);
+        for (T rowElement : rowElements)
+        {
+            final Object[] row = new Object[numColumns];
+            for (int column = 0; column < numColumns; column++)
+                row[column] = cellProvider.getCellValue(rowElement, column);
+            allRows.add(row);
+        }
+        allRows.add(cellProvider.getAggregatedRow(rowElements));
+        return allRows;
+    }
+
+    /**
+     * Discards the computed cells, keeping the elements associated to the rows, so that the cells are computed again
+     * when the table asks for them. Used when the elements changed, but no element was added or removed.
+     *
+     * @return {@code true} if the cells were discarded, {@code false} if no list of elements is set
+     * @since 0.6.0
+     */
+    public boolean invalidateCells()
+    {
+        if (rowElements == null) return false;
+        this.cellPages = new Object[cellPages.length][][];
+        this.aggregatedRow = null;
+        fireTableDataChanged();
+        return true;
+    }
+
+    @Override
+    public void setDataVector(Vector dataVector, Vector columnIdentifiers)
+    {
+        this.rowElements = null;
+        this.cellProvider = null;
+        this.cellPages = null;
+        this.aggregatedRow = null;
+        super.setDataVector(dataVector, columnIdentifiers);
+    }
+
+    @Override
+    public int getRowCount()
+    {
+        return rowElements == null ? super.getRowCount() : rowElements.size() + 1;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column)
+    {
+        if (rowElements == null) return super.getValueAt(row, column);
+        if (row == rowElements.size()) return getAggregatedRow()[column];
+
+        final Object[] page = getPage(row, column);
+        final int offset = row % PAGE_SIZE;
+        if (page[offset] == NOT_COMPUTED) page[offset] = cellProvider.getCellValue(rowElements.get(row), column);
+        return page[offset];
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column)
+    {
+        if (rowElements == null) super.setValueAt(value, row, column);
+        else setCachedValue(value, row, column);
+    }
+
+    @Override
+    public void setAtValueSuper(Object value, int row, int column)
+    {
+        if (rowElements == null) super.setAtValueSuper(value, row, column);
+        else setCachedValue(value, row, column);
+    }
+
+    private void setCachedValue(Object value, int row, int column)
+    {
+        if (row == rowElements.size())
+        {
+            /* if not computed yet, it is computed from the current elements when shown */
+            if (aggregatedRow == null) return;
+            aggregatedRow[column] = value;
+        }
+        else getPage(row, column)[row % PAGE_SIZE] = value;
+        fireTableCellUpdated(row, column);
+    }
+
+    private Object[] getAggregatedRow()
+    {
+        if (aggregatedRow == null)
+        {
+            final Object[] computedRow = cellProvider.getAggregatedRow((List<Object>) rowElements);
+            aggregatedRow = Arrays.copyOf(computedRow, Math.max(computedRow.length, cellPages.length), Object[].class);
+            Arrays.fill(aggregatedRow, computedRow.length, aggregatedRow.length, new LastRowAggregatedValue());
+        }
+        return aggregatedRow;
+    }
+
+    private Object[] getPage(int row, int column)
+    {
+        Object[][] columnPages = cellPages[column];
+        if (columnPages == null)
+        {
+            columnPages = new Object[(rowElements.size() + PAGE_SIZE - 1) / PAGE_SIZE][];
+            cellPages[column] = columnPages;
+        }
+
+        Object[] page = columnPages[row / PAGE_SIZE];
+        if (page == null)
+        {
+            page = new Object[PAGE_SIZE];
+            Arrays.fill(page, NOT_COMPUTED);
+            columnPages[row / PAGE_SIZE] = page;
+        }
+        return page;
+    }
+}
@@ -21,6 +21,7 @@ import com.net2plan.gui.plugins.networkDesign.interfaces.ITableRowFilter;
 import com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables.AdvancedJTable_networkElement;
 import com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables.AggregationUtils;
 import com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables.LastRowAggregatedValue;
+import com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables.LazyTableModel;
 import com.net2plan.gui.plugins.networkDesign.visualizationControl.VisualizationState;
 import com.net2plan.gui.plugins.networkDesign.whatIfAnalysisPane.WhatIfAnalysisPane;
 import com.net2plan.gui.utils.*;
@@ -118,74 +119,112 @@ public class AdvancedJTable_demand extends AdvancedJTable_networkElement
 
     public List<Object[]> getAllData(NetPlan currentState, ArrayList<String> attributesColumns)
     {
-        final boolean isSourceRouting = currentState.getRoutingType() == RoutingType.SOURCE_ROUTING;
-        final List<Demand> rowVisibleDemands = getVisibleElementsInTable();
-        List<Object[]> allDemandData = new LinkedList<Object[]>();
+        return LazyTableModel.getAllRows(getVisibleElementsInTable(), new DemandCellProvider(currentState, attributesColumns), netPlanViewTableHeader.length + attributesColumns.size());
+    }
+
+    @Override
+    protected boolean setRowElements(LazyTableModel model, ArrayList<String> attributesColumns, String[] tableHeaders)
+    {
+        model.setRowElements(getVisibleElementsInTable(), new DemandCellProvider(callback.getDesign(), attributesColumns), tableHeaders);
+        return true;
+    }
 
-        double accum_numRoutes = 0;
-        double accum_numBackupRoutes = 0;
+    private class DemandCellProvider implements LazyTableModel.CellProvider<Demand>
+    {
+        private final boolean isSourceRouting;
+        private final List<String> attributesColumns;
 
-        final double[] dataAggregator = new double[netPlanViewTableHeader.length];
+        private DemandCellProvider(NetPlan currentState, List<String> attributesColumns)
+        {
+            this.isSourceRouting = currentState.getRoutingType() == RoutingType.SOURCE_ROUTING;
+            this.attributesColumns = attributesColumns;
+        }
 
-        for (Demand demand : rowVisibleDemands)
+        @Override
+        public Object getCellValue(Demand demand, int column)
         {
-            final Set<Route> routes_thisDemand = isSourceRouting ? demand.getRoutes() : new LinkedHashSet<Route>();
-            final Link coupledLink = demand.getCoupledLink();
-            final Node ingressNode = demand.getIngressNode();
-            final Node egressNode = demand.getEgressNode();
-            final double h_d = demand.getOfferedTraffic();
-            final double lostTraffic_d = demand.getBlockedTraffic();
-            final Object[] demandData = new Object[netPlanViewTableHeader.length + attributesColumns.size()];
-            demandData[COLUMN_ID] = demand.getId();
-            demandData[COLUMN_INDEX] = demand.getIndex();
-            demandData[COLUMN_INGRESSNODE] = ingressNode.getIndex() + (ingressNode.getName().isEmpty() ? "" : " (" + ingressNode.getName() + ")");
-            demandData[COLUMN_EGRESSNODE] = egressNode.getIndex() + (egressNode.getName().isEmpty() ? "" : " (" + egressNode.getName() + ")");
-            demandData[COLUMN_COUPLEDTOLINK] = coupledLink == null ? "" : "e" + coupledLink.getIndex() + " (layer " + coupledLink.getLayer() + ")";
-            demandData[COLUMN_OFFEREDTRAFFIC] = h_d;
-            demandData[COLUMN_CARRIEDTRAFFIC] = demand.getCarriedTraffic();
-            demandData[COLUMN_LOSTTRAFFIC] = h_d == 0 ? 0 : 100 * lostTraffic_d / h_d;
-            demandData[COLUMN_ISSERVICECHAIN] = demand.isServiceChainRequest();
-            demandData[COLUMN_TRAVERSEDRESOURCESTYPES] = isSourceRouting ? joinTraversedResourcesTypes(demand) : "";
-            demandData[COLUMN_ROUTINGCYCLES] = demand.getRoutingCycleType().name();
-            demandData[COLUMN_BIFURCATED] = !isSourceRouting ? "-" : (demand.isBifurcated()) ? String.format("Yes (%d)", demand.getRoutes().size()) : "No";
-            demandData[COLUMN_NUMROUTES] = routes_thisDemand.isEmpty() ? "none" : routes_thisDemand.size() + " (" + routes_thisDemand.stream().filter(e -> e.isBackupRoute()).count() + ")";
-            demandData[COLUMN_MAXE2ELATENCY] = demand.getWorstCasePropagationTimeInMs();
-            demandData[COLUMN_TAGS] = StringUtils.listToString(Lists.newArrayList(demand.getTags()));
-            demandData[COLUMN_ATTRIBUTES] = StringUtils.mapToString(demand.getAttributes());
-            for (int i = netPlanViewTableHeader.length; i < netPlanViewTableHeader.length + attributesColumns.size(); i++)
+            switch (column)
             {
-                if (demand.getAttributes().containsKey(attributesColumns.get(i - netPlanViewTableHeader.length)))
-                {
-                    demandData[i] = demand.getAttribute(attributesColumns.get(i - netPlanViewTableHeader.length));
-                }
+                case COLUMN_ID:
+                    return demand.getId();
+                case COLUMN_INDEX:
+                    return demand.getIndex();
+                case COLUMN_INGRESSNODE:
+                    final Node ingressNode = demand.getIngressNode();
+                    return ingressNode.getIndex() + (ingressNode.getName().isEmpty() ? "" : " (" + ingressNode.getName() + ")");
+                case COLUMN_EGRESSNODE:
+                    final Node egressNode = demand.getEgressNode();
+                    return egressNode.getIndex() + (egressNode.getName().isEmpty() ? "" : " (" + egressNode.getName() + ")");
+                case COLUMN_COUPLEDTOLINK:
+                    final Link coupledLink = demand.getCoupledLink();
+                    return coupledLink == null ? "" : "e" + coupledLink.getIndex() + " (layer " + coupledLink.getLayer() + ")";
+                case COLUMN_OFFEREDTRAFFIC:
+                    return demand.getOfferedTraffic();
+                case COLUMN_CARRIEDTRAFFIC:
+                    return demand.getCarriedTraffic();
+                case COLUMN_LOSTTRAFFIC:
+                    return getLostTrafficPercentage(demand);
+                case COLUMN_ISSERVICECHAIN:
+                    return demand.isServiceChainRequest();
+                case COLUMN_TRAVERSEDRESOURCESTYPES:
+                    return isSourceRouting ? joinTraversedResourcesTypes(demand) : "";
+                case COLUMN_ROUTINGCYCLES:
+                    return demand.getRoutingCycleType().name();
+                case COLUMN_BIFURCATED:
+                    return !isSourceRouting ? "-" : (demand.isBifurcated()) ? String.format("Yes (%d)", demand.getRoutes().size()) : "No";
+                case COLUMN_NUMROUTES:
+                    final Set<Route> routes_thisDemand = isSourceRouting ? demand.getRoutes() : new LinkedHashSet<Route>();
+                    return routes_thisDemand.isEmpty() ? "none" : routes_thisDemand.size() + " (" + routes_thisDemand.stream().filter(e -> e.isBackupRoute()).count() + ")";
+                case COLUMN_MAXE2ELATENCY:
+                    return demand.getWorstCasePropagationTimeInMs();
+                case COLUMN_TAGS:
+                    return StringUtils.listToString(Lists.newArrayList(demand.getTags()));
+                case COLUMN_ATTRIBUTES:
+                    return StringUtils.mapToString(demand.getAttributes());
+                default:
+                    return column - netPlanViewTableHeader.length < attributesColumns.size() ? demand.getAttribute(attributesColumns.get(column - netPlanViewTableHeader.length)) : null;
             }
+        }
+
+        @Override
+        public Object[] getAggregatedRow(List<Demand> demands)
+        {
+            double accum_numRoutes = 0;
+            double accum_numBackupRoutes = 0;
 
-            AggregationUtils.updateRowSum(dataAggregator, COLUMN_OFFEREDTRAFFIC, demandData[COLUMN_OFFEREDTRAFFIC]);
-            AggregationUtils.updateRowSum(dataAggregator, COLUMN_CARRIEDTRAFFIC, demandData[COLUMN_CARRIEDTRAFFIC]);
-            AggregationUtils.updateRowSum(dataAggregator, COLUMN_LOSTTRAFFIC, demandData[COLUMN_LOSTTRAFFIC]);
-            if (demand.isServiceChainRequest()) AggregationUtils.updateRowCount(dataAggregator, COLUMN_ISSERVICECHAIN, 1);
-            if (isSourceRouting)
+            final double[] dataAggregator = new double[netPlanViewTableHeader.length];
+            for (Demand demand : demands)
             {
-                accum_numRoutes += routes_thisDemand.size();
-                accum_numBackupRoutes += routes_thisDemand.stream().filter(e -> e.isBackupRoute()).count();
+                AggregationUtils.updateRowSum(dataAggregator, COLUMN_OFFEREDTRAFFIC, demand.getOfferedTraffic());
+                AggregationUtils.updateRowSum(dataAggregator, COLUMN_CARRIEDTRAFFIC, demand.getCarriedTraffic());
+                AggregationUtils.updateRowSum(dataAggregator, COLUMN_LOSTTRAFFIC, getLostTrafficPercentage(demand));
+                if (demand.isServiceChainRequest()) AggregationUtils.updateRowCount(dataAggregator, COLUMN_ISSERVICECHAIN, 1);
+                if (isSourceRouting)
+                {
+                    final Set<Route> routes_thisDemand = demand.getRoutes();
+                    accum_numRoutes += routes_thisDemand.size();
+                    accum_numBackupRoutes += routes_thisDemand.stream().filter(e -> e.isBackupRoute()).count();
+                }
+                AggregationUtils.updateRowMax(dataAggregator, COLUMN_MAXE2ELATENCY, demand.getWorstCasePropagationTimeInMs());
             }
-            AggregationUtils.updateRowMax(dataAggregator, COLUMN_MAXE2ELATENCY, demandData[COLUMN_MAXE2ELATENCY]);
 
-            allDemandData.add(demandData);
+            /* Add the aggregation row with the aggregated statistics */
+            final LastRowAggregatedValue[] aggregatedData = new LastRowAggregatedValue[netPlanViewTableHeader.length + attributesColumns.size()];
+            Arrays.fill(aggregatedData, new LastRowAggregatedValue());
+            aggregatedData[COLUMN_OFFEREDTRAFFIC] = new LastRowAggregatedValue(dataAggregator[COLUMN_OFFEREDTRAFFIC]);
+            aggregatedData[COLUMN_CARRIEDTRAFFIC] = new LastRowAggregatedValue(dataAggregator[COLUMN_CARRIEDTRAFFIC]);
+            aggregatedData[COLUMN_LOSTTRAFFIC] = new LastRowAggregatedValue(dataAggregator[COLUMN_LOSTTRAFFIC]);
+            aggregatedData[COLUMN_ISSERVICECHAIN] = new LastRowAggregatedValue(dataAggregator[COLUMN_ISSERVICECHAIN]);
+            aggregatedData[COLUMN_NUMROUTES] = new LastRowAggregatedValue(accum_numRoutes + "(" + accum_numBackupRoutes + ")");
+            aggregatedData[COLUMN_MAXE2ELATENCY] = new LastRowAggregatedValue(dataAggregator[COLUMN_MAXE2ELATENCY]);
+            return aggregatedData;
+        }
+
+        private double getLostTrafficPercentage(Demand demand)
+        {
+            final double h_d = demand.getOfferedTraffic();
+            return h_d == 0 ? 0 : 100 * demand.getBlockedTraffic() / h_d;
         }
-        
-        /* Add the aggregation row with the aggregated statistics */
-        final LastRowAggregatedValue[] aggregatedData = new LastRowAggregatedValue[netPlanViewTableHeader.length + attributesColumns.size()];
-        Arrays.fill(aggregatedData, new LastRowAggregatedValue());
-        aggregatedData[COLUMN_OFFEREDTRAFFIC] = new LastRowAggregatedValue(dataAggregator[COLUMN_OFFEREDTRAFFIC]);
-        aggregatedData[COLUMN_CARRIEDTRAFFIC] = new LastRowAggregatedValue(dataAggregator[COLUMN_CARRIEDTRAFFIC]);
-        aggregatedData[COLUMN_LOSTTRAFFIC] = new LastRowAggregatedValue(dataAggregator[COLUMN_LOSTTRAFFIC]);
-        aggregatedData[COLUMN_ISSERVICECHAIN] = new LastRowAggregatedValue(dataAggregator[COLUMN_ISSERVICECHAIN]);
-        aggregatedData[COLUMN_NUMROUTES] = new LastRowAggregatedValue(accum_numRoutes + "(" + accum_numBackupRoutes + ")");
-        aggregatedData[COLUMN_MAXE2ELATENCY] = new LastRowAggregatedValue(dataAggregator[COLUMN_MAXE2ELATENCY]);
-        allDemandData.add(aggregatedData);
-
-        return allDemandData;
     }
 
     @Override
@@ -232,7 +271,7 @@ public class AdvancedJTable_demand extends AdvancedJTable_networkElement
 
     private static TableModel createTableModel(final GUINetworkDesign callback)
     {
-        TableModel demandTableModel = new ClassAwareTableModel(new Object[1][netPlanViewTableHeader.length], netPlanViewTableHeader)
+        TableModel demandTableModel = new LazyTableModel(new Object[1][netPlanViewTableHeader.length], netPlanViewTableHeader)
         {
             private static final long serialVersionUID = 1L;
 
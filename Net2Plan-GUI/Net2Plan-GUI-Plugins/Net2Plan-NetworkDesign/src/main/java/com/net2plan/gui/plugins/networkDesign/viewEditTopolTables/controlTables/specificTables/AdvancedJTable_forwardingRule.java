@@ -21,7 +21,7 @@ import com.net2plan.gui.plugins.networkDesign.interfaces.ITableRowFilter;
 import com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables.AdvancedJTable_networkElement;
 import com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables.AggregationUtils;
 import com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables.LastRowAggregatedValue;
-import com.net2plan.gui.utils.ClassAwareTableModel;
+import com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables.LazyTableModel;
 import com.net2plan.gui.utils.JScrollPopupMenu;
 import com.net2plan.gui.utils.StringLabeller;
 import com.net2plan.gui.utils.WiderJComboBox;
@@ -73,43 +73,70 @@ public class AdvancedJTable_forwardingRule extends AdvancedJTable_networkElement
 
     public List<Object[]> getAllData(NetPlan currentState, ArrayList<String> attributesColumns)
     {
-        final List<Pair<Demand, Link>> rowVisibleFRs = getVisibleElementsInTable();
-        List<Object[]> allForwardingRuleData = new LinkedList<Object[]>();
-        final double[] dataAggregator = new double[netPlanViewTableHeader.length];
+        return LazyTableModel.getAllRows(getVisibleElementsInTable(), new ForwardingRuleCellProvider(currentState, attributesColumns), netPlanViewTableHeader.length);
+    }
+
+    @Override
+    protected boolean setRowElements(LazyTableModel model, ArrayList<String> attributesColumns, String[] tableHeaders)
+    {
+        model.setRowElements(getVisibleElementsInTable(), new ForwardingRuleCellProvider(callback.getDesign(), attributesColumns), tableHeaders);
+        return true;
+    }
+
+    private class ForwardingRuleCellProvider implements LazyTableModel.CellProvider<Pair<Demand, Link>>
+    {
+        private final NetPlan currentState;
+        private final List<String> attributesColumns;
 
-        for (Pair<Demand, Link> demandLinkPair : rowVisibleFRs)
+        private ForwardingRuleCellProvider(NetPlan currentState, List<String> attributesColumns)
         {
-            Demand demand = demandLinkPair.getFirst();
-            Node ingressNode = demand.getIngressNode();
-            Node egressNode = demand.getEgressNode();
-            String ingressNodeName = ingressNode.getName();
-            String egressNodeName = egressNode.getName();
-
-            Link link = demandLinkPair.getSecond();
-            Node originNode = link.getOriginNode();
-            Node destinationNode = link.getDestinationNode();
-            String originNodeName = originNode.getName();
-            String destinationNodeName = destinationNode.getName();
-
-            Object[] forwardingRuleData = new Object[netPlanViewTableHeader.length];
-            forwardingRuleData[COLUMN_NODE] = originNode.getIndex() + (originNodeName.isEmpty() ? "" : " (" + originNodeName + ")");
-            forwardingRuleData[COLUMN_DEMAND] = demand.getIndex() + " (" + ingressNode.getIndex() + (ingressNodeName.isEmpty() ? "" : " (" + ingressNodeName + ")") + " -> " + egressNode.getIndex() + (egressNodeName.isEmpty() ? "" : " (" + egressNodeName + ")") + ")";
-            forwardingRuleData[COLUMN_OUTGOINGLINK] = link.getIndex() + " (" + originNode.getIndex() + (originNodeName.isEmpty() ? "" : " (" + originNodeName + ")") + " -> " + destinationNode.getIndex() + (destinationNodeName.isEmpty() ? "" : " (" + destinationNodeName + ")") + ")";
-            forwardingRuleData[COLUMN_SPLITTINGRATIO] = currentState.getForwardingRuleSplittingFactor(demand, link);
-            forwardingRuleData[COLUMN_CARRIEDTRAFFIC] = currentState.getForwardingRuleCarriedTraffic(demand, link);
-
-            AggregationUtils.updateRowSum(dataAggregator, COLUMN_CARRIEDTRAFFIC, forwardingRuleData[COLUMN_CARRIEDTRAFFIC]);
-
-            allForwardingRuleData.add(forwardingRuleData);
+            this.currentState = currentState;
+            this.attributesColumns = attributesColumns;
         }
 
-        /* Add the aggregation row with the aggregated statistics */
-        final LastRowAggregatedValue[] aggregatedData = new LastRowAggregatedValue[netPlanViewTableHeader.length + attributesColumns.size()];
-        Arrays.fill(aggregatedData, new LastRowAggregatedValue());
-        aggregatedData[COLUMN_CARRIEDTRAFFIC] = new LastRowAggregatedValue(dataAggregator[COLUMN_CARRIEDTRAFFIC]); // sum
-        allForwardingRuleData.add(aggregatedData);
+        @Override
+        public Object getCellValue(Pair<Demand, Link> demandLinkPair, int column)
+        {
+            final Demand demand = demandLinkPair.getFirst();
+            final Link link = demandLinkPair.getSecond();
+            final Node originNode = link.getOriginNode();
+            final String originNodeName = originNode.getName();
+            switch (column)
+            {
+                case COLUMN_NODE:
+                    return originNode.getIndex() + (originNodeName.isEmpty() ? "" : " (" + originNodeName + ")");
+                case COLUMN_DEMAND:
+                    final Node ingressNode = demand.getIngressNode();
+                    final Node egressNode = demand.getEgressNode();
+                    final String ingressNodeName = ingressNode.getName();
+                    final String egressNodeName = egressNode.getName();
+                    return demand.getIndex() + " (" + ingressNode.getIndex() + (ingressNodeName.isEmpty() ? "" : " (" + ingressNodeName + ")") + " -> " + egressNode.getIndex() + (egressNodeName.isEmpty() ? "" : " (" + egressNodeName + ")") + ")";
+                case COLUMN_OUTGOINGLINK:
+                    final Node destinationNode = link.getDestinationNode();
+                    final String destinationNodeName = destinationNode.getName();
+                    return link.getIndex() + " (" + originNode.getIndex() + (originNodeName.isEmpty() ? "" : " (" + originNodeName + ")") + " -> " + destinationNode.getIndex() + (destinationNodeName.isEmpty() ? "" : " (" + destinationNodeName + ")") + ")";
+                case COLUMN_SPLITTINGRATIO:
+                    return currentState.getForwardingRuleSplittingFactor(demand, link);
+                case COLUMN_CARRIEDTRAFFIC:
+                    return currentState.getForwardingRuleCarriedTraffic(demand, link);
+                default:
+                    return null;
+            }
+        }
 
-        return allForwardingRuleData;
+        @Override
+        public Object[] getAggregatedRow(List<Pair<Demand, Link>> forwardingRules)
+        {
+            final double[] dataAggregator = new double[netPlanViewTableHeader.length];
+            for (Pair<Demand, Link> demandLinkPair : forwardingRules)
+                AggregationUtils.updateRowSum(dataAggregator, COLUMN_CARRIEDTRAFFIC, currentState.getForwardingRuleCarriedTraffic(demandLinkPair.getFirst(), demandLinkPair.getSecond()));
+
+            /* Add the aggregation row with the aggregated statistics */
+            final LastRowAggregatedValue[] aggregatedData = new LastRowAggregatedValue[netPlanViewTableHeader.length + attributesColumns.size()];
+            Arrays.fill(aggregatedData, new LastRowAggregatedValue());
+            aggregatedData[COLUMN_CARRIEDTRAFFIC] = new LastRowAggregatedValue(dataAggregator[COLUMN_CARRIEDTRAFFIC]); // sum
+            return aggregatedData;
+        }
     }
 
     public String getTabName()
@@ -161,7 +188,7 @@ public class AdvancedJTable_forwardingRule extends AdvancedJTable_networkElement
 
     private static TableModel createTableModel(final GUINetworkDesign callback)
     {
-        TableModel forwardingRuleTableModel = new ClassAwareTableModel(new Object[1][netPlanViewTableHeader.length], netPlanViewTableHeader)
+        TableModel forwardingRuleTableModel = new LazyTableModel(new Object[1][netPlanViewTableHeader.length], netPlanViewTableHeader)
         {
             private static final long serialVersionUID = 1L;
 
@@ -21,9 +21,9 @@ import com.net2plan.gui.plugins.networkDesign.interfaces.ITableRowFilter;
 import com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables.AdvancedJTable_networkElement;
 import com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables.AggregationUtils;
 import com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables.LastRowAggregatedValue;
+import com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables.LazyTableModel;
 import com.net2plan.gui.plugins.networkDesign.visualizationControl.VisualizationState;
 import com.net2plan.gui.plugins.networkDesign.whatIfAnalysisPane.WhatIfAnalysisPane;
-import com.net2plan.gui.utils.ClassAwareTableModel;
 import com.net2plan.gui.utils.JScrollPopupMenu;
 import com.net2plan.gui.utils.StringLabeller;
 import com.net2plan.gui.utils.WiderJComboBox;
@@ -97,86 +97,119 @@ public class AdvancedJTable_link extends AdvancedJTable_networkElement
 
     public List<Object[]> getAllData(NetPlan currentState, ArrayList<String> attributesColumns)
     {
-        final List<Link> rowVisibleLinks = getVisibleElementsInTable();
-        final double max_rho_e = currentState.getLinks().stream().mapToDouble(e -> e.getUtilization()).max().orElse(0);
-        final List<Object[]> allLinkData = new LinkedList<Object[]>();
-        final double[] dataAggregator = new double[netPlanViewTableHeader.length];
+        return LazyTableModel.getAllRows(getVisibleElementsInTable(), new LinkCellProvider(currentState, attributesColumns), netPlanViewTableHeader.length + attributesColumns.size());
+    }
 
-        for (Link link : rowVisibleLinks)
+    @Override
+    protected boolean setRowElements(LazyTableModel model, ArrayList<String> attributesColumns, String[] tableHeaders)
+    {
+        model.setRowElements(getVisibleElementsInTable(), new LinkCellProvider(callback.getDesign(), attributesColumns), tableHeaders);
+        return true;
+    }
+
+    private class LinkCellProvider implements LazyTableModel.CellProvider<Link>
+    {
+        private final double max_rho_e;
+        private final List<String> attributesColumns;
+
+        private LinkCellProvider(NetPlan currentState, List<String> attributesColumns)
         {
-            final Set<SharedRiskGroup> srgIds_thisLink = link.getSRGs();
-            final Demand coupledDemand = link.getCoupledDemand();
-            final MulticastDemand coupledMulticastDemand = link.getCoupledMulticastDemand();
-
-            final Node originNode = link.getOriginNode();
-            final Node destinationNode = link.getDestinationNode();
-            final String originNodeName = originNode.getName();
-            final String destinationNodeName = destinationNode.getName();
-
-            final double rho_e = link.getUtilization();
-            final Object[] linkData = new Object[netPlanViewTableHeader.length + attributesColumns.size()];
-            linkData[COLUMN_ID] = link.getId();
-            linkData[COLUMN_INDEX] = link.getIndex();
-            linkData[COLUMN_SHOWHIDE] = !callback.getVisualizationState().isHiddenOnCanvas(link);
-            linkData[COLUMN_ORIGINNODE] = originNode.getIndex() + (originNodeName.isEmpty() ? "" : " (" + originNodeName + ")");
-            linkData[COLUMN_DESTNODE] = destinationNode.getIndex() + (destinationNodeName.isEmpty() ? "" : " (" + destinationNodeName + ")");
-            linkData[COLUMN_STATE] = !link.isDown();
-            linkData[COLUMN_CAPACITY] = link.getCapacity();
-            linkData[COLUMN_CARRIEDTRAFFIC] = link.getCarriedTraffic();
-            linkData[COLUMN_OCCUPIEDCAPACITY] = link.getOccupiedCapacity();
-            linkData[COLUMN_UTILIZATION] = rho_e;
-            linkData[COLUMN_ISBOTTLENECK] = DoubleUtils.isEqualWithinRelativeTolerance(max_rho_e, rho_e, Configuration.precisionFactor);
-            linkData[COLUMN_LENGTH] = link.getLengthInKm();
-            linkData[COLUMN_PROPSPEED] = link.getPropagationSpeedInKmPerSecond();
-            linkData[COLUMN_PROPDELAYMS] = link.getPropagationDelayInMs();
-            linkData[COLUMN_NUMROUTES] = !link.getLayer().isSourceRouting() ? 0 : link.getNumberOfTraversingRoutes();
-            linkData[COLUMN_NUMBACKUPROUTES] = !link.getLayer().isSourceRouting() ? 0 : link.getNumberOfTraversingBackupRoutes();
-            linkData[COLUMN_NUMFORWRULES] = link.getLayer().isSourceRouting() ? 0 : link.getNumberOfForwardingRules();
-            linkData[COLUMN_NUMTREES] = link.getNumberOfTraversingTrees();
-            linkData[COLUMN_SRGS] = srgIds_thisLink.size();
-            linkData[COLUMN_COUPLEDTODEMAND] = coupledDemand != null ? "d" + coupledDemand.getIndex() + " (layer " + coupledDemand.getLayer() + ")" : (coupledMulticastDemand == null ? "" : "d" + coupledMulticastDemand.getIndex() + " (layer " + coupledMulticastDemand.getLayer() + ")");
-            linkData[COLUMN_TAGS] = StringUtils.listToString(Lists.newArrayList(link.getTags()));
-            linkData[COLUMN_ATTRIBUTES] = StringUtils.mapToString(link.getAttributes());
-
-            for (int i = netPlanViewTableHeader.length; i < netPlanViewTableHeader.length + attributesColumns.size(); i++)
+            this.max_rho_e = currentState.getLinks().stream().mapToDouble(e -> e.getUtilization()).max().orElse(0);
+            this.attributesColumns = attributesColumns;
+        }
+
+        @Override
+        public Object getCellValue(Link link, int column)
+        {
+            switch (column)
             {
-                if (link.getAttributes().containsKey(attributesColumns.get(i - netPlanViewTableHeader.length)))
-                {
-                    linkData[i] = link.getAttribute(attributesColumns.get(i - netPlanViewTableHeader.length));
-                }
+                case COLUMN_ID:
+                    return link.getId();
+                case COLUMN_INDEX:
+                    return link.getIndex();
+                case COLUMN_SHOWHIDE:
+                    return !callback.getVisualizationState().isHiddenOnCanvas(link);
+                case COLUMN_ORIGINNODE:
+                    final Node originNode = link.getOriginNode();
+                    return originNode.getIndex() + (originNode.getName().isEmpty() ? "" : " (" + originNode.getName() + ")");
+                case COLUMN_DESTNODE:
+                    final Node destinationNode = link.getDestinationNode();
+                    return destinationNode.getIndex() + (destinationNode.getName().isEmpty() ? "" : " (" + destinationNode.getName() + ")");
+                case COLUMN_STATE:
+                    return !link.isDown();
+                case COLUMN_CAPACITY:
+                    return link.getCapacity();
+                case COLUMN_CARRIEDTRAFFIC:
+                    return link.getCarriedTraffic();
+                case COLUMN_OCCUPIEDCAPACITY:
+                    return link.getOccupiedCapacity();
+                case COLUMN_UTILIZATION:
+                    return link.getUtilization();
+                case COLUMN_ISBOTTLENECK:
+                    return DoubleUtils.isEqualWithinRelativeTolerance(max_rho_e, link.getUtilization(), Configuration.precisionFactor);
+                case COLUMN_LENGTH:
+                    return link.getLengthInKm();
+                case COLUMN_PROPSPEED:
+                    return link.getPropagationSpeedInKmPerSecond();
+                case COLUMN_PROPDELAYMS:
+                    return link.getPropagationDelayInMs();
+                case COLUMN_NUMROUTES:
+                    return !link.getLayer().isSourceRouting() ? 0 : link.getNumberOfTraversingRoutes();
+                case COLUMN_NUMBACKUPROUTES:
+                    return !link.getLayer().isSourceRouting() ? 0 : link.getNumberOfTraversingBackupRoutes();
+                case COLUMN_NUMFORWRULES:
+                    return link.getLayer().isSourceRouting() ? 0 : link.getNumberOfForwardingRules();
+                case COLUMN_NUMTREES:
+                    return link.getNumberOfTraversingTrees();
+                case COLUMN_SRGS:
+                    return link.getSRGs().size();
+                case COLUMN_COUPLEDTODEMAND:
+                    final Demand coupledDemand = link.getCoupledDemand();
+                    final MulticastDemand coupledMulticastDemand = link.getCoupledMulticastDemand();
+                    return coupledDemand != null ? "d" + coupledDemand.getIndex() + " (layer " + coupledDemand.getLayer() + ")" : (coupledMulticastDemand == null ? "" : "d" + coupledMulticastDemand.getIndex() + " (layer " + coupledMulticastDemand.getLayer() + ")");
+                case COLUMN_TAGS:
+                    return StringUtils.listToString(Lists.newArrayList(link.getTags()));
+                case COLUMN_ATTRIBUTES:
+                    return StringUtils.mapToString(link.getAttributes());
+                default:
+                    return column - netPlanViewTableHeader.length < attributesColumns.size() ? link.getAttribute(attributesColumns.get(column - netPlanViewTableHeader.length)) : null;
+            }
+        }
+
+        @Override
+        public Object[] getAggregatedRow(List<Link> links)
+        {
+            final double[] dataAggregator = new double[netPlanViewTableHeader.length];
+            for (Link link : links)
+            {
+                final boolean isSourceRouting = link.getLayer().isSourceRouting();
+                AggregationUtils.updateRowSum(dataAggregator, COLUMN_CAPACITY, link.getCapacity());
+                AggregationUtils.updateRowSum(dataAggregator, COLUMN_CARRIEDTRAFFIC, link.getCarriedTraffic());
+                AggregationUtils.updateRowSum(dataAggregator, COLUMN_OCCUPIEDCAPACITY, link.getOccupiedCapacity());
+                AggregationUtils.updateRowMax(dataAggregator, COLUMN_LENGTH, link.getLengthInKm());
+                AggregationUtils.updateRowMax(dataAggregator, COLUMN_PROPDELAYMS, link.getPropagationDelayInMs());
+                AggregationUtils.updateRowSum(dataAggregator, COLUMN_NUMROUTES, !isSourceRouting ? 0 : link.getNumberOfTraversingRoutes());
+                AggregationUtils.updateRowSum(dataAggregator, COLUMN_NUMBACKUPROUTES, !isSourceRouting ? 0 : link.getNumberOfTraversingBackupRoutes());
+                AggregationUtils.updateRowSum(dataAggregator, COLUMN_NUMTREES, link.getNumberOfTraversingTrees());
+                AggregationUtils.updateRowSum(dataAggregator, COLUMN_SRGS, link.getSRGs().size());
+                if (link.getCoupledDemand() != null) AggregationUtils.updateRowCount(dataAggregator, COLUMN_COUPLEDTODEMAND, 1);
             }
 
-            AggregationUtils.updateRowSum(dataAggregator, COLUMN_CAPACITY, linkData[COLUMN_CAPACITY]);
-            AggregationUtils.updateRowSum(dataAggregator, COLUMN_CARRIEDTRAFFIC, linkData[COLUMN_CARRIEDTRAFFIC]);
-            AggregationUtils.updateRowSum(dataAggregator, COLUMN_OCCUPIEDCAPACITY, linkData[COLUMN_OCCUPIEDCAPACITY]);
-            AggregationUtils.updateRowMax(dataAggregator, COLUMN_LENGTH, linkData[COLUMN_LENGTH]);
-            AggregationUtils.updateRowMax(dataAggregator, COLUMN_PROPDELAYMS, linkData[COLUMN_PROPDELAYMS]);
-            AggregationUtils.updateRowSum(dataAggregator, COLUMN_NUMROUTES, linkData[COLUMN_NUMROUTES]);
-            AggregationUtils.updateRowSum(dataAggregator, COLUMN_NUMBACKUPROUTES, linkData[COLUMN_NUMBACKUPROUTES]);
-            AggregationUtils.updateRowSum(dataAggregator, COLUMN_NUMTREES, linkData[COLUMN_NUMTREES]);
-            AggregationUtils.updateRowSum(dataAggregator, COLUMN_SRGS, linkData[COLUMN_SRGS]);
-            if (coupledDemand != null) AggregationUtils.updateRowCount(dataAggregator, COLUMN_COUPLEDTODEMAND, 1);
-
-            allLinkData.add(linkData);
+            /* Add the aggregation row with the aggregated statistics */
+            final LastRowAggregatedValue[] aggregatedData = new LastRowAggregatedValue[netPlanViewTableHeader.length + attributesColumns.size()];
+            Arrays.fill(aggregatedData, new LastRowAggregatedValue());
+            aggregatedData[COLUMN_CAPACITY] = new LastRowAggregatedValue(dataAggregator[COLUMN_CAPACITY]);
+            aggregatedData[COLUMN_CARRIEDTRAFFIC] = new LastRowAggregatedValue(dataAggregator[COLUMN_CARRIEDTRAFFIC]);
+            aggregatedData[COLUMN_OCCUPIEDCAPACITY] = new LastRowAggregatedValue(dataAggregator[COLUMN_OCCUPIEDCAPACITY]);
+            aggregatedData[COLUMN_LENGTH] = new LastRowAggregatedValue(dataAggregator[COLUMN_LENGTH]);
+            aggregatedData[COLUMN_PROPDELAYMS] = new LastRowAggregatedValue(dataAggregator[COLUMN_PROPDELAYMS]);
+            aggregatedData[COLUMN_NUMROUTES] = new LastRowAggregatedValue(dataAggregator[COLUMN_NUMROUTES]);
+            aggregatedData[COLUMN_NUMBACKUPROUTES] = new LastRowAggregatedValue(dataAggregator[COLUMN_NUMBACKUPROUTES]);
+            aggregatedData[COLUMN_NUMTREES] = new LastRowAggregatedValue(dataAggregator[COLUMN_NUMTREES]);
+            aggregatedData[COLUMN_SRGS] = new LastRowAggregatedValue(dataAggregator[COLUMN_SRGS]);
+            aggregatedData[COLUMN_COUPLEDTODEMAND] = new LastRowAggregatedValue(dataAggregator[COLUMN_COUPLEDTODEMAND]);
+            return aggregatedData;
         }
-        
-        /* Add the aggregation row with the aggregated statistics */
-        final LastRowAggregatedValue[] aggregatedData = new LastRowAggregatedValue[netPlanViewTableHeader.length + attributesColumns.size()];
-        Arrays.fill(aggregatedData, new LastRowAggregatedValue());
-        aggregatedData[COLUMN_CAPACITY] = new LastRowAggregatedValue(dataAggregator[COLUMN_CAPACITY]);
-        aggregatedData[COLUMN_CARRIEDTRAFFIC] = new LastRowAggregatedValue(dataAggregator[COLUMN_CARRIEDTRAFFIC]);
-        aggregatedData[COLUMN_OCCUPIEDCAPACITY] = new LastRowAggregatedValue(dataAggregator[COLUMN_OCCUPIEDCAPACITY]);
-        aggregatedData[COLUMN_LENGTH] = new LastRowAggregatedValue(dataAggregator[COLUMN_LENGTH]);
-        aggregatedData[COLUMN_PROPDELAYMS] = new LastRowAggregatedValue(dataAggregator[COLUMN_PROPDELAYMS]);
-        aggregatedData[COLUMN_NUMROUTES] = new LastRowAggregatedValue(dataAggregator[COLUMN_NUMROUTES]);
-        aggregatedData[COLUMN_NUMBACKUPROUTES] = new LastRowAggregatedValue(dataAggregator[COLUMN_NUMBACKUPROUTES]);
-        aggregatedData[COLUMN_NUMTREES] = new LastRowAggregatedValue(dataAggregator[COLUMN_NUMTREES]);
-        aggregatedData[COLUMN_SRGS] = new LastRowAggregatedValue(dataAggregator[COLUMN_SRGS]);
-        aggregatedData[COLUMN_COUPLEDTODEMAND] = new LastRowAggregatedValue(dataAggregator[COLUMN_COUPLEDTODEMAND]);
-        allLinkData.add(aggregatedData);
-
-
-        return allLinkData;
     }
 
     public String getTabName()
@@ -234,7 +267,7 @@ public class AdvancedJTable_link extends AdvancedJTable_networkElement
     {
 //    	final TopologyPanel topologyPanel = callback.getTopologyPanel();
         final VisualizationState vs = callback.getVisualizationState();
-        TableModel linkTableModel = new ClassAwareTableModel(new Object[1][netPlanViewTableHeader.length], netPlanViewTableHeader)
+        TableModel linkTableModel = new LazyTableModel(new Object[1][netPlanViewTableHeader.length], netPlanViewTableHeader)
         {
             private static final long serialVersionUID = 1L;
 
@@ -23,6 +23,7 @@ import com.net2plan.gui.plugins.networkDesign.interfaces.ITableRowFilter;
 import com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables.AdvancedJTable_networkElement;
 import com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables.AggregationUtils;
 import com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables.LastRowAggregatedValue;
+import com.net2plan.gui.plugins.networkDesign.viewEditTopolTables.controlTables.LazyTableModel;
 import com.net2plan.gui.utils.*;
 import com.net2plan.interfaces.networkDesign.*;
 import com.net2plan.internal.Constants.NetworkElementType;
@@ -103,74 +104,103 @@ public class AdvancedJTable_route extends AdvancedJTable_networkElement
 
     public List<Object[]> getAllData(NetPlan currentState, ArrayList<String> attributesColumns)
     {
-        List<Object[]> allRouteData = new LinkedList<Object[]>();
-        final List<Route> rowVisibleRoutes = getVisibleElementsInTable();
-        final double[] dataAggregator = new double[netPlanViewTableHeader.length];
+        return LazyTableModel.getAllRows(getVisibleElementsInTable(), new RouteCellProvider(attributesColumns), netPlanViewTableHeader.length + attributesColumns.size());
+    }
+
+    @Override
+    protected boolean setRowElements(LazyTableModel model, ArrayList<String> attributesColumns, String[] tableHeaders)
+    {
+        model.setRowElements(getVisibleElementsInTable(), new RouteCellProvider(attributesColumns), tableHeaders);
+        return true;
+    }
 
-        for (Route route : rowVisibleRoutes)
+    private class RouteCellProvider implements LazyTableModel.CellProvider<Route>
+    {
+        private final List<String> attributesColumns;
+
+        private RouteCellProvider(List<String> attributesColumns)
         {
-            final Demand demand = route.getDemand();
-            final double maxUtilization = route.getSeqLinks().stream().mapToDouble(e -> e.getUtilization()).max().orElse(0);
-            final Node ingressNode = route.getDemand().getIngressNode();
-            final Node egressNode = route.getDemand().getEgressNode();
-            final String ingressNodeName = ingressNode.getName();
-            final String egressNodeName = egressNode.getName();
+            this.attributesColumns = attributesColumns;
+        }
 
-            final Object[] routeData = new Object[netPlanViewTableHeader.length + attributesColumns.size()];
-
-            routeData[COLUMN_ID] = route.getId();
-            routeData[COLUMN_INDEX] = route.getIndex();
-            routeData[COLUMN_DEMAND] = demand.getIndex();
-            routeData[COLUMN_INGRESSNODE] = ingressNode.getIndex() + (ingressNodeName.isEmpty() ? "" : " (" + ingressNodeName + ")");
-            routeData[COLUMN_EGRESSNODE] = egressNode.getIndex() + (egressNodeName.isEmpty() ? "" : " (" + egressNodeName + ")");
-            routeData[COLUMN_DEMANDOFFEREDTRAFFIC] = demand.getOfferedTraffic();
-            routeData[COLUMN_CARRIEDTRAFFIC] = route.getCarriedTraffic();
-            routeData[COLUMN_OCCUPIEDCAPACITY] = getSequenceOccupiedCapacities(route);
-            routeData[COLUMN_SEQUENCEOFLINKSANDRESOURCES] = getSequenceLinkResourceIndexes(route);
-            routeData[COLUMN_SEQUENCEOFNODES] = getSequenceNodeIndexesWithResourceInfo(route);
-            routeData[COLUMN_NUMHOPS] = route.getNumberOfHops();
-            routeData[COLUMN_LENGTH] = route.getLengthInKm();
-            routeData[COLUMN_PROPDELAY] = route.getPropagationDelayInMiliseconds();
-            routeData[COLUMN_BOTTLENECKUTILIZATION] = maxUtilization;
-            routeData[COLUMN_ISBACKUP] = (route.isBackupRoute() ? "yes (" + (CollectionUtils.join(NetPlan.getIndexes(route.getRoutesIAmBackup()), ", ")) + ")" : "no");
-            routeData[COLUMN_HASBACKUPROUTES] = (route.hasBackupRoutes() ? "yes (" + (CollectionUtils.join(NetPlan.getIndexes(route.getBackupRoutes()), ", ")) + ")" : "no");
-            routeData[COLUMN_TAGS] = StringUtils.listToString(Lists.newArrayList(route.getTags()));
-            routeData[COLUMN_ATTRIBUTES] = StringUtils.mapToString(route.getAttributes());
-
-            for (int i = netPlanViewTableHeader.length; i < netPlanViewTableHeader.length + attributesColumns.size(); i++)
+        @Override
+        public Object getCellValue(Route route, int column)
+        {
+            final Demand demand = route.getDemand();
+            switch (column)
             {
-                if (route.getAttributes().containsKey(attributesColumns.get(i - netPlanViewTableHeader.length)))
-                {
-                    routeData[i] = route.getAttribute(attributesColumns.get(i - netPlanViewTableHeader.length));
-                }
+                case COLUMN_ID:
+                    return route.getId();
+                case COLUMN_INDEX:
+                    return route.getIndex();
+                case COLUMN_DEMAND:
+                    return demand.getIndex();
+                case COLUMN_INGRESSNODE:
+                    final Node ingressNode = demand.getIngressNode();
+                    return ingressNode.getIndex() + (ingressNode.getName().isEmpty() ? "" : " (" + ingressNode.getName() + ")");
+                case COLUMN_EGRESSNODE:
+                    final Node egressNode = demand.getEgressNode();
+                    return egressNode.getIndex() + (egressNode.getName().isEmpty() ? "" : " (" + egressNode.getName() + ")");
+                case COLUMN_DEMANDOFFEREDTRAFFIC:
+                    return demand.getOfferedTraffic();
+                case COLUMN_CARRIEDTRAFFIC:
+                    return route.getCarriedTraffic();
+                case COLUMN_OCCUPIEDCAPACITY:
+                    return getSequenceOccupiedCapacities(route);
+                case COLUMN_SEQUENCEOFLINKSANDRESOURCES:
+                    return getSequenceLinkResourceIndexes(route);
+                case COLUMN_SEQUENCEOFNODES:
+                    return getSequenceNodeIndexesWithResourceInfo(route);
+                case COLUMN_NUMHOPS:
+                    return route.getNumberOfHops();
+                case COLUMN_LENGTH:
+                    return route.getLengthInKm();
+                case COLUMN_PROPDELAY:
+                    return route.getPropagationDelayInMiliseconds();
+                case COLUMN_BOTTLENECKUTILIZATION:
+                    return route.getSeqLinks().stream().mapToDouble(e -> e.getUtilization()).max().orElse(0);
+                case COLUMN_ISBACKUP:
+                    return (route.isBackupRoute() ? "yes (" + (CollectionUtils.join(NetPlan.getIndexes(route.getRoutesIAmBackup()), ", ")) + ")" : "no");
+                case COLUMN_HASBACKUPROUTES:
+                    return (route.hasBackupRoutes() ? "yes (" + (CollectionUtils.join(NetPlan.getIndexes(route.getBackupRoutes()), ", ")) + ")" : "no");
+                case COLUMN_TAGS:
+                    return StringUtils.listToString(Lists.newArrayList(route.getTags()));
+                case COLUMN_ATTRIBUTES:
+                    return StringUtils.mapToString(route.getAttributes());
+                default:
+                    return column - netPlanViewTableHeader.length < attributesColumns.size() ? route.getAttribute(attributesColumns.get(column - netPlanViewTableHeader.length)) : null;
             }
+        }
 
-            AggregationUtils.updateRowSum(dataAggregator, COLUMN_DEMANDOFFEREDTRAFFIC, routeData[COLUMN_DEMANDOFFEREDTRAFFIC]);
-            AggregationUtils.updateRowSum(dataAggregator, COLUMN_CARRIEDTRAFFIC, routeData[COLUMN_CARRIEDTRAFFIC]);
-            AggregationUtils.updateRowSum(dataAggregator, COLUMN_OCCUPIEDCAPACITY, routeData[COLUMN_OCCUPIEDCAPACITY]);
-            AggregationUtils.updateRowMax(dataAggregator, COLUMN_NUMHOPS, routeData[COLUMN_NUMHOPS]);
-            AggregationUtils.updateRowMax(dataAggregator, COLUMN_LENGTH, routeData[COLUMN_LENGTH]);
-            AggregationUtils.updateRowMax(dataAggregator, COLUMN_PROPDELAY, routeData[COLUMN_PROPDELAY]);
-            if (route.isBackupRoute()) AggregationUtils.updateRowCount(dataAggregator, COLUMN_ISBACKUP, 1);
-            if (route.hasBackupRoutes()) AggregationUtils.updateRowCount(dataAggregator, COLUMN_HASBACKUPROUTES, 1);
+        @Override
+        public Object[] getAggregatedRow(List<Route> routes)
+        {
+            final double[] dataAggregator = new double[netPlanViewTableHeader.length];
+            for (Route route : routes)
+            {
+                AggregationUtils.updateRowSum(dataAggregator, COLUMN_DEMANDOFFEREDTRAFFIC, route.getDemand().getOfferedTraffic());
+                AggregationUtils.updateRowSum(dataAggregator, COLUMN_CARRIEDTRAFFIC, route.getCarriedTraffic());
+                AggregationUtils.updateRowSum(dataAggregator, COLUMN_OCCUPIEDCAPACITY, getSequenceOccupiedCapacities(route));
+                AggregationUtils.updateRowMax(dataAggregator, COLUMN_NUMHOPS, route.getNumberOfHops());
+                AggregationUtils.updateRowMax(dataAggregator, COLUMN_LENGTH, route.getLengthInKm());
+                AggregationUtils.updateRowMax(dataAggregator, COLUMN_PROPDELAY, route.getPropagationDelayInMiliseconds());
+                if (route.isBackupRoute()) AggregationUtils.updateRowCount(dataAggregator, COLUMN_ISBACKUP, 1);
+                if (route.hasBackupRoutes()) AggregationUtils.updateRowCount(dataAggregator, COLUMN_HASBACKUPROUTES, 1);
+            }
 
-            allRouteData.add(routeData);
+            /* Add the aggregation row with the aggregated statistics */
+            final LastRowAggregatedValue[] aggregatedData = new LastRowAggregatedValue[netPlanViewTableHeader.length + attributesColumns.size()];
+            Arrays.fill(aggregatedData, new LastRowAggregatedValue());
+            aggregatedData[COLUMN_DEMANDOFFEREDTRAFFIC] = new LastRowAggregatedValue(dataAggregator[COLUMN_DEMANDOFFEREDTRAFFIC]);
+            aggregatedData[COLUMN_CARRIEDTRAFFIC] = new LastRowAggregatedValue(dataAggregator[COLUMN_CARRIEDTRAFFIC]);
+            aggregatedData[COLUMN_OCCUPIEDCAPACITY] = new LastRowAggregatedValue(dataAggregator[COLUMN_OCCUPIEDCAPACITY]);
+            aggregatedData[COLUMN_NUMHOPS] = new LastRowAggregatedValue(dataAggregator[COLUMN_NUMHOPS]);
+            aggregatedData[COLUMN_LENGTH] = new LastRowAggregatedValue(dataAggregator[COLUMN_LENGTH]);
+            aggregatedData[COLUMN_PROPDELAY] = new LastRowAggregatedValue(dataAggregator[COLUMN_PROPDELAY]);
+            aggregatedData[COLUMN_ISBACKUP] = new LastRowAggregatedValue(dataAggregator[COLUMN_ISBACKUP]);
+            aggregatedData[COLUMN_HASBACKUPROUTES] = new LastRowAggregatedValue(dataAggregator[COLUMN_HASBACKUPROUTES]);
+            return aggregatedData;
         }
-
-        /* Add the aggregation row with the aggregated statistics */
-        final LastRowAggregatedValue[] aggregatedData = new LastRowAggregatedValue[netPlanViewTableHeader.length + attributesColumns.size()];
-        Arrays.fill(aggregatedData, new LastRowAggregatedValue());
-        aggregatedData[COLUMN_DEMANDOFFEREDTRAFFIC] = new LastRowAggregatedValue(dataAggregator[COLUMN_DEMANDOFFEREDTRAFFIC]);
-        aggregatedData[COLUMN_CARRIEDTRAFFIC] = new LastRowAggregatedValue(dataAggregator[COLUMN_CARRIEDTRAFFIC]);
-        aggregatedData[COLUMN_OCCUPIEDCAPACITY] = new LastRowAggregatedValue(dataAggregator[COLUMN_OCCUPIEDCAPACITY]);
-        aggregatedData[COLUMN_NUMHOPS] = new LastRowAggregatedValue(dataAggregator[COLUMN_NUMHOPS]);
-        aggregatedData[COLUMN_LENGTH] = new LastRowAggregatedValue(dataAggregator[COLUMN_LENGTH]);
-        aggregatedData[COLUMN_PROPDELAY] = new LastRowAggregatedValue(dataAggregator[COLUMN_PROPDELAY]);
-        aggregatedData[COLUMN_ISBACKUP] = new LastRowAggregatedValue(dataAggregator[COLUMN_ISBACKUP]);
-        aggregatedData[COLUMN_HASBACKUPROUTES] = new LastRowAggregatedValue(dataAggregator[COLUMN_HASBACKUPROUTES]);
-        allRouteData.add(aggregatedData);
-
-        return allRouteData;
     }
 
     public String getTabName()
@@ -222,7 +252,7 @@ public class AdvancedJTable_route extends AdvancedJTable_networkElement
 
     private static TableModel createTableModel(final GUINetworkDesign callback)
     {
-        TableModel routeTableModel = new ClassAwareTableModel(new Object[1][netPlanViewTableHeader.length], netPlanViewTableHeader)
+        TableModel routeTableModel = new LazyTableModel(new Object[1][netPlanViewTableHeader.length], netPlanViewTableHeader)
         {
             private static final long serialVersionUID = 1L;
 